@@ -15,6 +15,16 @@
  */
 package org.dbflute.mail;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+
 import org.dbflute.mail.send.SMailDeliveryDepartment;
 import org.dbflute.mail.send.SMailPostalMotorbike;
 import org.dbflute.mail.send.SMailPostie;
@@ -40,6 +50,7 @@ public class PostOffice {
     //                                                                           Attribute
     //                                                                           =========
     protected final SMailDeliveryDepartment deliveryDepartment;
+    protected Executor parallelRenderingExecutor; // null allowed: plain and HTML are rendered in caller thread
 
     // ===================================================================================
     //                                                                         Constructor
@@ -51,20 +62,70 @@ public class PostOffice {
         this.deliveryDepartment = deliveryDepartment;
     }
 
+    /**
+     * Render the plain and HTML bodies concurrently by fork-join common pool (only for postcards with HTML). <br>
+     * The HTML is rendered in the pool while the plain is rendered in caller thread,
+     * and both are joined before the subject header proofreading.
+     * @return this. (NotNull)
+     */
+    public PostOffice asParallelRendering() {
+        return asParallelRendering(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Render the plain and HTML bodies concurrently by the executor (only for postcards with HTML). <br>
+     * The proofreader should be thread-safe (embedded ones are), and thread-local context is not inherited.
+     * @param executor The executor to render HTML body e.g. your thread pool. (NotNull)
+     * @return this. (NotNull)
+     */
+    public PostOffice asParallelRendering(Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("The argument 'executor' should not be null.");
+        }
+        this.parallelRenderingExecutor = executor;
+        return this;
+    }
+
     // ===================================================================================
     //                                                                        Deliver Mail
     //                                                                        ============
     public void deliver(Postcard postcard) {
+        prepareDelivery(postcard);
+
+        final SMailPostalMotorbike motorbike = fetchMotorbike(postcard);
+        final SMailPostie postie = fetchPostie(postcard, motorbike);
+        postie.deliver(postcard);
+    }
+
+    /**
+     * Deliver the postcards together for batch process. <br>
+     * The postcards are grouped by motorbike, and each group is sent over one SMTP session
+     * (if the postie supports it) in caller thread, so async() of postcard is ignored.
+     * @param postcardList The list of postcards to be delivered. (NotNull)
+     */
+    public void deliverTogether(List<Postcard> postcardList) {
+        if (postcardList == null) {
+            throw new IllegalArgumentException("The argument 'postcardList' should not be null.");
+        }
+        final Map<SMailPostalMotorbike, List<Postcard>> motorbikeMap = new LinkedHashMap<SMailPostalMotorbike, List<Postcard>>();
+        for (Postcard postcard : postcardList) {
+            prepareDelivery(postcard);
+            final SMailPostalMotorbike motorbike = fetchMotorbike(postcard);
+            motorbikeMap.computeIfAbsent(motorbike, key -> new ArrayList<Postcard>()).add(postcard);
+        }
+        motorbikeMap.forEach((motorbike, groupList) -> {
+            final SMailPostie postie = fetchPostie(groupList.get(0), motorbike); // postie per motorbike
+            postie.deliverTogether(groupList);
+        });
+    }
+
+    protected void prepareDelivery(Postcard postcard) {
         postcard.officeCheck();
 
         final SMailReceptionist receptionist = fetchReceptionist(postcard);
         receptionist.accept(postcard); // make body text (may be from body file)
 
         proofreadIfNeeds(postcard); // make complete text
-
-        final SMailPostalMotorbike motorbike = fetchMotorbike(postcard);
-        final SMailPostie postie = fetchPostie(postcard, motorbike);
-        postie.deliver(postcard);
     }
 
     // ===================================================================================
@@ -73,9 +134,16 @@ public class PostOffice {
     protected void proofreadIfNeeds(Postcard postcard) {
         if (needsProofreading(postcard)) {
             final SMailTextProofreader proofreader = fetchProofreader(postcard);
-            postcard.proofreadPlain((reading, varMap) -> proofreader.proofread(reading, varMap));
-            if (postcard.hasHtmlBody()) {
-                postcard.proofreadHtml((reading, varMap) -> proofreader.proofread(reading, varMap));
+            if (postcard.hasOfficeSubjectTemplate()) { // split from body meta, before body as original order
+                postcard.proofreadSubjectTemplate((reading, varMap) -> proofreader.proofread(reading, varMap));
+            }
+            if (parallelRenderingExecutor != null && postcard.hasHtmlBody()) {
+                proofreadParallel(postcard, proofreader, parallelRenderingExecutor);
+            } else {
+                postcard.proofreadPlain((reading, varMap) -> proofreader.proofread(reading, varMap));
+                if (postcard.hasHtmlBody()) {
+                    postcard.proofreadHtml((reading, varMap) -> proofreader.proofread(reading, varMap));
+                }
             }
         }
         if (needsSubjectHeader(postcard)) { // because forcedly-direct requires direct subject
@@ -83,6 +151,38 @@ public class PostOffice {
         }
     }
 
+    protected void proofreadParallel(Postcard postcard, SMailTextProofreader proofreader, Executor executor) {
+        final CompletableFuture<Void> htmlFuture;
+        try {
+            htmlFuture = CompletableFuture.runAsync(() -> { // HTML is heavier so forked
+                postcard.proofreadHtml((reading, varMap) -> proofreader.proofread(reading, varMap));
+            }, executor);
+        } catch (RejectedExecutionException e) { // e.g. shutdown, full queue
+            postcard.proofreadPlain((reading, varMap) -> proofreader.proofread(reading, varMap));
+            postcard.proofreadHtml((reading, varMap) -> proofreader.proofread(reading, varMap));
+            return;
+        }
+        try {
+            postcard.proofreadPlain((reading, varMap) -> proofreader.proofread(reading, varMap));
+        } catch (RuntimeException | Error e) { // same exception as sequential, plain first
+            try {
+                htmlFuture.join(); // not to update the postcard after returning
+            } catch (RuntimeException ignored) {}
+            throw e;
+        }
+        try {
+            htmlFuture.join(); // also visibility of proofread HTML
+        } catch (CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) { // e.g. null variable
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
     protected boolean needsProofreading(Postcard postcard) {
         return !postcard.isWholeFixedTextUsed() && postcard.hasTemplateVariable();
     }
@@ -88,6 +88,8 @@ public class Postcard implements CardView {
     //                                       ---------------
     protected String proofreadingPlain;
     protected String proofreadingHtml;
+    protected String officeSubjectTemplate; // null allowed: not split from body meta, e.g. direct body
+    protected String proofreadingSubjectTemplate;
     protected Map<String, Map<String, Object>> officeManagedLoggingMap; // optional, lazy loaded
     protected SMailPostingDiscloser officePostingDiscloser;
 
@@ -435,6 +437,11 @@ public class Postcard implements CardView {
         alsoHtmlFile = true;
     }
 
+    public void officeSubjectTemplate(String subjectTemplate) { // split from body meta by receptionist
+        assertArgumentNotNull("subjectTemplate", subjectTemplate);
+        officeSubjectTemplate = subjectTemplate;
+    }
+
     // -----------------------------------------------------
     //                                      Office Proofread
     //                                      ----------------
@@ -450,6 +457,22 @@ public class Postcard implements CardView {
         this.proofreadingHtml = proofreader.apply(getProofreadingOrOriginalHtml().get(), getTemplaetVariableMap());
     }
 
+    public void proofreadSubjectTemplate(BiFunction<String, Map<String, Object>, String> proofreader) {
+        if (officeSubjectTemplate != null) { // only when split from body meta
+            this.proofreadingSubjectTemplate = proofreader.apply(toCompleteSubjectTemplate().get(), getTemplaetVariableMap());
+        }
+    }
+
+    public boolean hasOfficeSubjectTemplate() {
+        return officeSubjectTemplate != null;
+    }
+
+    public OptionalThing<String> toCompleteSubjectTemplate() {
+        return OptionalThing.ofNullable(proofreadingSubjectTemplate != null ? proofreadingSubjectTemplate : officeSubjectTemplate, () -> {
+            throw new SMailIllegalStateException("Not found the subject template: " + toString());
+        });
+    }
+
     public OptionalThing<String> toCompletePlainText() {
         return getProofreadingOrOriginalPlain();
     }
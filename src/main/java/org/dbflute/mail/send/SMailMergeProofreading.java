@@ -0,0 +1,71 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The proofreading of one template for mail-merge, prepared with shared variables. <br>
+ * The shared variables (e.g. campaign-level constants) are fixed when preparing,
+ * and the per-recipient variables (e.g. member name) are given to each proofreading.
+ * <pre>
+ * e.g.
+ *  SMailMergeProofreading proofreading = proofreader.prepareMerge(templateText, sharedVariableMap);
+ *  for (Map&lt;String, Object&gt; recipientVariableMap : recipientList) {
+ *      String text = proofreading.<span style="color: #CC4747">proofread</span>(recipientVariableMap);
+ *  }
+ * </pre>
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+@FunctionalInterface
+public interface SMailMergeProofreading {
+
+    /**
+     * Proofread the template for the recipient, with the shared variables.
+     * @param recipientVariableMap The map of per-recipient variables, cannot contain shared names. (NotNull, EmptyAllowed)
+     * @return The proofread text for the recipient. (NotNull)
+     * @throws IllegalArgumentException When the per-recipient variables contain the shared name.
+     */
+    String proofread(Map<String, Object> recipientVariableMap);
+
+    /**
+     * Merge the shared and per-recipient variables, the split should be explicit (no override).
+     * @param sharedVariableMap The map of shared variables. (NotNull)
+     * @param recipientVariableMap The map of per-recipient variables. (NotNull)
+     * @return The new-created map of whole variables. (NotNull)
+     * @throws IllegalArgumentException When the per-recipient variables contain the shared name.
+     */
+    static Map<String, Object> mergeVariableMap(Map<String, Object> sharedVariableMap, Map<String, Object> recipientVariableMap) {
+        if (sharedVariableMap == null) {
+            throw new IllegalArgumentException("The argument 'sharedVariableMap' should not be null.");
+        }
+        if (recipientVariableMap == null) {
+            throw new IllegalArgumentException("The argument 'recipientVariableMap' should not be null.");
+        }
+        final int size = sharedVariableMap.size() + recipientVariableMap.size();
+        final Map<String, Object> mergedMap = new HashMap<String, Object>(size + (size >> 1) + 1);
+        mergedMap.putAll(sharedVariableMap);
+        recipientVariableMap.forEach((key, value) -> {
+            if (sharedVariableMap.containsKey(key)) { // shared text may be already evaluated
+                throw new IllegalArgumentException("The per-recipient variable should not be shared: " + key);
+            }
+            mergedMap.put(key, value);
+        });
+        return mergedMap;
+    }
+}
@@ -16,12 +16,25 @@
 package org.dbflute.mail.send;
 
 import java.util.Properties;
+import java.util.function.Consumer;
 
 import javax.mail.Authenticator;
+import javax.mail.NoSuchProviderException;
 import javax.mail.PasswordAuthentication;
+import javax.mail.Provider;
 import javax.mail.Session;
+import javax.mail.Transport;
 
 import org.dbflute.mail.send.exception.SMailIllegalStateException;
+import org.dbflute.mail.send.supplement.motorbike.SMailCircuitBreaker;
+import org.dbflute.mail.send.supplement.motorbike.SMailCircuitBreakerOption;
+import org.dbflute.mail.send.supplement.motorbike.SMailMotorbikeTraffic;
+import org.dbflute.mail.send.supplement.motorbike.SMailRateLimiter;
+import org.dbflute.mail.send.supplement.motorbike.SMailRateLimiterOption;
+import org.dbflute.mail.send.supplement.transport.SMailPipeliningSslTransport;
+import org.dbflute.mail.send.supplement.transport.SMailPipeliningTransport;
+import org.dbflute.mail.send.supplement.transport.SMailTransportPool;
+import org.dbflute.mail.send.supplement.transport.SMailTransportPoolOption;
 import org.dbflute.optional.OptionalThing;
 import org.dbflute.util.Srl;
 
@@ -46,6 +59,11 @@ public class SMailPostalMotorbike {
     protected final Session session; // not null
     protected final boolean hasAuth;
     protected MotorbikeSecurityType securityType = MotorbikeSecurityType.NONE;
+    protected SMailTransportPool transportPool; // null allowed: connect per message
+    protected boolean pipelining; // uses pipelining transport
+    protected final SMailMotorbikeTraffic traffic = createTraffic(); // not null, counted by postie
+    protected SMailCircuitBreaker circuitBreaker; // null allowed: always available
+    protected SMailRateLimiter rateLimiter; // null allowed: no limit
 
     protected enum MotorbikeSecurityType {
         NONE, SSL, STARTTLS
@@ -96,6 +114,10 @@ public class SMailPostalMotorbike {
         };
     }
 
+    protected SMailMotorbikeTraffic createTraffic() {
+        return new SMailMotorbikeTraffic();
+    }
+
     protected Session createSession() {
         return Session.getInstance(createSessionProperties());
     }
@@ -162,6 +184,115 @@ public class SMailPostalMotorbike {
         session.getProperties().setProperty(resolveProtocolKey(MAIL_SMTP_AUTH), "true");
     }
 
+    /**
+     * Motorbike keeps connected transports in pool and postie reuses them. <br>
+     * If the pool is exhausted, postie connects per message as without pool.
+     * <pre>
+     * e.g.
+     *  SMailPostalMotorbike motorbike = new SMailPostalMotorbike("sea", "land").useStarttls();
+     *  motorbike.registerConnectionInfo(...);
+     *  motorbike.<span style="color: #CC4747">usePooledTransport</span>(op -&gt; op.maxSize(4).minIdle(1).maxMessagesPerConnection(50));
+     * </pre>
+     * @param opLambda The callback for option of transport pool. (NotNull)
+     * @return this. (NotNull)
+     */
+    public SMailPostalMotorbike usePooledTransport(Consumer<SMailTransportPoolOption> opLambda) {
+        assertArgumentNotNull("opLambda", opLambda);
+        if (transportPool != null) {
+            throw new IllegalStateException("Already pooled transport: " + transportPool);
+        }
+        final SMailTransportPoolOption option = new SMailTransportPoolOption();
+        opLambda.accept(option);
+        transportPool = createTransportPool(option);
+        return this;
+    }
+
+    protected SMailTransportPool createTransportPool(SMailTransportPoolOption option) {
+        return new SMailTransportPool(session, option);
+    }
+
+    /**
+     * Motorbike uses the transport that pipelines envelope commands (MAIL FROM and RCPT TO)
+     * if the server advertises PIPELINING extension. (RFC 2920) <br>
+     * It saves round trips per recipient, and the reply per recipient is disclosed by posting message.
+     * <pre>
+     * e.g.
+     *  SMailPostalMotorbike motorbike = new SMailPostalMotorbike("sea", "land").useStarttls();
+     *  motorbike.registerConnectionInfo(...);
+     *  motorbike.<span style="color: #CC4747">usePipeliningTransport()</span>;
+     * </pre>
+     * @return this. (NotNull)
+     */
+    public SMailPostalMotorbike usePipeliningTransport() {
+        try {
+            session.setProvider(createTransportProvider("smtp", SMailPipeliningTransport.class));
+            session.setProvider(createTransportProvider("smtps", SMailPipeliningSslTransport.class));
+        } catch (NoSuchProviderException e) { // basically no way
+            throw new SMailIllegalStateException("Failed to register the pipelining transport: session=" + session, e);
+        }
+        pipelining = true;
+        return this;
+    }
+
+    protected Provider createTransportProvider(String protocol, Class<? extends Transport> transportType) {
+        return new Provider(Provider.Type.TRANSPORT, protocol, transportType.getName(), "DBFlute", "1.0");
+    }
+
+    /**
+     * Motorbike stops sending for a while after consecutive transient failures (circuit breaker). <br>
+     * Motorbike group skips the open motorbike so it fails over to others, and postie logs the state changes.
+     * <pre>
+     * e.g.
+     *  SMailPostalMotorbike motorbike = new SMailPostalMotorbike("sea", "land").useStarttls();
+     *  motorbike.registerConnectionInfo(...);
+     *  motorbike.<span style="color: #CC4747">useCircuitBreaker</span>(op -&gt; op.failureThreshold(3).openMillis(60000L));
+     * </pre>
+     * @param opLambda The callback for option of circuit breaker. (NotNull)
+     * @return this. (NotNull)
+     */
+    public SMailPostalMotorbike useCircuitBreaker(Consumer<SMailCircuitBreakerOption> opLambda) {
+        assertArgumentNotNull("opLambda", opLambda);
+        if (circuitBreaker != null) {
+            throw new IllegalStateException("Already used circuit breaker: " + circuitBreaker);
+        }
+        final SMailCircuitBreakerOption option = new SMailCircuitBreakerOption();
+        opLambda.accept(option);
+        circuitBreaker = createCircuitBreaker(option);
+        return this;
+    }
+
+    protected SMailCircuitBreaker createCircuitBreaker(SMailCircuitBreakerOption option) {
+        return new SMailCircuitBreaker(option);
+    }
+
+    /**
+     * Motorbike limits sending rate by token bucket, e.g. for caps per account of SMTP provider. <br>
+     * Postie reserves the permission before sending, async sending is delayed
+     * and sync caller waits for the bounded time or is rejected by exception.
+     * <pre>
+     * e.g. 10 messages at once, 2 messages per second, 5000 messages per hour
+     *  SMailPostalMotorbike motorbike = new SMailPostalMotorbike("sea", "land").useStarttls();
+     *  motorbike.registerConnectionInfo(...);
+     *  motorbike.<span style="color: #CC4747">useRateLimiter</span>(op -&gt; op.sustainedRate(2.0).burstSize(10).hourlyQuota(5000));
+     * </pre>
+     * @param opLambda The callback for option of rate limiter, sustained rate is required. (NotNull)
+     * @return this. (NotNull)
+     */
+    public SMailPostalMotorbike useRateLimiter(Consumer<SMailRateLimiterOption> opLambda) {
+        assertArgumentNotNull("opLambda", opLambda);
+        if (rateLimiter != null) {
+            throw new IllegalStateException("Already used rate limiter: " + rateLimiter);
+        }
+        final SMailRateLimiterOption option = new SMailRateLimiterOption();
+        opLambda.accept(option);
+        rateLimiter = createRateLimiter(option);
+        return this;
+    }
+
+    protected SMailRateLimiter createRateLimiter(SMailRateLimiterOption option) {
+        return new SMailRateLimiter(option);
+    }
+
     // ===================================================================================
     //                                                                            Register
     //                                                                            ========
@@ -216,6 +347,18 @@ public class SMailPostalMotorbike {
         session.getProperties().setProperty(key, value);
     }
 
+    // ===================================================================================
+    //                                                                             Dispose
+    //                                                                             =======
+    /**
+     * Close the pooled transports if it uses pool. (e.g. when application shutdown)
+     */
+    public void closeTransportPool() {
+        if (transportPool != null) {
+            transportPool.close();
+        }
+    }
+
     // ===================================================================================
     //                                                                       Assist Helper
     //                                                                       =============
@@ -233,7 +376,12 @@ public class SMailPostalMotorbike {
     //                                                                      ==============
     @Override
     public String toString() {
-        return "motorbike:{session=" + session + (hasAuth ? ", auth(" + securityType + ")" : "") + "}";
+        final String authExp = hasAuth ? ", auth(" + securityType + ")" : "";
+        final String pipeliningExp = pipelining ? ", pipelining" : "";
+        final String poolExp = transportPool != null ? ", " + transportPool : "";
+        final String breakerExp = circuitBreaker != null ? ", " + circuitBreaker : "";
+        final String rateExp = rateLimiter != null ? ", " + rateLimiter : "";
+        return "motorbike:{session=" + session + authExp + pipeliningExp + poolExp + breakerExp + rateExp + "}";
     }
 
     // ===================================================================================
@@ -243,6 +391,32 @@ public class SMailPostalMotorbike {
         return session;
     }
 
+    public SMailMotorbikeTraffic getTraffic() {
+        return traffic;
+    }
+
+    public boolean isPipelining() {
+        return pipelining;
+    }
+
+    public OptionalThing<SMailTransportPool> getTransportPool() {
+        return OptionalThing.ofNullable(transportPool, () -> {
+            throw new SMailIllegalStateException("Not use pooled transport: " + toString());
+        });
+    }
+
+    public OptionalThing<SMailCircuitBreaker> getCircuitBreaker() {
+        return OptionalThing.ofNullable(circuitBreaker, () -> {
+            throw new SMailIllegalStateException("Not use circuit breaker: " + toString());
+        });
+    }
+
+    public OptionalThing<SMailRateLimiter> getRateLimiter() {
+        return OptionalThing.ofNullable(rateLimiter, () -> {
+            throw new SMailIllegalStateException("Not use rate limiter: " + toString());
+        });
+    }
+
     public OptionalThing<String> getReturnPath() {
         return OptionalThing.ofNullable(session.getProperty(MAIL_SMTP_FROM), () -> {
             throw new SMailIllegalStateException("Not found the return path (" + MAIL_SMTP_FROM + "): " + session.getProperties());
@@ -22,6 +22,8 @@ import org.dbflute.mail.DeliveryCategory;
 import org.dbflute.mail.PostOffice;
 import org.dbflute.mail.Postcard;
 import org.dbflute.mail.send.exception.SMailIllegalStateException;
+import org.dbflute.mail.send.supplement.motorbike.SMailMotorbikeGroup;
+import org.dbflute.mail.send.supplement.motorbike.SMailMotorbikeGroup.GroupBalancing;
 import org.dbflute.util.DfTypeUtil;
 
 /**
@@ -39,6 +41,7 @@ public class SMailPostalParkingLot {
     //                                                                           Attribute
     //                                                                           =========
     protected final Map<DeliveryCategory, SMailPostalMotorbike> motorbikeMap = new ConcurrentHashMap<>();
+    protected final Map<DeliveryCategory, SMailMotorbikeGroup> motorbikeGroupMap = new ConcurrentHashMap<>(); // prior to single
 
     // ===================================================================================
     //                                                                    Session Handling
@@ -46,9 +49,14 @@ public class SMailPostalParkingLot {
     public SMailPostalMotorbike findMotorbike(Postcard postcard) {
         final DeliveryCategory category = postcard.getDeliveryCategory().orElse(MAIN_CATEGORY);
         postcard.officeManagedLogging(PostOffice.LOGGING_TITLE_SYSINFO, "category", category.getCategory());
+        final SMailMotorbikeGroup group = motorbikeGroupMap.get(category);
+        if (group != null) {
+            return group.select();
+        }
         final SMailPostalMotorbike motorbike = motorbikeMap.get(category);
         if (motorbike == null) {
             String msg = "Not found the motorbike (session) by the category: " + category + ", " + motorbikeMap;
+            msg = msg + ", " + motorbikeGroupMap;
             throw new SMailIllegalStateException(msg);
         }
         return motorbike;
@@ -62,11 +70,51 @@ public class SMailPostalParkingLot {
         registerMotorbike(MAIN_CATEGORY, motorbike);
     }
 
+    /**
+     * Register the group of motorbikes for the category, one of them is selected per postcard.
+     * @param category The delivery category for the group. (NotNull)
+     * @param group The group of motorbikes that has at least one motorbike. (NotNull)
+     */
+    public void registerMotorbikeGroup(DeliveryCategory category, SMailMotorbikeGroup group) {
+        if (group.getMotorbikeList().isEmpty()) {
+            throw new IllegalArgumentException("The group should have at least one motorbike: " + category + ", " + group);
+        }
+        motorbikeGroupMap.put(category, group);
+    }
+
+    public void registerMotorbikeGroupAsMain(SMailMotorbikeGroup group) {
+        registerMotorbikeGroup(MAIN_CATEGORY, group);
+    }
+
+    /**
+     * Register the motorbikes as failover chain for the category, the first available one is used. <br>
+     * The motorbikes should use circuit breaker to be skipped when they are broken.
+     * <pre>
+     * e.g.
+     *  primary.useCircuitBreaker(op -&gt; op.failureThreshold(3));
+     *  parkingLot.<span style="color: #CC4747">registerMotorbikeFailover</span>(category, primary, secondary);
+     * </pre>
+     * @param category The delivery category for the chain. (NotNull)
+     * @param primary The motorbike used normally. (NotNull)
+     * @param secondaries The motorbikes used while prior ones are broken, in order. (NotNull, NotEmpty)
+     */
+    public void registerMotorbikeFailover(DeliveryCategory category, SMailPostalMotorbike primary, SMailPostalMotorbike... secondaries) {
+        if (secondaries.length == 0) {
+            throw new IllegalArgumentException("The secondaries should have at least one motorbike: " + category + ", " + primary);
+        }
+        final SMailMotorbikeGroup group = new SMailMotorbikeGroup(GroupBalancing.FAILOVER).join(primary);
+        for (SMailPostalMotorbike secondary : secondaries) {
+            group.join(secondary);
+        }
+        registerMotorbikeGroup(category, group);
+    }
+
     // ===================================================================================
     //                                                                      Basic Override
     //                                                                      ==============
     @Override
     public String toString() {
-        return DfTypeUtil.toClassTitle(this) + ":{" + motorbikeMap + "}@" + Integer.toHexString(hashCode());
+        final String groupExp = !motorbikeGroupMap.isEmpty() ? ", " + motorbikeGroupMap : "";
+        return DfTypeUtil.toClassTitle(this) + ":{" + motorbikeMap + groupExp + "}@" + Integer.toHexString(hashCode());
     }
 }
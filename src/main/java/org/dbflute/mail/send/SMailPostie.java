@@ -15,6 +15,8 @@
  */
 package org.dbflute.mail.send;
 
+import java.util.List;
+
 import org.dbflute.mail.Postcard;
 
 /**
@@ -24,4 +26,13 @@ import org.dbflute.mail.Postcard;
 public interface SMailPostie {
 
     void deliver(Postcard post);
+
+    /**
+     * Deliver the postcards together, e.g. over one SMTP session for batch process. <br>
+     * The postcards should be for the same motorbike, and already proofread by post office.
+     * @param postList The list of postcards to be delivered. (NotNull)
+     */
+    default void deliverTogether(List<Postcard> postList) {
+        postList.forEach(post -> deliver(post));
+    }
 }
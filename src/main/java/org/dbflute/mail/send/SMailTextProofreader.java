@@ -15,6 +15,9 @@
  */
 package org.dbflute.mail.send;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -25,5 +28,40 @@ public interface SMailTextProofreader {
 
     String proofread(String templateText, Map<String, Object> variableMap);
 
+    /**
+     * Proofread the template text into the writer, e.g. encoded text buffer for large text. <br>
+     * As default, the proofread string is written, so override it for streaming.
+     * @param templateText The text of template to be proofread. (NotNull)
+     * @param variableMap The map of template variables. (NotNull)
+     * @param writer The writer of proofread text, not flushed and not closed here. (NotNull)
+     * @throws IOException When it fails to write.
+     */
+    default void proofread(String templateText, Map<String, Object> variableMap, Writer writer) throws IOException {
+        writer.write(proofread(templateText, variableMap));
+    }
+
+    /**
+     * Prepare the proofreading of the template for mail-merge, e.g. bulk sending of one template to many recipients. <br>
+     * As default, the whole template is proofread for each recipient, so override it for partial evaluation.
+     * @param templateText The text of template to be proofread. (NotNull)
+     * @param sharedVariableMap The map of variables shared by all recipients, copied here. (NotNull, EmptyAllowed)
+     * @return The proofreading for each recipient, thread-safe if the proofreader is. (NotNull)
+     */
+    default SMailMergeProofreading prepareMerge(String templateText, Map<String, Object> sharedVariableMap) {
+        final Map<String, Object> sharedMap = new LinkedHashMap<String, Object>(sharedVariableMap);
+        return recipientVariableMap -> {
+            return proofread(templateText, SMailMergeProofreading.mergeVariableMap(sharedMap, recipientVariableMap));
+        };
+    }
+
+    /**
+     * Precompile the template text ahead of time, e.g. at build time or application startup. <br>
+     * Template errors (e.g. IF comment without END comment) are thrown here instead of at the first mail. <br>
+     * As default, nothing is done, so override it if the proofreader prepares something by template text.
+     * @param templateText The text of template to be proofread later, same as the text read by receptionist. (NotNull)
+     */
+    default void precompile(String templateText) {
+    }
+
     void workingDispose();
 }
@@ -15,7 +15,9 @@
  */
 package org.dbflute.mail.send.embedded.personnel;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import org.dbflute.mail.Postcard;
@@ -25,9 +27,12 @@ import org.dbflute.mail.send.SMailPostie;
 import org.dbflute.mail.send.SMailReceptionist;
 import org.dbflute.mail.send.SMailTextProofreader;
 import org.dbflute.mail.send.embedded.postie.SMailHonestPostie;
+import org.dbflute.mail.send.embedded.postie.SMailNioPostie;
 import org.dbflute.mail.send.embedded.proofreader.SMailBatchProofreader;
 import org.dbflute.mail.send.embedded.proofreader.SMailPmCommentProofreader;
 import org.dbflute.mail.send.embedded.receptionist.SMailConventionReceptionist;
+import org.dbflute.mail.send.embedded.receptionist.SMailTemplatePrecompiler;
+import org.dbflute.mail.send.exception.SMailIllegalStateException;
 import org.dbflute.mail.send.supplement.async.SMailAsyncStrategy;
 import org.dbflute.mail.send.supplement.filter.SMailAddressFilter;
 import org.dbflute.mail.send.supplement.filter.SMailBodyTextFilter;
@@ -38,6 +43,8 @@ import org.dbflute.mail.send.supplement.inetaddr.SMailInternetAddressCreator;
 import org.dbflute.mail.send.supplement.label.SMailLabelStrategy;
 import org.dbflute.mail.send.supplement.logging.SMailLoggingStrategy;
 import org.dbflute.mail.send.supplement.retry.SMailRetryStrategy;
+import org.dbflute.mail.send.supplement.scheduler.SMailDomainScheduler;
+import org.dbflute.mail.send.supplement.transport.SMailNioSmtpEngine;
 import org.dbflute.optional.OptionalThing;
 import org.dbflute.util.DfTypeUtil;
 
@@ -70,6 +77,13 @@ public class SMailDogmaticPostalPersonnel implements SMailPostalPersonnel {
     protected final OptionalThing<SMailLoggingStrategy> loggingStrategy;
     protected final OptionalThing<SMailMailHeaderStrategy> mailHeaderStrategy;
     protected final OptionalThing<SMailInternetAddressCreator> internetAddressCreator;
+    protected final OptionalThing<SMailDomainScheduler> domainScheduler; // shared by posties
+
+    // -----------------------------------------------------
+    //                                          Postie Style
+    //                                          ------------
+    protected SMailNioSmtpEngine nioEngine; // null allowed: honest (blocking) postie
+    protected int coalescingMaxRecipients; // zero means no envelope coalescing
 
     // -----------------------------------------------------
     //                                       for Development
@@ -92,6 +106,7 @@ public class SMailDogmaticPostalPersonnel implements SMailPostalPersonnel {
         loggingStrategy = createLoggingStrategy();
         mailHeaderStrategy = createMailHeaderStrategy();
         internetAddressCreator = createInternetAddressCreator();
+        domainScheduler = createDomainScheduler();
     }
 
     public void workingDispose() {
@@ -197,6 +212,41 @@ public class SMailDogmaticPostalPersonnel implements SMailPostalPersonnel {
         return OptionalThing.empty();
     }
 
+    protected OptionalThing<SMailDomainScheduler> createDomainScheduler() { // e.g. for bulk sending to big mailbox providers
+        return OptionalThing.empty();
+    }
+
+    // -----------------------------------------------------
+    //                                          Postie Style
+    //                                          ------------
+    /**
+     * Use the postie sending by NIO SMTP engine instead of honest (blocking) one. <br>
+     * The engine is not closed by personnel, so close it when your application shutdown.
+     * @param nioEngine The NIO SMTP engine shared by posties. (NotNull)
+     * @return this. (NotNull)
+     */
+    public SMailDogmaticPostalPersonnel useNioEngine(SMailNioSmtpEngine nioEngine) {
+        if (nioEngine == null) {
+            throw new IllegalArgumentException("The argument 'nioEngine' should not be null.");
+        }
+        this.nioEngine = nioEngine;
+        return this;
+    }
+
+    /**
+     * Use envelope coalescing in together delivery, identical-content messages are sent in one transaction. <br>
+     * The To header of the coalesced message is undisclosed-recipients, so use it for e.g. announcements.
+     * @param maxRecipients The max count of recipients in one transaction, e.g. 100 (minimum of RFC 5321). (GreaterThanOne)
+     * @return this. (NotNull)
+     */
+    public SMailDogmaticPostalPersonnel useEnvelopeCoalescing(int maxRecipients) {
+        if (maxRecipients <= 1) {
+            throw new IllegalArgumentException("The argument 'maxRecipients' should be greater than one: " + maxRecipients);
+        }
+        this.coalescingMaxRecipients = maxRecipients;
+        return this;
+    }
+
     // -----------------------------------------------------
     //                                       for Development
     //                                       ---------------
@@ -205,6 +255,39 @@ public class SMailDogmaticPostalPersonnel implements SMailPostalPersonnel {
         return this;
     }
 
+    // ===================================================================================
+    //                                                                          Precompile
+    //                                                                          ==========
+    /**
+     * Precompile the mail templates in class-path ahead of time, e.g. at application startup. <br>
+     * Template errors are thrown here, and the first mail of them does not read and compile the templates.
+     * @param bodyFileList The list of body file paths, same as postcard's body file e.g. member/welcome.dfmail (NotNull)
+     * @return this. (NotNull)
+     */
+    public SMailDogmaticPostalPersonnel precompileTemplates(Collection<String> bodyFileList) {
+        createTemplatePrecompiler().precompileClasspath(bodyFileList);
+        return this;
+    }
+
+    /**
+     * Precompile all mail templates in the directory ahead of time, e.g. exploded class-path of the application. <br>
+     * Template errors are thrown here, and the first mail of them does not read and compile the templates.
+     * @param templateDir The directory of mail templates, same as class-path base of receptionist. (NotNull)
+     * @return this. (NotNull)
+     */
+    public SMailDogmaticPostalPersonnel precompileTemplates(File templateDir) {
+        createTemplatePrecompiler().precompileDirectory(templateDir);
+        return this;
+    }
+
+    protected SMailTemplatePrecompiler createTemplatePrecompiler() {
+        if (!(receptionist instanceof SMailConventionReceptionist)) {
+            String msg = "Cannot precompile the templates without convention receptionist: " + receptionist;
+            throw new SMailIllegalStateException(msg);
+        }
+        return new SMailTemplatePrecompiler((SMailConventionReceptionist) receptionist, proofreader);
+    }
+
     // ===================================================================================
     //                                                                              Select
     //                                                                              ======
@@ -240,10 +323,17 @@ public class SMailDogmaticPostalPersonnel implements SMailPostalPersonnel {
         loggingStrategy.ifPresent(strategy -> postie.withLoggingStrategy(strategy));
         mailHeaderStrategy.ifPresent(strategy -> postie.withMailHeaderStrategy(strategy));
         internetAddressCreator.ifPresent(creator -> postie.withInternetAddressCreator(creator));
+        domainScheduler.ifPresent(scheduler -> postie.withDomainScheduler(scheduler));
+        if (coalescingMaxRecipients > 0) {
+            postie.withEnvelopeCoalescing(coalescingMaxRecipients);
+        }
         return training ? postie.asTraining() : postie;
     }
 
     protected SMailHonestPostie newMailHonestPostie(SMailPostalMotorbike motorbike) {
+        if (nioEngine != null) {
+            return new SMailNioPostie(motorbike, nioEngine);
+        }
         return new SMailHonestPostie(motorbike);
     }
 
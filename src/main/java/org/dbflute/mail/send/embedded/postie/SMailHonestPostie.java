@@ -20,11 +20,19 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
 
 import javax.activation.DataHandler;
 import javax.activation.DataSource;
@@ -32,15 +40,19 @@ import javax.mail.Address;
 import javax.mail.BodyPart;
 import javax.mail.MessagingException;
 import javax.mail.NoSuchProviderException;
+import javax.mail.SendFailedException;
 import javax.mail.Session;
 import javax.mail.Transport;
 import javax.mail.internet.AddressException;
+import javax.mail.internet.ContentType;
 import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeBodyPart;
 import javax.mail.internet.MimeMessage;
 import javax.mail.internet.MimeMultipart;
 import javax.mail.internet.MimePart;
 import javax.mail.internet.MimeUtility;
+import javax.mail.internet.ParameterList;
+import javax.mail.internet.ParseException;
 import javax.mail.util.ByteArrayDataSource;
 
 import org.dbflute.helper.message.ExceptionMessageBuilder;
@@ -49,14 +61,17 @@ import org.dbflute.mail.Postcard;
 import org.dbflute.mail.send.SMailAddress;
 import org.dbflute.mail.send.SMailPostalMotorbike;
 import org.dbflute.mail.send.SMailPostie;
+import org.dbflute.mail.send.exception.SMailCircuitBreakerOpenException;
 import org.dbflute.mail.send.exception.SMailIllegalStateException;
 import org.dbflute.mail.send.exception.SMailMessageSettingFailureException;
+import org.dbflute.mail.send.exception.SMailRateLimitExceededException;
 import org.dbflute.mail.send.exception.SMailTransportFailureException;
 import org.dbflute.mail.send.hook.SMailCallbackContext;
 import org.dbflute.mail.send.hook.SMailPreparedMessageHook;
 import org.dbflute.mail.send.supplement.async.SMailAsyncStrategy;
 import org.dbflute.mail.send.supplement.async.SMailAsyncStrategyNone;
 import org.dbflute.mail.send.supplement.attachment.SMailAttachment;
+import org.dbflute.mail.send.supplement.body.SMailEncodedTextBuffer;
 import org.dbflute.mail.send.supplement.filter.SMailAddressFilter;
 import org.dbflute.mail.send.supplement.filter.SMailAddressFilterNone;
 import org.dbflute.mail.send.supplement.filter.SMailBodyTextFilter;
@@ -73,13 +88,26 @@ import org.dbflute.mail.send.supplement.label.SMailLabelStrategy;
 import org.dbflute.mail.send.supplement.label.SMailLabelStrategyNone;
 import org.dbflute.mail.send.supplement.logging.SMailLoggingStrategy;
 import org.dbflute.mail.send.supplement.logging.SMailTypicalLoggingStrategy;
+import org.dbflute.mail.send.supplement.motorbike.SMailCircuitBreaker;
+import org.dbflute.mail.send.supplement.motorbike.SMailCircuitTicket;
+import org.dbflute.mail.send.supplement.motorbike.SMailCircuitTransition;
+import org.dbflute.mail.send.supplement.motorbike.SMailMotorbikeTraffic;
+import org.dbflute.mail.send.supplement.motorbike.SMailRateLimiter;
+import org.dbflute.mail.send.supplement.motorbike.SMailRateLimiterOption;
 import org.dbflute.mail.send.supplement.retry.SMailRetryStrategy;
 import org.dbflute.mail.send.supplement.retry.SMailRetryStrategyNone;
+import org.dbflute.mail.send.supplement.scheduler.SMailDomainPermit;
+import org.dbflute.mail.send.supplement.scheduler.SMailDomainScheduler;
+import org.dbflute.mail.send.supplement.transport.SMailPooledTransport;
+import org.dbflute.mail.send.supplement.transport.SMailTransportPool;
 import org.dbflute.optional.OptionalThing;
 import org.dbflute.system.DBFluteSystem;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.sun.mail.smtp.SMTPAddressFailedException;
+import com.sun.mail.smtp.SMTPSendFailedException;
+
 /**
  * @author jflute
  * @since 0.4.0 (2015/05/05 Tuesday)
@@ -115,6 +143,8 @@ public class SMailHonestPostie implements SMailPostie {
     protected SMailLoggingStrategy loggingStrategy = typicalLoggingStrategy; // not null
     protected SMailMailHeaderStrategy mailHeaderStrategy = noneMailHeaderStrategy; // not null
     protected SMailInternetAddressCreator internetAddressCreator = normalInternetAddressCreator; // not null
+    protected SMailDomainScheduler domainScheduler; // null allowed: not scheduled
+    protected int coalescingMaxRecipients; // zero means no envelope coalescing
     protected boolean training;
     protected OptionalThing<String> textTransferEncoding = OptionalThing.empty();
 
@@ -186,6 +216,26 @@ public class SMailHonestPostie implements SMailPostie {
         return this;
     }
 
+    public SMailHonestPostie withDomainScheduler(SMailDomainScheduler domainScheduler) {
+        assertArgumentNotNull("domainScheduler", domainScheduler);
+        this.domainScheduler = domainScheduler;
+        return this;
+    }
+
+    /**
+     * Coalesce the identical-content messages in together delivery into one SMTP transaction. <br>
+     * The To header of the coalesced message is undisclosed-recipients, so use it for e.g. announcements.
+     * @param maxRecipients The max count of recipients (RCPT TO) in one transaction, e.g. 100. (GreaterThanOne)
+     * @return this. (NotNull)
+     */
+    public SMailHonestPostie withEnvelopeCoalescing(int maxRecipients) {
+        if (maxRecipients <= 1) {
+            throw new IllegalArgumentException("The argument 'maxRecipients' should be greater than one: " + maxRecipients);
+        }
+        this.coalescingMaxRecipients = maxRecipients;
+        return this;
+    }
+
     public SMailHonestPostie asTraining() {
         training = true;
         return this;
@@ -196,9 +246,41 @@ public class SMailHonestPostie implements SMailPostie {
     //                                                                             =======
     @Override
     public void deliver(Postcard postcard) {
+        prepareMessage(postcard).ifPresent(message -> {
+            send(postcard, message);
+        });
+    }
+
+    /**
+     * Deliver the postcards over one SMTP session. (and the session is from pool if the motorbike has it) <br>
+     * This is for batch process so always synchronous in caller thread, async() of postcard is ignored.
+     * <pre>
+     * o each message is logged as normal delivery (before and finally)
+     * o the SMTP session is reset (RSET) after failure, and reconnected if broken
+     * o the failed message is retried by normal sending if retry() is specified
+     * o the first failure is thrown after all messages are sent (unless suppressSendFailure())
+     * o identical-content messages are sent in one transaction if envelope coalescing
+     * </pre>
+     * @param postcardList The list of postcards for this postie's motorbike. (NotNull)
+     */
+    @Override
+    public void deliverTogether(List<Postcard> postcardList) {
+        assertArgumentNotNull("postcardList", postcardList);
+        final Map<Postcard, SMailPostingMessage> preparedMap = new LinkedHashMap<Postcard, SMailPostingMessage>(postcardList.size());
+        for (Postcard postcard : postcardList) {
+            prepareMessage(postcard).ifPresent(message -> {
+                preparedMap.put(postcard, message); // postcard is identity key
+            });
+        }
+        if (!preparedMap.isEmpty()) {
+            sendTogether(preparedMap);
+        }
+    }
+
+    protected OptionalThing<SMailPostingMessage> prepareMessage(Postcard postcard) {
         final SMailPostingMessage message = createMailMessage(postcard);
         if (isCancel(postcard)) {
-            return; // no logging here, only filter knows the reason
+            return OptionalThing.empty(); // no logging here, only filter knows the reason
         }
         prepareAddress(postcard, message);
         prepareSubject(postcard, message);
@@ -209,9 +291,9 @@ public class SMailHonestPostie implements SMailPostie {
         hookPreparedMessage(postcard, message);
         if (postcard.isDryrun()) {
             logger.debug("*dryrun: postcard={}", postcard); // normal logging here
-            return;
+            return OptionalThing.empty();
         }
-        send(postcard, message);
+        return OptionalThing.of(message);
     }
 
     protected SMailPostingMessage createMailMessage(CardView view) {
@@ -424,7 +506,7 @@ public class SMailHonestPostie implements SMailPostie {
         assertArgumentNotNull("text", text);
         assertArgumentNotNull("textType", textType);
         final String textEncoding = getTextEncoding(view);
-        final ByteBuffer buffer = prepareTextByteBuffer(view, text, textEncoding);
+        final SMailEncodedTextBuffer buffer = prepareEncodedTextBuffer(view, text, textEncoding); // only one copy
         final DataSource source = prepareTextDataSource(view, buffer);
         try {
             part.setDataHandler(createDataHandler(source));
@@ -442,18 +524,18 @@ public class SMailHonestPostie implements SMailPostie {
         return mailHeaderStrategy.getTextEncoding(view).orElseGet(() -> getBasicEncoding());
     }
 
-    protected ByteBuffer prepareTextByteBuffer(CardView view, String text, String encoding) {
-        final ByteBuffer buffer;
+    protected SMailEncodedTextBuffer prepareEncodedTextBuffer(CardView view, String text, String encoding) {
+        final Charset charset;
         try {
-            buffer = ByteBuffer.wrap(text.getBytes(encoding));
-        } catch (UnsupportedEncodingException e) {
+            charset = Charset.forName(encoding);
+        } catch (IllegalArgumentException e) { // e.g. unsupported, illegal name
             throw new SMailMessageSettingFailureException("Unknown encoding: " + encoding, e);
         }
-        return buffer;
+        return SMailEncodedTextBuffer.encode(text, charset); // encoded directly from the string
     }
 
-    protected ByteArrayDataSource prepareTextDataSource(CardView view, ByteBuffer buffer) {
-        return new ByteArrayDataSource(buffer.array(), getTextMimeType(view));
+    protected DataSource prepareTextDataSource(CardView view, SMailEncodedTextBuffer buffer) {
+        return buffer.toDataSource(getTextMimeType(view)); // read without copy
     }
 
     protected String getTextMimeType(CardView view) {
@@ -644,7 +726,9 @@ public class SMailHonestPostie implements SMailPostie {
     //                                                                        Send Message
     //                                                                        ============
     protected void send(Postcard postcard, SMailPostingMessage message) {
-        if (needsAsync(postcard)) {
+        if (needsScheduling(postcard)) {
+            scheduledSend(postcard, message);
+        } else if (needsAsync(postcard)) {
             asyncStrategy.async(postcard, () -> doSend(postcard, message));
         } else {
             doSend(postcard, message);
@@ -655,6 +739,48 @@ public class SMailHonestPostie implements SMailPostie {
         return postcard.isAsync() && !postcard.isDefinitelySync();
     }
 
+    // -----------------------------------------------------
+    //                                      Domain Scheduler
+    //                                      ----------------
+    protected boolean needsScheduling(Postcard postcard) {
+        return domainScheduler != null && !training;
+    }
+
+    protected void scheduledSend(Postcard postcard, SMailPostingMessage message) { // waits for turn of recipient domain
+        if (needsAsync(postcard)) {
+            domainScheduler.dispatch(postcard, permit -> { // rejection is thrown here if started in this thread
+                asyncStrategy.async(postcard, () -> {
+                    try {
+                        doSend(postcard, message);
+                    } finally {
+                        permit.release();
+                    }
+                });
+            }, cause -> handleScheduledStartFailure(postcard, message, cause));
+        } else {
+            final SMailDomainPermit permit = domainScheduler.acquire(postcard);
+            try {
+                doSend(postcard, message);
+            } finally {
+                permit.release();
+            }
+        }
+    }
+
+    protected void handleScheduledStartFailure(Postcard postcard, SMailPostingMessage message, RuntimeException cause) {
+        // started by other sending (e.g. its release) so cannot be thrown to caller, logged as failure of the mail
+        logMailBefore(postcard, message);
+        try {
+            if (postcard.isSuppressSendFailure()) {
+                logSuppressedCause(postcard, message, cause);
+            } else {
+                logger.warn("Failed to start the scheduled sending: " + postcard, cause);
+            }
+        } finally {
+            logMailFinally(postcard, message, cause);
+        }
+    }
+
     // -----------------------------------------------------
     //                                          with Logging
     //                                          ------------
@@ -693,10 +819,26 @@ public class SMailHonestPostie implements SMailPostie {
     //                                             Retryable
     //                                             ---------
     protected void retryableSend(Postcard postcard, SMailPostingMessage message) {
+        doRetryableSend(postcard, message, 0, null);
+    }
+
+    /**
+     * Send the message continued from the failed first challenge, e.g. together sending. <br>
+     * The failure is counted as the first challenge, so the retry count is same as normal sending.
+     * @param postcard The postcard of the message. (NotNull)
+     * @param message The message failed to be sent. (NotNull)
+     * @param firstCause The exception of the first challenge. (NotNull)
+     */
+    protected void retryableSend(Postcard postcard, SMailPostingMessage message, Exception firstCause) {
+        assertArgumentNotNull("firstCause", firstCause);
+        doRetryableSend(postcard, message, 1, firstCause);
+    }
+
+    protected void doRetryableSend(Postcard postcard, SMailPostingMessage message, int startCount, Exception firstFailure) {
         final int retryCount = getRetryCount(postcard); // not negative, zero means no retry
         final long intervalMillis = getIntervalMillis(postcard); // not negative
-        int challengeCount = 0;
-        Exception firstCause = null;
+        int challengeCount = startCount;
+        Exception firstCause = firstFailure; // null allowed: not challenged yet
         while (true) {
             if (challengeCount > retryCount) { // over retry limit, cannot send
                 if (firstCause != null) { // just in case
@@ -708,6 +850,7 @@ public class SMailHonestPostie implements SMailPostie {
                 if (challengeCount > 0) { // means retry sending
                     waitBeforeRetrySending(intervalMillis);
                 }
+                admitSending(postcard, message); // retry also needs permission
                 stagingSend(postcard, message);
                 if (challengeCount > 0) { // means retry success
                     logRetrySuccess(postcard, message, challengeCount, firstCause);
@@ -717,11 +860,22 @@ public class SMailHonestPostie implements SMailPostie {
                 if (firstCause == null) { // first cause may be most important
                     firstCause = e;
                 }
+                if (isNoMoreRetry(e)) { // e.g. broken or busy motorbike
+                    if (firstCause != e) {
+                        firstCause.addSuppressed(e);
+                    }
+                    handleSendFailure(postcard, message, firstCause);
+                    break; // basically no way, just in case
+                }
             }
             ++challengeCount;
         }
     }
 
+    protected boolean isNoMoreRetry(Exception e) { // retry makes it worse
+        return e instanceof SMailCircuitBreakerOpenException || e instanceof SMailRateLimitExceededException;
+    }
+
     protected int getRetryCount(Postcard postcard) { // you can override if all mails needs retry
         return postcard.getRetryCount();
     }
@@ -754,20 +908,193 @@ public class SMailHonestPostie implements SMailPostie {
         throw new SMailTransportFailureException(msg, e);
     }
 
+    // -----------------------------------------------------
+    //                                          Rate Limiter
+    //                                          ------------
+    /**
+     * Admit the sending by the rate limiter of the motorbike if it uses it. <br>
+     * Async sending waits for the reserved time (delayed), and sync caller waits for bounded time.
+     * @param postcard The postcard for the message. (NotNull)
+     * @param message The posting message to be sent. (NotNull)
+     * @throws SMailRateLimitExceededException When it cannot be sent within the max wait.
+     */
+    protected void admitSending(Postcard postcard, SMailPostingMessage message) {
+        if (training) {
+            return;
+        }
+        final SMailRateLimiter limiter = motorbike.getRateLimiter().orElse(null);
+        if (limiter == null) {
+            return;
+        }
+        final long waitMillis = reserveSending(postcard, limiter);
+        if (waitMillis > 0) {
+            waitForRateLimit(waitMillis);
+        }
+    }
+
+    protected long reserveSending(Postcard postcard, SMailRateLimiter limiter) { // returns millis to wait
+        final SMailRateLimiterOption option = limiter.getOption();
+        final long maxWaitMillis = needsAsync(postcard) ? option.getAsyncMaxDelayMillis() : option.getSyncMaxWaitMillis();
+        return limiter.reserve(maxWaitMillis).orElseThrow(() -> {
+            final String msg = "Over the rate limit of the motorbike: maxWait=" + maxWaitMillis + ", " + limiter + ", " + postcard;
+            return new SMailRateLimitExceededException(msg);
+        });
+    }
+
+    protected void waitForRateLimit(long waitMillis) { // once until the reserved time, not spin
+        try {
+            Thread.sleep(waitMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // sent anyway because already reserved
+        }
+    }
+
     // -----------------------------------------------------
     //                                               Staging
     //                                               -------
     // you can override this to switch sender to e.g. remote api
     protected void stagingSend(Postcard postcard, SMailPostingMessage message) throws MessagingException {
         if (!training) {
-            actuallySend(message);
+            watchCircuit(postcard, message, () -> actuallySend(message));
+        }
+    }
+
+    // -----------------------------------------------------
+    //                                       Circuit Breaker
+    //                                       ---------------
+    /**
+     * Send the message under the circuit breaker of the motorbike if it uses it.
+     * @param postcard The postcard for the message. (NotNull)
+     * @param message The posting message to be sent. (NotNull)
+     * @param sending The callback of actual sending. (NotNull)
+     * @throws MessagingException When the sending fails.
+     * @throws SMailCircuitBreakerOpenException When the breaker is open. (without sending)
+     */
+    protected void watchCircuit(Postcard postcard, SMailPostingMessage message, CircuitWatchedSending sending) throws MessagingException {
+        final SMailCircuitBreaker breaker = motorbike.getCircuitBreaker().orElse(null);
+        if (breaker == null) {
+            sending.send();
+            return;
+        }
+        final SMailCircuitTicket ticket = breaker.acquire();
+        ticket.getTransition().ifPresent(transition -> logCircuitTransition(postcard, message, transition));
+        Throwable thrown = null;
+        try {
+            sending.send();
+        } catch (RuntimeException | MessagingException e) {
+            thrown = e;
+            throw e;
+        } finally {
+            recordCircuit(postcard, message, breaker, ticket, thrown);
+        }
+    }
+
+    @FunctionalInterface
+    protected static interface CircuitWatchedSending {
+
+        void send() throws MessagingException;
+    }
+
+    protected void recordCircuit(Postcard postcard, SMailPostingMessage message, SMailCircuitBreaker breaker, SMailCircuitTicket ticket,
+            Throwable thrown) {
+        final OptionalThing<SMailCircuitTransition> transition;
+        if (thrown == null) {
+            transition = breaker.recordSuccess(ticket);
+        } else {
+            transition = breaker.recordFailure(ticket, isTransientFailure(thrown));
         }
+        transition.ifPresent(tr -> logCircuitTransition(postcard, message, tr));
+    }
+
+    /**
+     * Is the failure transient for the motorbike? (e.g. connection refused, timeout, 4xx reply) <br>
+     * Permanent failure for the message (e.g. 5xx reply) is not, the relay itself is working.
+     * @param thrown The thrown exception by the sending. (NotNull)
+     * @return The determination, true or false.
+     */
+    protected boolean isTransientFailure(Throwable thrown) {
+        Throwable current = thrown;
+        int depth = 0;
+        while (current != null && depth < 10) { // limit just in case of circular chain
+            if (current instanceof IOException || current instanceof TimeoutException) { // also SocketTimeoutException
+                return true;
+            }
+            final int returnCode = extractReturnCode(current);
+            if (returnCode >= 400 && returnCode < 500) {
+                return true;
+            }
+            if (current instanceof MessagingException && ((MessagingException) current).getNextException() != null) {
+                current = ((MessagingException) current).getNextException(); // e.g. MailConnectException
+            } else {
+                current = current.getCause();
+            }
+            ++depth;
+        }
+        return false;
+    }
+
+    protected int extractReturnCode(Throwable thrown) { // -1 if unknown
+        if (thrown instanceof SMTPSendFailedException) { // e.g. MAIL FROM, DATA
+            return ((SMTPSendFailedException) thrown).getReturnCode();
+        } else if (thrown instanceof SMTPAddressFailedException) { // RCPT TO, chained by SendFailedException
+            return ((SMTPAddressFailedException) thrown).getReturnCode();
+        }
+        return -1;
+    }
+
+    protected void logCircuitTransition(Postcard postcard, SMailPostingMessage message, SMailCircuitTransition transition) {
+        loggingStrategy.logCircuitTransition(postcard, message, motorbike, transition);
     }
 
     // -----------------------------------------------------
     //                                              Actually
     //                                              --------
     protected void actuallySend(SMailPostingMessage message) throws MessagingException {
+        final SMailMotorbikeTraffic traffic = motorbike.getTraffic();
+        final long beginMillis = traffic.beginSending();
+        boolean success = false;
+        try {
+            transportSend(message);
+            success = true;
+        } finally {
+            traffic.finishSending(beginMillis, success);
+        }
+    }
+
+    protected void transportSend(SMailPostingMessage message) throws MessagingException {
+        final OptionalThing<SMailTransportPool> optPool = motorbike.getTransportPool();
+        if (optPool.isPresent()) {
+            final SMailTransportPool pool = optPool.get();
+            final OptionalThing<SMailPooledTransport> optPooled = pool.borrow();
+            if (optPooled.isPresent()) {
+                pooledSend(message, pool, optPooled.get());
+                return;
+            }
+            logger.debug("...Connecting per message because the transport pool is exhausted: {}", pool);
+        }
+        connectedSend(message);
+    }
+
+    protected void pooledSend(SMailPostingMessage message, SMailTransportPool pool, SMailPooledTransport pooled)
+            throws MessagingException {
+        final Transport transport = pooled.getTransport();
+        boolean healthy = false;
+        try {
+            final MimeMessage mimeMessage = message.getMimeMessage();
+            transport.sendMessage(mimeMessage, mimeMessage.getAllRecipients()); // already connected
+            pooled.countSent();
+            message.acceptSentTransport(transport); // keep e.g. last return code
+            healthy = true;
+        } finally {
+            if (healthy) {
+                pool.giveBack(pooled);
+            } else { // may be broken session, so not reuse it
+                pool.invalidate(pooled);
+            }
+        }
+    }
+
+    protected void connectedSend(SMailPostingMessage message) throws MessagingException { // connect per message
         final Transport transport = prepareTransport();
         try {
             final MimeMessage mimeMessage = message.getMimeMessage();
@@ -791,6 +1118,293 @@ public class SMailHonestPostie implements SMailPostie {
         }
     }
 
+    // ===================================================================================
+    //                                                                       Send Together
+    //                                                                       =============
+    protected void sendTogether(Map<Postcard, SMailPostingMessage> preparedMap) {
+        final SMailTogetherTransport together = createTogetherTransport();
+        RuntimeException firstThrown = null;
+        try {
+            for (List<Entry<Postcard, SMailPostingMessage>> envelopeList : coalesceEnvelope(preparedMap)) {
+                try {
+                    if (envelopeList.size() == 1) {
+                        final Entry<Postcard, SMailPostingMessage> entry = envelopeList.get(0);
+                        doSendTogether(entry.getKey(), entry.getValue(), together);
+                    } else {
+                        doSendCoalesced(envelopeList, together);
+                    }
+                } catch (RuntimeException e) { // not suppressed
+                    if (firstThrown == null) {
+                        firstThrown = e;
+                    } else {
+                        firstThrown.addSuppressed(e);
+                    }
+                }
+            }
+        } finally {
+            together.close();
+        }
+        if (firstThrown != null) {
+            throw firstThrown;
+        }
+    }
+
+    protected SMailTogetherTransport createTogetherTransport() {
+        return new SMailTogetherTransport(motorbike);
+    }
+
+    protected void doSendTogether(Postcard postcard, SMailPostingMessage message, SMailTogetherTransport together) {
+        logMailBefore(postcard, message);
+        RuntimeException cause = null;
+        try {
+            try {
+                admitSending(postcard, message);
+                stagingSendTogether(postcard, message, together);
+            } catch (RuntimeException | MessagingException e) {
+                together.reset(); // for next message
+                handleTogetherFailure(postcard, message, e);
+            }
+        } catch (RuntimeException e) {
+            cause = e;
+            if (postcard.isSuppressSendFailure()) {
+                logSuppressedCause(postcard, message, e);
+            } else {
+                throw e;
+            }
+        } finally {
+            logMailFinally(postcard, message, cause);
+        }
+    }
+
+    protected void handleTogetherFailure(Postcard postcard, SMailPostingMessage message, Exception e) {
+        if (isNoMoreRetry(e)) { // e.g. broken or busy motorbike
+            handleSendFailure(postcard, message, e);
+        } else { // retried by normal sending (and may be other session), throws if no retry
+            retryableSend(postcard, message, e);
+        }
+    }
+
+    // same as stagingSend(), you can override this to switch sender
+    protected void stagingSendTogether(Postcard postcard, SMailPostingMessage message, SMailTogetherTransport together)
+            throws MessagingException {
+        if (!training) {
+            watchCircuit(postcard, message, () -> actuallySendTogether(message, together));
+        }
+    }
+
+    protected void actuallySendTogether(SMailPostingMessage message, SMailTogetherTransport together) throws MessagingException {
+        final SMailMotorbikeTraffic traffic = motorbike.getTraffic();
+        final long beginMillis = traffic.beginSending();
+        boolean success = false;
+        try {
+            final Transport transport = together.prepareConnected();
+            final MimeMessage mimeMessage = message.getMimeMessage();
+            transport.sendMessage(mimeMessage, mimeMessage.getAllRecipients());
+            together.countSent();
+            message.acceptSentTransport(transport); // keep e.g. last return code
+            success = true;
+        } finally {
+            traffic.finishSending(beginMillis, success);
+        }
+    }
+
+    // ===================================================================================
+    //                                                                   Coalesce Envelope
+    //                                                                   =================
+    /**
+     * Coalesce the prepared messages into envelopes, identical-content ones are in the same envelope. <br>
+     * The order of first appearance is kept, and the envelope is split by the max recipients.
+     * @param preparedMap The map of prepared message keyed by postcard. (NotNull)
+     * @return The list of envelopes that have one or more messages. (NotNull)
+     */
+    protected List<List<Entry<Postcard, SMailPostingMessage>>> coalesceEnvelope(Map<Postcard, SMailPostingMessage> preparedMap) {
+        final Map<Object, List<List<Entry<Postcard, SMailPostingMessage>>>> keyMap = new LinkedHashMap<>();
+        for (Entry<Postcard, SMailPostingMessage> entry : preparedMap.entrySet()) {
+            final Object key = isCoalescingAvailable() ? buildCoalescingKey(entry.getValue()).orElse(null) : null;
+            final Object envelopeKey = key != null ? key : new Object(); // unique key if not coalesced
+            final List<List<Entry<Postcard, SMailPostingMessage>>> envelopeList;
+            envelopeList = keyMap.computeIfAbsent(envelopeKey, k -> new ArrayList<>());
+            final int recipientCount = countRecipients(entry.getValue());
+            final int lastIndex = envelopeList.size() - 1;
+            final List<Entry<Postcard, SMailPostingMessage>> lastList = lastIndex >= 0 ? envelopeList.get(lastIndex) : null;
+            if (lastList != null && countRecipients(lastList) + recipientCount <= coalescingMaxRecipients) {
+                lastList.add(entry);
+            } else { // first or over the limit
+                envelopeList.add(new ArrayList<>(Collections.singletonList(entry)));
+            }
+        }
+        final List<List<Entry<Postcard, SMailPostingMessage>>> resultList = new ArrayList<>(preparedMap.size());
+        keyMap.values().forEach(envelopeList -> resultList.addAll(envelopeList));
+        return resultList;
+    }
+
+    protected boolean isCoalescingAvailable() {
+        return coalescingMaxRecipients > 1 && !training;
+    }
+
+    /**
+     * Build the key of content to determine identical messages, it does not contain to-addresses.
+     * @param message The prepared message. (NotNull)
+     * @return The optional key that can be compared by equals(), empty if the message cannot be coalesced. (NotNull, EmptyAllowed)
+     */
+    protected OptionalThing<Object> buildCoalescingKey(SMailPostingMessage message) {
+        if (!message.getSavedCcList().isEmpty() || !message.getSavedBccList().isEmpty()) { // to-list only
+            return OptionalThing.empty();
+        }
+        final List<Object> attachmentKeyList = new ArrayList<Object>();
+        message.getSavedAttachmentMap().forEach((filename, data) -> {
+            attachmentKeyList.add(Arrays.asList(filename, data.getContentType(), ByteBuffer.wrap(data.getAttachedBytes())));
+        });
+        final List<String> headerLineList = new ArrayList<String>();
+        try {
+            final MimeMessage mimeMessage = message.getMimeMessage();
+            @SuppressWarnings("unchecked")
+            final Enumeration<String> lines = mimeMessage.getNonMatchingHeaderLines(getCoalescingIgnoredHeaders());
+            while (lines.hasMoreElements()) { // e.g. From, Subject, Reply-To, Content-Type, headers by strategy
+                headerLineList.add(normalizeCoalescingHeaderLine(lines.nextElement()));
+            }
+            final DataHandler dataHandler = mimeMessage.getDataHandler(); // text is not decoded, only type check
+            if (dataHandler.getContentType().toLowerCase().startsWith("multipart/")) { // e.g. with attachment
+                final MimeMultipart multipart = (MimeMultipart) dataHandler.getContent(); // set by postie, so not parsed
+                for (int i = 0; i < multipart.getCount(); i++) {
+                    @SuppressWarnings("unchecked")
+                    final Enumeration<String> partLines = ((MimePart) multipart.getBodyPart(i)).getAllHeaderLines();
+                    while (partLines.hasMoreElements()) { // e.g. Content-Type, Content-Transfer-Encoding
+                        headerLineList.add(normalizeCoalescingHeaderLine(partLines.nextElement()));
+                    }
+                }
+            }
+        } catch (MessagingException | IOException e) { // basically no way
+            logger.debug("Failed to read the header lines so not coalesced: {}", message, e);
+            return OptionalThing.empty();
+        }
+        return OptionalThing.of(Arrays.asList(message.getSavedFrom().orElse(null), message.getSavedReplyToList(),
+                message.getSavedSubject().orElse(null), message.getSavedPlainText().orElse(null), message.getSavedHtmlText().orElse(null),
+                attachmentKeyList, headerLineList));
+    }
+
+    protected String[] getCoalescingIgnoredHeaders() { // per-message headers
+        return new String[] { "To", "Message-ID", "Date" };
+    }
+
+    protected String normalizeCoalescingHeaderLine(String headerLine) { // content type keeps charset, without boundary
+        final String contentTypePrefix = "Content-Type:";
+        if (!headerLine.regionMatches(true, 0, contentTypePrefix, 0, contentTypePrefix.length())) {
+            return headerLine;
+        }
+        try {
+            final ContentType contentType = new ContentType(headerLine.substring(contentTypePrefix.length()).trim());
+            final ParameterList parameterList = contentType.getParameterList();
+            if (parameterList != null) {
+                parameterList.remove("boundary"); // per message, generated by multipart
+            }
+            return contentTypePrefix + " " + contentType.toString();
+        } catch (ParseException e) { // basically no way, as it is (not coalesced with others)
+            return headerLine;
+        }
+    }
+
+    protected int countRecipients(SMailPostingMessage message) {
+        return message.getSavedToList().size();
+    }
+
+    protected int countRecipients(List<Entry<Postcard, SMailPostingMessage>> envelopeList) {
+        return envelopeList.stream().mapToInt(entry -> countRecipients(entry.getValue())).sum();
+    }
+
+    // -----------------------------------------------------
+    //                                     Coalesced Sending
+    //                                     -----------------
+    protected void doSendCoalesced(List<Entry<Postcard, SMailPostingMessage>> envelopeList, SMailTogetherTransport together) {
+        for (Entry<Postcard, SMailPostingMessage> entry : envelopeList) { // per recipient (postcard) logging
+            logMailBefore(entry.getKey(), entry.getValue());
+        }
+        final Map<Postcard, Exception> failureMap = new LinkedHashMap<Postcard, Exception>();
+        final Entry<Postcard, SMailPostingMessage> leader = envelopeList.get(0);
+        try {
+            admitSending(leader.getKey(), leader.getValue()); // one transaction is one message for server
+            watchCircuit(leader.getKey(), leader.getValue(), () -> actuallySendCoalesced(envelopeList, together));
+        } catch (SendFailedException e) { // e.g. some recipients are invalid
+            together.reset(); // for next message
+            final Set<String> validSentSet = toPlainAddressSet(e.getValidSentAddresses());
+            for (Entry<Postcard, SMailPostingMessage> entry : envelopeList) {
+                final List<Address> toList = entry.getValue().getSavedToList();
+                if (!validSentSet.containsAll(toPlainAddressSet(toList.toArray(new Address[toList.size()])))) {
+                    failureMap.put(entry.getKey(), e);
+                }
+            }
+        } catch (RuntimeException | MessagingException e) {
+            together.reset(); // for next message
+            envelopeList.forEach(entry -> failureMap.put(entry.getKey(), e));
+        }
+        RuntimeException firstThrown = null;
+        for (Entry<Postcard, SMailPostingMessage> entry : envelopeList) {
+            final Postcard postcard = entry.getKey();
+            final SMailPostingMessage message = entry.getValue();
+            RuntimeException cause = null;
+            try {
+                final Exception failure = failureMap.get(postcard);
+                if (failure != null) {
+                    handleTogetherFailure(postcard, message, failure); // may be retried by normal sending
+                }
+            } catch (RuntimeException e) {
+                cause = e;
+                if (postcard.isSuppressSendFailure()) {
+                    logSuppressedCause(postcard, message, e);
+                } else if (firstThrown == null) {
+                    firstThrown = e;
+                } else {
+                    firstThrown.addSuppressed(e);
+                }
+            } finally {
+                logMailFinally(postcard, message, cause);
+            }
+        }
+        if (firstThrown != null) {
+            throw firstThrown;
+        }
+    }
+
+    protected void actuallySendCoalesced(List<Entry<Postcard, SMailPostingMessage>> envelopeList, SMailTogetherTransport together)
+            throws MessagingException {
+        final SMailMotorbikeTraffic traffic = motorbike.getTraffic();
+        final long beginMillis = traffic.beginSending();
+        boolean success = false;
+        Transport transport = null;
+        try {
+            transport = together.prepareConnected();
+            final MimeMessage coalescedMessage = createCoalescedMessage(envelopeList.get(0).getValue());
+            final List<Address> recipientList = new ArrayList<Address>();
+            envelopeList.forEach(entry -> recipientList.addAll(entry.getValue().getSavedToList())); // already filtered
+            transport.sendMessage(coalescedMessage, recipientList.toArray(new Address[recipientList.size()]));
+            together.countSent();
+            success = true;
+        } finally {
+            if (transport != null) { // also partial failure
+                for (Entry<Postcard, SMailPostingMessage> entry : envelopeList) {
+                    entry.getValue().acceptSentTransport(transport); // keep e.g. last return code
+                }
+            }
+            traffic.finishSending(beginMillis, success);
+        }
+    }
+
+    protected MimeMessage createCoalescedMessage(SMailPostingMessage leaderMessage) throws MessagingException {
+        final MimeMessage coalescedMessage = new MimeMessage(leaderMessage.getMimeMessage()); // copied content
+        coalescedMessage.setHeader("To", "undisclosed-recipients:;"); // not to show other recipients
+        return coalescedMessage;
+    }
+
+    protected Set<String> toPlainAddressSet(Address[] addresses) {
+        final Set<String> addressSet = new HashSet<String>();
+        if (addresses != null) {
+            for (Address address : addresses) {
+                addressSet.add(address instanceof InternetAddress ? ((InternetAddress) address).getAddress() : address.toString());
+            }
+        }
+        return addressSet;
+    }
+
     // ===================================================================================
     //                                                                        Assist Logic
     //                                                                        ============
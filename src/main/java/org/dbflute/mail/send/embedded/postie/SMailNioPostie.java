@@ -0,0 +1,399 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.embedded.postie;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.mail.Address;
+import javax.mail.AuthenticationFailedException;
+import javax.mail.MessagingException;
+import javax.mail.PasswordAuthentication;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+import org.dbflute.mail.Postcard;
+import org.dbflute.mail.send.SMailPostalMotorbike;
+import org.dbflute.mail.send.exception.SMailCircuitBreakerOpenException;
+import org.dbflute.mail.send.exception.SMailIllegalStateException;
+import org.dbflute.mail.send.exception.SMailRateLimitExceededException;
+import org.dbflute.mail.send.supplement.motorbike.SMailCircuitBreaker;
+import org.dbflute.mail.send.supplement.motorbike.SMailCircuitTicket;
+import org.dbflute.mail.send.supplement.motorbike.SMailMotorbikeTraffic;
+import org.dbflute.mail.send.supplement.motorbike.SMailRateLimiter;
+import org.dbflute.mail.send.supplement.scheduler.SMailDomainPermit;
+import org.dbflute.mail.send.supplement.transport.SMailNioEngineOption;
+import org.dbflute.mail.send.supplement.transport.SMailNioEnvelope;
+import org.dbflute.mail.send.supplement.transport.SMailNioSentResult;
+import org.dbflute.mail.send.supplement.transport.SMailNioSmtpEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The postie sending by NIO SMTP engine, e.g. for many concurrent mails with a few threads. <br>
+ * Preparing message is same as honest postie, and only sending is switched.
+ * <pre>
+ * o async() postcard returns without waiting, and the engine completes it (no async strategy)
+ * o sync postcard waits for the result in caller thread
+ * o retry() is done by the engine after the interval (no thread sleeping)
+ * o circuit breaker of motorbike is watched per challenge, and open breaker stops retry
+ * o rate limiter of motorbike delays the sending by the engine (also for sync postcard)
+ * o domain scheduler admits the sending without blocking, the permit is released when finished
+ * o sync postcard waits for the turn of domain scheduler in caller thread, same as honest postie
+ * o SSL/STARTTLS/proxy motorbike and training mode are sent by honest (blocking) way
+ * o AUTH PLAIN is used only when mail.smtp.auth is true, fails without retry if the server does not advertise it
+ * </pre>
+ * The logging strategy may be called in the event loop thread of the engine.
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailNioPostie extends SMailHonestPostie {
+
+    // ===================================================================================
+    //                                                                          Definition
+    //                                                                          ==========
+    private static final Logger logger = LoggerFactory.getLogger(SMailNioPostie.class);
+    protected static final String[] DATA_IGNORED_HEADERS = { "Bcc", "Content-Length" }; // same as JavaMail
+    protected static final int DEFAULT_SMTP_PORT = 25;
+    protected static final String[] BLOCKING_PROPERTY_PREFIXES = { // sent by JavaMail if specified (except false)
+            "mail.smtps.", "mail.smtp.ssl.", "mail.smtp.starttls.", "mail.smtp.socketFactory", "mail.smtp.socks.", "mail.smtp.proxy." };
+    protected static final int CONVERSATION_BASE_REPLIES = 8; // greeting, EHLO, HELO, AUTH, MAIL, DATA, content, end of data
+    protected static final long SENT_WAIT_MARGIN_MILLIS = 5000L; // e.g. for event loop delay
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final SMailNioSmtpEngine engine; // not null
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    public SMailNioPostie(SMailPostalMotorbike motorbike, SMailNioSmtpEngine engine) {
+        super(motorbike);
+        assertArgumentNotNull("engine", engine);
+        this.engine = engine;
+    }
+
+    // ===================================================================================
+    //                                                                        Send Message
+    //                                                                        ============
+    @Override
+    protected void send(Postcard postcard, SMailPostingMessage message) {
+        if (!isNioAvailable(postcard)) {
+            super.send(postcard, message);
+            return;
+        }
+        if (needsAsync(postcard)) {
+            final CompletableFuture<Void> future;
+            if (needsScheduling(postcard)) {
+                future = scheduledNioSend(postcard, message);
+            } else {
+                future = nioSend(postcard, message);
+            }
+            future.whenComplete((result, cause) -> {
+                if (cause != null) { // not suppressed, already logged as mail finally
+                    logger.warn("Failed to send the mail asynchronously: " + postcard, cause);
+                }
+            });
+        } else {
+            final SMailDomainPermit permit = needsScheduling(postcard) ? domainScheduler.acquire(postcard) : null;
+            try {
+                waitForSent(postcard, message, nioSend(postcard, message));
+            } finally {
+                if (permit != null) {
+                    permit.release();
+                }
+            }
+        }
+    }
+
+    protected CompletableFuture<Void> scheduledNioSend(Postcard postcard, SMailPostingMessage message) {
+        final CompletableFuture<Void> future = new CompletableFuture<Void>();
+        domainScheduler.dispatch(postcard, permit -> { // not blocking, the permit is held until the engine finishes
+            nioSend(postcard, message).whenComplete((result, cause) -> {
+                permit.release();
+                if (cause != null) {
+                    future.completeExceptionally(cause);
+                } else {
+                    future.complete(null);
+                }
+            });
+        }, cause -> { // thrown to caller if started in this thread
+            try {
+                handleScheduledStartFailure(postcard, message, cause);
+            } finally {
+                future.complete(null); // already logged as mail finally
+            }
+        });
+        return future;
+    }
+
+    protected boolean isNioAvailable(Postcard postcard) {
+        if (training) {
+            return false;
+        }
+        final Properties props = motorbike.getNativeSession().getProperties();
+        if ("smtps".equals(props.getProperty("mail.transport.protocol")) || hasBlockingProperty(props)) {
+            return false; // engine supports only plain SMTP, so not to send credentials and data in cleartext
+        }
+        return props.getProperty("mail.smtp.host") != null;
+    }
+
+    protected boolean hasBlockingProperty(Properties props) { // e.g. SSL, STARTTLS, proxy
+        for (Object key : props.keySet()) {
+            final String name = key.toString();
+            final Object value = props.get(key);
+            if (value == null || "false".equalsIgnoreCase(value.toString())) { // e.g. mail.smtp.ssl.enable=false
+                continue;
+            }
+            for (String prefix : BLOCKING_PROPERTY_PREFIXES) {
+                if (name.startsWith(prefix)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    protected void waitForSent(Postcard postcard, SMailPostingMessage message, CompletableFuture<Void> future) {
+        final long waitMillis = determineSentWaitMillis(postcard, message);
+        try {
+            future.get(waitMillis, TimeUnit.MILLISECONDS); // not forever just in case
+        } catch (TimeoutException e) {
+            String msg = "Timed out waiting for the mail sending: waitMillis=" + waitMillis + ", " + engine + ", " + postcard;
+            throw new SMailIllegalStateException(msg, e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) { // basically transport failure
+                throw (RuntimeException) cause;
+            }
+            throw new SMailIllegalStateException("Failed to send the mail: " + postcard, cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SMailIllegalStateException("Interrupted while waiting for the mail sending: " + postcard, e);
+        }
+    }
+
+    protected long determineSentWaitMillis(Postcard postcard, SMailPostingMessage message) { // upper bound by engine timeouts
+        final SMailNioEngineOption option = engine.getOption();
+        final int recipientCount = message.getSavedToList().size() + message.getSavedCcList().size() + message.getSavedBccList().size();
+        final long conversationMillis =
+                option.getConnectTimeoutMillis() + option.getReplyTimeoutMillis() * (CONVERSATION_BASE_REPLIES + recipientCount);
+        final long rateMillis = motorbike.getRateLimiter().map(limiter -> limiter.getOption().getSyncMaxWaitMillis()).orElse(0L);
+        final long delayMillis = Math.max(getIntervalMillis(postcard), rateMillis); // same as challenge
+        return (getRetryCount(postcard) + 1) * (delayMillis + conversationMillis) + SENT_WAIT_MARGIN_MILLIS;
+    }
+
+    // ===================================================================================
+    //                                                                            NIO Send
+    //                                                                            ========
+    protected CompletableFuture<Void> nioSend(Postcard postcard, SMailPostingMessage message) {
+        logMailBefore(postcard, message);
+        final CompletableFuture<Void> future = new CompletableFuture<Void>();
+        final SMailNioEnvelope envelope;
+        try {
+            envelope = createEnvelope(message);
+        } catch (MessagingException | IOException | RuntimeException e) {
+            finishNioSend(postcard, message, catchSendFailure(postcard, message, e), future);
+            return future;
+        }
+        challengeNioSend(postcard, message, envelope, 0, null, future);
+        return future;
+    }
+
+    protected void challengeNioSend(Postcard postcard, SMailPostingMessage message, SMailNioEnvelope envelope, int challengeCount,
+            Exception firstCause, CompletableFuture<Void> future) {
+        final long intervalMillis = challengeCount > 0 ? getIntervalMillis(postcard) : 0L;
+        final SMailRateLimiter limiter = motorbike.getRateLimiter().orElse(null);
+        final SMailCircuitBreaker breaker = motorbike.getCircuitBreaker().orElse(null);
+        final long delayMillis;
+        final SMailCircuitTicket ticket; // null allowed: no breaker
+        try {
+            final long rateMillis = limiter != null ? reserveSending(postcard, limiter) : 0L; // before breaker for probe
+            delayMillis = Math.max(intervalMillis, rateMillis); // later than reserved time is no problem
+            ticket = breaker != null ? breaker.acquire() : null;
+            if (ticket != null) {
+                ticket.getTransition().ifPresent(transition -> logCircuitTransition(postcard, message, transition));
+            }
+        } catch (SMailRateLimitExceededException | SMailCircuitBreakerOpenException e) { // no more retry
+            final Exception cause = firstCause != null ? firstCause : e;
+            if (cause != e) {
+                cause.addSuppressed(e);
+            }
+            finishNioSend(postcard, message, catchSendFailure(postcard, message, cause), future);
+            return;
+        }
+        final SMailMotorbikeTraffic traffic = motorbike.getTraffic();
+        final long beginMillis = traffic.beginSending();
+        engine.submit(envelope, delayMillis).whenComplete((result, thrown) -> {
+            traffic.finishSending(beginMillis + delayMillis, thrown == null); // latency without the delay
+            if (breaker != null) {
+                recordCircuit(postcard, message, breaker, ticket, thrown != null ? toException(thrown) : null);
+            }
+            if (thrown == null) {
+                acceptSentResult(message, result);
+                if (challengeCount > 0) { // means retry success
+                    logRetrySuccess(postcard, message, challengeCount, firstCause);
+                }
+                finishNioSend(postcard, message, null, future);
+                return;
+            }
+            final Exception cause = firstCause != null ? firstCause : toException(thrown); // first cause may be most important
+            if (challengeCount < getRetryCount(postcard) && !isNoMoreNioRetry(toException(thrown))) {
+                challengeNioSend(postcard, message, envelope, challengeCount + 1, cause, future);
+            } else {
+                finishNioSend(postcard, message, catchSendFailure(postcard, message, cause), future);
+            }
+        });
+    }
+
+    protected boolean isNoMoreNioRetry(Exception e) { // e.g. AUTH PLAIN is not advertised, same result by retry
+        return isNoMoreRetry(e) || e instanceof AuthenticationFailedException;
+    }
+
+    protected void acceptSentResult(SMailPostingMessage message, SMailNioSentResult result) {
+        message.acceptSentReply(result.getLastReturnCode(), result.getLastServerResponse(), result.getRecipientReplyMap());
+    }
+
+    protected RuntimeException catchSendFailure(Postcard postcard, SMailPostingMessage message, Exception cause) {
+        try {
+            handleSendFailure(postcard, message, cause); // basically throws
+            return new SMailIllegalStateException("Failed to send the mail: " + postcard, cause); // just in case
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    protected void finishNioSend(Postcard postcard, SMailPostingMessage message, RuntimeException cause, CompletableFuture<Void> future) {
+        final boolean suppressed = cause != null && postcard.isSuppressSendFailure();
+        try {
+            if (suppressed) {
+                logSuppressedCause(postcard, message, cause);
+            }
+        } finally {
+            logMailFinally(postcard, message, cause);
+            if (cause != null && !suppressed) {
+                future.completeExceptionally(cause);
+            } else {
+                future.complete(null);
+            }
+        }
+    }
+
+    protected Exception toException(Throwable thrown) {
+        final Throwable cause = thrown instanceof CompletionException && thrown.getCause() != null ? thrown.getCause() : thrown;
+        return cause instanceof Exception ? (Exception) cause : new SMailIllegalStateException("Failed to send the mail.", cause);
+    }
+
+    // ===================================================================================
+    //                                                                            Envelope
+    //                                                                            ========
+    protected SMailNioEnvelope createEnvelope(SMailPostingMessage message) throws MessagingException, IOException {
+        final Session session = motorbike.getNativeSession();
+        final Properties props = session.getProperties();
+        final String host = props.getProperty("mail.smtp.host");
+        final String portExp = props.getProperty("mail.smtp.port");
+        final int port = portExp != null ? Integer.parseInt(portExp) : DEFAULT_SMTP_PORT;
+        final MimeMessage mimeMessage = message.getMimeMessage();
+        final InetSocketAddress serverAddress = new InetSocketAddress(host, port); // resolved here, not in event loop
+        final String returnPath = resolveReturnPath(props, mimeMessage);
+        final List<String> recipientList = extractRecipientList(mimeMessage);
+        final SMailNioEnvelope envelope = new SMailNioEnvelope(serverAddress, returnPath, recipientList, toDataBytes(mimeMessage));
+        if ("true".equalsIgnoreCase(props.getProperty("mail.smtp.auth"))) { // same as JavaMail, sent if server advertises
+            final PasswordAuthentication auth = session.requestPasswordAuthentication(null, port, "smtp", null, null);
+            if (auth != null) { // has authenticator
+                envelope.authPlain(auth.getUserName(), auth.getPassword());
+            }
+        }
+        if ("true".equalsIgnoreCase(props.getProperty("mail.smtp.sendpartial"))) {
+            envelope.asSendPartial();
+        }
+        return envelope;
+    }
+
+    protected String resolveReturnPath(Properties props, MimeMessage mimeMessage) throws MessagingException {
+        final String returnPath = props.getProperty("mail.smtp.from");
+        if (returnPath != null && !returnPath.isEmpty()) {
+            return returnPath;
+        }
+        final Address[] fromAddresses = mimeMessage.getFrom();
+        if (fromAddresses == null || fromAddresses.length == 0) {
+            throw new SMailIllegalStateException("Not found the from address for MAIL FROM: " + mimeMessage);
+        }
+        return ((InternetAddress) fromAddresses[0]).getAddress();
+    }
+
+    protected List<String> extractRecipientList(MimeMessage mimeMessage) throws MessagingException {
+        final Address[] recipients = mimeMessage.getAllRecipients(); // to, cc, bcc
+        final List<String> recipientList = new ArrayList<String>(recipients.length);
+        for (Address recipient : recipients) {
+            recipientList.add(((InternetAddress) recipient).getAddress());
+        }
+        return recipientList;
+    }
+
+    protected byte[] toDataBytes(MimeMessage mimeMessage) throws MessagingException, IOException {
+        final ByteArrayOutputStream rawOut = new ByteArrayOutputStream();
+        mimeMessage.writeTo(rawOut, DATA_IGNORED_HEADERS); // saveChanges() is called inside
+        final byte[] raw = rawOut.toByteArray();
+        final ByteArrayOutputStream dataOut = new ByteArrayOutputStream(raw.length + 64);
+        boolean lineStart = true;
+        byte previous = 0;
+        for (byte current : raw) { // normalize line separator to CRLF and dot-stuffing (RFC 5321)
+            if (current == '\n' && previous == '\r') {
+                previous = current;
+                continue; // already written as CRLF
+            }
+            if (current == '\r' || current == '\n') {
+                dataOut.write('\r');
+                dataOut.write('\n');
+                lineStart = true;
+            } else {
+                if (lineStart && current == '.') {
+                    dataOut.write('.');
+                }
+                dataOut.write(current);
+                lineStart = false;
+            }
+            previous = current;
+        }
+        if (!lineStart) {
+            dataOut.write('\r');
+            dataOut.write('\n');
+        }
+        dataOut.write('.');
+        dataOut.write('\r');
+        dataOut.write('\n');
+        return dataOut.toByteArray();
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public SMailNioSmtpEngine getEngine() {
+        return engine;
+    }
+}
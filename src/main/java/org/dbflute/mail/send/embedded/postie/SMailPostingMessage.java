@@ -38,6 +38,8 @@ import org.dbflute.mail.send.exception.SMailMessageSettingFailureException;
 import org.dbflute.mail.send.supplement.SMailPostingDiscloser;
 import org.dbflute.mail.send.supplement.attachment.SMailAttachment;
 import org.dbflute.mail.send.supplement.attachment.SMailReadAttachedData;
+import org.dbflute.mail.send.supplement.transport.SMailPipeliningTransport;
+import org.dbflute.mail.send.supplement.transport.SMailRecipientReply;
 import org.dbflute.optional.OptionalThing;
 import org.dbflute.util.Srl;
 import org.slf4j.Logger;
@@ -83,6 +85,7 @@ public class SMailPostingMessage implements SMailPostingDiscloser {
     //                                    ------------------
     protected Integer lastReturnCode;
     protected String lastServerResponse;
+    protected Map<String, SMailRecipientReply> recipientReplyMap; // null allowed: not pipelining transport
 
     // ===================================================================================
     //                                                                         Constructor
@@ -268,6 +271,17 @@ public class SMailPostingMessage implements SMailPostingDiscloser {
             lastReturnCode = smtp.getLastReturnCode();
             lastServerResponse = smtp.getLastServerResponse();
         }
+        if (transport instanceof SMailPipeliningTransport) {
+            final SMailPipeliningTransport pipelining = (SMailPipeliningTransport) transport;
+            recipientReplyMap = new LinkedHashMap<String, SMailRecipientReply>(pipelining.getRecipientReplyMap()); // may be reused
+        }
+    }
+
+    public void acceptSentReply(int returnCode, String serverResponse, Map<String, SMailRecipientReply> replyMap) { // e.g. NIO engine
+        assertArgumentNotNull("replyMap", replyMap);
+        lastReturnCode = returnCode;
+        lastServerResponse = serverResponse;
+        recipientReplyMap = new LinkedHashMap<String, SMailRecipientReply>(replyMap);
     }
 
     // ===================================================================================
@@ -470,4 +484,8 @@ public class SMailPostingMessage implements SMailPostingDiscloser {
             throw new SMailIllegalStateException("Not found the last server response: " + toString());
         });
     }
+
+    public Map<String, SMailRecipientReply> getRecipientReplyMap() {
+        return recipientReplyMap != null ? Collections.unmodifiableMap(recipientReplyMap) : Collections.emptyMap();
+    }
 }
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.embedded.postie;
+
+import javax.mail.MessagingException;
+import javax.mail.Transport;
+
+import org.dbflute.mail.send.SMailPostalMotorbike;
+import org.dbflute.mail.send.supplement.transport.SMailPooledTransport;
+import org.dbflute.mail.send.supplement.transport.SMailTransportPool;
+import org.dbflute.optional.OptionalThing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The transport shared by several messages in together delivery. <br>
+ * It connects lazily, resets the SMTP session after failure, and reconnects if broken.
+ * Not thread-safe, used by one postie in one thread.
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailTogetherTransport {
+
+    // ===================================================================================
+    //                                                                          Definition
+    //                                                                          ==========
+    private static final Logger logger = LoggerFactory.getLogger(SMailTogetherTransport.class);
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final SMailPostalMotorbike motorbike; // not null
+    protected Transport transport; // null allowed: not connected yet or broken
+    protected SMailPooledTransport pooled; // null allowed: not from pool
+    protected int sentCount; // in this together delivery
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    public SMailTogetherTransport(SMailPostalMotorbike motorbike) {
+        if (motorbike == null) {
+            throw new IllegalArgumentException("The argument 'motorbike' should not be null.");
+        }
+        this.motorbike = motorbike;
+    }
+
+    // ===================================================================================
+    //                                                                             Prepare
+    //                                                                             =======
+    /**
+     * Prepare the connected transport, borrowed from pool if the motorbike has it.
+     * @return The connected transport for next message. (NotNull)
+     * @throws MessagingException When it fails to connect.
+     */
+    public Transport prepareConnected() throws MessagingException {
+        if (pooled != null && isRetiredPooled(pooled)) { // switch to fresh one
+            release(true);
+        }
+        if (transport == null) {
+            connect();
+        }
+        return transport;
+    }
+
+    protected boolean isRetiredPooled(SMailPooledTransport pooled) {
+        final int maxMessages = motorbike.getTransportPool().map(pool -> {
+            return pool.getOption().getMaxMessagesPerConnection();
+        }).orElse(0);
+        return maxMessages > 0 && pooled.getSentCount() >= maxMessages;
+    }
+
+    protected void connect() throws MessagingException {
+        final OptionalThing<SMailTransportPool> optPool = motorbike.getTransportPool();
+        if (optPool.isPresent()) {
+            final OptionalThing<SMailPooledTransport> optPooled = optPool.get().borrow();
+            if (optPooled.isPresent()) {
+                pooled = optPooled.get();
+                transport = pooled.getTransport();
+                return;
+            }
+        }
+        final Transport created = motorbike.getNativeSession().getTransport();
+        created.connect(); // authenticated by session's authenticator
+        transport = created;
+    }
+
+    // ===================================================================================
+    //                                                                       Sent or Reset
+    //                                                                       =============
+    public void countSent() {
+        ++sentCount;
+        if (pooled != null) {
+            pooled.countSent();
+        }
+    }
+
+    /**
+     * Reset the SMTP session after failure (RSET) to send next message. <br>
+     * If the session cannot be reset, the transport is closed and next message reconnects.
+     */
+    public void reset() {
+        if (transport == null) {
+            return;
+        }
+        boolean healthy;
+        if (transport instanceof com.sun.mail.smtp.SMTPTransport) {
+            try {
+                healthy = ((com.sun.mail.smtp.SMTPTransport) transport).simpleCommand("RSET") == 250;
+            } catch (MessagingException | RuntimeException e) { // e.g. closed by server
+                healthy = false;
+            }
+        } else {
+            healthy = transport.isConnected();
+        }
+        if (!healthy) {
+            logger.debug("...Reconnecting the together transport because of broken session: {}", transport);
+            release(false);
+        }
+    }
+
+    // ===================================================================================
+    //                                                                             Release
+    //                                                                             =======
+    public void close() {
+        release(true);
+    }
+
+    protected void release(boolean healthy) {
+        if (transport == null) {
+            return;
+        }
+        try {
+            if (pooled != null) {
+                final SMailTransportPool pool = motorbike.getTransportPool().get();
+                if (healthy) {
+                    pool.giveBack(pooled);
+                } else {
+                    pool.invalidate(pooled);
+                }
+            } else {
+                try {
+                    transport.close();
+                } catch (MessagingException continued) {
+                    logger.warn("Failed to close the transport: " + transport, continued);
+                }
+            }
+        } finally {
+            transport = null;
+            pooled = null;
+        }
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        return "together:{" + transport + (pooled != null ? ", pooled" : "") + ", sent=" + sentCount + "}";
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public int getSentCount() {
+        return sentCount;
+    }
+}
@@ -15,6 +15,8 @@
  */
 package org.dbflute.mail.send.embedded.proofreader;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.List;
 import java.util.Map;
 
@@ -41,6 +43,27 @@ public class SMailBatchProofreader implements SMailTextProofreader {
         return filteredText;
     }
 
+    @Override
+    public void proofread(String templateText, Map<String, Object> variableMap, Writer writer) throws IOException {
+        if (readerList.isEmpty()) {
+            writer.write(templateText);
+            return;
+        }
+        String filteredText = templateText;
+        final int lastIndex = readerList.size() - 1;
+        for (int i = 0; i < lastIndex; i++) {
+            filteredText = readerList.get(i).proofread(filteredText, variableMap);
+        }
+        readerList.get(lastIndex).proofread(filteredText, variableMap, writer); // only last can stream
+    }
+
+    @Override
+    public void precompile(String templateText) {
+        if (!readerList.isEmpty()) { // later readers depend on result of previous reader with variables
+            readerList.get(0).precompile(templateText);
+        }
+    }
+
     @Override
     public void workingDispose() {
         for (SMailTextProofreader proofreader : readerList) {
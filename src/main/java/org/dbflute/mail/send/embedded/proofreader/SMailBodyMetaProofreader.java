@@ -75,6 +75,13 @@ public class SMailBodyMetaProofreader implements SMailTextProofreader {
         // _/_/_/_/_/_/_/_/_/_/
         // no check here, already checked by receptionist
         // and parameters may be resolved here so not to have malfunction
+        if (postcard.hasOfficeSubjectTemplate()) { // already split by receptionist, the text is only body
+            if (postcard.getSubject().isPresent()) {
+                throwMailSubjectDuplicateException(templateText);
+            }
+            postcard.setSubject(postcard.toCompleteSubjectTemplate().get().trim());
+            return templateText;
+        }
         final String delimiter = META_DELIMITER;
         if (templateText.startsWith(COMMENT_BEGIN) && templateText.contains(delimiter)) {
             if (postcard.getSubject().isPresent()) {
@@ -114,7 +121,7 @@ public class SMailBodyMetaProofreader implements SMailTextProofreader {
     }
 
     protected String removeUTF8BomIfNeeds(String plainText) {
-        return plainText.charAt(0) == '\uFEFF' ? plainText.substring(1) : plainText;
+        return !plainText.isEmpty() && plainText.charAt(0) == '\uFEFF' ? plainText.substring(1) : plainText; // body may be empty
     }
 
     protected void throwMailSubjectDuplicateException(String templateText) {
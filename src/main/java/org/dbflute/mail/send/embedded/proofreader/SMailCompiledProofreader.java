@@ -0,0 +1,234 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.embedded.proofreader;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.dbflute.mail.send.SMailMergeProofreading;
+import org.dbflute.mail.send.supplement.template.SMailCompiledTemplate;
+import org.dbflute.mail.send.supplement.template.SMailSpecializingContext;
+import org.dbflute.mail.send.supplement.template.SMailTemplateCompiler;
+import org.dbflute.optional.OptionalThing;
+import org.dbflute.twowaysql.pmbean.SimpleMapPmb;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The proofreader of parameter comment by compiled template, without command context per rendering. <br>
+ * The template is compiled once to the flat program (literal, variable, IF, FOR), and rendered against the variables.
+ * The output is same as the parameter comment proofreader.
+ * <pre>
+ * e.g. in personnel
+ *  &#064;Override
+ *  protected SMailTextProofreader createTemplateProofreader() {
+ *      return new <span style="color: #CC4747">SMailCompiledProofreader</span>();
+ *  }
+ * </pre>
+ * If the template has unsupported comment (e.g. BEGIN), it is evaluated by nodes as the super class. <br>
+ * If rendering fails (e.g. null variable), it is evaluated by nodes again to throw the same exception. <br>
+ * Proofreading into a writer renders by small chunks (without whole text string), e.g. into encoded text buffer.
+ * The chunks are kept as segments and written only when rendering succeeds, so the writer never has partial text.
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailCompiledProofreader extends SMailPmCommentProofreader {
+
+    // ===================================================================================
+    //                                                                          Definition
+    //                                                                          ==========
+    private static final Logger logger = LoggerFactory.getLogger(SMailCompiledProofreader.class);
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    // empty means unsupported template, bounded by node cache limit
+    protected final Map<String, OptionalThing<SMailCompiledTemplate>> compiledCacheMap =
+            new ConcurrentHashMap<String, OptionalThing<SMailCompiledTemplate>>(); // keyed by template text
+
+    // ===================================================================================
+    //                                                                            Evaluate
+    //                                                                            ========
+    @Override
+    protected String evaluate(String templateText, Object pmb) {
+        if (isDynamicBindingEnabled()) { // compiled template does not support it
+            return super.evaluate(templateText, pmb);
+        }
+        final OptionalThing<SMailCompiledTemplate> optCompiled = prepareCompiled(templateText, pmb);
+        if (!optCompiled.isPresent()) {
+            return super.evaluate(templateText, pmb);
+        }
+        final SMailCompiledTemplate compiled = optCompiled.get();
+        try {
+            return compiled.render(filterPmb(pmb));
+        } catch (RuntimeException e) { // e.g. null variable, not found property
+            logger.debug("...Evaluating by nodes because of rendering failure: {}", e.getMessage());
+            return super.evaluate(templateText, pmb); // basically throws the same exception as nodes
+        }
+    }
+
+    @Override
+    protected void evaluate(String templateText, Object pmb, Writer writer) throws IOException {
+        if (isDynamicBindingEnabled()) {
+            super.evaluate(templateText, pmb, writer);
+            return;
+        }
+        final OptionalThing<SMailCompiledTemplate> optCompiled = prepareCompiled(templateText, pmb);
+        if (!optCompiled.isPresent()) {
+            super.evaluate(templateText, pmb, writer);
+            return;
+        }
+        final RenderedSegmentBuffer segmentBuffer = new RenderedSegmentBuffer();
+        try {
+            optCompiled.get().render(filterPmb(pmb), segmentBuffer); // by chunks, without whole text string
+        } catch (RuntimeException e) { // e.g. null variable, not found property, nothing written yet
+            logger.debug("...Evaluating by nodes because of rendering failure: {}", e.getMessage());
+            writer.write(super.evaluate(templateText, pmb)); // basically throws the same exception as nodes
+            return;
+        }
+        segmentBuffer.writeTo(writer);
+    }
+
+    /**
+     * The buffer of rendered chunks, to write them to the real writer after rendering succeeds.
+     */
+    protected static class RenderedSegmentBuffer extends Writer {
+
+        protected final List<char[]> segmentList = new ArrayList<char[]>(); // copied chunks, not one large array
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            if (len > 0) {
+                segmentList.add(Arrays.copyOfRange(cbuf, off, off + len)); // the array is reused by rendering
+            }
+        }
+
+        public void writeTo(Writer writer) throws IOException {
+            for (char[] segment : segmentList) {
+                writer.write(segment, 0, segment.length);
+            }
+        }
+
+        @Override
+        public void flush() { // nothing to flush
+        }
+
+        @Override
+        public void close() { // nothing to close
+        }
+    }
+
+    // ===================================================================================
+    //                                                                          Mail Merge
+    //                                                                          ==========
+    /**
+     * {@inheritDoc} <br>
+     * The compiled template is evaluated partially by the shared variables once here,
+     * so only the residual parts (per-recipient variables, FOR) are rendered for each recipient.
+     */
+    @Override
+    public SMailMergeProofreading prepareMerge(String templateText, Map<String, Object> sharedVariableMap) {
+        final Map<String, Object> sharedMap = new LinkedHashMap<String, Object>(sharedVariableMap);
+        final SimpleMapPmb<Object> sharedPmb = toMapPmb(sharedMap);
+        if (isDynamicBindingEnabled()) {
+            return super.prepareMerge(templateText, sharedMap);
+        }
+        final OptionalThing<SMailCompiledTemplate> optCompiled = prepareCompiled(templateText, sharedPmb);
+        if (!optCompiled.isPresent()) {
+            return super.prepareMerge(templateText, sharedMap);
+        }
+        final SMailCompiledTemplate residual = optCompiled.get().specialize(createSpecializingContext(sharedPmb, sharedMap));
+        logger.debug("...Preparing the mail-merge: {} to {}", optCompiled.get(), residual);
+        return recipientVariableMap -> {
+            final SimpleMapPmb<Object> pmb = toMapPmb(SMailMergeProofreading.mergeVariableMap(sharedMap, recipientVariableMap));
+            try {
+                return residual.render(pmb);
+            } catch (RuntimeException e) { // e.g. null variable
+                logger.debug("...Evaluating by nodes because of rendering failure: {}", e.getMessage());
+                return super.evaluate(templateText, pmb); // basically throws the same exception as nodes
+            }
+        };
+    }
+
+    protected SMailSpecializingContext createSpecializingContext(Object sharedPmb, Map<String, Object> sharedMap) {
+        return new SMailSpecializingContext(sharedPmb, sharedMap.keySet());
+    }
+
+    // ===================================================================================
+    //                                                                             Compile
+    //                                                                             =======
+    @Override
+    public void precompile(String templateText) { // compiled and cached here, throws if syntax error
+        if (isDynamicBindingEnabled()) {
+            super.precompile(templateText);
+            return;
+        }
+        prepareCompiled(templateText, toMapPmb(Collections.emptyMap()));
+    }
+
+    protected OptionalThing<SMailCompiledTemplate> prepareCompiled(String templateText, Object pmb) {
+        if (nodeCacheLimit <= 0) {
+            return compile(templateText, pmb);
+        }
+        final OptionalThing<SMailCompiledTemplate> cached = compiledCacheMap.get(templateText);
+        if (cached != null) {
+            return cached;
+        }
+        final OptionalThing<SMailCompiledTemplate> compiled = compile(templateText, pmb); // may be compiled concurrently
+        if (compiledCacheMap.size() >= nodeCacheLimit) {
+            logger.debug("...Clearing the compiled cache because of overflow: limit={}", nodeCacheLimit);
+            compiledCacheMap.clear();
+        }
+        compiledCacheMap.put(templateText, compiled);
+        return compiled;
+    }
+
+    protected OptionalThing<SMailCompiledTemplate> compile(String templateText, Object pmb) {
+        final String filteredText = filterTemplateText(templateText, pmb);
+        return createTemplateCompiler().compile(analyze(filteredText), filteredText);
+    }
+
+    protected SMailTemplateCompiler createTemplateCompiler() {
+        return new SMailTemplateCompiler((boundValue, valueOption) -> { // same order as embedded variable node
+            setupOrElseValueIfNeeds(boundValue, valueOption);
+            setupFormatAsValueIfNeeds(boundValue, valueOption);
+        });
+    }
+
+    // ===================================================================================
+    //                                                                             Dispose
+    //                                                                             =======
+    @Override
+    public void workingDispose() { // for hot deploy
+        super.workingDispose();
+        compiledCacheMap.clear();
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        return "proofreader:{compiled, cached=" + compiledCacheMap.size() + "}";
+    }
+}
@@ -15,12 +15,15 @@
  */
 package org.dbflute.mail.send.embedded.proofreader;
 
-import java.time.format.DateTimeFormatter;
-import java.time.temporal.TemporalAccessor;
-import java.util.List;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Map.Entry;
 
 import org.dbflute.mail.send.SMailTextProofreader;
+import org.dbflute.mail.send.supplement.template.SMailValueOption;
 import org.dbflute.twowaysql.SqlAnalyzer;
 import org.dbflute.twowaysql.context.CommandContext;
 import org.dbflute.twowaysql.context.CommandContextCreator;
@@ -29,10 +32,13 @@ import org.dbflute.twowaysql.node.BoundValue;
 import org.dbflute.twowaysql.node.EmbeddedVariableNode;
 import org.dbflute.twowaysql.node.Node;
 import org.dbflute.twowaysql.pmbean.SimpleMapPmb;
-import org.dbflute.util.Srl;
-import org.dbflute.util.Srl.ScopeInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
+ * The proofreader of parameter comment (e.g. pmb.sea, IF, FOR) in mail template. <br>
+ * The analyzed node tree is cached by template text (it is stateless while evaluating),
+ * so the same template is parsed only once. (least recently used one is evicted, cleared by working dispose)
  * @author jflute
  * @since 0.4.0 (2015/05/05 Tuesday at nakameguro)
  */
@@ -47,15 +53,49 @@ public class SMailPmCommentProofreader implements SMailTextProofreader {
     protected static final String CLOSE_MARK = "*/";
     protected static final String LF = "\n";
     protected static final String CRLF = "\r\n";
+    protected static final int DEFAULT_NODE_CACHE_LIMIT = 1000;
+    private static final Logger logger = LoggerFactory.getLogger(SMailPmCommentProofreader.class);
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected int nodeCacheLimit = DEFAULT_NODE_CACHE_LIMIT; // zero means no cache
+    protected final Map<String, Node> nodeCacheMap = createNodeCacheMap(); // keyed by template text
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    /**
+     * Specify the max count of cached node trees, the least recently used one is evicted when it overflows. <br>
+     * Templates from files are finite so the default is enough, adjust it for e.g. dynamic texts from database.
+     * @param nodeCacheLimit The max count of cached node trees, zero means no cache. (NotMinus)
+     * @return this. (NotNull)
+     */
+    public SMailPmCommentProofreader asNodeCacheLimit(int nodeCacheLimit) {
+        if (nodeCacheLimit < 0) {
+            throw new IllegalArgumentException("The argument 'nodeCacheLimit' should not be minus: " + nodeCacheLimit);
+        }
+        this.nodeCacheLimit = nodeCacheLimit;
+        return this;
+    }
 
     // ===================================================================================
     //                                                                           Proofread
     //                                                                           =========
     @Override
     public String proofread(String templateText, Map<String, Object> variableMap) {
+        return evaluate(templateText, toMapPmb(variableMap));
+    }
+
+    @Override
+    public void proofread(String templateText, Map<String, Object> variableMap, Writer writer) throws IOException {
+        evaluate(templateText, toMapPmb(variableMap), writer);
+    }
+
+    protected SimpleMapPmb<Object> toMapPmb(Map<String, Object> variableMap) {
         final SimpleMapPmb<Object> pmb = new SimpleMapPmb<Object>();
         variableMap.forEach((key, value) -> pmb.addParameter(key, value));
-        return evaluate(templateText, pmb);
+        return pmb;
     }
 
     // ===================================================================================
@@ -63,12 +103,59 @@ public class SMailPmCommentProofreader implements SMailTextProofreader {
     //                                                                            ========
     // very similar to simple template manager of LastaFlute but no recycle to be independent
     protected String evaluate(String templateText, Object pmb) {
-        final Node node = analyze(filterTemplateText(templateText, pmb));
+        final Node node = prepareNode(templateText, pmb);
         final CommandContext ctx = prepareContext(pmb);
         node.accept(ctx);
         return ctx.getSql();
     }
 
+    protected void evaluate(String templateText, Object pmb, Writer writer) throws IOException {
+        writer.write(evaluate(templateText, pmb)); // node evaluation cannot stream
+    }
+
+    // ===================================================================================
+    //                                                                          Node Cache
+    //                                                                          ==========
+    protected Node prepareNode(String templateText, Object pmb) { // line adjustment does not depend on pmb
+        if (nodeCacheLimit <= 0) {
+            return analyze(filterTemplateText(templateText, pmb));
+        }
+        final Node cached = nodeCacheMap.get(templateText);
+        if (cached != null) {
+            return cached;
+        }
+        final Node analyzed = analyze(filterTemplateText(templateText, pmb)); // may be analyzed concurrently, no problem
+        nodeCacheMap.put(templateText, analyzed); // the eldest is evicted if overflow
+        return analyzed;
+    }
+
+    protected Map<String, Node> createNodeCacheMap() { // access-ordered for LRU, synchronized because get() also reorders
+        return Collections.synchronizedMap(new LinkedHashMap<String, Node>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Entry<String, Node> eldest) {
+                return isNodeCacheOverflow(size());
+            }
+        });
+    }
+
+    protected boolean isNodeCacheOverflow(int cachedSize) { // called after putting
+        if (cachedSize > nodeCacheLimit) {
+            logger.debug("...Evicting the eldest node cache because of overflow: limit={}", nodeCacheLimit);
+            return true;
+        }
+        return false;
+    }
+
+    // ===================================================================================
+    //                                                                          Precompile
+    //                                                                          ==========
+    @Override
+    public void precompile(String templateText) { // analyzed and cached here, throws if syntax error
+        prepareNode(templateText, toMapPmb(Collections.emptyMap()));
+    }
+
     // ===================================================================================
     //                                                                     Line Adjustment
     //                                                                     ===============
@@ -76,60 +163,125 @@ public class SMailPmCommentProofreader implements SMailTextProofreader {
         // #for_now jflute pending, IF in FOR comment becomes empty line when false (2019/02/21)
         // basically it may be unneeded because it should be structured in Java
         // and modification is very difficult so pending, waiting for next request
-        final String replaced = Srl.replace(templateText, CRLF, LF);
-        final List<String> lineList = Srl.splitList(replaced, LF);
-        final StringBuilder sb = new StringBuilder(templateText.length());
+        // single pass over the text without line list, lines are separated by LF or CRLF (CRLF becomes LF)
+        final int length = templateText.length();
+        final StringBuilder sb = new StringBuilder(length);
         boolean nextNoLine = false;
         int lineNumber = 0;
-        for (String line : lineList) {
+        int lineBegin = 0;
+        while (true) {
+            final int lfIndex = templateText.indexOf('\n', lineBegin);
+            final int lineEnd;
+            if (lfIndex < 0) {
+                lineEnd = length;
+            } else if (lfIndex > lineBegin && templateText.charAt(lfIndex - 1) == '\r') {
+                lineEnd = lfIndex - 1;
+            } else {
+                lineEnd = lfIndex;
+            }
             ++lineNumber;
             if (nextNoLine) {
-                sb.append(line);
+                sb.append(templateText, lineBegin, lineEnd);
                 nextNoLine = false;
-                continue;
-            }
-            if (isIfEndCommentLine(line) || isForEndCommentLine(line)) {
-                appendLfLine(sb, lineNumber, Srl.substringLastFront(line, END_COMMENT));
+            } else if (isIfEndCommentLine(templateText, lineBegin, lineEnd) || isForEndCommentLine(templateText, lineBegin, lineEnd)) {
+                appendLfLine(sb, lineNumber, templateText, lineBegin, lineEnd - END_COMMENT.length()); // front of last END
                 sb.append(LF).append(END_COMMENT);
                 nextNoLine = true;
-                continue;
-            }
-            final String realLine;
-            if (isOnlyIfCommentLine(line) || isOnlyForCommentLine(line) || isOnlyEndCommentLine(line)) {
+            } else if (isOnlyIfCommentLine(templateText, lineBegin, lineEnd) || isOnlyForCommentLine(templateText, lineBegin, lineEnd)
+                    || isOnlyEndCommentLine(templateText, lineBegin, lineEnd)) {
+                appendLfLine(sb, lineNumber, templateText, skipLeftSpace(templateText, lineBegin, lineEnd), lineEnd); // ltrim
                 nextNoLine = true;
-                realLine = Srl.ltrim(line);
             } else {
-                realLine = line;
+                appendLfLine(sb, lineNumber, templateText, lineBegin, lineEnd);
+            }
+            if (lfIndex < 0) {
+                break;
             }
-            appendLfLine(sb, lineNumber, realLine);
+            lineBegin = lfIndex + 1;
         }
         return sb.toString();
     }
 
-    protected boolean isOnlyIfCommentLine(String line) {
-        final String trimmed = line.trim();
-        return trimmed.startsWith(IF_PREFIX) && trimmed.endsWith(CLOSE_MARK) && Srl.count(line, CLOSE_MARK) == 1;
+    // -----------------------------------------------------
+    //                                        Line Determine
+    //                                        --------------
+    // the line is the range of the text [begin, end) not to make line strings
+    protected boolean isOnlyIfCommentLine(String text, int begin, int end) {
+        return isOnlyBeginCommentLine(text, begin, end, IF_PREFIX);
+    }
+
+    protected boolean isOnlyForCommentLine(String text, int begin, int end) {
+        return isOnlyBeginCommentLine(text, begin, end, FOR_PREFIX);
+    }
+
+    protected boolean isOnlyBeginCommentLine(String text, int begin, int end, String prefix) {
+        final int trimmedBegin = skipLeftSpace(text, begin, end);
+        final int trimmedEnd = skipRightSpace(text, trimmedBegin, end);
+        return startsWith(text, trimmedBegin, trimmedEnd, prefix) && endsWith(text, trimmedBegin, trimmedEnd, CLOSE_MARK)
+                && countCloseMark(text, begin, end, 2) == 1;
+    }
+
+    protected boolean isOnlyEndCommentLine(String text, int begin, int end) {
+        final int trimmedBegin = skipLeftSpace(text, begin, end);
+        final int trimmedEnd = skipRightSpace(text, trimmedBegin, end);
+        return trimmedEnd - trimmedBegin == END_COMMENT.length() && text.startsWith(END_COMMENT, trimmedBegin);
     }
 
-    protected boolean isOnlyForCommentLine(String line) {
-        final String trimmed = line.trim();
-        return trimmed.startsWith(FOR_PREFIX) && trimmed.endsWith(CLOSE_MARK) && Srl.count(line, CLOSE_MARK) == 1;
+    protected boolean isIfEndCommentLine(String text, int begin, int end) {
+        return startsWith(text, begin, end, IF_PREFIX) && endsWith(text, begin, end, END_COMMENT)
+                && countCloseMark(text, begin, end, 2) > 1;
     }
 
-    protected boolean isOnlyEndCommentLine(String line) {
-        return line.trim().equals(END_COMMENT);
+    protected boolean isForEndCommentLine(String text, int begin, int end) {
+        return startsWith(text, begin, end, FOR_PREFIX) && endsWith(text, begin, end, END_COMMENT)
+                && countCloseMark(text, begin, end, 2) > 1;
     }
 
-    protected boolean isIfEndCommentLine(String line) {
-        return line.startsWith(IF_PREFIX) && line.endsWith(END_COMMENT) && Srl.count(line, CLOSE_MARK) > 1;
+    // -----------------------------------------------------
+    //                                           Line Helper
+    //                                           -----------
+    protected boolean startsWith(String text, int begin, int end, String prefix) {
+        return end - begin >= prefix.length() && text.startsWith(prefix, begin);
     }
 
-    protected boolean isForEndCommentLine(String line) {
-        return line.startsWith(FOR_PREFIX) && line.endsWith(END_COMMENT) && Srl.count(line, CLOSE_MARK) > 1;
+    protected boolean endsWith(String text, int begin, int end, String suffix) {
+        return end - begin >= suffix.length() && text.startsWith(suffix, end - suffix.length());
     }
 
-    protected void appendLfLine(final StringBuilder sb, int lineNumber, String line) {
-        sb.append(lineNumber > 1 ? LF : "").append(line);
+    protected int countCloseMark(String text, int begin, int end, int limit) { // same as Srl.count() until limit
+        int count = 0;
+        for (int i = begin; i + 1 < end; i++) {
+            if (text.charAt(i) == '*' && text.charAt(i + 1) == '/') {
+                if (++count >= limit) {
+                    break;
+                }
+                ++i;
+            }
+        }
+        return count;
+    }
+
+    protected int skipLeftSpace(String text, int begin, int end) { // same as trim(), control chars too
+        int index = begin;
+        while (index < end && text.charAt(index) <= ' ') {
+            ++index;
+        }
+        return index;
+    }
+
+    protected int skipRightSpace(String text, int begin, int end) {
+        int index = end;
+        while (index > begin && text.charAt(index - 1) <= ' ') {
+            --index;
+        }
+        return index;
+    }
+
+    protected void appendLfLine(StringBuilder sb, int lineNumber, String text, int begin, int end) {
+        if (lineNumber > 1) {
+            sb.append(LF);
+        }
+        sb.append(text, begin, end);
     }
 
     // ===================================================================================
@@ -162,11 +314,13 @@ public class SMailPmCommentProofreader implements SMailTextProofreader {
             boolean overlookNativeBinding) {
         return new EmbeddedVariableNode(expr, testValue, specifiedSql, blockNullParameter, adviceFactory, replaceOnly, terminalDot,
                 overlookNativeBinding) {
+            protected final SMailValueOption valueOption = parseValueOption(_optionDef); // null allowed: no option
+
             @Override
             protected void setupBoundValue(BoundValue boundValue) {
                 super.setupBoundValue(boundValue);
-                setupOrElseValueIfNeeds(boundValue, _optionDef);
-                setupFormatAsValueIfNeeds(boundValue, _optionDef);
+                setupOrElseValueIfNeeds(boundValue, valueOption);
+                setupFormatAsValueIfNeeds(boundValue, valueOption);
             }
 
             @Override
@@ -180,30 +334,33 @@ public class SMailPmCommentProofreader implements SMailTextProofreader {
         return false; // fixedly invalid as default, unneeded in mailflute
     }
 
+    // -----------------------------------------------------
+    //                                          Value Option
+    //                                          ------------
+    protected SMailValueOption parseValueOption(String optionDef) { // null allowed: no option
+        return SMailValueOption.parse(optionDef); // once per node, formatters are cached by pattern
+    }
+
     // -----------------------------------------------------
     //                                              orElse()
     //                                              --------
-    protected void setupOrElseValueIfNeeds(BoundValue boundValue, String optionDef) {
-        if (Srl.is_Null_or_TrimmedEmpty(optionDef)) {
+    protected void setupOrElseValueIfNeeds(BoundValue boundValue, String optionDef) { // for compatible
+        setupOrElseValueIfNeeds(boundValue, parseValueOption(optionDef));
+    }
+
+    protected void setupOrElseValueIfNeeds(BoundValue boundValue, SMailValueOption valueOption) {
+        if (valueOption == null || !valueOption.hasOrElse()) {
             return;
         }
         final Object targetValue = boundValue.getTargetValue();
         if (targetValue != null) {
             return;
         }
-        final List<String> optionList = Srl.splitListTrimmed(optionDef, "|");
-        final String orElseBegin = "orElse(";
-        final String orElseEnd = ")";
-        optionList.stream().filter(op -> {
-            return op.startsWith(orElseBegin) && op.endsWith(orElseEnd);
-        }).findFirst().ifPresent(op -> { // e.g. /*pmb.sea:orElse('land')*/
-            final ScopeInfo scope = Srl.extractScopeWide(op, orElseBegin, orElseEnd);
-            final String content = scope.getContent().trim();
-            if (!Srl.isQuotedSingle(content)) { // string only supported, is enough here
-                throwMailOrElseValueNotQuotedException(optionDef);
-            }
-            boundValue.setTargetValue(Srl.unquoteSingle(content));
-        });
+        // e.g. /*pmb.sea:orElse('land')*/
+        if (!valueOption.isOrElseQuoted()) { // string only supported, is enough here
+            throwMailOrElseValueNotQuotedException(valueOption.getOptionDef());
+        }
+        boundValue.setTargetValue(valueOption.getOrElseValue());
     }
 
     protected void throwMailOrElseValueNotQuotedException(String optionDef) {
@@ -214,32 +371,23 @@ public class SMailPmCommentProofreader implements SMailTextProofreader {
     // -----------------------------------------------------
     //                                            formatAs()
     //                                            ----------
-    protected void setupFormatAsValueIfNeeds(BoundValue boundValue, String optionDef) {
-        if (Srl.is_Null_or_TrimmedEmpty(optionDef)) {
+    protected void setupFormatAsValueIfNeeds(BoundValue boundValue, String optionDef) { // for compatible
+        setupFormatAsValueIfNeeds(boundValue, parseValueOption(optionDef));
+    }
+
+    protected void setupFormatAsValueIfNeeds(BoundValue boundValue, SMailValueOption valueOption) {
+        if (valueOption == null || !valueOption.hasFormatAs()) {
             return;
         }
         final Object targetValue = boundValue.getTargetValue();
-        if (targetValue == null) {
+        if (!valueOption.isFormattable(targetValue)) { // e.g. null, string
             return;
         }
-        if (targetValue instanceof TemporalAccessor) { // e.g. LocalDate, LocalDateTime
-            final TemporalAccessor temporal = (TemporalAccessor) targetValue;
-            final List<String> optionList = Srl.splitListTrimmed(optionDef, "|");
-            final String formatAsBegin = "formatAs(";
-            final String formatAsEnd = ")";
-            optionList.stream().filter(op -> {
-                return op.startsWith(formatAsBegin) && op.endsWith(formatAsEnd);
-            }).findFirst().ifPresent(op -> { // e.g. /*pmb.sea:formatAs('yyyy/MM/dd')*/
-                final ScopeInfo scope = Srl.extractScopeWide(op, formatAsBegin, formatAsEnd);
-                final String content = scope.getContent().trim();
-                if (!Srl.isQuotedSingle(content)) {
-                    throwMailFormatAsValueNotQuotedException(optionDef);
-                }
-                final String datePattern = Srl.unquoteSingle(content);
-                final DateTimeFormatter formatter = DateTimeFormatter.ofPattern(datePattern);
-                boundValue.setTargetValue(formatter.format(temporal));
-            });
+        // e.g. /*pmb.sea:formatAs('yyyy/MM/dd')*/, /*pmb.price:formatAs('#,##0')*/
+        if (!valueOption.isFormatAsQuoted()) {
+            throwMailFormatAsValueNotQuotedException(valueOption.getOptionDef());
         }
+        boundValue.setTargetValue(valueOption.format(targetValue));
     }
 
     protected void throwMailFormatAsValueNotQuotedException(String optionDef) {
@@ -278,7 +426,8 @@ public class SMailPmCommentProofreader implements SMailTextProofreader {
     //                                                                             Dispose
     //                                                                             =======
     @Override
-    public void workingDispose() {
+    public void workingDispose() { // for hot deploy
+        nodeCacheMap.clear();
     }
 
     // ===================================================================================
@@ -286,6 +435,6 @@ public class SMailPmCommentProofreader implements SMailTextProofreader {
     //                                                                      ==============
     @Override
     public String toString() {
-        return "proofreader:{pmcomment}";
+        return "proofreader:{pmcomment, cached=" + nodeCacheMap.size() + "}";
     }
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.embedded.receptionist;
+
+import org.dbflute.util.Srl;
+import org.dbflute.util.Srl.ScopeInfo;
+
+/**
+ * The body meta of mail template, parsed once when the template text is read (not per mail). <br>
+ * It keeps the template text with the subject template, options and the offset of real body,
+ * so later stages (e.g. proofreader) work only on the body part without searching the delimiter again.
+ * <pre>
+ * /*
+ *  [New Member's Registration]
+ *  The member will be formalized after click.
+ * *&#047;
+ * subject: Welcome to your sign up, /*pmb.memberName*&#047;  // subject template
+ * option: +html                                          // options
+ * &gt;&gt;&gt;
+ * Hello, /*pmb.memberName*&#047;                            // body offset is here
+ * ...
+ * </pre>
+ * No verification here, the receptionist verifies the format and marks it, so cached meta is verified only once.
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailBodyMeta {
+
+    // ===================================================================================
+    //                                                                          Definition
+    //                                                                          ==========
+    protected static final String LF = "\n";
+    protected static final String CRLF = "\r\n";
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final String templateText; // not null, whole text of template file
+    protected final String subjectTemplate; // null allowed: no body meta, trimmed
+    protected final boolean plusHtml; // from option line
+    protected final int bodyOffset; // zero if no body meta
+    protected final String bodyText; // not null, same instance as template text if no body meta
+    protected volatile boolean verified; // marked by receptionist, shared with threads by cache
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    protected SMailBodyMeta(String templateText, String subjectTemplate, boolean plusHtml, int bodyOffset) {
+        this.templateText = templateText;
+        this.subjectTemplate = subjectTemplate;
+        this.plusHtml = plusHtml;
+        this.bodyOffset = bodyOffset;
+        this.bodyText = bodyOffset > 0 ? templateText.substring(bodyOffset) : templateText;
+    }
+
+    // ===================================================================================
+    //                                                                               Parse
+    //                                                                               =====
+    /**
+     * Parse the body meta of the template text, the result is same as body meta proofreader's one.
+     * @param templateText The whole text of template, e.g. read from body file. (NotNull)
+     * @return The new-created body meta, which may have no subject if the text has no body meta. (NotNull)
+     */
+    public static SMailBodyMeta parse(String templateText) {
+        if (templateText == null) {
+            throw new IllegalArgumentException("The argument 'templateText' should not be null.");
+        }
+        final String delimiter = SMailConventionReceptionist.META_DELIMITER;
+        final int delimiterIndex = templateText.indexOf(delimiter);
+        if (delimiterIndex < 0) { // option is searched in whole text as receptionist does
+            return new SMailBodyMeta(templateText, null, detectPlusHtml(templateText), 0);
+        }
+        final String meta = templateText.substring(0, delimiterIndex);
+        final boolean plusHtml = detectPlusHtml(meta);
+        final String subjectTemplate = extractSubjectTemplate(meta); // null allowed
+        if (subjectTemplate == null) { // the text is proofread as it is
+            return new SMailBodyMeta(templateText, null, plusHtml, 0);
+        }
+        return new SMailBodyMeta(templateText, subjectTemplate, plusHtml, deriveBodyOffset(templateText, delimiterIndex));
+    }
+
+    protected static boolean detectPlusHtml(String meta) {
+        final ScopeInfo optionScope = Srl.extractScopeFirst(Srl.replace(meta, CRLF, LF), SMailConventionReceptionist.OPTION_LABEL, LF);
+        return optionScope != null && optionScope.getContent().contains(SMailConventionReceptionist.PLUS_HTML_OPTION);
+    }
+
+    protected static String extractSubjectTemplate(String meta) { // null if unknown format (basically verified)
+        final String commentEnd = SMailConventionReceptionist.COMMENT_END;
+        final String subjectLabel = SMailConventionReceptionist.SUBJECT_LABEL;
+        if (!meta.startsWith(SMailConventionReceptionist.COMMENT_BEGIN) || !meta.contains(commentEnd)) {
+            return null;
+        }
+        final String commentRear = Srl.substringFirstRear(meta, commentEnd);
+        if (!commentRear.contains(subjectLabel)) {
+            return null;
+        }
+        return Srl.substringFirstFront(Srl.substringFirstRear(commentRear, subjectLabel), LF).trim();
+    }
+
+    protected static int deriveBodyOffset(String templateText, int delimiterIndex) {
+        final int rearIndex = delimiterIndex + SMailConventionReceptionist.META_DELIMITER.length();
+        if (templateText.startsWith(LF, rearIndex)) {
+            return rearIndex + LF.length();
+        } else if (templateText.startsWith(CRLF, rearIndex)) {
+            return rearIndex + CRLF.length();
+        } else { // e.g. >>> Hello, ... but receptionist checks it so basically no way
+            return rearIndex;
+        }
+    }
+
+    // ===================================================================================
+    //                                                                          Determiner
+    //                                                                          ==========
+    /**
+     * @return true if the template has the body meta with subject, so the body text is split from the meta.
+     */
+    public boolean hasSubjectTemplate() {
+        return subjectTemplate != null;
+    }
+
+    /**
+     * @return true if the format of the template text has been already verified by receptionist.
+     */
+    public boolean isVerified() {
+        return verified;
+    }
+
+    // ===================================================================================
+    //                                                                              Verify
+    //                                                                              ======
+    /**
+     * Mark as verified, called by receptionist after the verification of format. <br>
+     * The result is same for the same text, so it is not verified again while the meta is cached.
+     */
+    public void markVerified() {
+        verified = true;
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        final String options = "plusHtml=" + plusHtml + ", bodyOffset=" + bodyOffset + ", verified=" + verified;
+        return "bodyMeta:{subject=" + subjectTemplate + ", " + options + "}";
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public String getTemplateText() {
+        return templateText;
+    }
+
+    public String getSubjectTemplate() {
+        return subjectTemplate;
+    }
+
+    public boolean isPlusHtml() {
+        return plusHtml;
+    }
+
+    public int getBodyOffset() {
+        return bodyOffset;
+    }
+
+    public String getBodyText() {
+        return bodyText;
+    }
+}
@@ -0,0 +1,366 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.embedded.receptionist;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import org.dbflute.optional.OptionalThing;
+import org.dbflute.util.DfTypeUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The caching layer of dynamic text assist, e.g. templates from database without round trip per mail. <br>
+ * The prepared dynamic data (also empty) and the assisted texts are cached per template path, filesystem and locale (as default).
+ * <pre>
+ * o TTL: expired data is loaded again (single flight per key, other threads wait for it)
+ * o refresh-ahead: if executor specified, data accessed near expiry is refreshed in background, and the cached data is returned
+ * o version stamp: if specified, expired data is re-fetched only when the version (e.g. updated time) changes
+ * o max entries: the least recently used data is evicted when it overflows (cleared by working dispose)
+ *
+ * e.g. in personnel
+ *  receptionist.asDynamicText(new SMailCachingDynamicTextAssist(yourAssist, 60000L).versionedBy(resource -&gt; {
+ *      return selectTemplateVersion(resource.getTemplatePath()); // e.g. light query of update datetime
+ *  }).refreshExecutor(yourManagedExecutor));
+ * </pre>
+ * The assisted text should depend only on the dynamic data, template path and HTML or not, because it is cached with the data.
+ * And the background refresh is done by the resource of only key elements (without postcard), not to keep old postcards.
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailCachingDynamicTextAssist implements SMailDynamicTextAssist {
+
+    // ===================================================================================
+    //                                                                          Definition
+    //                                                                          ==========
+    private static final Logger logger = LoggerFactory.getLogger(SMailCachingDynamicTextAssist.class);
+    protected static final double DEFAULT_REFRESH_AHEAD_RATIO = 0.8;
+    protected static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final SMailDynamicTextAssist delegate; // not null
+    protected final long ttlMillis; // positive
+    protected double refreshAheadRatio = DEFAULT_REFRESH_AHEAD_RATIO; // 1.0 means no refresh-ahead
+    protected Function<SMailDynamicDataResource, Object> versionProvider; // null allowed: no version check
+    protected Function<SMailDynamicDataResource, String> keyGenerator = resource -> generateDefaultKey(resource); // not null
+    protected Executor refreshExecutor; // null allowed: no refresh-ahead
+    protected int maxEntries = DEFAULT_MAX_ENTRIES; // positive
+    protected final Map<String, CachedDynamicData> cachedMap = createCachedMap();
+    protected final ConcurrentMap<String, CompletableFuture<CachedDynamicData>> loadingFutureMap =
+            new ConcurrentHashMap<String, CompletableFuture<CachedDynamicData>>();
+
+    /**
+     * The cached dynamic data, also passed to receptionist as dynamic data, unwrapped for the delegate.
+     */
+    protected static class CachedDynamicData {
+
+        protected final SMailDynamicDataResource keyResource; // not null, only key elements for refresh
+        protected final OptionalThing<Object> data; // not null, empty allowed: no dynamic text
+        protected final Object version; // null allowed: no version check
+        protected final long refreshAheadMillis;
+        protected final long expireMillis;
+        protected final Map<String, OptionalThing<String>> textMap; // keyed by template path and HTML or not
+        protected final AtomicBoolean refreshing = new AtomicBoolean();
+
+        public CachedDynamicData(SMailDynamicDataResource keyResource, OptionalThing<Object> data, Object version,
+                long refreshAheadMillis, long expireMillis, Map<String, OptionalThing<String>> textMap) {
+            this.keyResource = keyResource;
+            this.data = data;
+            this.version = version;
+            this.refreshAheadMillis = refreshAheadMillis;
+            this.expireMillis = expireMillis;
+            this.textMap = textMap;
+        }
+    }
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    /**
+     * @param delegate The assist of dynamic text actually preparing the data e.g. from database. (NotNull)
+     * @param ttlMillis The millis of time to live of cached data. (Positive)
+     */
+    public SMailCachingDynamicTextAssist(SMailDynamicTextAssist delegate, long ttlMillis) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("The argument 'delegate' should not be null.");
+        }
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("The argument 'ttlMillis' should be positive: " + ttlMillis);
+        }
+        this.delegate = delegate;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * @param refreshAheadRatio The ratio of TTL to start background refresh, e.g. 0.8 (default), 1.0 means no refresh. (ZeroToOne) <br>
+     * It works only when the refresh executor is specified.
+     * @return this. (NotNull)
+     */
+    public SMailCachingDynamicTextAssist refreshAhead(double refreshAheadRatio) {
+        if (refreshAheadRatio <= 0.0 || refreshAheadRatio > 1.0) {
+            throw new IllegalArgumentException("The argument 'refreshAheadRatio' should be in (0, 1]: " + refreshAheadRatio);
+        }
+        this.refreshAheadRatio = refreshAheadRatio;
+        return this;
+    }
+
+    /**
+     * @param versionProvider The provider of version stamp (e.g. update datetime), data is re-fetched only when it changes. (NotNull)
+     * @return this. (NotNull)
+     */
+    public SMailCachingDynamicTextAssist versionedBy(Function<SMailDynamicDataResource, Object> versionProvider) {
+        if (versionProvider == null) {
+            throw new IllegalArgumentException("The argument 'versionProvider' should not be null.");
+        }
+        this.versionProvider = versionProvider;
+        return this;
+    }
+
+    /**
+     * @param keyGenerator The generator of cache key, e.g. with tenant ID from postcard, path and locale as default. (NotNull)
+     * @return this. (NotNull)
+     */
+    public SMailCachingDynamicTextAssist keyedBy(Function<SMailDynamicDataResource, String> keyGenerator) {
+        if (keyGenerator == null) {
+            throw new IllegalArgumentException("The argument 'keyGenerator' should not be null.");
+        }
+        this.keyGenerator = keyGenerator;
+        return this;
+    }
+
+    /**
+     * Specify the executor of refresh-ahead, e.g. managed by your application (shut down with it). <br>
+     * No refresh-ahead as default, then expired data is loaded by the sending thread.
+     * @param refreshExecutor The executor of background refresh. (NotNull)
+     * @return this. (NotNull)
+     */
+    public SMailCachingDynamicTextAssist refreshExecutor(Executor refreshExecutor) {
+        if (refreshExecutor == null) {
+            throw new IllegalArgumentException("The argument 'refreshExecutor' should not be null.");
+        }
+        this.refreshExecutor = refreshExecutor;
+        return this;
+    }
+
+    /**
+     * @param maxEntries The max count of cached data, e.g. templates * locales, 1000 as default. (Positive)
+     * @return this. (NotNull)
+     */
+    public SMailCachingDynamicTextAssist maxEntries(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("The argument 'maxEntries' should be positive: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        return this;
+    }
+
+    protected static String generateDefaultKey(SMailDynamicDataResource resource) {
+        return resource.getTemplatePath() + ":" + resource.isFilesystem() + ":" + resource.getReceiverLocale();
+    }
+
+    // ===================================================================================
+    //                                                                        Dynamic Data
+    //                                                                        ============
+    @Override
+    public OptionalThing<? extends Object> prepareDynamicData(SMailDynamicDataResource resource) {
+        final String cacheKey = keyGenerator.apply(resource);
+        final CachedDynamicData cached = cachedMap.get(cacheKey);
+        final long now = currentTimeMillis();
+        if (cached != null && now < cached.expireMillis) {
+            if (now >= cached.refreshAheadMillis) {
+                refreshAheadIfNeeds(cacheKey, cached);
+            }
+            return toDynamicData(cached);
+        }
+        return toDynamicData(loadDynamicData(cacheKey, resource, cached));
+    }
+
+    protected OptionalThing<? extends Object> toDynamicData(CachedDynamicData cached) { // wrapped for text cache
+        return cached.data.isPresent() ? OptionalThing.of(cached) : OptionalThing.empty();
+    }
+
+    protected void refreshAheadIfNeeds(String cacheKey, CachedDynamicData cached) {
+        final Executor executor = refreshExecutor;
+        if (executor == null) { // loaded again when expired
+            return;
+        }
+        if (!cached.refreshing.compareAndSet(false, true)) { // already started by other thread
+            return;
+        }
+        try {
+            executor.execute(() -> { // by key resource, not to keep the current postcard
+                try {
+                    loadDynamicData(cacheKey, cached.keyResource, cached);
+                } catch (RuntimeException e) { // loaded again when expired
+                    logger.debug("...Failed to refresh the dynamic data ahead: {}, {}", cacheKey, e.getMessage());
+                    cached.refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) { // e.g. shutdown, loaded again when expired
+            cached.refreshing.set(false);
+        }
+    }
+
+    // -----------------------------------------------------
+    //                                          Single Flight
+    //                                          -------------
+    protected CachedDynamicData loadDynamicData(String cacheKey, SMailDynamicDataResource resource, CachedDynamicData stale) {
+        final CompletableFuture<CachedDynamicData> myFuture = new CompletableFuture<CachedDynamicData>();
+        final CompletableFuture<CachedDynamicData> existing = loadingFutureMap.putIfAbsent(cacheKey, myFuture);
+        if (existing != null) {
+            return waitForLoading(existing);
+        }
+        try {
+            final CachedDynamicData loaded = doLoadDynamicData(resource, stale);
+            cachedMap.put(cacheKey, loaded);
+            myFuture.complete(loaded);
+            return loaded;
+        } catch (RuntimeException | Error e) { // waiting threads also throw it
+            myFuture.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadingFutureMap.remove(cacheKey, myFuture);
+        }
+    }
+
+    protected CachedDynamicData doLoadDynamicData(SMailDynamicDataResource resource, CachedDynamicData stale) {
+        final Object version = versionProvider != null ? versionProvider.apply(resource) : null; // before fetch not to miss change
+        final long now = currentTimeMillis();
+        final long refreshAheadMillis = now + (long) (ttlMillis * refreshAheadRatio);
+        final long expireMillis = now + ttlMillis;
+        final SMailDynamicDataResource keyResource = stale != null ? stale.keyResource : createKeyResource(resource);
+        if (stale != null && version != null && Objects.equals(version, stale.version)) { // not changed, only renewed
+            return new CachedDynamicData(keyResource, stale.data, version, refreshAheadMillis, expireMillis, stale.textMap);
+        }
+        @SuppressWarnings("unchecked")
+        final OptionalThing<Object> data = (OptionalThing<Object>) delegate.prepareDynamicData(resource);
+        if (data == null) { // same check as receptionist
+            throw new IllegalStateException("Cannot return null as optional type: delegate=" + delegate + ", " + resource);
+        }
+        final Map<String, OptionalThing<String>> textMap = new ConcurrentHashMap<String, OptionalThing<String>>();
+        return new CachedDynamicData(keyResource, data, version, refreshAheadMillis, expireMillis, textMap);
+    }
+
+    protected SMailDynamicDataResource createKeyResource(SMailDynamicDataResource resource) { // for refresh-ahead
+        return new SMailDynamicDataResource(null, resource.getTemplatePath(), resource.isFilesystem(), resource.getReceiverLocale());
+    }
+
+    protected CachedDynamicData waitForLoading(CompletableFuture<CachedDynamicData> loadingFuture) {
+        try {
+            return loadingFuture.join();
+        } catch (CompletionException e) { // same exception as loading thread
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    // ===================================================================================
+    //                                                                    Property & Text
+    //                                                                    ===============
+    @Override
+    public void accept(SMailDynamicPropResource resource, SMailDynamicPropAcceptor dynamicPropAcceptor) {
+        final Object dynamicData = resource.getDynamicData();
+        if (!(dynamicData instanceof CachedDynamicData)) { // no way, just in case
+            delegate.accept(resource, dynamicPropAcceptor);
+            return;
+        }
+        final Object data = ((CachedDynamicData) dynamicData).data.get();
+        delegate.accept(new SMailDynamicPropResource(resource.getCardView(), resource.getTemplatePath(), resource.isFilesystem(),
+                resource.getReceiverLocale(), data), dynamicPropAcceptor);
+    }
+
+    @Override
+    public OptionalThing<String> assist(SMailDynamicTextResource resource) {
+        final Object dynamicData = resource.getDynamicData();
+        if (!(dynamicData instanceof CachedDynamicData)) { // no way, just in case
+            return delegate.assist(resource);
+        }
+        final CachedDynamicData cached = (CachedDynamicData) dynamicData;
+        final String textKey = resource.getTemplatePath() + ":" + resource.isHtml();
+        final OptionalThing<String> cachedText = cached.textMap.get(textKey);
+        if (cachedText != null) { // same instance while not changed
+            return cachedText;
+        }
+        final OptionalThing<String> assisted = delegate.assist(new SMailDynamicTextResource(resource.getCardView(),
+                resource.getTemplatePath(), resource.isHtml(), resource.isFilesystem(), resource.getReceiverLocale(), cached.data.get()));
+        if (assisted != null) { // null is checked by receptionist
+            cached.textMap.putIfAbsent(textKey, assisted);
+        }
+        return assisted;
+    }
+
+    // ===================================================================================
+    //                                                                               Evict
+    //                                                                               =====
+    protected Map<String, CachedDynamicData> createCachedMap() { // access-ordered for LRU, synchronized because get() also reorders
+        return Collections.synchronizedMap(new LinkedHashMap<String, CachedDynamicData>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Entry<String, CachedDynamicData> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    public void evict(String cacheKey) {
+        cachedMap.remove(cacheKey);
+    }
+
+    public void clear() {
+        cachedMap.clear();
+    }
+
+    @Override
+    public void workingDispose() { // for hot deploy
+        clear();
+        delegate.workingDispose();
+    }
+
+    // ===================================================================================
+    //                                                                        Small Helper
+    //                                                                        ============
+    protected long currentTimeMillis() { // for test
+        return System.currentTimeMillis();
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        return DfTypeUtil.toClassTitle(this) + ":{" + delegate + ", ttl=" + ttlMillis + ", cached=" + cachedMap.size() + "}";
+    }
+}
@@ -24,7 +24,11 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
 
 import org.dbflute.Entity;
 import org.dbflute.helper.filesystem.FileTextIO;
@@ -83,10 +87,20 @@ public class SMailConventionReceptionist implements SMailReceptionist {
     protected String classpathBasePath; // used when from classpath, e.g. mail
     protected SMailDynamicTextAssist dynamicTextAssist; // e.g. from database, without text cache if specified
     protected SMailReceiverLocaleAssist receiverLocaleAssist; // e.g. null means no locale switch
-    protected final Map<String, String> textCacheMap = new ConcurrentHashMap<String, String>();
+    protected SMailTemplateTextCache textCache = createTextCache(); // not null, parsed when read
+    protected SMailTemplateFileWatcher fileWatcher; // null allowed: no watching, for filesystem templates
+    protected final ConcurrentMap<String, CompletableFuture<SMailBodyMeta>> loadingFutureMap = // keyed by cache key
+            new ConcurrentHashMap<String, CompletableFuture<SMailBodyMeta>>();
+    protected final ConcurrentMap<String, SMailBodyMeta> dynamicBodyMetaMap = // keyed by cache key, latest text only
+            new ConcurrentHashMap<String, SMailBodyMeta>();
+    protected final Map<String, String> precompiledTextMap = new ConcurrentHashMap<String, String>(); // keyed by path in classpath
     protected final FileTextIO textIO = createFileTextIO();
     protected final SMailConventionSecurity security = createConventionSecurity();
 
+    protected SMailTemplateTextCache createTextCache() { // no bound as default, templates are basically finite
+        return new SMailLruTemplateTextCache();
+    }
+
     protected FileTextIO createFileTextIO() {
         return new FileTextIO().encodeAsUTF8().removeUTF8Bom().replaceCrLfToLf();
     }
@@ -113,6 +127,36 @@ public class SMailConventionReceptionist implements SMailReceptionist {
         return this;
     }
 
+    /**
+     * Use the cache of template texts, e.g. bounded one for many tenant variants and locales.
+     * @param textCache The cache of template texts, thread-safe. (NotNull)
+     * @return this. (NotNull)
+     */
+    public SMailConventionReceptionist asTextCache(SMailTemplateTextCache textCache) {
+        if (textCache == null) {
+            throw new IllegalArgumentException("The argument 'textCache' should not be null.");
+        }
+        this.textCache = textCache;
+        return this;
+    }
+
+    /**
+     * Watch the template files from filesystem, a changed template is evicted and reloaded in background. <br>
+     * Only the template (with its locale and HTML files) is refreshed, so no need to dispose all for the change.
+     * The watcher thread is daemon, and call closeFileWatching() when your application shutdown.
+     * @return this. (NotNull)
+     */
+    public SMailConventionReceptionist asFileWatching() {
+        if (fileWatcher == null) {
+            fileWatcher = createFileWatcher();
+        }
+        return this;
+    }
+
+    protected SMailTemplateFileWatcher createFileWatcher() {
+        return new SMailTemplateFileWatcher(this);
+    }
+
     // ===================================================================================
     //                                                                       Read BodyFile
     //                                                                       =============
@@ -137,14 +181,17 @@ public class SMailConventionReceptionist implements SMailReceptionist {
             final OptionalThing<Object> dynamicData = prepareDynamicData(postcard, bodyFile, filesystem, receiverLocale);
             dynamicData.ifPresent(data -> acceptDynamicProperty(postcard, bodyFile, filesystem, receiverLocale, data));
             officeManagedLogging(postcard, bodyFile, receiverLocale);
-            final String plainText = readText(postcard, bodyFile, false, filesystem, receiverLocale, dynamicData);
-            analyzeBodyMeta(postcard, bodyFile, plainText);
-            final DirectBodyOption option = postcard.useDirectBody(plainText);
+            final SMailBodyMeta bodyMeta = readBodyMeta(postcard, bodyFile, false, filesystem, receiverLocale, dynamicData);
+            analyzeBodyMeta(postcard, bodyFile, bodyMeta);
+            final DirectBodyOption option = useBodyMetaAsDirectBody(postcard, bodyMeta);
             if (postcard.isAlsoHtmlFile()) {
                 final String htmlFilePath = deriveHtmlFilePath(bodyFile);
-                final String readHtml = readText(postcard, htmlFilePath, true, filesystem, receiverLocale, dynamicData);
-                verifyMailHtmlTemplateTextFormat(htmlFilePath, readHtml);
-                option.alsoDirectHtml(readHtml);
+                final SMailBodyMeta htmlMeta = readBodyMeta(postcard, htmlFilePath, true, filesystem, receiverLocale, dynamicData);
+                if (!htmlMeta.isVerified()) { // first time (or changed dynamic text) only
+                    verifyMailHtmlTemplateTextFormat(htmlFilePath, htmlMeta.getTemplateText());
+                    htmlMeta.markVerified();
+                }
+                option.alsoDirectHtml(htmlMeta.getTemplateText());
             }
             // no check about unneeded HTML template file because of runtime performance
             // DBFlute generator checks it instead
@@ -287,30 +334,34 @@ public class SMailConventionReceptionist implements SMailReceptionist {
     //                                                                       =============
     protected String readText(Postcard postcard, String path, boolean html, boolean filesystem, OptionalThing<Locale> receiverLocale,
             OptionalThing<Object> dynamicData) {
+        return readBodyMeta(postcard, path, html, filesystem, receiverLocale, dynamicData).getTemplateText();
+    }
+
+    protected SMailBodyMeta readBodyMeta(Postcard postcard, String path, boolean html, boolean filesystem,
+            OptionalThing<Locale> receiverLocale, OptionalThing<Object> dynamicData) {
         if (dynamicData.isPresent()) {
             final OptionalThing<String> assisted = assistDynamicText(postcard, path, html, filesystem, receiverLocale, dynamicData.get());
             if (assisted.isPresent()) {
-                return assisted.get();
+                return findDynamicBodyMeta(path, filesystem, receiverLocale, assisted.get());
             }
         }
         final String cacheKey = generateCacheKey(path, filesystem, receiverLocale);
-        final String cached = textCacheMap.get(cacheKey);
+        final SMailBodyMeta cached = textCache.find(cacheKey);
         if (cached != null) {
             return cached;
         }
-        synchronized (this) {
-            final String retried = textCacheMap.get(cacheKey);
-            if (retried != null) {
-                return retried;
-            }
+        final SMailBodyMeta loaded = loadBodyMeta(cacheKey, () -> {
             final String read = doReadText(postcard, path, filesystem, receiverLocale);
             if (read == null) { // just in case
                 String msg = "Not found the text from the path: " + path + ", filesystem=" + filesystem;
                 throw new SMailIllegalStateException(msg);
             }
-            textCacheMap.put(cacheKey, read);
-            return textCacheMap.get(cacheKey);
+            return SMailBodyMeta.parse(read); // parsed once here
+        });
+        if (filesystem && fileWatcher != null) { // only when cache miss
+            fileWatcher.watch(cacheKey, path, receiverLocale);
         }
+        return loaded;
     }
 
     protected OptionalThing<String> assistDynamicText(Postcard postcard, String templatePath, boolean html, boolean filesystem,
@@ -328,6 +379,18 @@ public class SMailConventionReceptionist implements SMailReceptionist {
         return assisted;
     }
 
+    protected SMailBodyMeta findDynamicBodyMeta(String path, boolean filesystem, OptionalThing<Locale> receiverLocale,
+            String assistedText) { // not in text cache, reused (with verified mark) while the text is not changed
+        final String cacheKey = generateCacheKey(path, filesystem, receiverLocale);
+        final SMailBodyMeta latest = dynamicBodyMetaMap.get(cacheKey);
+        if (latest != null && latest.getTemplateText().equals(assistedText)) { // same instance if e.g. caching assist
+            return latest;
+        }
+        final SMailBodyMeta parsed = SMailBodyMeta.parse(assistedText); // changed or first time, so verified again
+        dynamicBodyMetaMap.put(cacheKey, parsed);
+        return parsed;
+    }
+
     protected String generateCacheKey(String path, boolean filesystem, OptionalThing<Locale> receiverLocale) {
         return path + ":" + filesystem + ":" + receiverLocale;
     }
@@ -342,6 +405,10 @@ public class SMailConventionReceptionist implements SMailReceptionist {
             }).orElse(path);
             read = textIO.read(realPath);
         } else { // from class-path as default, mainly here
+            final String precompiled = findPrecompiledText(path, receiverLocale);
+            if (precompiled != null) { // no resource search
+                return precompiled;
+            }
             final InputStream ins = receiverLocale.map(locale -> {
                 return findLocaleFileResourceStream(path, locale).orElseGet(() -> {
                     return findMainFileResourceStream(postcard, path);
@@ -354,6 +421,18 @@ public class SMailConventionReceptionist implements SMailReceptionist {
         return read;
     }
 
+    protected String findPrecompiledText(String path, OptionalThing<Locale> receiverLocale) { // null allowed: not precompiled
+        if (precompiledTextMap.isEmpty()) {
+            return null;
+        }
+        if (receiverLocale.isPresent()) { // main file cannot be used here because it may have the locale file
+            return deriveLocaleFilePath(path, receiverLocale.get()).map(localeFilePath -> {
+                return precompiledTextMap.get(localeFilePath);
+            }).orElse(null);
+        }
+        return precompiledTextMap.get(path);
+    }
+
     protected OptionalThing<InputStream> findLocaleFileResourceStream(String path, Locale locale) {
         return deriveLocaleFilePath(path, locale).map(localeFilePath -> {
             final String localeRealPath = adjustClasspathBasePath(localeFilePath);
@@ -397,10 +476,86 @@ public class SMailConventionReceptionist implements SMailReceptionist {
         security.throwMailTemplateFromClasspathNotFoundException(postcard, path, realPath);
     }
 
+    // -----------------------------------------------------
+    //                                         Single Flight
+    //                                         -------------
+    protected SMailBodyMeta loadBodyMeta(String cacheKey, Supplier<SMailBodyMeta> loader) {
+        // single flight per key, threads missing the same key wait for the first thread,
+        // and other keys are loaded in parallel (no lock of whole receptionist)
+        final CompletableFuture<SMailBodyMeta> myFuture = new CompletableFuture<SMailBodyMeta>();
+        final CompletableFuture<SMailBodyMeta> existing = loadingFutureMap.putIfAbsent(cacheKey, myFuture);
+        if (existing != null) {
+            return waitForLoading(existing);
+        }
+        return doLoadBodyMeta(cacheKey, loader, myFuture);
+    }
+
+    protected SMailBodyMeta reloadBodyMeta(String cacheKey, Supplier<SMailBodyMeta> loader) {
+        // forced, not join the loading started before e.g. file change (it may read old text),
+        // and the replaced loading does not cache its result
+        final CompletableFuture<SMailBodyMeta> myFuture = new CompletableFuture<SMailBodyMeta>();
+        loadingFutureMap.put(cacheKey, myFuture);
+        return doLoadBodyMeta(cacheKey, loader, myFuture);
+    }
+
+    protected SMailBodyMeta doLoadBodyMeta(String cacheKey, Supplier<SMailBodyMeta> loader, CompletableFuture<SMailBodyMeta> myFuture) {
+        try { // may be loaded twice if just after other's loading, harmless
+            final long before = System.nanoTime();
+            final SMailBodyMeta loaded = loader.get();
+            if (loadingFutureMap.get(cacheKey) == myFuture) { // not disposed or replaced while loading
+                textCache.cache(cacheKey, loaded, System.nanoTime() - before);
+                if (loadingFutureMap.get(cacheKey) != myFuture) { // just now, so next miss loads it again
+                    textCache.evict(cacheKey);
+                }
+            }
+            myFuture.complete(loaded);
+            return loaded;
+        } catch (RuntimeException | Error e) { // waiting threads also throw it, and next miss retries
+            myFuture.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadingFutureMap.remove(cacheKey, myFuture);
+        }
+    }
+
+    protected SMailBodyMeta waitForLoading(CompletableFuture<SMailBodyMeta> loadingFuture) {
+        try {
+            return loadingFuture.join();
+        } catch (CompletionException e) { // same exception as loading thread
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    // -----------------------------------------------------
+    //                                         File Watching
+    //                                         -------------
+    protected void evictText(String cacheKey) { // called by file watcher
+        textCache.evict(cacheKey);
+    }
+
+    protected void reloadFilesystemText(String cacheKey, String path, OptionalThing<Locale> receiverLocale) { // called by file watcher
+        reloadBodyMeta(cacheKey, () -> SMailBodyMeta.parse(doReadText(null, path, true, receiverLocale))); // no postcard in background
+    }
+
+    /**
+     * Close the watching of template files if it is started, you can call it even if not started.
+     */
+    public void closeFileWatching() {
+        if (fileWatcher != null) {
+            fileWatcher.close();
+        }
+    }
+
     // ===================================================================================
     //                                                                     Analyzer Header
     //                                                                     ===============
-    protected void analyzeBodyMeta(Postcard postcard, String bodyFile, String plainText) {
+    protected void analyzeBodyMeta(Postcard postcard, String bodyFile, SMailBodyMeta bodyMeta) {
         // _/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/
         // /*
         //  [New Member's Registration]
@@ -411,23 +566,62 @@ public class SMailConventionReceptionist implements SMailReceptionist {
         // Hello, /*pmb.memberName*/
         // ...
         // _/_/_/_/_/_/_/_/_/_/
-        final String delimiter = META_DELIMITER;
-        if (plainText.contains(delimiter)) {
-            verifyFormat(bodyFile, plainText, delimiter);
+        if (!bodyMeta.isVerified()) { // cached meta is verified only once, the result is same for the same text
+            final String delimiter = META_DELIMITER;
+            final String plainText = bodyMeta.getTemplateText();
+            if (plainText.contains(delimiter)) {
+                verifyFormat(bodyFile, plainText, delimiter);
+            }
+            bodyMeta.markVerified(); // not marked if exception
         }
-        final String meta = Srl.replace(Srl.substringFirstFront(plainText, delimiter), CRLF, LF);
-        final ScopeInfo optionScope = Srl.extractScopeFirst(meta, OPTION_LABEL, LF);
-        if (optionScope != null && optionScope.getContent().contains(PLUS_HTML_OPTION)) {
+        if (bodyMeta.isPlusHtml()) { // already parsed when read
             postcard.officePlusHtml();
         }
     }
 
+    protected DirectBodyOption useBodyMetaAsDirectBody(Postcard postcard, SMailBodyMeta bodyMeta) {
+        if (bodyMeta.hasSubjectTemplate()) { // split here, so proofreaders work only on the body
+            postcard.officeSubjectTemplate(bodyMeta.getSubjectTemplate());
+            return postcard.useDirectBody(bodyMeta.getBodyText());
+        } else { // e.g. no body meta, subject by postcard
+            return postcard.useDirectBody(bodyMeta.getTemplateText());
+        }
+    }
+
+    // ===================================================================================
+    //                                                                          Precompile
+    //                                                                          ==========
+    /**
+     * Register the precompiled template text, read from class-path without resource search at runtime. <br>
+     * The text should be verified by template precompiler, so use the precompiler instead of calling this directly.
+     * @param templatePath The path of template file in the class-path base, locale resolved e.g. member/welcome.ja.dfmail (NotNull)
+     * @param templateText The text of the template, read as the receptionist does. (NotNull)
+     */
+    protected void registerPrecompiledText(String templatePath, String templateText) { // called by precompiler
+        if (templatePath == null) {
+            throw new IllegalArgumentException("The argument 'templatePath' should not be null.");
+        }
+        if (templateText == null) {
+            throw new IllegalArgumentException("The argument 'templateText' should not be null.");
+        }
+        precompiledTextMap.put(templatePath, templateText);
+    }
+
     // ===================================================================================
     //                                                                             Dispose
     //                                                                             =======
     @Override
-    public synchronized void workingDispose() { // for hot deploy
-        textCacheMap.clear();
+    public void workingDispose() { // for hot deploy, no lock, loading texts are not cached
+        loadingFutureMap.clear();
+        textCache.clear();
+        dynamicBodyMetaMap.clear();
+        if (fileWatcher != null) { // watched again when read
+            fileWatcher.clearWatchedText();
+        }
+        precompiledTextMap.clear(); // may be modified
+        if (dynamicTextAssist != null) { // e.g. caching layer
+            dynamicTextAssist.workingDispose();
+        }
     }
 
     // ===================================================================================
@@ -562,6 +756,13 @@ public class SMailConventionReceptionist implements SMailReceptionist {
     @Override
     public String toString() {
         final String title = DfTypeUtil.toClassTitle(this);
-        return title + ":{" + textCacheMap.keySet() + "}@" + Integer.toHexString(hashCode());
+        return title + ":{" + textCache + "}@" + Integer.toHexString(hashCode());
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public SMailTemplateTextCache getTextCache() { // e.g. for statistics
+        return textCache;
     }
 }
@@ -29,7 +29,7 @@ public class SMailDynamicDataResource {
     // ===================================================================================
     //                                                                           Attribute
     //                                                                           =========
-    protected final CardView cardView; // not null
+    protected final CardView cardView; // null allowed: when refreshed in background by caching layer
     protected final String templatePath; // not null
     protected final boolean filesystem;
     protected final OptionalThing<Locale> receiverLocale; // not null, empty allowed
@@ -50,4 +50,10 @@ public interface SMailDynamicTextAssist {
      * @return The optional dynamic text from e.g. database. (NotNull, EmptyAllowed: means no dynamic text)
      */
     OptionalThing<String> assist(SMailDynamicTextResource resource);
+
+    /**
+     * Dispose the working resources e.g. cached data, called by working dispose of receptionist (for hot deploy).
+     */
+    default void workingDispose() {
+    }
 }
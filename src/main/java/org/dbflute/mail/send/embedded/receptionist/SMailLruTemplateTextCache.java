@@ -0,0 +1,196 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.embedded.receptionist;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The template text cache bounded by entries and characters, evicting least recently used entries. <br>
+ * The entries are kept in access order, so the eviction is done from the eldest without scanning.
+ * No bound as default, so specify them for e.g. many tenant variants and locales.
+ * <pre>
+ * e.g. in personnel
+ *  receptionist.asTextCache(new SMailLruTemplateTextCache().maxEntries(5000).maxChars(50_000_000L));
+ * </pre>
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailLruTemplateTextCache implements SMailTemplateTextCache {
+
+    // ===================================================================================
+    //                                                                          Definition
+    //                                                                          ==========
+    private static final Logger logger = LoggerFactory.getLogger(SMailLruTemplateTextCache.class);
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected int maxEntries; // zero means no bound
+    protected long maxChars; // zero means no bound
+    protected final Map<String, CachedText> cachedMap = new LinkedHashMap<String, CachedText>(16, 0.75f, true); // guarded by this
+    protected long totalChars; // guarded by this
+
+    // -----------------------------------------------------
+    //                                            Statistics
+    //                                            ----------
+    protected final LongAdder hitCount = new LongAdder();
+    protected final LongAdder missCount = new LongAdder();
+    protected final LongAdder loadCount = new LongAdder();
+    protected final LongAdder totalLoadNanos = new LongAdder();
+    protected final LongAdder evictionCount = new LongAdder();
+
+    protected static class CachedText {
+
+        protected final SMailBodyMeta bodyMeta;
+        protected final long chars;
+
+        public CachedText(SMailBodyMeta bodyMeta, long chars) {
+            this.bodyMeta = bodyMeta;
+            this.chars = chars;
+        }
+    }
+
+    // ===================================================================================
+    //                                                                              Option
+    //                                                                              ======
+    /**
+     * @param maxEntries The max count of cached texts, e.g. templates * locales. (Positive)
+     * @return this. (NotNull)
+     */
+    public SMailLruTemplateTextCache maxEntries(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("The argument 'maxEntries' should be positive: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        return this;
+    }
+
+    /**
+     * @param maxChars The max total characters of cached texts, a text over it is not cached. (Positive)
+     * @return this. (NotNull)
+     */
+    public SMailLruTemplateTextCache maxChars(long maxChars) {
+        if (maxChars <= 0) {
+            throw new IllegalArgumentException("The argument 'maxChars' should be positive: " + maxChars);
+        }
+        this.maxChars = maxChars;
+        return this;
+    }
+
+    // ===================================================================================
+    //                                                                               Cache
+    //                                                                               =====
+    @Override
+    public SMailBodyMeta find(String cacheKey) {
+        final CachedText cached;
+        synchronized (this) { // get() moves the entry to the newest in access order
+            cached = cachedMap.get(cacheKey);
+        }
+        if (cached == null) {
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        return cached.bodyMeta;
+    }
+
+    @Override
+    public void cache(String cacheKey, SMailBodyMeta bodyMeta, long loadNanos) {
+        loadCount.increment();
+        totalLoadNanos.add(loadNanos);
+        final long chars = estimateChars(bodyMeta);
+        if (maxChars > 0 && chars > maxChars) { // cannot be cached
+            logger.debug("...Skipping the cache of too large text: key={}, chars={}", cacheKey, chars);
+            return;
+        }
+        synchronized (this) {
+            final CachedText previous = cachedMap.put(cacheKey, new CachedText(bodyMeta, chars));
+            totalChars += chars - (previous != null ? previous.chars : 0L);
+            evictOverBounds(cacheKey);
+        }
+    }
+
+    protected long estimateChars(SMailBodyMeta bodyMeta) { // body text is separate string if split
+        final String templateText = bodyMeta.getTemplateText();
+        final String bodyText = bodyMeta.getBodyText();
+        return templateText.length() + (bodyText != templateText ? bodyText.length() : 0);
+    }
+
+    protected boolean isOverBounds() {
+        return (maxEntries > 0 && cachedMap.size() > maxEntries) || (maxChars > 0 && totalChars > maxChars);
+    }
+
+    protected void evictOverBounds(String keptKey) { // under lock
+        final Iterator<Entry<String, CachedText>> ite = cachedMap.entrySet().iterator(); // from least recently used
+        while (isOverBounds() && ite.hasNext()) {
+            final Entry<String, CachedText> eldest = ite.next();
+            if (eldest.getKey().equals(keptKey)) { // the kept one is the newest, so only it remains here
+                break;
+            }
+            ite.remove();
+            totalChars -= eldest.getValue().chars;
+            evictionCount.increment();
+        }
+    }
+
+    @Override
+    public synchronized void evict(String cacheKey) {
+        doEvict(cacheKey);
+    }
+
+    protected void doEvict(String cacheKey) { // under lock
+        final CachedText removed = cachedMap.remove(cacheKey);
+        if (removed != null) {
+            totalChars -= removed.chars;
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        cachedMap.clear();
+        totalChars = 0L;
+    }
+
+    // ===================================================================================
+    //                                                                          Statistics
+    //                                                                          ==========
+    @Override
+    public SMailTemplateTextCacheStats stats() {
+        final int currentEntries;
+        final long currentChars;
+        synchronized (this) {
+            currentEntries = cachedMap.size();
+            currentChars = totalChars;
+        }
+        return new SMailTemplateTextCacheStats(hitCount.sum(), missCount.sum(), loadCount.sum(), totalLoadNanos.sum(), evictionCount.sum(),
+                currentEntries, currentChars);
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        return "lruCache:{maxEntries=" + maxEntries + ", maxChars=" + maxChars + ", " + stats() + "}";
+    }
+}
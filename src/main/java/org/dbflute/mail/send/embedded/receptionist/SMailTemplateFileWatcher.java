@@ -0,0 +1,215 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.embedded.receptionist;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.dbflute.mail.send.exception.SMailIllegalStateException;
+import org.dbflute.optional.OptionalThing;
+import org.dbflute.util.Srl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The watcher of template files from filesystem, evicts and reloads only the changed template in background. <br>
+ * The directories of read templates are watched, and a change of a file refreshes its family
+ * (main file, locale files and HTML files) e.g. welcome.dfmail, welcome.ja.dfmail, welcome_html.dfmail.
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailTemplateFileWatcher implements AutoCloseable {
+
+    // ===================================================================================
+    //                                                                          Definition
+    //                                                                          ==========
+    private static final Logger logger = LoggerFactory.getLogger(SMailTemplateFileWatcher.class);
+    protected static final String WATCHER_THREAD_NAME = "mailflute-template-watcher";
+    protected static final String HTML_SUFFIX = "_html";
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final SMailConventionReceptionist receptionist; // not null, reloaded by
+    protected final WatchService watchService; // not null
+    protected final Set<Path> watchedDirSet = ConcurrentHashMap.newKeySet(); // absolute
+    protected final Map<String, Set<WatchedText>> familyTextMap = new ConcurrentHashMap<String, Set<WatchedText>>(); // keyed by family
+    protected final Thread watcherThread; // not null, daemon
+    protected volatile boolean closed;
+
+    protected static class WatchedText { // identified by cache key
+
+        protected final String cacheKey;
+        protected final String path;
+        protected final OptionalThing<Locale> receiverLocale;
+
+        public WatchedText(String cacheKey, String path, OptionalThing<Locale> receiverLocale) {
+            this.cacheKey = cacheKey;
+            this.path = path;
+            this.receiverLocale = receiverLocale;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof WatchedText && cacheKey.equals(((WatchedText) obj).cacheKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return cacheKey.hashCode();
+        }
+    }
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    public SMailTemplateFileWatcher(SMailConventionReceptionist receptionist) {
+        if (receptionist == null) {
+            throw new IllegalArgumentException("The argument 'receptionist' should not be null.");
+        }
+        this.receptionist = receptionist;
+        try {
+            this.watchService = FileSystems.getDefault().newWatchService();
+        } catch (IOException e) {
+            throw new SMailIllegalStateException("Failed to create the watch service for templates.", e);
+        }
+        this.watcherThread = new Thread(() -> watchLoop(), WATCHER_THREAD_NAME);
+        this.watcherThread.setDaemon(true);
+        this.watcherThread.start();
+    }
+
+    // ===================================================================================
+    //                                                                               Watch
+    //                                                                               =====
+    /**
+     * Watch the template text read from filesystem, called when it is cached.
+     * @param cacheKey The key of text cache. (NotNull)
+     * @param path The path of body or HTML file, which the locale is not resolved yet. (NotNull)
+     * @param receiverLocale The optional locale of receiver for the text. (NotNull, EmptyAllowed)
+     */
+    public void watch(String cacheKey, String path, OptionalThing<Locale> receiverLocale) {
+        if (closed) {
+            return;
+        }
+        final Path filePath = new File(path).getAbsoluteFile().toPath().normalize();
+        final Path dir = filePath.getParent();
+        if (dir == null) { // no way, just in case
+            return;
+        }
+        if (watchedDirSet.add(dir)) {
+            try {
+                dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                        StandardWatchEventKinds.ENTRY_DELETE);
+                logger.debug("...Watching the template directory: {}", dir);
+            } catch (IOException | ClosedWatchServiceException e) { // no watching, cached until dispose as usual
+                watchedDirSet.remove(dir);
+                logger.info("Failed to watch the template directory: " + dir, e);
+                return;
+            }
+        }
+        final String family = deriveFamily(filePath);
+        familyTextMap.computeIfAbsent(family, key -> ConcurrentHashMap.newKeySet()).add(new WatchedText(cacheKey, path, receiverLocale));
+    }
+
+    protected String deriveFamily(Path filePath) { // e.g. /.../member/welcome for welcome_html.ja.dfmail
+        final String pureName = Srl.substringFirstFront(filePath.getFileName().toString(), "."); // e.g. welcome_html
+        final String familyName = pureName.endsWith(HTML_SUFFIX) ? Srl.substringLastFront(pureName, HTML_SUFFIX) : pureName;
+        return filePath.getParent().resolve(familyName).toString();
+    }
+
+    // ===================================================================================
+    //                                                                          Watch Loop
+    //                                                                          ==========
+    protected void watchLoop() {
+        while (!closed) {
+            final WatchKey watchKey;
+            try {
+                watchKey = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                break;
+            }
+            final Path dir = (Path) watchKey.watchable();
+            final Set<String> changedFamilySet = new LinkedHashSet<String>(); // to refresh once for several events
+            for (WatchEvent<?> event : watchKey.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) { // lost events, so whole directory
+                    final String dirPrefix = dir.toString() + File.separator;
+                    familyTextMap.keySet().stream().filter(family -> family.startsWith(dirPrefix)).forEach(changedFamilySet::add);
+                } else {
+                    changedFamilySet.add(deriveFamily(dir.resolve((Path) event.context())));
+                }
+            }
+            watchKey.reset();
+            for (String family : changedFamilySet) {
+                refreshFamily(family);
+            }
+        }
+    }
+
+    protected void refreshFamily(String family) {
+        final Set<WatchedText> textSet = familyTextMap.get(family);
+        if (textSet == null) { // e.g. not-read file, temporary file of editor
+            return;
+        }
+        logger.debug("...Refreshing the changed templates: {} texts of {}", textSet.size(), family);
+        for (WatchedText text : textSet) { // all first, not to mix old and new texts
+            receptionist.evictText(text.cacheKey);
+        }
+        for (WatchedText text : textSet) {
+            try {
+                receptionist.reloadFilesystemText(text.cacheKey, text.path, text.receiverLocale);
+            } catch (RuntimeException e) { // e.g. deleted, loaded at next mail as usual
+                logger.debug("...Giving up reloading the template: {}, {}", text.path, e.getMessage());
+            }
+        }
+    }
+
+    // ===================================================================================
+    //                                                                               Close
+    //                                                                               =====
+    public void clearWatchedText() { // directories are still watched
+        familyTextMap.clear();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.info("Failed to close the watch service for templates.", e);
+        }
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        return "watcher:{dirs=" + watchedDirSet.size() + ", families=" + familyTextMap.size() + (closed ? ", closed" : "") + "}";
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.embedded.receptionist;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.dbflute.helper.message.ExceptionMessageBuilder;
+import org.dbflute.mail.send.SMailTextProofreader;
+import org.dbflute.mail.send.embedded.proofreader.SMailCompiledProofreader;
+import org.dbflute.mail.send.exception.SMailIllegalStateException;
+import org.dbflute.util.DfResourceUtil;
+import org.dbflute.util.Srl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The precompiler of mail templates, reads the body files ahead of time instead of at the first mail. <br>
+ * The body meta (header comment, subject, option) is verified and the template is compiled by the proofreader,
+ * so template errors are thrown at build time or application startup. <br>
+ * The precompiled texts are registered to the receptionist, so it does not search resources for them at runtime.
+ * <pre>
+ * e.g. at build time, by exec-maven-plugin (process-classes phase) with the template directory
+ *  mainClass: org.dbflute.mail.send.embedded.receptionist.SMailTemplatePrecompiler
+ *  arguments: src/main/resources/mail
+ *
+ * e.g. at application startup, by personnel
+ *  personnel.precompileTemplates(Arrays.asList("member/member_registration.dfmail", ...));
+ * </pre>
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailTemplatePrecompiler {
+
+    // ===================================================================================
+    //                                                                          Definition
+    //                                                                          ==========
+    private static final Logger logger = LoggerFactory.getLogger(SMailTemplatePrecompiler.class);
+    public static final String TEMPLATE_EXTENSION = ".dfmail";
+    public static final String DEFAULT_TEMPLATE_DIR = "src/main/resources/mail"; // for build time
+    protected static final String HTML_SUFFIX = "_html";
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final SMailConventionReceptionist receptionist; // not null, registered to
+    protected final SMailTextProofreader proofreader; // not null, compiled by
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    public SMailTemplatePrecompiler(SMailConventionReceptionist receptionist, SMailTextProofreader proofreader) {
+        if (receptionist == null) {
+            throw new IllegalArgumentException("The argument 'receptionist' should not be null.");
+        }
+        if (proofreader == null) {
+            throw new IllegalArgumentException("The argument 'proofreader' should not be null.");
+        }
+        this.receptionist = receptionist;
+        this.proofreader = proofreader;
+    }
+
+    // ===================================================================================
+    //                                                                           Directory
+    //                                                                           =========
+    /**
+     * Precompile all body files under the template directory, including locale and HTML files. <br>
+     * All templates are precompiled even if some fail, and the failures are thrown together.
+     * @param templateDir The directory of mail templates, same as class-path base of receptionist e.g. src/main/resources/mail (NotNull)
+     * @return The read-only list of precompiled template paths relative to the directory, e.g. member/welcome.dfmail (NotNull)
+     */
+    public List<String> precompileDirectory(File templateDir) {
+        if (templateDir == null) {
+            throw new IllegalArgumentException("The argument 'templateDir' should not be null.");
+        }
+        if (!templateDir.isDirectory()) {
+            throw new SMailIllegalStateException("Not found the template directory: " + templateDir);
+        }
+        final List<String> templatePathList = new ArrayList<String>();
+        collectTemplatePath(templateDir, "", templatePathList);
+        final Map<String, RuntimeException> failureMap = new LinkedHashMap<String, RuntimeException>();
+        for (String templatePath : templatePathList) {
+            final String templateText = receptionist.textIO.read(new File(templateDir, templatePath).getPath());
+            doPrecompile(templatePath, templateText, failureMap);
+        }
+        handleFailure(templateDir.getPath(), failureMap);
+        logger.debug("...Precompiling the mail templates in directory: {} templates in {}", templatePathList.size(), templateDir);
+        return Collections.unmodifiableList(templatePathList);
+    }
+
+    protected void collectTemplatePath(File dir, String pathPrefix, List<String> templatePathList) {
+        final File[] files = dir.listFiles();
+        if (files == null) { // no way, just in case
+            return;
+        }
+        Arrays.sort(files); // for determined order
+        for (File file : files) {
+            final String path = pathPrefix + file.getName();
+            if (file.isDirectory()) {
+                collectTemplatePath(file, path + "/", templatePathList);
+            } else if (path.endsWith(TEMPLATE_EXTENSION)) {
+                templatePathList.add(path);
+            }
+        }
+    }
+
+    // ===================================================================================
+    //                                                                           Classpath
+    //                                                                           =========
+    /**
+     * Precompile the body files in the class-path base of receptionist, also their HTML files if they exist. <br>
+     * Locale files are not precompiled unless specified, they are read at runtime as usual.
+     * @param bodyFileList The list of body file paths, same as postcard's body file e.g. member/welcome.dfmail (NotNull)
+     * @return The read-only list of precompiled template paths, including HTML files. (NotNull)
+     */
+    public List<String> precompileClasspath(Collection<String> bodyFileList) {
+        if (bodyFileList == null) {
+            throw new IllegalArgumentException("The argument 'bodyFileList' should not be null.");
+        }
+        final List<String> templatePathList = new ArrayList<String>();
+        final Map<String, RuntimeException> failureMap = new LinkedHashMap<String, RuntimeException>();
+        for (String bodyFile : bodyFileList) {
+            final String bodyText = readClasspathText(bodyFile);
+            if (bodyText == null) {
+                failureMap.put(bodyFile, new SMailIllegalStateException("Not found the body file in classpath: " + bodyFile));
+                continue;
+            }
+            templatePathList.add(bodyFile);
+            doPrecompile(bodyFile, bodyText, failureMap);
+            final String htmlFilePath = receptionist.deriveHtmlFilePath(bodyFile);
+            final String htmlText = readClasspathText(htmlFilePath);
+            if (htmlText != null) { // optional
+                templatePathList.add(htmlFilePath);
+                doPrecompile(htmlFilePath, htmlText, failureMap);
+            }
+        }
+        handleFailure("classpath", failureMap);
+        logger.debug("...Precompiling the mail templates in classpath: {} templates", templatePathList.size());
+        return Collections.unmodifiableList(templatePathList);
+    }
+
+    protected String readClasspathText(String templatePath) { // null allowed: not found
+        final InputStream ins = DfResourceUtil.getResourceStream(receptionist.adjustClasspathBasePath(templatePath));
+        return ins != null ? receptionist.textIO.read(ins) : null;
+    }
+
+    // ===================================================================================
+    //                                                                          Precompile
+    //                                                                          ==========
+    protected void doPrecompile(String templatePath, String templateText, Map<String, RuntimeException> failureMap) {
+        try {
+            verifyTemplateText(templatePath, templateText);
+            final SMailBodyMeta bodyMeta = SMailBodyMeta.parse(templateText);
+            if (bodyMeta.hasSubjectTemplate()) { // split by receptionist at runtime
+                proofreader.precompile(bodyMeta.getSubjectTemplate());
+            }
+            proofreader.precompile(bodyMeta.getBodyText());
+        } catch (RuntimeException e) {
+            failureMap.put(templatePath, e);
+            return;
+        }
+        receptionist.registerPrecompiledText(templatePath, templateText);
+    }
+
+    protected void verifyTemplateText(String templatePath, String templateText) { // same as receptionist at runtime
+        if (isHtmlTemplatePath(templatePath)) {
+            receptionist.verifyMailHtmlTemplateTextFormat(templatePath, templateText);
+        } else {
+            final String delimiter = SMailConventionReceptionist.META_DELIMITER;
+            if (templateText.contains(delimiter)) {
+                receptionist.verifyFormat(templatePath, templateText, delimiter);
+            }
+        }
+    }
+
+    protected boolean isHtmlTemplatePath(String templatePath) { // e.g. member/welcome_html.dfmail, member/welcome_html.ja.dfmail
+        final String pureFileName = Srl.substringLastRear(templatePath, "/"); // same if no delimiter
+        return Srl.substringFirstFront(pureFileName, ".").endsWith(HTML_SUFFIX);
+    }
+
+    protected void handleFailure(String location, Map<String, RuntimeException> failureMap) {
+        if (failureMap.isEmpty()) {
+            return;
+        }
+        final ExceptionMessageBuilder br = new ExceptionMessageBuilder();
+        br.addNotice("Failed to precompile the mail templates.");
+        br.addItem("Advice");
+        br.addElement("Fix the templates by the messages of each failure.");
+        br.addItem("Location");
+        br.addElement(location);
+        failureMap.forEach((templatePath, cause) -> {
+            br.addItem(templatePath);
+            br.addElement(cause.getClass().getSimpleName());
+            br.addElement(cause.getMessage());
+        });
+        final String msg = br.buildExceptionMessage();
+        throw new SMailIllegalStateException(msg, failureMap.values().iterator().next());
+    }
+
+    // ===================================================================================
+    //                                                                          Build Main
+    //                                                                          ==========
+    /**
+     * Precompile the templates in the directory to check them at build time, fails (exception) if errors. <br>
+     * The compiled templates are thrown away, only for check e.g. by exec-maven-plugin.
+     * @param args The first element is the template directory. (NotNull, EmptyAllowed: default directory)
+     */
+    public static void main(String[] args) {
+        final File templateDir = new File(args.length > 0 ? args[0] : DEFAULT_TEMPLATE_DIR);
+        final SMailTemplatePrecompiler precompiler = new SMailTemplatePrecompiler(new SMailConventionReceptionist(),
+                new SMailCompiledProofreader());
+        final List<String> templatePathList = precompiler.precompileDirectory(templateDir);
+        logger.info("Precompiled the mail templates: " + templatePathList.size() + " templates in " + templateDir);
+    }
+}
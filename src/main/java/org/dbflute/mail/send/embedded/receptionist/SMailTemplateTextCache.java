@@ -0,0 +1,52 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.embedded.receptionist;
+
+/**
+ * The cache of template texts read by receptionist, keyed by path, filesystem and locale. <br>
+ * It should be thread-safe, and finding should be light because it is called for every mail.
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public interface SMailTemplateTextCache {
+
+    /**
+     * Find the cached body meta, counted as hit or miss.
+     * @param cacheKey The key of cache generated by receptionist. (NotNull)
+     * @return The cached body meta. (NullAllowed: not cached)
+     */
+    SMailBodyMeta find(String cacheKey);
+
+    /**
+     * Cache the loaded body meta, other entries may be evicted.
+     * @param cacheKey The key of cache generated by receptionist. (NotNull)
+     * @param bodyMeta The body meta of the loaded text. (NotNull)
+     * @param loadNanos The nano seconds for loading (reading and parsing) the text, for statistics. (NotMinus)
+     */
+    void cache(String cacheKey, SMailBodyMeta bodyMeta, long loadNanos);
+
+    /**
+     * @param cacheKey The key of cache to be evicted, no exception if not cached. (NotNull)
+     */
+    void evict(String cacheKey);
+
+    void clear();
+
+    /**
+     * @return The snapshot of statistics e.g. hit count, to size the cache from data. (NotNull)
+     */
+    SMailTemplateTextCacheStats stats();
+}
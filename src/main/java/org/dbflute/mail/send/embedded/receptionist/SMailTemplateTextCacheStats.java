@@ -0,0 +1,107 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.embedded.receptionist;
+
+/**
+ * The snapshot of statistics of template text cache, immutable.
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailTemplateTextCacheStats {
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final long hitCount;
+    protected final long missCount;
+    protected final long loadCount;
+    protected final long totalLoadNanos;
+    protected final long evictionCount;
+    protected final int entryCount;
+    protected final long totalChars;
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    public SMailTemplateTextCacheStats(long hitCount, long missCount, long loadCount, long totalLoadNanos, long evictionCount,
+            int entryCount, long totalChars) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.loadCount = loadCount;
+        this.totalLoadNanos = totalLoadNanos;
+        this.evictionCount = evictionCount;
+        this.entryCount = entryCount;
+        this.totalChars = totalChars;
+    }
+
+    // ===================================================================================
+    //                                                                             Derived
+    //                                                                             =======
+    /**
+     * @return The ratio of hits in all requests, 1.0 if no request. (ZeroToOne)
+     */
+    public double getHitRatio() {
+        final long requestCount = hitCount + missCount;
+        return requestCount > 0 ? (double) hitCount / requestCount : 1.0;
+    }
+
+    /**
+     * @return The average millis of loading, 0.0 if no load. (NotMinus)
+     */
+    public double getAverageLoadMillis() {
+        return loadCount > 0 ? totalLoadNanos / 1000000.0 / loadCount : 0.0;
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        return "stats:{hit=" + hitCount + ", miss=" + missCount + ", load=" + loadCount + ", eviction=" + evictionCount + ", entries="
+                + entryCount + ", chars=" + totalChars + "}";
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getLoadCount() {
+        return loadCount;
+    }
+
+    public long getTotalLoadNanos() {
+        return totalLoadNanos;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    public long getTotalChars() {
+        return totalChars;
+    }
+}
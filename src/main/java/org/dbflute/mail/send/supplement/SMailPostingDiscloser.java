@@ -15,6 +15,7 @@
  */
 package org.dbflute.mail.send.supplement;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -22,6 +23,7 @@ import javax.mail.Address;
 import javax.mail.internet.MimeMessage;
 
 import org.dbflute.mail.send.supplement.attachment.SMailReadAttachedData;
+import org.dbflute.mail.send.supplement.transport.SMailRecipientReply;
 import org.dbflute.optional.OptionalThing;
 
 /**
@@ -80,4 +82,8 @@ public interface SMailPostingDiscloser {
     OptionalThing<Integer> getLastReturnCode();
 
     OptionalThing<String> getLastServerResponse();
+
+    default Map<String, SMailRecipientReply> getRecipientReplyMap() { // keyed by plain address, empty if not pipelining transport
+        return Collections.emptyMap(); // for compatible, existing implementations do not have it
+    }
 }
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.async;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.dbflute.mail.CardView;
+import org.dbflute.mail.send.exception.SMailIllegalStateException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The async strategy that sends in other threads, virtual threads if Java21+ or else bounded platform threads. <br>
+ * Blocking SMTP I/O is suitable for virtual threads, so many concurrent sendings without many platform threads.
+ * <pre>
+ * e.g. shared by all posties in personnel
+ *  &#064;Override
+ *  protected OptionalThing&lt;SMailAsyncStrategy&gt; createAsyncStrategy() {
+ *      return OptionalThing.of(new SMailAsyncStrategyThreaded(op -&gt; op.<span style="color: #CC4747">maxPlatformThreads</span>(20)));
+ *  }
+ * </pre>
+ * If the platform threads are all busy and the queue is full, the sending is executed in caller thread. (back pressure) <br>
+ * Virtual threads have no bound, so use e.g. domain scheduler or rate limiter to keep the pace for SMTP server. <br>
+ * Close it when your application shutdown, in-flight sendings are waited for a while.
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailAsyncStrategyThreaded implements SMailAsyncStrategy, AutoCloseable {
+
+    // ===================================================================================
+    //                                                                          Definition
+    //                                                                          ==========
+    private static final Logger logger = LoggerFactory.getLogger(SMailAsyncStrategyThreaded.class);
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final SMailAsyncThreadedOption option; // not null
+    protected final ExecutorService executor; // not null
+    protected final boolean virtual; // true if the executor uses virtual threads
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    public SMailAsyncStrategyThreaded() {
+        this(op -> {});
+    }
+
+    public SMailAsyncStrategyThreaded(Consumer<SMailAsyncThreadedOption> opLambda) {
+        if (opLambda == null) {
+            throw new IllegalArgumentException("The argument 'opLambda' should not be null.");
+        }
+        option = new SMailAsyncThreadedOption();
+        opLambda.accept(option);
+        final ExecutorService virtualExecutor = option.isPlatformOnly() ? null : createVirtualExecutor();
+        virtual = virtualExecutor != null;
+        executor = virtual ? virtualExecutor : createPlatformExecutor();
+    }
+
+    protected ExecutorService createVirtualExecutor() { // null allowed: unavailable
+        return SMailVirtualThreadSupport.newVirtualThreadExecutor(option.getThreadNamePrefix()).orElse(null);
+    }
+
+    protected ExecutorService createPlatformExecutor() {
+        final int poolSize = option.getMaxPlatformThreads();
+        final ThreadPoolExecutor platformExecutor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(option.getQueueCapacity()), createPlatformThreadFactory(), (runnable, pool) -> {
+                    if (pool.isShutdown()) {
+                        throw new RejectedExecutionException("Already shutdown the executor: " + pool);
+                    }
+                    runnable.run(); // caller runs as back pressure
+                });
+        platformExecutor.allowCoreThreadTimeOut(true); // no idle thread while no sending
+        return platformExecutor;
+    }
+
+    protected ThreadFactory createPlatformThreadFactory() {
+        final AtomicInteger sequence = new AtomicInteger();
+        return runnable -> {
+            final Thread thread = new Thread(runnable, option.getThreadNamePrefix() + sequence.getAndIncrement());
+            thread.setDaemon(true); // not to block JVM shutdown
+            return thread;
+        };
+    }
+
+    // ===================================================================================
+    //                                                                               Async
+    //                                                                               =====
+    @Override
+    public void async(CardView view, Runnable runnable) {
+        if (view == null) {
+            throw new IllegalArgumentException("The argument 'view' should not be null.");
+        }
+        if (runnable == null) {
+            throw new IllegalArgumentException("The argument 'runnable' should not be null.");
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    runnable.run();
+                } catch (RuntimeException e) { // already logged by postie, just not to be lost
+                    logger.debug("Failed to run the async sending: " + view, e);
+                } catch (Error e) { // not logged by postie (catches only runtime exception) e.g. NoClassDefFoundError
+                    logger.error("Failed to run the async sending by error: " + view, e);
+                    throw e; // for uncaught exception handler of the thread
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            throw new SMailIllegalStateException("Already closed the async strategy: " + view, e);
+        }
+    }
+
+    // ===================================================================================
+    //                                                                               Close
+    //                                                                               =====
+    /**
+     * Close the executor, waiting for in-flight and queued sendings until the shutdown wait time. <br>
+     * Async sending after closing throws the illegal state exception.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(option.getShutdownWaitMillis(), TimeUnit.MILLISECONDS)) {
+                logger.warn("*Timeout to wait for the async sendings, abandoned: {}", executor.shutdownNow().size());
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        return "threaded:{" + (virtual ? "virtual" : "platform") + ", " + option + "}";
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    public boolean isClosed() {
+        return executor.isShutdown();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.async;
+
+/**
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailAsyncThreadedOption {
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected int maxPlatformThreads = 50; // positive, fixed pool size of platform threads
+    protected int queueCapacity = 1000; // positive, waiting sendings for platform threads
+    protected boolean platformOnly; // true means not use virtual thread even if Java21+
+    protected String threadNamePrefix = "mailflute-async-"; // not null
+    protected long shutdownWaitMillis = 30000L; // not minus, for waiting in-flight sendings when close
+
+    // ===================================================================================
+    //                                                                              Option
+    //                                                                              ======
+    /**
+     * @param maxPlatformThreads The count of platform threads used when virtual thread is unavailable. (Positive)
+     * @return this. (NotNull)
+     */
+    public SMailAsyncThreadedOption maxPlatformThreads(int maxPlatformThreads) {
+        if (maxPlatformThreads <= 0) {
+            throw new IllegalArgumentException("The argument 'maxPlatformThreads' should be positive: " + maxPlatformThreads);
+        }
+        this.maxPlatformThreads = maxPlatformThreads;
+        return this;
+    }
+
+    /**
+     * @param queueCapacity The capacity of waiting queue for platform threads, sent by caller thread if full. (Positive)
+     * @return this. (NotNull)
+     */
+    public SMailAsyncThreadedOption queueCapacity(int queueCapacity) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("The argument 'queueCapacity' should be positive: " + queueCapacity);
+        }
+        this.queueCapacity = queueCapacity;
+        return this;
+    }
+
+    /**
+     * Use platform threads even if virtual thread is available. (e.g. for pinning by synchronized in your hook)
+     * @return this. (NotNull)
+     */
+    public SMailAsyncThreadedOption platformOnly() {
+        this.platformOnly = true;
+        return this;
+    }
+
+    public SMailAsyncThreadedOption threadNamePrefix(String threadNamePrefix) {
+        if (threadNamePrefix == null) {
+            throw new IllegalArgumentException("The argument 'threadNamePrefix' should not be null.");
+        }
+        this.threadNamePrefix = threadNamePrefix;
+        return this;
+    }
+
+    public SMailAsyncThreadedOption shutdownWaitMillis(long shutdownWaitMillis) {
+        if (shutdownWaitMillis < 0L) {
+            throw new IllegalArgumentException("The argument 'shutdownWaitMillis' should not be minus: " + shutdownWaitMillis);
+        }
+        this.shutdownWaitMillis = shutdownWaitMillis;
+        return this;
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        final String platformExp = maxPlatformThreads + "/" + queueCapacity + (platformOnly ? ", platformOnly" : "");
+        return "threadedOption:{" + threadNamePrefix + ", " + platformExp + "}";
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public int getMaxPlatformThreads() {
+        return maxPlatformThreads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public boolean isPlatformOnly() {
+        return platformOnly;
+    }
+
+    public String getThreadNamePrefix() {
+        return threadNamePrefix;
+    }
+
+    public long getShutdownWaitMillis() {
+        return shutdownWaitMillis;
+    }
+}
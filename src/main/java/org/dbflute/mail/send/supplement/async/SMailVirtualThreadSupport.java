@@ -0,0 +1,48 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.async;
+
+import java.util.concurrent.ExecutorService;
+
+import org.dbflute.optional.OptionalThing;
+
+/**
+ * The support of virtual thread, this is for Java8 runtime so virtual thread is unavailable. <br>
+ * The class for Java21+ is in src/main/java21 and packaged into META-INF/versions/21 of the multi-release jar.
+ * (so keep the public signature same as the Java21 version)
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailVirtualThreadSupport {
+
+    private SMailVirtualThreadSupport() {
+    }
+
+    public static boolean isVirtualThreadAvailable() {
+        return false;
+    }
+
+    /**
+     * @param threadNamePrefix The prefix of thread name, suffixed by sequence number. (NotNull)
+     * @return The optional executor that starts a new virtual thread per task. (NotNull, EmptyAllowed: Java8-20)
+     */
+    public static OptionalThing<ExecutorService> newVirtualThreadExecutor(String threadNamePrefix) {
+        if (threadNamePrefix == null) {
+            throw new IllegalArgumentException("The argument 'threadNamePrefix' should not be null.");
+        }
+        return OptionalThing.empty();
+    }
+}
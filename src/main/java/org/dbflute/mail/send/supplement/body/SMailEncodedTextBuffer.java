@@ -0,0 +1,262 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.body;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The writer that encodes text into byte chunks by the charset, as the body of mail part. <br>
+ * The text is encoded while writing, so neither the whole string nor the encoded array is copied. <br>
+ * Malformed or unmappable characters are replaced as String.getBytes() does.
+ * <pre>
+ * e.g.
+ *  SMailEncodedTextBuffer buffer = new SMailEncodedTextBuffer(charset, expectedBytes);
+ *  buffer.write(text); <span style="color: #3F7E5E">// or proofreader writes it</span>
+ *  buffer.close(); <span style="color: #3F7E5E">// required before reading (for stateful encoding e.g. ISO-2022-JP)</span>
+ *  part.setDataHandler(new DataHandler(buffer.toDataSource("text/plain")));
+ * </pre>
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailEncodedTextBuffer extends Writer {
+
+    // ===================================================================================
+    //                                                                          Definition
+    //                                                                          ==========
+    protected static final int MIN_CHUNK_SIZE = 64;
+    protected static final int MAX_CHUNK_SIZE = 1024 * 1024; // for next chunks, doubled until here
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final Charset charset; // not null
+    protected final CharsetEncoder encoder; // not null, not thread-safe
+    protected final List<ByteBuffer> chunkList = new ArrayList<ByteBuffer>(); // not null, last is current
+    protected ByteBuffer current; // not null after constructor, writing chunk
+    protected String leftover; // null allowed: e.g. high surrogate waiting for next writing
+    protected long encodedSize; // bytes of filled chunks, excluding current chunk
+    protected boolean closed;
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    /**
+     * @param charset The charset to encode text. (NotNull)
+     * @param expectedSize The expected byte size for first chunk, e.g. text length * average bytes per char. (NotMinus)
+     */
+    public SMailEncodedTextBuffer(Charset charset, int expectedSize) {
+        if (charset == null) {
+            throw new IllegalArgumentException("The argument 'charset' should not be null.");
+        }
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("The argument 'expectedSize' should not be minus: " + expectedSize);
+        }
+        this.charset = charset;
+        this.encoder = charset.newEncoder();
+        encoder.onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        addChunk(Math.max(expectedSize, MIN_CHUNK_SIZE));
+    }
+
+    /**
+     * Create the buffer that has the encoded text, closed already.
+     * @param text The text to be encoded. (NotNull)
+     * @param charset The charset to encode text. (NotNull)
+     * @return The closed buffer that can be read. (NotNull)
+     */
+    public static SMailEncodedTextBuffer encode(String text, Charset charset) {
+        if (text == null) {
+            throw new IllegalArgumentException("The argument 'text' should not be null.");
+        }
+        if (charset == null) {
+            throw new IllegalArgumentException("The argument 'charset' should not be null.");
+        }
+        final float averageBytes = charset.newEncoder().averageBytesPerChar();
+        final int expectedSize = (int) Math.min(text.length() * averageBytes, MAX_CHUNK_SIZE);
+        final SMailEncodedTextBuffer buffer = new SMailEncodedTextBuffer(charset, expectedSize);
+        buffer.encodeChars(CharBuffer.wrap(text), false);
+        buffer.close();
+        return buffer;
+    }
+
+    // ===================================================================================
+    //                                                                               Write
+    //                                                                               =====
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        assertNotClosed();
+        encodeChars(CharBuffer.wrap(cbuf, off, len), false);
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException { // without char array copy
+        assertNotClosed();
+        encodeChars(CharBuffer.wrap(str, off, off + len), false);
+    }
+
+    @Override
+    public Writer append(CharSequence csq) throws IOException {
+        assertNotClosed();
+        encodeChars(CharBuffer.wrap(csq != null ? csq : "null"), false);
+        return this;
+    }
+
+    @Override
+    public void flush() { // nothing to flush, encoded while writing
+    }
+
+    /**
+     * Finish the encoding, e.g. writing escape sequence of stateful charset. <br>
+     * The buffer can be read after closing, and cannot be written.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        encodeChars(CharBuffer.allocate(0), true);
+        while (encoder.flush(current).isOverflow()) {
+            nextChunk();
+        }
+        closed = true;
+    }
+
+    protected void encodeChars(CharBuffer in, boolean endOfInput) {
+        CharBuffer real = in;
+        if (leftover != null) { // basically one char
+            real = CharBuffer.wrap(leftover + in.toString());
+            leftover = null;
+        }
+        while (true) {
+            final CoderResult result = encoder.encode(real, current, endOfInput);
+            if (result.isOverflow()) {
+                nextChunk();
+            } else {
+                break; // underflow, errors are replaced
+            }
+        }
+        if (real.hasRemaining()) { // e.g. high surrogate at the end
+            leftover = real.toString();
+        }
+    }
+
+    // ===================================================================================
+    //                                                                               Chunk
+    //                                                                               =====
+    protected void nextChunk() {
+        encodedSize += current.position();
+        addChunk(Math.min(Math.max(current.capacity() * 2, MIN_CHUNK_SIZE), MAX_CHUNK_SIZE));
+    }
+
+    protected void addChunk(int size) {
+        current = ByteBuffer.allocate(size);
+        chunkList.add(current);
+    }
+
+    // ===================================================================================
+    //                                                                                Read
+    //                                                                                ====
+    /**
+     * @return The byte size of encoded text.
+     */
+    public long size() {
+        return encodedSize + current.position();
+    }
+
+    /**
+     * @return The new-created input stream of the encoded bytes, can be called repeatedly. (NotNull)
+     * @throws IllegalStateException When the buffer is not closed yet.
+     */
+    public InputStream newInputStream() {
+        assertClosed();
+        final List<InputStream> streamList = new ArrayList<InputStream>(chunkList.size());
+        for (ByteBuffer chunk : chunkList) {
+            streamList.add(new ByteArrayInputStream(chunk.array(), 0, chunk.position()));
+        }
+        return new SequenceInputStream(Collections.enumeration(streamList));
+    }
+
+    /**
+     * @return The new-created array of the encoded bytes, the copy. (NotNull)
+     * @throws IllegalStateException When the buffer is not closed yet.
+     */
+    public byte[] toByteArray() {
+        assertClosed();
+        final byte[] bytes = new byte[(int) size()];
+        int offset = 0;
+        for (ByteBuffer chunk : chunkList) {
+            System.arraycopy(chunk.array(), 0, bytes, offset, chunk.position());
+            offset += chunk.position();
+        }
+        return bytes;
+    }
+
+    /**
+     * @param contentType The content type of the data source e.g. text/plain. (NotNull)
+     * @return The new-created data source reading this buffer without copy. (NotNull)
+     * @throws IllegalStateException When the buffer is not closed yet.
+     */
+    public SMailEncodedTextDataSource toDataSource(String contentType) {
+        assertClosed();
+        return new SMailEncodedTextDataSource(this, contentType);
+    }
+
+    // ===================================================================================
+    //                                                                        Small Helper
+    //                                                                        ============
+    protected void assertNotClosed() throws IOException {
+        if (closed) {
+            throw new IOException("The buffer is already closed: " + this);
+        }
+    }
+
+    protected void assertClosed() {
+        if (!closed) {
+            throw new IllegalStateException("The buffer should be closed before reading: " + this);
+        }
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        return "encodedText:{" + charset + ", size=" + size() + ", chunks=" + chunkList.size() + (closed ? ", closed" : "") + "}";
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+}
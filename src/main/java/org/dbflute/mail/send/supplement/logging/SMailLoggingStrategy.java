@@ -16,7 +16,9 @@
 package org.dbflute.mail.send.supplement.logging;
 
 import org.dbflute.mail.CardView;
+import org.dbflute.mail.send.SMailPostalMotorbike;
 import org.dbflute.mail.send.supplement.SMailPostingDiscloser;
+import org.dbflute.mail.send.supplement.motorbike.SMailCircuitTransition;
 import org.dbflute.optional.OptionalThing;
 
 /**
@@ -39,4 +41,12 @@ public interface SMailLoggingStrategy {
     void logRetrySuccess(CardView view, SMailPostingDiscloser discloser, int challengeCount, Exception firstCause);
 
     void logSuppressedCause(CardView view, SMailPostingDiscloser discloser, Exception suppressedCause);
+
+    // ===================================================================================
+    //                                                                     Circuit Breaker
+    //                                                                     ===============
+    default void logCircuitTransition(CardView view, SMailPostingDiscloser discloser, SMailPostalMotorbike motorbike,
+            SMailCircuitTransition transition) { // called when the state of motorbike's breaker is changed by the sending
+        // no logging as default for compatible
+    }
 }
@@ -16,7 +16,10 @@
 package org.dbflute.mail.send.supplement.logging;
 
 import org.dbflute.mail.CardView;
+import org.dbflute.mail.send.SMailPostalMotorbike;
 import org.dbflute.mail.send.supplement.SMailPostingDiscloser;
+import org.dbflute.mail.send.supplement.motorbike.SMailCircuitBreaker.CircuitState;
+import org.dbflute.mail.send.supplement.motorbike.SMailCircuitTransition;
 import org.dbflute.optional.OptionalThing;
 import org.dbflute.util.Srl;
 import org.slf4j.Logger;
@@ -141,6 +144,29 @@ public class SMailTypicalLoggingStrategy implements SMailLoggingStrategy {
         return "Failed to send the mail but continued: #" + toHash(discloser) + " " + view;
     }
 
+    // ===================================================================================
+    //                                                                     Circuit Breaker
+    //                                                                     ===============
+    @Override
+    public void logCircuitTransition(CardView view, SMailPostingDiscloser discloser, SMailPostalMotorbike motorbike,
+            SMailCircuitTransition transition) {
+        if (transition.getToState() == CircuitState.OPEN) { // sending by the motorbike is stopped for a while
+            if (normalLogger.isWarnEnabled()) {
+                normalLogger.warn(buildCircuitTransitionDisp(view, discloser, motorbike, transition));
+            }
+        } else {
+            if (normalLogger.isInfoEnabled()) {
+                normalLogger.info(buildCircuitTransitionDisp(view, discloser, motorbike, transition));
+            }
+        }
+    }
+
+    protected String buildCircuitTransitionDisp(CardView view, SMailPostingDiscloser discloser, SMailPostalMotorbike motorbike,
+            SMailCircuitTransition transition) {
+        final String hash = toHash(discloser);
+        return "Changed circuit breaker: " + transition + " by #" + hash + " " + motorbike;
+    }
+
     // ===================================================================================
     //                                                                        Assist Logic
     //                                                                        ============
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.motorbike;
+
+import org.dbflute.mail.send.exception.SMailCircuitBreakerOpenException;
+import org.dbflute.optional.OptionalThing;
+
+/**
+ * The circuit breaker of one motorbike, to stop sending to the broken relay for a while. <br>
+ * It opens by consecutive transient failures (e.g. connection refused, 4xx reply)
+ * and lets only one probe through after the open time (half-open).
+ * <pre>
+ * CLOSED --(failures reach threshold)--&gt; OPEN --(open time passed)--&gt; HALF_OPEN
+ * HALF_OPEN --(probe succeeded)--&gt; CLOSED, HALF_OPEN --(probe failed)--&gt; OPEN
+ * </pre>
+ * The state changes are returned as transition so that postie can log them by logging strategy. <br>
+ * The result is recorded with the ticket of acquiring, and results of non-probe sending are ignored in half-open.
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailCircuitBreaker {
+
+    // ===================================================================================
+    //                                                                          Definition
+    //                                                                          ==========
+    public enum CircuitState {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final SMailCircuitBreakerOption option; // not null
+    protected CircuitState state = CircuitState.CLOSED; // not null, guarded by this
+    protected int consecutiveFailureCount; // guarded by this
+    protected int probeSuccessCount; // guarded by this, only in half-open
+    protected long openedMillis; // guarded by this, zero if never opened
+    protected boolean probing; // guarded by this, true if the probe is sending in half-open
+    protected long probeGeneration; // guarded by this, incremented per probe, matched with ticket
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    public SMailCircuitBreaker(SMailCircuitBreakerOption option) {
+        if (option == null) {
+            throw new IllegalArgumentException("The argument 'option' should not be null.");
+        }
+        this.option = option;
+    }
+
+    // ===================================================================================
+    //                                                                           Determine
+    //                                                                           =========
+    /**
+     * Is the motorbike available for next sending? (no state change) <br>
+     * It is true if open time passed (ready for half-open) without probing.
+     * @return The determination, true or false.
+     */
+    public synchronized boolean isAvailable() {
+        switch (state) {
+        case OPEN:
+            return isOpenTimePassed();
+        case HALF_OPEN:
+            return !probing;
+        default:
+            return true;
+        }
+    }
+
+    protected boolean isOpenTimePassed() {
+        return currentMillis() - openedMillis >= option.getOpenMillis();
+    }
+
+    // ===================================================================================
+    //                                                                             Acquire
+    //                                                                             =======
+    /**
+     * Acquire the permission of sending, you should record its result with the ticket after sending.
+     * @return The ticket of the sending, which has the transition if it becomes half-open. (NotNull)
+     * @throws SMailCircuitBreakerOpenException When the breaker is open or the probe is already sending.
+     */
+    public synchronized SMailCircuitTicket acquire() {
+        if (state == CircuitState.CLOSED) {
+            return new SMailCircuitTicket(0L, null);
+        }
+        if (state == CircuitState.OPEN) {
+            if (!isOpenTimePassed()) {
+                throw new SMailCircuitBreakerOpenException("The circuit breaker is open: " + toString());
+            }
+            probeSuccessCount = 0;
+            final long generation = startProbe();
+            return new SMailCircuitTicket(generation, transit(CircuitState.HALF_OPEN).get());
+        }
+        if (probing) { // half-open
+            throw new SMailCircuitBreakerOpenException("The circuit breaker is probing: " + toString());
+        }
+        return new SMailCircuitTicket(startProbe(), null);
+    }
+
+    protected long startProbe() {
+        probing = true;
+        return ++probeGeneration;
+    }
+
+    // ===================================================================================
+    //                                                                              Record
+    //                                                                              ======
+    /**
+     * Record the success of the acquired sending.
+     * @param ticket The ticket returned by acquiring the sending. (NotNull)
+     * @return The optional transition, present if it becomes closed. (NotNull, EmptyAllowed)
+     */
+    public synchronized OptionalThing<SMailCircuitTransition> recordSuccess(SMailCircuitTicket ticket) {
+        assertTicketNotNull(ticket);
+        if (state != CircuitState.HALF_OPEN) {
+            consecutiveFailureCount = 0;
+            return OptionalThing.empty();
+        }
+        if (!isCurrentProbe(ticket)) { // e.g. acquired while closed, not proof of recovery
+            return OptionalThing.empty();
+        }
+        consecutiveFailureCount = 0;
+        probing = false;
+        ++probeSuccessCount;
+        if (probeSuccessCount < option.getProbeSuccessThreshold()) {
+            return OptionalThing.empty();
+        }
+        return transit(CircuitState.CLOSED);
+    }
+
+    /**
+     * Record the failure of the acquired sending. <br>
+     * Not-transient failure (e.g. 5xx reply for the message) is treated as success of the motorbike.
+     * @param ticket The ticket returned by acquiring the sending. (NotNull)
+     * @param transientFailure Is the failure transient? (e.g. connection refused, timeout, 4xx reply)
+     * @return The optional transition, present if it becomes open. (NotNull, EmptyAllowed)
+     */
+    public synchronized OptionalThing<SMailCircuitTransition> recordFailure(SMailCircuitTicket ticket, boolean transientFailure) {
+        assertTicketNotNull(ticket);
+        if (!transientFailure) { // the relay is working
+            return recordSuccess(ticket);
+        }
+        if (state == CircuitState.HALF_OPEN) {
+            if (!isCurrentProbe(ticket)) { // e.g. acquired while closed, the probe decides
+                return OptionalThing.empty();
+            }
+            ++consecutiveFailureCount;
+            probing = false;
+            return open();
+        }
+        ++consecutiveFailureCount;
+        if (state == CircuitState.CLOSED && consecutiveFailureCount >= option.getFailureThreshold()) {
+            return open();
+        }
+        return OptionalThing.empty(); // e.g. already open by other thread
+    }
+
+    protected boolean isCurrentProbe(SMailCircuitTicket ticket) {
+        return probing && ticket.isProbe() && ticket.getProbeGeneration() == probeGeneration;
+    }
+
+    protected void assertTicketNotNull(SMailCircuitTicket ticket) {
+        if (ticket == null) {
+            throw new IllegalArgumentException("The argument 'ticket' should not be null.");
+        }
+    }
+
+    protected OptionalThing<SMailCircuitTransition> open() {
+        openedMillis = currentMillis();
+        return transit(CircuitState.OPEN);
+    }
+
+    protected OptionalThing<SMailCircuitTransition> transit(CircuitState toState) {
+        final SMailCircuitTransition transition = new SMailCircuitTransition(state, toState, consecutiveFailureCount);
+        state = toState;
+        return OptionalThing.of(transition);
+    }
+
+    // ===================================================================================
+    //                                                                        Assist Logic
+    //                                                                        ============
+    protected long currentMillis() {
+        return System.currentTimeMillis();
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public synchronized String toString() {
+        return "breaker:{" + state + ", failures=" + consecutiveFailureCount + ", " + option + "}";
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public synchronized CircuitState getState() {
+        return state;
+    }
+
+    public synchronized int getConsecutiveFailureCount() {
+        return consecutiveFailureCount;
+    }
+
+    public SMailCircuitBreakerOption getOption() {
+        return option;
+    }
+}
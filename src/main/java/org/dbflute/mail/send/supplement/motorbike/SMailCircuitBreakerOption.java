@@ -0,0 +1,80 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.motorbike;
+
+/**
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailCircuitBreakerOption {
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected int failureThreshold = 5; // positive, consecutive transient failures to open
+    protected long openMillis = 30000L; // positive, until half-open
+    protected int probeSuccessThreshold = 1; // positive, successful probes to close
+
+    // ===================================================================================
+    //                                                                              Option
+    //                                                                              ======
+    public SMailCircuitBreakerOption failureThreshold(int failureThreshold) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("The argument 'failureThreshold' should be positive: " + failureThreshold);
+        }
+        this.failureThreshold = failureThreshold;
+        return this;
+    }
+
+    public SMailCircuitBreakerOption openMillis(long openMillis) {
+        if (openMillis <= 0) {
+            throw new IllegalArgumentException("The argument 'openMillis' should be positive: " + openMillis);
+        }
+        this.openMillis = openMillis;
+        return this;
+    }
+
+    public SMailCircuitBreakerOption probeSuccessThreshold(int probeSuccessThreshold) {
+        if (probeSuccessThreshold <= 0) {
+            throw new IllegalArgumentException("The argument 'probeSuccessThreshold' should be positive: " + probeSuccessThreshold);
+        }
+        this.probeSuccessThreshold = probeSuccessThreshold;
+        return this;
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        return "breakerOption:{failure=" + failureThreshold + ", open=" + openMillis + ", probeSuccess=" + probeSuccessThreshold + "}";
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public long getOpenMillis() {
+        return openMillis;
+    }
+
+    public int getProbeSuccessThreshold() {
+        return probeSuccessThreshold;
+    }
+}
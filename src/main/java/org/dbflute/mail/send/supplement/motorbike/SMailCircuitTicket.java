@@ -0,0 +1,70 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.motorbike;
+
+import org.dbflute.mail.send.exception.SMailIllegalStateException;
+import org.dbflute.optional.OptionalThing;
+
+/**
+ * The ticket of sending acquired by circuit breaker, passed back when its result is recorded. <br>
+ * The breaker knows by it whether the result is of the probe in half-open.
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailCircuitTicket {
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final long probeGeneration; // zero if not probe
+    protected final SMailCircuitTransition transition; // null allowed: no state change by acquiring
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    public SMailCircuitTicket(long probeGeneration, SMailCircuitTransition transition) {
+        this.probeGeneration = probeGeneration;
+        this.transition = transition;
+    }
+
+    // ===================================================================================
+    //                                                                          Determiner
+    //                                                                          ==========
+    public boolean isProbe() {
+        return probeGeneration > 0;
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        return "ticket:{probe=" + probeGeneration + ", " + transition + "}";
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public long getProbeGeneration() {
+        return probeGeneration;
+    }
+
+    public OptionalThing<SMailCircuitTransition> getTransition() {
+        return OptionalThing.ofNullable(transition, () -> {
+            throw new SMailIllegalStateException("Not found the transition by acquiring: " + toString());
+        });
+    }
+}
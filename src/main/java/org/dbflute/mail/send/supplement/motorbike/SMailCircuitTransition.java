@@ -0,0 +1,65 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.motorbike;
+
+import org.dbflute.mail.send.supplement.motorbike.SMailCircuitBreaker.CircuitState;
+
+/**
+ * The state change of circuit breaker, shown by logging strategy.
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailCircuitTransition {
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final CircuitState fromState; // not null
+    protected final CircuitState toState; // not null
+    protected final int consecutiveFailureCount; // when the transition
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    public SMailCircuitTransition(CircuitState fromState, CircuitState toState, int consecutiveFailureCount) {
+        this.fromState = fromState;
+        this.toState = toState;
+        this.consecutiveFailureCount = consecutiveFailureCount;
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        return fromState + " to " + toState + " (failures=" + consecutiveFailureCount + ")";
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public CircuitState getFromState() {
+        return fromState;
+    }
+
+    public CircuitState getToState() {
+        return toState;
+    }
+
+    public int getConsecutiveFailureCount() {
+        return consecutiveFailureCount;
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.motorbike;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.dbflute.mail.send.SMailPostalMotorbike;
+import org.dbflute.mail.send.exception.SMailIllegalStateException;
+
+/**
+ * The group of motorbikes (e.g. several relays or accounts) for one delivery category. <br>
+ * The parking lot selects one of them per postcard by the balancing type.
+ * <pre>
+ * e.g.
+ *  SMailMotorbikeGroup group = new SMailMotorbikeGroup(GroupBalancing.LEAST_IN_FLIGHT);
+ *  group.<span style="color: #CC4747">join</span>(seaMotorbike).<span style="color: #CC4747">join</span>(landMotorbike);
+ *  parkingLot.registerMotorbikeGroup(category, group);
+ * </pre>
+ * The in-flight count and latency are from the traffic of each motorbike, counted by postie. <br>
+ * The motorbike whose circuit breaker is open is skipped (fail over to others),
+ * but if all are open, selected from all (the postie fails by the breaker).
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailMotorbikeGroup {
+
+    // ===================================================================================
+    //                                                                          Definition
+    //                                                                          ==========
+    public enum GroupBalancing {
+
+        /** in order of joining */
+        ROUND_ROBIN,
+
+        /** fewest sending now, tie is broken by round robin */
+        LEAST_IN_FLIGHT,
+
+        /** lowest latency (EWMA) weighted by in-flight count, not measured one is preferred */
+        LATENCY_WEIGHTED,
+
+        /** first available one in order of joining, others are backup (failover chain) */
+        FAILOVER
+    }
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final GroupBalancing balancing; // not null
+    protected final List<SMailPostalMotorbike> motorbikeList = new CopyOnWriteArrayList<SMailPostalMotorbike>();
+    protected final AtomicInteger roundRobinIndex = new AtomicInteger();
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    public SMailMotorbikeGroup(GroupBalancing balancing) {
+        if (balancing == null) {
+            throw new IllegalArgumentException("The argument 'balancing' should not be null.");
+        }
+        this.balancing = balancing;
+    }
+
+    public SMailMotorbikeGroup join(SMailPostalMotorbike motorbike) {
+        if (motorbike == null) {
+            throw new IllegalArgumentException("The argument 'motorbike' should not be null.");
+        }
+        if (motorbikeList.contains(motorbike)) {
+            throw new IllegalStateException("Already joined the motorbike: " + motorbike);
+        }
+        motorbikeList.add(motorbike);
+        return this;
+    }
+
+    // ===================================================================================
+    //                                                                              Select
+    //                                                                              ======
+    /**
+     * Select the motorbike for next postcard by the balancing.
+     * @return The selected motorbike. (NotNull)
+     * @throws SMailIllegalStateException When no motorbike is joined.
+     */
+    public SMailPostalMotorbike select() {
+        return select(filterAvailable(motorbikeList));
+    }
+
+    protected List<SMailPostalMotorbike> filterAvailable(List<SMailPostalMotorbike> candidateList) {
+        List<SMailPostalMotorbike> availableList = null; // lazy-loaded if unavailable exists
+        for (int i = 0; i < candidateList.size(); i++) {
+            final SMailPostalMotorbike motorbike = candidateList.get(i);
+            final boolean available = motorbike.getCircuitBreaker().map(breaker -> breaker.isAvailable()).orElse(true);
+            if (!available && availableList == null) {
+                availableList = new ArrayList<SMailPostalMotorbike>(candidateList.subList(0, i));
+            } else if (available && availableList != null) {
+                availableList.add(motorbike);
+            }
+        }
+        if (availableList == null) { // all available
+            return candidateList;
+        }
+        return !availableList.isEmpty() ? availableList : candidateList; // if all open, breaker rejects it
+    }
+
+    /**
+     * Select the motorbike from the candidates by the balancing. (e.g. except broken ones)
+     * @param candidateList The list of candidate motorbikes in this group. (NotNull)
+     * @return The selected motorbike. (NotNull)
+     * @throws SMailIllegalStateException When the candidates are empty.
+     */
+    public SMailPostalMotorbike select(List<SMailPostalMotorbike> candidateList) {
+        if (candidateList.isEmpty()) {
+            throw new SMailIllegalStateException("Not found the motorbike in the group: " + toString());
+        }
+        final int size = candidateList.size();
+        if (size == 1 || balancing == GroupBalancing.FAILOVER) {
+            return candidateList.get(0);
+        }
+        final int offset = Math.floorMod(roundRobinIndex.getAndIncrement(), size);
+        switch (balancing) {
+        case LEAST_IN_FLIGHT:
+            return selectLeastInFlight(candidateList, offset);
+        case LATENCY_WEIGHTED:
+            return selectLatencyWeighted(candidateList, offset);
+        default:
+            return candidateList.get(offset);
+        }
+    }
+
+    protected SMailPostalMotorbike selectLeastInFlight(List<SMailPostalMotorbike> candidateList, int offset) {
+        SMailPostalMotorbike selected = null;
+        int selectedCount = Integer.MAX_VALUE;
+        for (int i = 0; i < candidateList.size(); i++) { // from offset for tie
+            final SMailPostalMotorbike motorbike = candidateList.get((offset + i) % candidateList.size());
+            final int inFlightCount = motorbike.getTraffic().getInFlightCount();
+            if (inFlightCount < selectedCount) {
+                selected = motorbike;
+                selectedCount = inFlightCount;
+            }
+        }
+        return selected;
+    }
+
+    protected SMailPostalMotorbike selectLatencyWeighted(List<SMailPostalMotorbike> candidateList, int offset) {
+        SMailPostalMotorbike selected = null;
+        double selectedCost = Double.MAX_VALUE;
+        for (int i = 0; i < candidateList.size(); i++) { // from offset for tie
+            final SMailPostalMotorbike motorbike = candidateList.get((offset + i) % candidateList.size());
+            final SMailMotorbikeTraffic traffic = motorbike.getTraffic();
+            final double cost = traffic.getLatencyEwmaMillis() * (traffic.getInFlightCount() + 1); // zero if not measured
+            if (cost < selectedCost) {
+                selected = motorbike;
+                selectedCost = cost;
+            }
+        }
+        return selected;
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        final List<String> expList = new ArrayList<String>(motorbikeList.size());
+        for (SMailPostalMotorbike motorbike : motorbikeList) {
+            expList.add(motorbike.getTraffic().toString());
+        }
+        return "motorbikeGroup:{" + balancing + ", " + expList + "}";
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public GroupBalancing getBalancing() {
+        return balancing;
+    }
+
+    public List<SMailPostalMotorbike> getMotorbikeList() {
+        return Collections.unmodifiableList(motorbikeList);
+    }
+}
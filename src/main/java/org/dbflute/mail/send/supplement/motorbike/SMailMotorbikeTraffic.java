@@ -0,0 +1,119 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.motorbike;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The traffic statistics of one motorbike, counted by postie around actual sending. <br>
+ * It is used by e.g. motorbike group to select the less busy motorbike.
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailMotorbikeTraffic {
+
+    // ===================================================================================
+    //                                                                          Definition
+    //                                                                          ==========
+    protected static final double DEFAULT_LATENCY_ALPHA = 0.3; // weight of latest latency
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final double latencyAlpha; // (0, 1]
+    protected final AtomicInteger inFlightCount = new AtomicInteger();
+    protected final AtomicLong sentCount = new AtomicLong();
+    protected final AtomicLong failureCount = new AtomicLong();
+    protected double latencyEwmaMillis; // guarded by this, zero means not measured yet
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    public SMailMotorbikeTraffic() {
+        this(DEFAULT_LATENCY_ALPHA);
+    }
+
+    public SMailMotorbikeTraffic(double latencyAlpha) {
+        if (latencyAlpha <= 0.0 || latencyAlpha > 1.0) {
+            throw new IllegalArgumentException("The argument 'latencyAlpha' should be in (0, 1]: " + latencyAlpha);
+        }
+        this.latencyAlpha = latencyAlpha;
+    }
+
+    // ===================================================================================
+    //                                                                               Count
+    //                                                                               =====
+    /**
+     * Count the start of sending. You should call finishSending() in finally clause.
+     * @return The start time millis for finishSending(). (NotMinus)
+     */
+    public long beginSending() {
+        inFlightCount.incrementAndGet();
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Count the end of sending, and update the latency if success.
+     * @param beginMillis The time millis returned by beginSending(). (NotMinus)
+     * @param success Is the sending successful? (failed one may be timeout so not used as latency)
+     */
+    public void finishSending(long beginMillis, boolean success) {
+        inFlightCount.decrementAndGet();
+        if (success) {
+            sentCount.incrementAndGet();
+            updateLatency(Math.max(1L, System.currentTimeMillis() - beginMillis)); // zero is reserved
+        } else {
+            failureCount.incrementAndGet();
+        }
+    }
+
+    protected synchronized void updateLatency(long latencyMillis) {
+        if (latencyEwmaMillis == 0.0) { // first
+            latencyEwmaMillis = latencyMillis;
+        } else {
+            latencyEwmaMillis = latencyAlpha * latencyMillis + (1.0 - latencyAlpha) * latencyEwmaMillis;
+        }
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        return "traffic:{inFlight=" + inFlightCount.get() + ", sent=" + sentCount.get() + ", failure=" + failureCount.get()
+                + ", latency=" + Math.round(getLatencyEwmaMillis()) + "ms}";
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public int getInFlightCount() {
+        return inFlightCount.get();
+    }
+
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    public synchronized double getLatencyEwmaMillis() { // zero means not measured yet
+        return latencyEwmaMillis;
+    }
+}
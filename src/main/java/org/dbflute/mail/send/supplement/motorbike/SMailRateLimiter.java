@@ -0,0 +1,142 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.motorbike;
+
+import org.dbflute.optional.OptionalThing;
+
+/**
+ * The rate limiter of one motorbike (e.g. per account of SMTP provider) by token bucket. <br>
+ * The bucket has the burst size of tokens and they are refilled by the sustained rate,
+ * and the hourly quota is checked by sliding window of reserved times if specified.
+ * <pre>
+ * e.g. 10 messages at once, 2 messages per second, 5000 messages per hour
+ *  motorbike.<span style="color: #CC4747">useRateLimiter</span>(op -&gt; op.sustainedRate(2.0).burstSize(10).hourlyQuota(5000));
+ * </pre>
+ * Admission is non-blocking reservation: it returns the millis to wait for the reserved time,
+ * so the caller waits once (or the NIO engine delays it) without spinning. <br>
+ * The reservation is not cancelled even if the sending fails. (the server also counts it)
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailRateLimiter {
+
+    // ===================================================================================
+    //                                                                          Definition
+    //                                                                          ==========
+    protected static final long HOUR_MILLIS = 3600000L;
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final SMailRateLimiterOption option; // not null
+    protected final double tokensPerMillis; // positive
+    protected double tokens; // guarded by this, minus means reserved for future
+    protected long refilledMillis; // guarded by this
+    protected final long[] hourlyReservedTimes; // null allowed: no quota, ring buffer guarded by this
+    protected int hourlyHead; // guarded by this, index of oldest reservation
+    protected int hourlyCount; // guarded by this
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    public SMailRateLimiter(SMailRateLimiterOption option) {
+        if (option == null) {
+            throw new IllegalArgumentException("The argument 'option' should not be null.");
+        }
+        if (option.getMessagesPerSecond() <= 0.0) {
+            throw new IllegalArgumentException("The sustained rate is required in the option: " + option);
+        }
+        this.option = option;
+        this.tokensPerMillis = option.getMessagesPerSecond() / 1000.0;
+        this.tokens = option.getBurstSize(); // full at first
+        this.refilledMillis = currentMillis();
+        this.hourlyReservedTimes = option.getMessagesPerHour() > 0 ? new long[option.getMessagesPerHour()] : null;
+    }
+
+    // ===================================================================================
+    //                                                                             Reserve
+    //                                                                             =======
+    /**
+     * Reserve the permission of one message if it can be sent within the max wait.
+     * @param maxWaitMillis The max millis to wait for the permission, zero means only immediate. (NotMinus)
+     * @return The optional millis to wait before sending, empty if it should be rejected. (NotNull, EmptyAllowed)
+     */
+    public synchronized OptionalThing<Long> reserve(long maxWaitMillis) {
+        final long currentMillis = currentMillis();
+        refill(currentMillis);
+        final long waitMillis = Math.max(calculateBucketWait(), calculateHourlyWait(currentMillis));
+        if (waitMillis > maxWaitMillis) { // not reserved
+            return OptionalThing.empty();
+        }
+        tokens = tokens - 1.0; // may be minus so the next reservation waits longer
+        if (hourlyReservedTimes != null) {
+            recordHourly(currentMillis + waitMillis);
+        }
+        return OptionalThing.of(waitMillis);
+    }
+
+    protected void refill(long currentMillis) {
+        final long elapsed = currentMillis - refilledMillis;
+        if (elapsed > 0) {
+            tokens = Math.min(option.getBurstSize(), tokens + elapsed * tokensPerMillis);
+            refilledMillis = currentMillis;
+        }
+    }
+
+    protected long calculateBucketWait() {
+        return tokens >= 1.0 ? 0L : (long) Math.ceil((1.0 - tokens) / tokensPerMillis);
+    }
+
+    protected long calculateHourlyWait(long currentMillis) {
+        if (hourlyReservedTimes == null || hourlyCount < hourlyReservedTimes.length) {
+            return 0L;
+        }
+        return Math.max(0L, hourlyReservedTimes[hourlyHead] + HOUR_MILLIS - currentMillis); // until oldest one expires
+    }
+
+    protected void recordHourly(long reservedMillis) {
+        final int capacity = hourlyReservedTimes.length;
+        if (hourlyCount < capacity) {
+            hourlyReservedTimes[(hourlyHead + hourlyCount) % capacity] = reservedMillis;
+            ++hourlyCount;
+        } else { // full so overwrite the oldest, it's expired at the reserved time
+            hourlyReservedTimes[hourlyHead] = reservedMillis;
+            hourlyHead = (hourlyHead + 1) % capacity;
+        }
+    }
+
+    // ===================================================================================
+    //                                                                        Assist Logic
+    //                                                                        ============
+    protected long currentMillis() {
+        return System.currentTimeMillis();
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public synchronized String toString() {
+        return "rateLimiter:{tokens=" + String.format("%.2f", tokens) + ", " + option + "}";
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public SMailRateLimiterOption getOption() {
+        return option;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.motorbike;
+
+/**
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailRateLimiterOption {
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected double messagesPerSecond; // positive, required
+    protected int burstSize = 1; // positive, messages sent at once after idle
+    protected int messagesPerHour; // zero means no hourly quota
+    protected long syncMaxWaitMillis = 3000L; // not minus, zero means fast rejection
+    protected long asyncMaxDelayMillis = 3600000L; // not minus, an hour for hourly quota as default
+
+    // ===================================================================================
+    //                                                                              Option
+    //                                                                              ======
+    /**
+     * @param messagesPerSecond The sustained rate of the motorbike, e.g. 0.5 means a message per two seconds. (Positive)
+     * @return this. (NotNull)
+     */
+    public SMailRateLimiterOption sustainedRate(double messagesPerSecond) {
+        if (messagesPerSecond <= 0.0) {
+            throw new IllegalArgumentException("The argument 'messagesPerSecond' should be positive: " + messagesPerSecond);
+        }
+        this.messagesPerSecond = messagesPerSecond;
+        return this;
+    }
+
+    public SMailRateLimiterOption burstSize(int burstSize) {
+        if (burstSize <= 0) {
+            throw new IllegalArgumentException("The argument 'burstSize' should be positive: " + burstSize);
+        }
+        this.burstSize = burstSize;
+        return this;
+    }
+
+    /**
+     * @param messagesPerHour The quota of messages in any one hour (sliding window). (Positive)
+     * @return this. (NotNull)
+     */
+    public SMailRateLimiterOption hourlyQuota(int messagesPerHour) {
+        if (messagesPerHour <= 0) {
+            throw new IllegalArgumentException("The argument 'messagesPerHour' should be positive: " + messagesPerHour);
+        }
+        this.messagesPerHour = messagesPerHour;
+        return this;
+    }
+
+    /**
+     * @param syncMaxWaitMillis The max millis that sync caller waits for, zero means fast rejection. (NotMinus)
+     * @return this. (NotNull)
+     */
+    public SMailRateLimiterOption syncMaxWaitMillis(long syncMaxWaitMillis) {
+        if (syncMaxWaitMillis < 0) {
+            throw new IllegalArgumentException("The argument 'syncMaxWaitMillis' should not be minus: " + syncMaxWaitMillis);
+        }
+        this.syncMaxWaitMillis = syncMaxWaitMillis;
+        return this;
+    }
+
+    /**
+     * @param asyncMaxDelayMillis The max millis that async sending is delayed for. (NotMinus)
+     * @return this. (NotNull)
+     */
+    public SMailRateLimiterOption asyncMaxDelayMillis(long asyncMaxDelayMillis) {
+        if (asyncMaxDelayMillis < 0) {
+            throw new IllegalArgumentException("The argument 'asyncMaxDelayMillis' should not be minus: " + asyncMaxDelayMillis);
+        }
+        this.asyncMaxDelayMillis = asyncMaxDelayMillis;
+        return this;
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        final String hourlyExp = messagesPerHour > 0 ? ", hourly=" + messagesPerHour : "";
+        return "rateOption:{rate=" + messagesPerSecond + "/s, burst=" + burstSize + hourlyExp + ", syncWait=" + syncMaxWaitMillis
+                + ", asyncDelay=" + asyncMaxDelayMillis + "}";
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public double getMessagesPerSecond() {
+        return messagesPerSecond;
+    }
+
+    public int getBurstSize() {
+        return burstSize;
+    }
+
+    public int getMessagesPerHour() {
+        return messagesPerHour;
+    }
+
+    public long getSyncMaxWaitMillis() {
+        return syncMaxWaitMillis;
+    }
+
+    public long getAsyncMaxDelayMillis() {
+        return asyncMaxDelayMillis;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.scheduler;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The permission of sending for one recipient domain, given by domain scheduler. <br>
+ * You should release it after the sending (also failure), it can be called twice safely.
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailDomainPermit {
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final SMailDomainScheduler scheduler; // not null
+    protected final String domain; // not null, lower case, empty if no recipient
+    protected final AtomicBoolean released = new AtomicBoolean();
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    public SMailDomainPermit(SMailDomainScheduler scheduler, String domain) {
+        this.scheduler = scheduler;
+        this.domain = domain;
+    }
+
+    // ===================================================================================
+    //                                                                             Release
+    //                                                                             =======
+    public void release() {
+        if (released.compareAndSet(false, true)) {
+            scheduler.release(this);
+        }
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        return "permit:{" + domain + (released.get() ? ", released" : "") + "}";
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public String getDomain() {
+        return domain;
+    }
+
+    public boolean isReleased() {
+        return released.get();
+    }
+}
@@ -0,0 +1,407 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.scheduler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import org.dbflute.mail.CardView;
+import org.dbflute.mail.send.SMailAddress;
+import org.dbflute.mail.send.exception.SMailDomainPermitTimeoutException;
+import org.dbflute.mail.send.exception.SMailIllegalStateException;
+import org.dbflute.mail.send.supplement.motorbike.SMailRateLimiter;
+import org.dbflute.mail.send.supplement.motorbike.SMailRateLimiterOption;
+import org.dbflute.mail.send.supplement.scheduler.SMailDomainSchedulerOption.DomainLimit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The scheduler of sending by recipient domain, to keep per-domain concurrency and rate. <br>
+ * Postie asks the permission before sending, and the waiting sendings are admitted
+ * in turn of domains (round robin), so a large batch to one domain does not stall others.
+ * <pre>
+ * e.g. shared by all posties in personnel
+ *  &#064;Override
+ *  protected OptionalThing&lt;SMailDomainScheduler&gt; createDomainScheduler() {
+ *      return OptionalThing.of(new SMailDomainScheduler(op -&gt; {
+ *          op.maxConcurrentPerDomain(4).<span style="color: #CC4747">domainLimit</span>("gmail.com", 2, 5.0);
+ *      }));
+ *  }
+ * </pre>
+ * The domain is from the first address of to-list. (cc and bcc are not considered) <br>
+ * The rate limit is kept by delay timer, the admitted sending holds the concurrency slot until it starts.
+ * Together delivery (batch over one session) is not scheduled.
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailDomainScheduler {
+
+    // ===================================================================================
+    //                                                                          Definition
+    //                                                                          ==========
+    private static final Logger logger = LoggerFactory.getLogger(SMailDomainScheduler.class);
+    protected static final String TIMER_THREAD_NAME = "mailflute-domain-scheduler";
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final SMailDomainSchedulerOption option; // not null
+    protected final Map<String, DomainLane> laneMap = new HashMap<String, DomainLane>(); // guarded by this
+    protected final Deque<String> waitingDomainDeque = new ArrayDeque<String>(); // guarded by this, in turn of admission
+    protected final ScheduledExecutorService delayTimer; // null allowed: no rate limit
+    protected boolean dispatching; // guarded by this, true while a thread admits tickets
+    protected boolean dispatchRequested; // guarded by this, true if state changed while dispatching
+    protected volatile boolean closed;
+
+    protected static class DomainLane {
+
+        protected final String domain; // not null
+        protected final int maxConcurrent; // positive
+        protected final SMailRateLimiter rateLimiter; // null allowed: no rate limit
+        protected final Deque<DomainTicket> ticketQueue = new ArrayDeque<DomainTicket>();
+        protected int inFlightCount;
+
+        public DomainLane(String domain, int maxConcurrent, SMailRateLimiter rateLimiter) {
+            this.domain = domain;
+            this.maxConcurrent = maxConcurrent;
+            this.rateLimiter = rateLimiter;
+        }
+
+        @Override
+        public String toString() {
+            return domain + "(" + inFlightCount + "/" + maxConcurrent + ", waiting=" + ticketQueue.size() + ")";
+        }
+    }
+
+    protected static class DomainTicket {
+
+        protected final SMailDomainPermit permit; // not null
+        protected final Consumer<SMailDomainPermit> starter; // not null
+        protected final Consumer<RuntimeException> startFailureHandler; // not null, when started in other thread
+        protected final SMailRateLimiter rateLimiter; // null allowed: no rate limit
+        protected volatile Thread dispatchingThread; // null allowed: after dispatch() returns
+        protected RuntimeException inlineStartFailure; // null allowed, only in dispatching thread
+
+        public DomainTicket(SMailDomainPermit permit, Consumer<SMailDomainPermit> starter,
+                Consumer<RuntimeException> startFailureHandler, SMailRateLimiter rateLimiter) {
+            this.permit = permit;
+            this.starter = starter;
+            this.startFailureHandler = startFailureHandler;
+            this.rateLimiter = rateLimiter;
+            this.dispatchingThread = Thread.currentThread();
+        }
+    }
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    public SMailDomainScheduler(Consumer<SMailDomainSchedulerOption> opLambda) {
+        if (opLambda == null) {
+            throw new IllegalArgumentException("The argument 'opLambda' should not be null.");
+        }
+        option = new SMailDomainSchedulerOption();
+        opLambda.accept(option);
+        delayTimer = option.hasRateLimit() ? createDelayTimer() : null;
+    }
+
+    protected ScheduledExecutorService createDelayTimer() {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, TIMER_THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // ===================================================================================
+    //                                                                            Dispatch
+    //                                                                            ========
+    /**
+     * Dispatch the sending, the starter is called when the domain admits it. (may be in other thread) <br>
+     * The starter should release the permit after the sending, also when it fails.
+     * If the starter throws (e.g. async executor rejected), the permit is released and the exception is thrown
+     * from this method when started in this call, or only logged when started later by other thread.
+     * @param view The view of postcard to determine the recipient domain. (NotNull)
+     * @param starter The callback to start the sending with the permit. (NotNull)
+     */
+    public void dispatch(CardView view, Consumer<SMailDomainPermit> starter) {
+        dispatch(view, starter, cause -> {
+            logger.warn("Failed to start the scheduled sending: " + view, cause);
+        });
+    }
+
+    /**
+     * Dispatch the sending, the starter is called when the domain admits it. (may be in other thread) <br>
+     * The starter should release the permit after the sending, also when it fails.
+     * If the starter throws (e.g. async executor rejected), the permit is released and the exception is thrown
+     * from this method when started in this call, or passed to the failure handler when started later by other thread.
+     * @param view The view of postcard to determine the recipient domain. (NotNull)
+     * @param starter The callback to start the sending with the permit. (NotNull)
+     * @param startFailureHandler The callback of the starter's exception in other thread, e.g. failure logging. (NotNull)
+     */
+    public void dispatch(CardView view, Consumer<SMailDomainPermit> starter, Consumer<RuntimeException> startFailureHandler) {
+        if (view == null) {
+            throw new IllegalArgumentException("The argument 'view' should not be null.");
+        }
+        if (starter == null) {
+            throw new IllegalArgumentException("The argument 'starter' should not be null.");
+        }
+        if (startFailureHandler == null) {
+            throw new IllegalArgumentException("The argument 'startFailureHandler' should not be null.");
+        }
+        if (closed) {
+            throw new SMailIllegalStateException("Already closed the domain scheduler: " + view);
+        }
+        final String domain = resolveDomain(view);
+        final DomainTicket ticket;
+        synchronized (this) {
+            final DomainLane lane = laneMap.computeIfAbsent(domain, key -> createLane(key));
+            if (lane.ticketQueue.isEmpty()) { // new turn
+                waitingDomainDeque.addLast(domain);
+            }
+            ticket = new DomainTicket(new SMailDomainPermit(this, domain), starter, startFailureHandler, lane.rateLimiter);
+            lane.ticketQueue.addLast(ticket);
+        }
+        try {
+            drain();
+        } finally {
+            ticket.dispatchingThread = null; // later start is handled by the failure handler
+        }
+        if (ticket.inlineStartFailure != null) { // started in this call, so the caller knows it
+            throw ticket.inlineStartFailure;
+        }
+    }
+
+    /**
+     * Acquire the permit in caller thread, waiting for the turn of the domain. (for sync sending)
+     * @param view The view of postcard to determine the recipient domain. (NotNull)
+     * @return The admitted permit, you should release it in finally. (NotNull)
+     * @throws SMailDomainPermitTimeoutException When the turn does not come in the acquire timeout of option.
+     */
+    public SMailDomainPermit acquire(CardView view) {
+        final CompletableFuture<SMailDomainPermit> admitted = new CompletableFuture<SMailDomainPermit>();
+        dispatch(view, permit -> {
+            if (!admitted.complete(permit)) { // e.g. cancelled by interruption, timeout
+                permit.release();
+            }
+        });
+        final long timeoutMillis = option.getAcquireTimeoutMillis();
+        try {
+            return admitted.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            cancelAdmission(admitted);
+            Thread.currentThread().interrupt();
+            throw new SMailIllegalStateException("Interrupted while waiting for the domain permit: " + view, e);
+        } catch (TimeoutException e) {
+            cancelAdmission(admitted);
+            final String msg = "Timed out waiting for the domain permit: timeout=" + timeoutMillis + "ms, " + view + ", " + this;
+            throw new SMailDomainPermitTimeoutException(msg);
+        } catch (ExecutionException e) { // basically no way
+            throw new SMailIllegalStateException("Failed to acquire the domain permit: " + view, e.getCause());
+        }
+    }
+
+    protected void cancelAdmission(CompletableFuture<SMailDomainPermit> admitted) {
+        if (!admitted.cancel(false)) { // already admitted
+            admitted.thenAccept(permit -> permit.release());
+        }
+    }
+
+    protected DomainLane createLane(String domain) {
+        final DomainLimit limit = option.findDomainLimit(domain);
+        final SMailRateLimiter rateLimiter = limit.getRate() > 0.0 ? createRateLimiter(limit.getRate()) : null;
+        return new DomainLane(domain, limit.getMaxConcurrent(), rateLimiter);
+    }
+
+    protected SMailRateLimiter createRateLimiter(double rate) {
+        return new SMailRateLimiter(new SMailRateLimiterOption().sustainedRate(rate));
+    }
+
+    // ===================================================================================
+    //                                                                      Resolve Domain
+    //                                                                      ==============
+    /**
+     * @param view The view of postcard. (NotNull)
+     * @return The lower-case domain of first to-address, empty if no to-address. (NotNull)
+     */
+    public String resolveDomain(CardView view) {
+        final List<SMailAddress> toList = view.getToList();
+        if (toList.isEmpty()) {
+            return "";
+        }
+        final String address = toList.get(0).getAddress();
+        final int atIndex = address.lastIndexOf('@');
+        return atIndex >= 0 ? address.substring(atIndex + 1).trim().toLowerCase() : "";
+    }
+
+    // ===================================================================================
+    //                                                                               Drain
+    //                                                                               =====
+    protected void drain() { // only one thread admits tickets at once, others request it
+        synchronized (this) {
+            if (dispatching) {
+                dispatchRequested = true;
+                return;
+            }
+            dispatching = true;
+        }
+        boolean finished = false;
+        try {
+            while (true) {
+                final List<DomainTicket> admittedList;
+                synchronized (this) {
+                    admittedList = admitTickets();
+                    if (admittedList.isEmpty() && !dispatchRequested) {
+                        dispatching = false;
+                        finished = true;
+                        return;
+                    }
+                    dispatchRequested = false;
+                }
+                for (DomainTicket ticket : admittedList) { // outside lock, starter may send inline
+                    startTicket(ticket);
+                }
+            }
+        } finally {
+            if (!finished) { // e.g. error
+                synchronized (this) {
+                    dispatching = false;
+                }
+            }
+        }
+    }
+
+    protected List<DomainTicket> admitTickets() { // guarded by this, one ticket per domain in a turn
+        final List<DomainTicket> admittedList = new ArrayList<DomainTicket>();
+        int skippedCount = 0; // consecutive domains at the limit
+        while (!waitingDomainDeque.isEmpty() && skippedCount < waitingDomainDeque.size()) {
+            final String domain = waitingDomainDeque.pollFirst();
+            final DomainLane lane = laneMap.get(domain);
+            if (lane.inFlightCount < lane.maxConcurrent) {
+                admittedList.add(lane.ticketQueue.pollFirst());
+                ++lane.inFlightCount;
+                skippedCount = 0;
+            } else {
+                ++skippedCount;
+            }
+            if (!lane.ticketQueue.isEmpty()) { // next turn
+                waitingDomainDeque.addLast(domain);
+            }
+        }
+        return admittedList;
+    }
+
+    protected void startTicket(DomainTicket ticket) {
+        final long delayMillis = ticket.rateLimiter != null ? ticket.rateLimiter.reserve(Long.MAX_VALUE).get() : 0L;
+        if (delayMillis > 0 && delayTimer != null) {
+            try {
+                delayTimer.schedule(() -> doStartTicket(ticket), delayMillis, TimeUnit.MILLISECONDS);
+                return;
+            } catch (RejectedExecutionException e) { // e.g. closed, start now not to lose it
+                logger.debug("...Starting the ticket without delay because the timer is closed: {}", ticket.permit);
+            }
+        }
+        doStartTicket(ticket);
+    }
+
+    protected void doStartTicket(DomainTicket ticket) {
+        try {
+            ticket.starter.accept(ticket.permit);
+        } catch (RuntimeException e) { // e.g. async executor rejected
+            ticket.permit.release(); // not to lose the slot
+            if (ticket.dispatchingThread == Thread.currentThread()) { // in dispatch() of the sending
+                ticket.inlineStartFailure = e; // thrown to its caller
+            } else { // e.g. started by release of other sending, delay timer
+                handleStartFailure(ticket, e);
+            }
+        }
+    }
+
+    protected void handleStartFailure(DomainTicket ticket, RuntimeException cause) {
+        try {
+            ticket.startFailureHandler.accept(cause);
+        } catch (RuntimeException e) { // not to break the thread of other sending
+            logger.warn("Failed to handle the start failure of the scheduled sending: " + ticket.permit, cause);
+        }
+    }
+
+    // ===================================================================================
+    //                                                                             Release
+    //                                                                             =======
+    protected void release(SMailDomainPermit permit) { // called by permit
+        synchronized (this) {
+            final DomainLane lane = laneMap.get(permit.getDomain());
+            if (lane == null) { // basically no way
+                return;
+            }
+            --lane.inFlightCount;
+            if (lane.inFlightCount <= 0 && lane.ticketQueue.isEmpty() && lane.rateLimiter == null) { // rate needs history
+                laneMap.remove(lane.domain);
+            }
+        }
+        drain();
+    }
+
+    // ===================================================================================
+    //                                                                               Close
+    //                                                                               =====
+    /**
+     * Close the scheduler, new dispatch is rejected. (e.g. when application shutdown) <br>
+     * The delayed sendings are still started after their delay.
+     */
+    public void close() {
+        closed = true;
+        if (delayTimer != null) {
+            delayTimer.shutdown();
+        }
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public synchronized String toString() {
+        return "domainScheduler:{" + laneMap.values() + ", " + option + "}";
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public SMailDomainSchedulerOption getOption() {
+        return option;
+    }
+
+    public synchronized int getInFlightCount(String domain) {
+        final DomainLane lane = laneMap.get(domain);
+        return lane != null ? lane.inFlightCount : 0;
+    }
+
+    public synchronized int getWaitingCount(String domain) {
+        final DomainLane lane = laneMap.get(domain);
+        return lane != null ? lane.ticketQueue.size() : 0;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.scheduler;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailDomainSchedulerOption {
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected int maxConcurrentPerDomain = 4; // positive, in-flight messages per domain
+    protected double ratePerDomain; // zero means no rate limit, messages per second
+    protected long acquireTimeoutMillis = 60000L; // positive, max waiting for the turn of sync sending
+    protected final Map<String, DomainLimit> domainLimitMap = new ConcurrentHashMap<String, DomainLimit>(); // keyed by lower domain
+
+    public static class DomainLimit {
+
+        protected final int maxConcurrent; // positive
+        protected final double rate; // zero means no rate limit
+
+        public DomainLimit(int maxConcurrent, double rate) {
+            this.maxConcurrent = maxConcurrent;
+            this.rate = rate;
+        }
+
+        @Override
+        public String toString() {
+            return "{" + maxConcurrent + (rate > 0.0 ? ", " + rate + "/s" : "") + "}";
+        }
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public double getRate() {
+            return rate;
+        }
+    }
+
+    // ===================================================================================
+    //                                                                              Option
+    //                                                                              ======
+    public SMailDomainSchedulerOption maxConcurrentPerDomain(int maxConcurrentPerDomain) {
+        if (maxConcurrentPerDomain <= 0) {
+            throw new IllegalArgumentException("The argument 'maxConcurrentPerDomain' should be positive: " + maxConcurrentPerDomain);
+        }
+        this.maxConcurrentPerDomain = maxConcurrentPerDomain;
+        return this;
+    }
+
+    /**
+     * @param messagesPerSecond The sustained rate per domain, e.g. 0.5 means a message per two seconds. (Positive)
+     * @return this. (NotNull)
+     */
+    public SMailDomainSchedulerOption ratePerDomain(double messagesPerSecond) {
+        if (messagesPerSecond <= 0.0) {
+            throw new IllegalArgumentException("The argument 'messagesPerSecond' should be positive: " + messagesPerSecond);
+        }
+        this.ratePerDomain = messagesPerSecond;
+        return this;
+    }
+
+    /**
+     * @param acquireTimeoutMillis The max milliseconds for sync sending to wait for the turn of the domain. (Positive)
+     * @return this. (NotNull)
+     */
+    public SMailDomainSchedulerOption acquireTimeoutMillis(long acquireTimeoutMillis) {
+        if (acquireTimeoutMillis <= 0L) {
+            throw new IllegalArgumentException("The argument 'acquireTimeoutMillis' should be positive: " + acquireTimeoutMillis);
+        }
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * Specify the limit for the domain instead of the default per domain. (e.g. for big mailbox provider)
+     * @param domain The recipient domain e.g. gmail.com, case insensitive. (NotNull)
+     * @param maxConcurrent The max count of in-flight messages for the domain. (Positive)
+     * @param messagesPerSecond The sustained rate for the domain, zero means no rate limit. (NotMinus)
+     * @return this. (NotNull)
+     */
+    public SMailDomainSchedulerOption domainLimit(String domain, int maxConcurrent, double messagesPerSecond) {
+        if (domain == null) {
+            throw new IllegalArgumentException("The argument 'domain' should not be null.");
+        }
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("The argument 'maxConcurrent' should be positive: " + maxConcurrent);
+        }
+        if (messagesPerSecond < 0.0) {
+            throw new IllegalArgumentException("The argument 'messagesPerSecond' should not be minus: " + messagesPerSecond);
+        }
+        domainLimitMap.put(domain.toLowerCase(), new DomainLimit(maxConcurrent, messagesPerSecond));
+        return this;
+    }
+
+    // ===================================================================================
+    //                                                                        Domain Limit
+    //                                                                        ============
+    public DomainLimit findDomainLimit(String domain) { // not null
+        final DomainLimit limit = domainLimitMap.get(domain);
+        return limit != null ? limit : new DomainLimit(maxConcurrentPerDomain, ratePerDomain);
+    }
+
+    public boolean hasRateLimit() {
+        return ratePerDomain > 0.0 || domainLimitMap.values().stream().anyMatch(limit -> limit.getRate() > 0.0);
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        final String rateExp = ratePerDomain > 0.0 ? ", rate=" + ratePerDomain + "/s" : "";
+        return "schedulerOption:{concurrent=" + maxConcurrentPerDomain + rateExp + ", " + domainLimitMap + "}";
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public int getMaxConcurrentPerDomain() {
+        return maxConcurrentPerDomain;
+    }
+
+    public double getRatePerDomain() {
+        return ratePerDomain;
+    }
+
+    public long getAcquireTimeoutMillis() {
+        return acquireTimeoutMillis;
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.template;
+
+import org.dbflute.twowaysql.node.BoundValue;
+
+/**
+ * The filter of bound value by option of embedded variable e.g. orElse('sea'), formatAs('yyyy/MM/dd').
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+@FunctionalInterface
+public interface SMailBoundValueFilter {
+
+    /**
+     * @param boundValue The bound value traced by property path, the target value may be replaced. (NotNull)
+     * @param valueOption The option of the parameter comment, parsed when compiling. (NotNull)
+     */
+    void filter(BoundValue boundValue, SMailValueOption valueOption);
+}
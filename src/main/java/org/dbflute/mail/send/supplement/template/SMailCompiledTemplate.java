@@ -0,0 +1,171 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.template;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The compiled template, flat and immutable program of segments (literal, variable, IF, FOR). <br>
+ * It is thread-safe so shared by threads, and each rendering has its own context.
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailCompiledTemplate {
+
+    // ===================================================================================
+    //                                                                          Definition
+    //                                                                          ==========
+    public static final int DEFAULT_FLUSH_THRESHOLD = 8192; // chars
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final SMailTemplateSegment[] segments; // not null
+    protected final int literalLength; // total length of literals, for initial capacity of output
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    public SMailCompiledTemplate(List<SMailTemplateSegment> segmentList, int literalLength) {
+        if (segmentList == null) {
+            throw new IllegalArgumentException("The argument 'segmentList' should not be null.");
+        }
+        this.segments = segmentList.toArray(new SMailTemplateSegment[segmentList.size()]);
+        this.literalLength = literalLength;
+    }
+
+    // ===================================================================================
+    //                                                                              Render
+    //                                                                              ======
+    /**
+     * Render the template by the parameter bean.
+     * @param pmb The parameter bean for parameter comments e.g. SimpleMapPmb. (NotNull)
+     * @return The rendered text. (NotNull)
+     */
+    public String render(Object pmb) {
+        final StringBuilder out = new StringBuilder(literalLength + (literalLength >> 2));
+        render(pmb, out);
+        return out.toString();
+    }
+
+    /**
+     * Render the template into the output, e.g. reused builder.
+     * @param pmb The parameter bean for parameter comments e.g. SimpleMapPmb. (NotNull)
+     * @param out The output of rendered text, appended to the tail. (NotNull)
+     */
+    public void render(Object pmb, StringBuilder out) {
+        renderSegments(segments, new SMailRenderingContext(pmb, out));
+    }
+
+    /**
+     * Render the template into the writer by small chunks, without whole text in memory. <br>
+     * The writer may have the partial text if it fails. (not flushed and not closed here)
+     * @param pmb The parameter bean for parameter comments e.g. SimpleMapPmb. (NotNull)
+     * @param writer The writer of rendered text e.g. encoded text buffer. (NotNull)
+     * @throws IOException When it fails to write.
+     */
+    public void render(Object pmb, Writer writer) throws IOException {
+        final int threshold = DEFAULT_FLUSH_THRESHOLD;
+        final StringBuilder out = new StringBuilder(Math.min(literalLength, threshold) + (threshold >> 2));
+        final SMailRenderingContext ctx = new SMailRenderingContext(pmb, out, writer, threshold);
+        try {
+            renderSegments(segments, ctx);
+            ctx.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public static void renderSegments(SMailTemplateSegment[] segments, SMailRenderingContext ctx) {
+        for (SMailTemplateSegment segment : segments) {
+            segment.render(ctx);
+            ctx.flushIfNeeds(); // also in loop, called recursively
+        }
+    }
+
+    // ===================================================================================
+    //                                                                          Specialize
+    //                                                                          ==========
+    /**
+     * Evaluate the template partially by the shared variables, e.g. campaign-level constants of mail-merge. <br>
+     * The variables and IF comments that depend only on the shared variables become literals,
+     * and the residual template is rendered by the whole variables (shared and per-recipient) for each recipient. <br>
+     * FOR comments are not specialized (remain as they are), and the shared values should not be changed after this.
+     * @param ctx The context of specializing, which has the shared variables. (NotNull)
+     * @return The new-created residual template. (NotNull)
+     */
+    public SMailCompiledTemplate specialize(SMailSpecializingContext ctx) {
+        if (ctx == null) {
+            throw new IllegalArgumentException("The argument 'ctx' should not be null.");
+        }
+        final List<SMailTemplateSegment> residualList = specializeSegments(segments, ctx);
+        int residualLiteralLength = 0;
+        for (SMailTemplateSegment segment : residualList) {
+            if (segment instanceof SMailLiteralSegment) {
+                residualLiteralLength += ((SMailLiteralSegment) segment).getText().length();
+            }
+        }
+        return new SMailCompiledTemplate(residualList, residualLiteralLength);
+    }
+
+    public static List<SMailTemplateSegment> specializeSegments(SMailTemplateSegment[] segments, SMailSpecializingContext ctx) {
+        final List<SMailTemplateSegment> residualList = new ArrayList<SMailTemplateSegment>(segments.length);
+        StringBuilder literalSb = null; // to merge adjacent literals
+        for (SMailTemplateSegment segment : segments) {
+            for (SMailTemplateSegment residual : segment.specialize(ctx)) {
+                if (residual instanceof SMailLiteralSegment) {
+                    literalSb = literalSb != null ? literalSb : new StringBuilder();
+                    literalSb.append(((SMailLiteralSegment) residual).getText());
+                    continue;
+                }
+                if (literalSb != null) {
+                    residualList.add(new SMailLiteralSegment(literalSb.toString()));
+                    literalSb = null;
+                }
+                residualList.add(residual);
+            }
+        }
+        if (literalSb != null) {
+            residualList.add(new SMailLiteralSegment(literalSb.toString()));
+        }
+        return residualList;
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        return "compiled:{segments=" + segments.length + ", literal=" + literalLength + "}";
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public List<SMailTemplateSegment> getSegmentList() {
+        return Collections.unmodifiableList(Arrays.asList(segments));
+    }
+
+    public int getLiteralLength() {
+        return literalLength;
+    }
+}
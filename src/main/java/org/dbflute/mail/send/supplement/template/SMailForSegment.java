@@ -0,0 +1,97 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.template;
+
+import java.util.List;
+
+import org.dbflute.mail.send.exception.SMailIllegalStateException;
+import org.dbflute.twowaysql.node.BoundValue;
+import org.dbflute.twowaysql.node.LoopInfo;
+
+/**
+ * The segment of FOR comment e.g. /*FOR pmb.productList*&#47;.
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailForSegment implements SMailTemplateSegment {
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final SMailPropertyPath path; // not null
+    protected final String specifiedText; // not null, for exception message
+    protected final SMailTemplateSegment[] elementSegments; // not null
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    public SMailForSegment(SMailPropertyPath path, String specifiedText, List<SMailTemplateSegment> elementList) {
+        if (path == null) {
+            throw new IllegalArgumentException("The argument 'path' should not be null.");
+        }
+        if (elementList == null) {
+            throw new IllegalArgumentException("The argument 'elementList' should not be null.");
+        }
+        this.path = path;
+        this.specifiedText = specifiedText;
+        this.elementSegments = elementList.toArray(new SMailTemplateSegment[elementList.size()]);
+    }
+
+    // ===================================================================================
+    //                                                                              Render
+    //                                                                              ======
+    @Override
+    public void render(SMailRenderingContext ctx) {
+        final LoopInfo parentLoop = ctx.getLoopInfo();
+        if (path.isCurrentVariable() && (parentLoop == null || parentLoop.getCurrentParameter() == null)) {
+            return; // same as FOR comment, null element is skipped
+        }
+        final BoundValue boundValue = path.trace(ctx);
+        final Object targetValue = boundValue.getTargetValue();
+        if (targetValue == null) {
+            return;
+        }
+        if (!(targetValue instanceof List<?>)) { // the exception is thrown by node evaluation
+            throw new SMailIllegalStateException("The parameter of FOR comment should be list: " + path);
+        }
+        final List<?> parameterList = (List<?>) targetValue;
+        final int loopSize = parameterList.size();
+        final LoopInfo loopInfo = new LoopInfo();
+        loopInfo.setParentLoop(parentLoop);
+        loopInfo.setExpression(path.getExpression());
+        loopInfo.setSpecifiedSql(specifiedText);
+        loopInfo.setParameterList(parameterList);
+        loopInfo.setLoopSize(loopSize);
+        loopInfo.setFilteringBindOption(boundValue.getFilteringBindOption());
+        ctx.beginLoop(loopInfo);
+        try {
+            for (int i = 0; i < loopSize; i++) {
+                loopInfo.setLoopIndex(i);
+                SMailCompiledTemplate.renderSegments(elementSegments, ctx);
+            }
+        } finally {
+            ctx.endLoop();
+        }
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        return "for:{" + path + ", element=" + elementSegments.length + "}";
+    }
+}
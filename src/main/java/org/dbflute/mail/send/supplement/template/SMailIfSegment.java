@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.template;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.dbflute.twowaysql.node.IfCommentEvaluator;
+
+/**
+ * The segment of IF comment e.g. /*IF pmb.memberName != null*&#47;.
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailIfSegment implements SMailTemplateSegment {
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final String expression; // not null
+    protected final String specifiedText; // not null, for exception message
+    protected final SMailTemplateSegment[] thenSegments; // not null
+    protected final SMailTemplateSegment[] elseSegments; // null allowed: no else
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    public SMailIfSegment(String expression, String specifiedText, List<SMailTemplateSegment> thenList,
+            List<SMailTemplateSegment> elseList) {
+        if (expression == null) {
+            throw new IllegalArgumentException("The argument 'expression' should not be null.");
+        }
+        if (thenList == null) {
+            throw new IllegalArgumentException("The argument 'thenList' should not be null.");
+        }
+        this.expression = expression;
+        this.specifiedText = specifiedText;
+        this.thenSegments = thenList.toArray(new SMailTemplateSegment[thenList.size()]);
+        this.elseSegments = elseList != null ? elseList.toArray(new SMailTemplateSegment[elseList.size()]) : null;
+    }
+
+    // ===================================================================================
+    //                                                                              Render
+    //                                                                              ======
+    @Override
+    public void render(SMailRenderingContext ctx) {
+        if (evaluate(ctx)) {
+            SMailCompiledTemplate.renderSegments(thenSegments, ctx);
+        } else if (elseSegments != null) {
+            SMailCompiledTemplate.renderSegments(elseSegments, ctx);
+        }
+    }
+
+    protected boolean evaluate(SMailRenderingContext ctx) { // same evaluator as IF comment for compatible expression
+        return new IfCommentEvaluator(name -> ctx.findArg(name), expression, specifiedText, ctx.getLoopInfo()).evaluate();
+    }
+
+    @Override
+    public List<SMailTemplateSegment> specialize(SMailSpecializingContext ctx) {
+        if (ctx.isSharedExpression(expression)) {
+            final boolean result;
+            try {
+                result = evaluate(ctx.newSharedRenderingContext());
+            } catch (RuntimeException e) { // e.g. not found property, the exception is thrown when rendering
+                return Collections.singletonList(this);
+            }
+            if (result) {
+                return SMailCompiledTemplate.specializeSegments(thenSegments, ctx);
+            } else {
+                return elseSegments != null ? SMailCompiledTemplate.specializeSegments(elseSegments, ctx) : Collections.emptyList();
+            }
+        }
+        final List<SMailTemplateSegment> thenList = SMailCompiledTemplate.specializeSegments(thenSegments, ctx);
+        List<SMailTemplateSegment> elseList = null;
+        if (elseSegments != null) {
+            elseList = SMailCompiledTemplate.specializeSegments(elseSegments, ctx);
+        }
+        return Collections.singletonList(new SMailIfSegment(expression, specifiedText, thenList, elseList)); // specialized children
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        return "if:{" + expression + ", then=" + thenSegments.length + (elseSegments != null ? ", else=" + elseSegments.length : "") + "}";
+    }
+}
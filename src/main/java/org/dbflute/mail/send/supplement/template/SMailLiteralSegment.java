@@ -0,0 +1,46 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.template;
+
+/**
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailLiteralSegment implements SMailTemplateSegment {
+
+    protected final String text; // not null, static part of template
+
+    public SMailLiteralSegment(String text) {
+        if (text == null) {
+            throw new IllegalArgumentException("The argument 'text' should not be null.");
+        }
+        this.text = text;
+    }
+
+    @Override
+    public void render(SMailRenderingContext ctx) {
+        ctx.getOut().append(text);
+    }
+
+    @Override
+    public String toString() {
+        return "literal:{" + text.length() + " chars}";
+    }
+
+    public String getText() {
+        return text;
+    }
+}
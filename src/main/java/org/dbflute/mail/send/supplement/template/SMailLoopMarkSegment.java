@@ -0,0 +1,95 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.template;
+
+import java.util.List;
+
+import org.dbflute.mail.send.exception.SMailIllegalStateException;
+import org.dbflute.twowaysql.node.LoopInfo;
+
+/**
+ * The segment of loop mark in FOR comment e.g. /*FIRST*&#47;, /*NEXT ', '*&#47;, /*LAST*&#47;.
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailLoopMarkSegment implements SMailTemplateSegment {
+
+    // ===================================================================================
+    //                                                                          Definition
+    //                                                                          ==========
+    public enum LoopMark {
+        FIRST, NEXT, LAST;
+
+        public boolean isValid(int loopSize, int loopIndex) { // same as loop variable node
+            switch (this) {
+            case FIRST:
+                return loopIndex == 0;
+            case NEXT:
+                return loopIndex > 0;
+            default:
+                return loopIndex == loopSize - 1;
+            }
+        }
+    }
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final LoopMark mark; // not null
+    protected final String replacement; // null allowed: no front prefix
+    protected final SMailTemplateSegment[] childSegments; // not null
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    public SMailLoopMarkSegment(LoopMark mark, String replacement, List<SMailTemplateSegment> childList) {
+        if (mark == null) {
+            throw new IllegalArgumentException("The argument 'mark' should not be null.");
+        }
+        if (childList == null) {
+            throw new IllegalArgumentException("The argument 'childList' should not be null.");
+        }
+        this.mark = mark;
+        this.replacement = replacement;
+        this.childSegments = childList.toArray(new SMailTemplateSegment[childList.size()]);
+    }
+
+    // ===================================================================================
+    //                                                                              Render
+    //                                                                              ======
+    @Override
+    public void render(SMailRenderingContext ctx) {
+        final LoopInfo loopInfo = ctx.getLoopInfo();
+        if (loopInfo == null) { // basically checked when compiling
+            throw new SMailIllegalStateException("The loop mark is out of FOR comment: " + mark);
+        }
+        if (!mark.isValid(loopInfo.getLoopSize(), loopInfo.getLoopIndex())) {
+            return;
+        }
+        if (replacement != null) {
+            ctx.getOut().append(replacement);
+        }
+        SMailCompiledTemplate.renderSegments(childSegments, ctx);
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        return "loopMark:{" + mark + (replacement != null ? " " + replacement : "") + "}";
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.template;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Map;
+
+import org.dbflute.helper.beans.DfBeanDesc;
+import org.dbflute.helper.beans.DfPropertyDesc;
+import org.dbflute.helper.beans.factory.DfBeanDescFactory;
+import org.dbflute.mail.send.exception.SMailIllegalStateException;
+import org.dbflute.twowaysql.pmbean.MapParameterBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The accessor of one property for the bean type, made once and called directly by method handle. <br>
+ * It resolves the property in the same order as bound value tracer (property, parameter map, map),
+ * and returns unresolved mark for other cases so that the caller traces it by the tracer.
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailPropertyAccessor {
+
+    // ===================================================================================
+    //                                                                          Definition
+    //                                                                          ==========
+    private static final Logger logger = LoggerFactory.getLogger(SMailPropertyAccessor.class);
+    public static final Object UNRESOLVED = new Object(); // mark for tracing by tracer
+    protected static final String LIKE_SEARCH_OPTION_SUFFIX = "InternalLikeSearchOption"; // same as tracer
+    protected static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    public enum AccessorType {
+        GETTER, PARAMETER_MAP, MAP
+    }
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final Class<?> beanType; // not null, the key of accessor with property name
+    protected final String propertyName; // not null
+    protected final AccessorType accessorType; // not null
+    protected final MethodHandle getter; // null allowed: not getter type, (Object)Object
+    protected final Class<?> propertyType; // null allowed: not getter type
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    protected SMailPropertyAccessor(Class<?> beanType, String propertyName, AccessorType accessorType, MethodHandle getter,
+            Class<?> propertyType) {
+        this.beanType = beanType;
+        this.propertyName = propertyName;
+        this.accessorType = accessorType;
+        this.getter = getter;
+        this.propertyType = propertyType;
+    }
+
+    /**
+     * Create the accessor of the property for the bean type. (reflection only here)
+     * @param beanType The type of bean that has the property. (NotNull)
+     * @param propertyName The name of property e.g. memberName. (NotNull)
+     * @return The new-created accessor. (NullAllowed: unsupported e.g. list index, like-search, not found)
+     */
+    public static SMailPropertyAccessor create(Class<?> beanType, String propertyName) {
+        if (beanType == null) {
+            throw new IllegalArgumentException("The argument 'beanType' should not be null.");
+        }
+        if (propertyName == null) {
+            throw new IllegalArgumentException("The argument 'propertyName' should not be null.");
+        }
+        final DfBeanDesc beanDesc = DfBeanDescFactory.getBeanDesc(beanType);
+        if (beanDesc.hasPropertyDesc(propertyName + LIKE_SEARCH_OPTION_SUFFIX)) { // tracer handles it
+            return null;
+        }
+        if (beanDesc.hasPropertyDesc(propertyName)) { // property is prior to map key like tracer
+            final DfPropertyDesc propertyDesc = beanDesc.getPropertyDesc(propertyName);
+            final MethodHandle getter = prepareGetter(propertyDesc);
+            if (getter == null) {
+                return null;
+            }
+            return new SMailPropertyAccessor(beanType, propertyName, AccessorType.GETTER, getter, propertyDesc.getPropertyType());
+        }
+        if (MapParameterBean.class.isAssignableFrom(beanType)) {
+            return new SMailPropertyAccessor(beanType, propertyName, AccessorType.PARAMETER_MAP, null, null);
+        }
+        if (Map.class.isAssignableFrom(beanType)) {
+            return new SMailPropertyAccessor(beanType, propertyName, AccessorType.MAP, null, null);
+        }
+        return null; // e.g. get(0) of list
+    }
+
+    protected static MethodHandle prepareGetter(DfPropertyDesc propertyDesc) { // null allowed: e.g. public field
+        if (!propertyDesc.hasReadMethod()) {
+            return null;
+        }
+        final Method readMethod = propertyDesc.getReadMethod();
+        try {
+            readMethod.setAccessible(true); // e.g. public method of non-public class
+            return MethodHandles.lookup().unreflect(readMethod).asType(GETTER_TYPE);
+        } catch (IllegalAccessException | RuntimeException e) { // e.g. security, module
+            logger.debug("Cannot make the method handle so use tracer: {}", readMethod, e);
+            return null;
+        }
+    }
+
+    // ===================================================================================
+    //                                                                                Read
+    //                                                                                ====
+    /**
+     * @param bean The bean instance of the bean type. (NotNull)
+     * @return The property value or unresolved mark. (NullAllowed: property value is null)
+     */
+    public Object read(Object bean) {
+        switch (accessorType) {
+        case GETTER:
+            try {
+                return (Object) getter.invokeExact(bean);
+            } catch (RuntimeException | Error e) { // thrown by the getter as it is, not call it again by tracer
+                throw e;
+            } catch (Throwable e) { // checked exception of the getter
+                throw new SMailIllegalStateException("Failed to read the property: " + this, e);
+            }
+        case PARAMETER_MAP:
+            return readMap(((MapParameterBean<?>) bean).getParameterMap());
+        default:
+            return readMap((Map<?, ?>) bean);
+        }
+    }
+
+    protected Object readMap(Map<?, ?> map) {
+        if (map.containsKey(propertyName + LIKE_SEARCH_OPTION_SUFFIX)) { // tracer handles it
+            return UNRESOLVED;
+        }
+        if (accessorType == AccessorType.PARAMETER_MAP && !map.containsKey(propertyName)) { // e.g. not found
+            return UNRESOLVED;
+        }
+        return map.get(propertyName);
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        return "accessor:{" + beanType.getSimpleName() + "." + propertyName + ", " + accessorType + "}";
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public Class<?> getBeanType() {
+        return beanType;
+    }
+
+    public String getPropertyName() {
+        return propertyName;
+    }
+
+    public AccessorType getAccessorType() {
+        return accessorType;
+    }
+
+    public Class<?> getPropertyType() { // null allowed: not getter type
+        return propertyType;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.template;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.dbflute.mail.send.exception.SMailIllegalStateException;
+import org.dbflute.twowaysql.node.BoundValue;
+import org.dbflute.twowaysql.node.BoundValueTracer;
+import org.dbflute.twowaysql.node.LoopInfo;
+import org.dbflute.twowaysql.node.ParameterCommentType;
+
+/**
+ * The property path of parameter comment e.g. pmb.member.memberName, #current.productName. <br>
+ * The first name is resolved from the rendering context, and the rest are traced as parameter comment does. <br>
+ * Each step keeps the accessor for the last bean type (inline cache) so reflection is only at first time,
+ * and the bound value tracer is used as it is when the accessor cannot handle it e.g. like-search, list index.
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailPropertyPath {
+
+    // ===================================================================================
+    //                                                                          Definition
+    //                                                                          ==========
+    public static final String CURRENT_VARIABLE = "#current";
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final String expression; // not null, for e.g. exception message
+    protected final List<String> nameList; // not null, not empty, first is 'pmb' or '#current'
+    protected final String specifiedText; // not null, for exception message
+    protected final ParameterCommentType commentType; // not null
+    protected final AtomicReferenceArray<SMailPropertyAccessor> accessorCache; // not null, same size as names, first is unused
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    public SMailPropertyPath(String expression, List<String> nameList, String specifiedText, ParameterCommentType commentType) {
+        if (expression == null) {
+            throw new IllegalArgumentException("The argument 'expression' should not be null.");
+        }
+        if (nameList == null || nameList.isEmpty()) {
+            throw new IllegalArgumentException("The argument 'nameList' should not be null or empty: " + expression);
+        }
+        if (specifiedText == null) {
+            throw new IllegalArgumentException("The argument 'specifiedText' should not be null.");
+        }
+        if (commentType == null) {
+            throw new IllegalArgumentException("The argument 'commentType' should not be null.");
+        }
+        this.expression = expression;
+        this.nameList = Collections.unmodifiableList(nameList);
+        this.specifiedText = specifiedText;
+        this.commentType = commentType;
+        this.accessorCache = new AtomicReferenceArray<SMailPropertyAccessor>(nameList.size());
+    }
+
+    // ===================================================================================
+    //                                                                               Trace
+    //                                                                               =====
+    /**
+     * Trace the property path from the first value in the context.
+     * @param ctx The context of rendering. (NotNull)
+     * @return The bound value that has the first and target value. (NotNull, TargetValueNullAllowed)
+     */
+    public BoundValue trace(SMailRenderingContext ctx) {
+        final BoundValue boundValue = new BoundValue();
+        if (isCurrentVariable()) {
+            final LoopInfo loopInfo = ctx.getLoopInfo();
+            if (loopInfo == null) { // basically checked when compiling
+                throw new SMailIllegalStateException("The current variable is out of FOR comment: " + expression);
+            }
+            boundValue.setFirstValue(loopInfo.getCurrentParameter());
+            boundValue.setFirstType(loopInfo.getCurrentParameterType());
+        } else {
+            final Object firstValue = ctx.findArg(nameList.get(0));
+            boundValue.setFirstValue(firstValue);
+            boundValue.setFirstType(firstValue.getClass());
+        }
+        if (!traceByAccessor(boundValue)) {
+            newBoundValueTracer().trace(boundValue); // same way as parameter comment
+        }
+        return boundValue;
+    }
+
+    protected boolean traceByAccessor(BoundValue boundValue) { // false if the tracer is needed
+        Object value = boundValue.getFirstValue();
+        if (value == null) { // same as tracer, target is not set
+            return true;
+        }
+        Class<?> type = boundValue.getFirstType();
+        for (int i = 1; i < nameList.size(); i++) {
+            if (value == null) { // same as tracer
+                break;
+            }
+            final SMailPropertyAccessor accessor = findAccessor(i, type); // type of value here
+            if (accessor == null) {
+                return false;
+            }
+            final Object nextValue = accessor.read(value);
+            if (nextValue == SMailPropertyAccessor.UNRESOLVED) {
+                return false;
+            }
+            type = nextValue != null ? nextValue.getClass() : accessor.getPropertyType();
+            value = nextValue;
+        }
+        boundValue.setTargetValue(value);
+        boundValue.setTargetType(type);
+        return true;
+    }
+
+    protected SMailPropertyAccessor findAccessor(int index, Class<?> beanType) { // null allowed: unsupported
+        final SMailPropertyAccessor cached = accessorCache.get(index);
+        if (cached != null && cached.getBeanType() == beanType) { // mostly hit, monomorphic
+            return cached;
+        }
+        final SMailPropertyAccessor created = SMailPropertyAccessor.create(beanType, nameList.get(index));
+        if (created != null) { // unsupported types are not cached, traced by tracer every time
+            accessorCache.set(index, created); // race is no problem, same accessor
+        }
+        return created;
+    }
+
+    protected BoundValueTracer newBoundValueTracer() { // light, only holds the path
+        return new BoundValueTracer(nameList, expression, specifiedText, commentType);
+    }
+
+    // ===================================================================================
+    //                                                                          Determiner
+    //                                                                          ==========
+    public boolean isCurrentVariable() {
+        return CURRENT_VARIABLE.equals(nameList.get(0));
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public String getExpression() {
+        return expression;
+    }
+
+    public List<String> getNameList() {
+        return nameList;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.template;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+import org.dbflute.twowaysql.node.LoopInfo;
+
+/**
+ * The context of one rendering, not thread-safe (created per rendering). <br>
+ * If the writer is specified, the output is flushed to it by the threshold (streaming).
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailRenderingContext {
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final Object pmb; // not null, e.g. SimpleMapPmb
+    protected final StringBuilder out; // not null, reusable
+    protected final Writer writer; // null allowed: not streaming
+    protected final int flushThreshold; // length of output to flush to the writer
+    protected char[] flushBuffer; // null allowed: lazy-loaded, reused for writing
+    protected LoopInfo loopInfo; // null allowed: out of FOR
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    public SMailRenderingContext(Object pmb, StringBuilder out) {
+        if (pmb == null) {
+            throw new IllegalArgumentException("The argument 'pmb' should not be null.");
+        }
+        if (out == null) {
+            throw new IllegalArgumentException("The argument 'out' should not be null.");
+        }
+        this.pmb = pmb;
+        this.out = out;
+        this.writer = null;
+        this.flushThreshold = Integer.MAX_VALUE;
+    }
+
+    public SMailRenderingContext(Object pmb, StringBuilder out, Writer writer, int flushThreshold) {
+        if (pmb == null) {
+            throw new IllegalArgumentException("The argument 'pmb' should not be null.");
+        }
+        if (out == null) {
+            throw new IllegalArgumentException("The argument 'out' should not be null.");
+        }
+        if (writer == null) {
+            throw new IllegalArgumentException("The argument 'writer' should not be null.");
+        }
+        if (flushThreshold <= 0) {
+            throw new IllegalArgumentException("The argument 'flushThreshold' should be positive: " + flushThreshold);
+        }
+        this.pmb = pmb;
+        this.out = out;
+        this.writer = writer;
+        this.flushThreshold = flushThreshold;
+    }
+
+    // ===================================================================================
+    //                                                                            Argument
+    //                                                                            ========
+    /**
+     * @param name The name of argument, basically 'pmb'. (NotNull)
+     * @return The parameter bean, same as command context with only one argument. (NotNull)
+     */
+    public Object findArg(String name) { // any name returns the only argument like command context
+        return pmb;
+    }
+
+    // ===================================================================================
+    //                                                                                Loop
+    //                                                                                ====
+    public void beginLoop(LoopInfo loopInfo) {
+        if (loopInfo == null) {
+            throw new IllegalArgumentException("The argument 'loopInfo' should not be null.");
+        }
+        this.loopInfo = loopInfo;
+    }
+
+    public void endLoop() { // back to parent loop
+        this.loopInfo = loopInfo != null ? loopInfo.getParentLoop() : null;
+    }
+
+    // ===================================================================================
+    //                                                                           Streaming
+    //                                                                           =========
+    /**
+     * Flush the output to the writer if it is over the threshold, called between segments.
+     * @throws UncheckedIOException When it fails to write.
+     */
+    public void flushIfNeeds() {
+        if (writer != null && out.length() >= flushThreshold) {
+            flush();
+        }
+    }
+
+    /**
+     * Flush all the output to the writer, the output becomes empty. (do nothing if not streaming)
+     * @throws UncheckedIOException When it fails to write.
+     */
+    public void flush() {
+        if (writer == null || out.length() == 0) {
+            return;
+        }
+        final int length = out.length();
+        if (flushBuffer == null || flushBuffer.length < length) {
+            flushBuffer = new char[Math.max(length, flushThreshold)];
+        }
+        out.getChars(0, length, flushBuffer, 0); // without string copy
+        try {
+            writer.write(flushBuffer, 0, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write the rendered text: " + writer, e);
+        }
+        out.setLength(0);
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public Object getPmb() {
+        return pmb;
+    }
+
+    public StringBuilder getOut() {
+        return out;
+    }
+
+    public LoopInfo getLoopInfo() { // null allowed
+        return loopInfo;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.template;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * The context of partial evaluation (specializing) by shared variables, e.g. campaign-level constants of mail-merge. <br>
+ * The segments that depend only on shared variables are evaluated once, and others remain for each recipient.
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailSpecializingContext {
+
+    // ===================================================================================
+    //                                                                          Definition
+    //                                                                          ==========
+    protected static final String PMB_NAME = "pmb";
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final Object sharedPmb; // not null, has only shared variables
+    protected final Set<String> sharedNameSet; // not null, names of shared variables e.g. campaignName
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    public SMailSpecializingContext(Object sharedPmb, Set<String> sharedNameSet) {
+        if (sharedPmb == null) {
+            throw new IllegalArgumentException("The argument 'sharedPmb' should not be null.");
+        }
+        if (sharedNameSet == null) {
+            throw new IllegalArgumentException("The argument 'sharedNameSet' should not be null.");
+        }
+        this.sharedPmb = sharedPmb;
+        this.sharedNameSet = Collections.unmodifiableSet(sharedNameSet);
+    }
+
+    // ===================================================================================
+    //                                                                          Determiner
+    //                                                                          ==========
+    /**
+     * @param path The property path of parameter comment. (NotNull)
+     * @return The determination, true if the path starts with shared variable e.g. pmb.campaignName.
+     */
+    public boolean isSharedPath(SMailPropertyPath path) {
+        return !path.isCurrentVariable() && path.getNameList().size() > 1 && sharedNameSet.contains(path.getNameList().get(1));
+    }
+
+    /**
+     * @param expression The expression of IF comment e.g. pmb.campaignName != null. (NotNull)
+     * @return The determination, true if all variables in the expression are shared. (false if current variable)
+     */
+    public boolean isSharedExpression(String expression) {
+        int index = 0;
+        while ((index = expression.indexOf(PMB_NAME, index)) >= 0) {
+            final int nameBegin = index + PMB_NAME.length();
+            if (isIdentifierPart(expression, index - 1)) { // e.g. xpmb
+                index = nameBegin;
+                continue;
+            }
+            if (nameBegin >= expression.length() || expression.charAt(nameBegin) != '.') { // e.g. pmb only
+                return false;
+            }
+            int nameEnd = nameBegin + 1;
+            while (isIdentifierPart(expression, nameEnd)) {
+                ++nameEnd;
+            }
+            if (!sharedNameSet.contains(expression.substring(nameBegin + 1, nameEnd))) {
+                return false;
+            }
+            index = nameEnd;
+        }
+        return !expression.contains(SMailPropertyPath.CURRENT_VARIABLE); // loop is not specialized
+    }
+
+    protected boolean isIdentifierPart(String expression, int index) {
+        return index >= 0 && index < expression.length() && Character.isJavaIdentifierPart(expression.charAt(index));
+    }
+
+    // ===================================================================================
+    //                                                                           Rendering
+    //                                                                           =========
+    /**
+     * @return The new-created context of rendering by the shared variables. (NotNull)
+     */
+    public SMailRenderingContext newSharedRenderingContext() {
+        return new SMailRenderingContext(sharedPmb, new StringBuilder());
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public Object getSharedPmb() {
+        return sharedPmb;
+    }
+
+    public Set<String> getSharedNameSet() {
+        return sharedNameSet;
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.template;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dbflute.mail.send.supplement.template.SMailLoopMarkSegment.LoopMark;
+import org.dbflute.optional.OptionalThing;
+import org.dbflute.twowaysql.node.ElseNode;
+import org.dbflute.twowaysql.node.EmbeddedVariableNode;
+import org.dbflute.twowaysql.node.ForNode;
+import org.dbflute.twowaysql.node.IfNode;
+import org.dbflute.twowaysql.node.LoopAbstractNode;
+import org.dbflute.twowaysql.node.LoopFirstNode;
+import org.dbflute.twowaysql.node.LoopLastNode;
+import org.dbflute.twowaysql.node.LoopNextNode;
+import org.dbflute.twowaysql.node.Node;
+import org.dbflute.twowaysql.node.ParameterCommentType;
+import org.dbflute.twowaysql.node.SqlPartsNode;
+import org.dbflute.twowaysql.node.VariableNode;
+import org.dbflute.util.DfReflectionUtil;
+import org.dbflute.util.Srl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The compiler of mail template, translates the analyzed node tree to the compiled template. <br>
+ * Only the nodes used in mail template are supported (parts, embedded variable, IF, FOR and loop marks),
+ * returns empty if unsupported node exists e.g. BEGIN comment, so the caller should evaluate it by nodes.
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailTemplateCompiler {
+
+    // ===================================================================================
+    //                                                                          Definition
+    //                                                                          ==========
+    private static final Logger logger = LoggerFactory.getLogger(SMailTemplateCompiler.class);
+    protected static final String PMB_NAME = "pmb";
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final SMailBoundValueFilter valueFilter; // null allowed: no option
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    public SMailTemplateCompiler(SMailBoundValueFilter valueFilter) {
+        this.valueFilter = valueFilter;
+    }
+
+    // ===================================================================================
+    //                                                                             Compile
+    //                                                                             =======
+    /**
+     * @param rootNode The root node analyzed from the template text. (NotNull)
+     * @param specifiedText The analyzed template text, for exception message. (NotNull)
+     * @return The optional compiled template. (NotNull, EmptyAllowed: unsupported node exists)
+     */
+    public OptionalThing<SMailCompiledTemplate> compile(Node rootNode, String specifiedText) {
+        if (rootNode == null) {
+            throw new IllegalArgumentException("The argument 'rootNode' should not be null.");
+        }
+        if (specifiedText == null) {
+            throw new IllegalArgumentException("The argument 'specifiedText' should not be null.");
+        }
+        final CompilingState state = new CompilingState(specifiedText);
+        final List<SMailTemplateSegment> segmentList = compileChildren(rootNode, state, false);
+        if (segmentList == null) {
+            logger.debug("...Giving up compiling by unsupported node: {}", state.unsupportedNode);
+            return OptionalThing.empty();
+        }
+        return OptionalThing.of(new SMailCompiledTemplate(segmentList, state.literalLength));
+    }
+
+    protected static class CompilingState {
+
+        protected final String specifiedText;
+        protected int literalLength;
+        protected Node unsupportedNode; // null allowed: all supported
+
+        public CompilingState(String specifiedText) {
+            this.specifiedText = specifiedText;
+        }
+    }
+
+    // ===================================================================================
+    //                                                                       Compile Nodes
+    //                                                                       =============
+    protected List<SMailTemplateSegment> compileChildren(Node parent, CompilingState state, boolean inLoop) { // null if unsupported
+        final List<SMailTemplateSegment> segmentList = new ArrayList<SMailTemplateSegment>(parent.getChildSize());
+        StringBuilder literalSb = null; // to merge adjacent literals
+        for (int i = 0; i < parent.getChildSize(); i++) {
+            final Node child = parent.getChild(i);
+            if (child instanceof SqlPartsNode) {
+                final String parts = ((SqlPartsNode) child).getSqlParts();
+                literalSb = literalSb != null ? literalSb : new StringBuilder();
+                literalSb.append(parts);
+                state.literalLength += parts.length();
+                continue;
+            }
+            if (literalSb != null) {
+                segmentList.add(new SMailLiteralSegment(literalSb.toString()));
+                literalSb = null;
+            }
+            final SMailTemplateSegment segment = compileNode(child, state, inLoop);
+            if (segment == null) {
+                if (state.unsupportedNode == null) {
+                    state.unsupportedNode = child;
+                }
+                return null;
+            }
+            segmentList.add(segment);
+        }
+        if (literalSb != null) {
+            segmentList.add(new SMailLiteralSegment(literalSb.toString()));
+        }
+        return segmentList;
+    }
+
+    protected SMailTemplateSegment compileNode(Node node, CompilingState state, boolean inLoop) { // null if unsupported
+        if (node instanceof EmbeddedVariableNode) {
+            return compileVariable((EmbeddedVariableNode) node, state, inLoop);
+        } else if (node instanceof IfNode) {
+            return compileIf((IfNode) node, state, inLoop);
+        } else if (node instanceof ForNode) {
+            return compileFor((ForNode) node, state, inLoop);
+        } else if (node instanceof LoopAbstractNode && inLoop) {
+            return compileLoopMark((LoopAbstractNode) node, state);
+        }
+        return null; // e.g. BEGIN, connector, bind variable (not used in mail)
+    }
+
+    // -----------------------------------------------------
+    //                                     Embedded Variable
+    //                                     -----------------
+    protected SMailTemplateSegment compileVariable(EmbeddedVariableNode node, CompilingState state, boolean inLoop) {
+        final String testValue = node.getTestValue();
+        if (testValue != null && testValue.startsWith("(") && testValue.endsWith(")")) { // in-scope, not used in mail
+            return null;
+        }
+        if (!Boolean.TRUE.equals(readField(EmbeddedVariableNode.class, "_replaceOnly", node))) { // mail is replace-only
+            return null;
+        }
+        final SMailPropertyPath path = preparePath(node.getExpression(), readNameList(VariableNode.class, node), state, inLoop,
+                ParameterCommentType.EMBEDDED);
+        if (path == null) {
+            return null;
+        }
+        final SMailValueOption valueOption = SMailValueOption.parse(node.getOptionDef()); // once here
+        final boolean quotedScalar = testValue != null && Srl.count(testValue, "'") > 1 && testValue.startsWith("'")
+                && testValue.endsWith("'");
+        return new SMailVariableSegment(path, valueOption, valueFilter, testValue, quotedScalar);
+    }
+
+    // -----------------------------------------------------
+    //                                            IF Comment
+    //                                            ----------
+    protected SMailTemplateSegment compileIf(IfNode node, CompilingState state, boolean inLoop) {
+        final List<SMailTemplateSegment> thenList = compileChildren(node, state, inLoop);
+        if (thenList == null) {
+            return null;
+        }
+        final ElseNode elseNode = node.getElseNode();
+        List<SMailTemplateSegment> elseList = null;
+        if (elseNode != null) {
+            elseList = compileChildren(elseNode, state, inLoop);
+            if (elseList == null) {
+                return null;
+            }
+        }
+        return new SMailIfSegment(node.getExpression(), state.specifiedText, thenList, elseList);
+    }
+
+    // -----------------------------------------------------
+    //                                           FOR Comment
+    //                                           -----------
+    protected SMailTemplateSegment compileFor(ForNode node, CompilingState state, boolean inLoop) {
+        final SMailPropertyPath path = preparePath(node.getExpression(), readNameList(ForNode.class, node), state, inLoop,
+                ParameterCommentType.FORCOMMENT);
+        if (path == null) {
+            return null;
+        }
+        final List<SMailTemplateSegment> elementList = compileChildren(node, state, true);
+        if (elementList == null) {
+            return null;
+        }
+        return new SMailForSegment(path, state.specifiedText, elementList);
+    }
+
+    protected SMailTemplateSegment compileLoopMark(LoopAbstractNode node, CompilingState state) {
+        final LoopMark mark;
+        if (node instanceof LoopFirstNode) {
+            mark = LoopMark.FIRST;
+        } else if (node instanceof LoopNextNode) {
+            mark = LoopMark.NEXT;
+        } else if (node instanceof LoopLastNode) {
+            mark = LoopMark.LAST;
+        } else {
+            return null;
+        }
+        final Object replacement = readField(LoopAbstractNode.class, "_replacement", node);
+        final List<SMailTemplateSegment> childList = compileChildren(node, state, true);
+        if (childList == null) {
+            return null;
+        }
+        final String realReplacement = replacement instanceof String && Srl.is_NotNull_and_NotTrimmedEmpty((String) replacement)
+                ? (String) replacement : null;
+        return new SMailLoopMarkSegment(mark, realReplacement, childList);
+    }
+
+    // ===================================================================================
+    //                                                                       Property Path
+    //                                                                       =============
+    protected SMailPropertyPath preparePath(String expression, List<String> nameList, CompilingState state, boolean inLoop,
+            ParameterCommentType commentType) { // null if unsupported
+        if (nameList == null || nameList.isEmpty()) {
+            return null;
+        }
+        final String firstName = nameList.get(0);
+        final boolean current = SMailPropertyPath.CURRENT_VARIABLE.equals(firstName);
+        if (!PMB_NAME.equals(firstName) && !(current && inLoop)) { // e.g. wrong name, the exception is by node evaluation
+            return null;
+        }
+        return new SMailPropertyPath(expression, nameList, state.specifiedText, commentType);
+    }
+
+    // ===================================================================================
+    //                                                                          Reflection
+    //                                                                          ==========
+    // node classes do not provide getters of them, only once when compiling so no performance problem
+    @SuppressWarnings("unchecked")
+    protected List<String> readNameList(Class<?> nodeType, Node node) {
+        final Object nameList = readField(nodeType, "_nameList", node);
+        return nameList instanceof List<?> ? (List<String>) nameList : null;
+    }
+
+    protected Object readField(Class<?> nodeType, String fieldName, Node node) { // null allowed: not found
+        try {
+            final Field field = DfReflectionUtil.getWholeField(nodeType, fieldName);
+            return field != null ? DfReflectionUtil.getValueForcedly(field, node) : null;
+        } catch (RuntimeException e) { // e.g. changed by DBFlute version
+            logger.debug("Failed to read the field of node: {}.{}", nodeType.getSimpleName(), fieldName, e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.template;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The segment of compiled template, immutable and shared by threads.
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+@FunctionalInterface
+public interface SMailTemplateSegment {
+
+    /**
+     * Render the segment into the output of the context.
+     * @param ctx The context of rendering, which has the parameter and current loop. (NotNull)
+     */
+    void render(SMailRenderingContext ctx);
+
+    /**
+     * Evaluate the segment partially by the shared variables, e.g. for mail-merge.
+     * @param ctx The context of specializing, which has the shared variables. (NotNull)
+     * @return The residual segments, e.g. literal if evaluated, this segment as it is if not. (NotNull, EmptyAllowed)
+     */
+    default List<SMailTemplateSegment> specialize(SMailSpecializingContext ctx) {
+        return Collections.singletonList(this); // as default, e.g. FOR that depends on loop
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.template;
+
+import java.text.DecimalFormat;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.dbflute.util.Srl;
+
+/**
+ * The option of embedded variable parsed once from the definition e.g. orElse('sea') | formatAs('yyyy/MM/dd'). <br>
+ * The formatters are prepared at first formatting and shared by the same pattern.
+ * <pre>
+ * formatAs() supports:
+ *  o TemporalAccessor (e.g. LocalDate) by DateTimeFormatter
+ *  o java.util.Date (e.g. Timestamp) by DateTimeFormatter as local date-time of default zone
+ *  o Number (e.g. Integer, BigDecimal) by DecimalFormat e.g. formatAs('#,##0')
+ * </pre>
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailValueOption {
+
+    // ===================================================================================
+    //                                                                          Definition
+    //                                                                          ==========
+    protected static final String OR_ELSE_BEGIN = "orElse(";
+    protected static final String FORMAT_AS_BEGIN = "formatAs(";
+    protected static final String OPTION_END = ")";
+    protected static final int FORMATTER_CACHE_LIMIT = 1000;
+    protected static final Map<String, DateTimeFormatter> dateTimeFormatterMap = createDateTimeFormatterMap();
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final String optionDef; // not null, for e.g. exception message
+    protected final String orElseContent; // null allowed: no orElse(), trimmed e.g. 'sea'
+    protected final String formatAsContent; // null allowed: no formatAs(), trimmed e.g. 'yyyy/MM/dd'
+    protected volatile DateTimeFormatter dateTimeFormatter; // null allowed: lazy-loaded
+    protected volatile DecimalFormat decimalFormat; // null allowed: lazy-loaded, prototype (not thread-safe)
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    protected SMailValueOption(String optionDef, String orElseContent, String formatAsContent) {
+        this.optionDef = optionDef;
+        this.orElseContent = orElseContent;
+        this.formatAsContent = formatAsContent;
+    }
+
+    /**
+     * Parse the option definition of embedded variable. (same rule as before: first one of each option is used)
+     * @param optionDef The option definition e.g. orElse('sea') | formatAs('yyyy/MM/dd'). (NullAllowed: no option)
+     * @return The parsed option. (NullAllowed: when the definition is null or empty)
+     */
+    public static SMailValueOption parse(String optionDef) {
+        if (Srl.is_Null_or_TrimmedEmpty(optionDef)) {
+            return null;
+        }
+        final List<String> optionList = Srl.splitListTrimmed(optionDef, "|");
+        final String orElseContent = extractContent(optionList, OR_ELSE_BEGIN);
+        final String formatAsContent = extractContent(optionList, FORMAT_AS_BEGIN);
+        return new SMailValueOption(optionDef, orElseContent, formatAsContent);
+    }
+
+    protected static String extractContent(List<String> optionList, String begin) { // null allowed: not found
+        for (String op : optionList) {
+            if (op.startsWith(begin) && op.endsWith(OPTION_END)) {
+                return Srl.extractScopeWide(op, begin, OPTION_END).getContent().trim();
+            }
+        }
+        return null;
+    }
+
+    // ===================================================================================
+    //                                                                              orElse
+    //                                                                              ======
+    public boolean hasOrElse() {
+        return orElseContent != null;
+    }
+
+    public boolean isOrElseQuoted() { // string only supported, is enough here
+        return orElseContent != null && Srl.isQuotedSingle(orElseContent);
+    }
+
+    /**
+     * @return The unquoted value of orElse(). (NotNull: if quoted orElse() exists)
+     */
+    public String getOrElseValue() {
+        assertQuoted(orElseContent, OR_ELSE_BEGIN);
+        return Srl.unquoteSingle(orElseContent);
+    }
+
+    // ===================================================================================
+    //                                                                            formatAs
+    //                                                                            ========
+    public boolean hasFormatAs() {
+        return formatAsContent != null;
+    }
+
+    public boolean isFormatAsQuoted() {
+        return formatAsContent != null && Srl.isQuotedSingle(formatAsContent);
+    }
+
+    /**
+     * @param value The target value to be determined. (NullAllowed: if null, false)
+     * @return The determination, true if the value can be formatted by formatAs().
+     */
+    public boolean isFormattable(Object value) {
+        return value instanceof TemporalAccessor || value instanceof Date || value instanceof Number;
+    }
+
+    /**
+     * Format the value by the pattern of formatAs().
+     * @param value The formattable value. (NotNull)
+     * @return The formatted string. (NotNull)
+     */
+    public String format(Object value) {
+        assertQuoted(formatAsContent, FORMAT_AS_BEGIN);
+        if (value instanceof TemporalAccessor) { // e.g. LocalDate, LocalDateTime
+            return prepareDateTimeFormatter().format((TemporalAccessor) value);
+        } else if (value instanceof Date) { // e.g. java.sql.Date cannot use toInstant()
+            final Instant instant = Instant.ofEpochMilli(((Date) value).getTime());
+            return prepareDateTimeFormatter().format(LocalDateTime.ofInstant(instant, ZoneId.systemDefault()));
+        } else if (value instanceof Number) {
+            return ((DecimalFormat) prepareDecimalFormat().clone()).format(value); // clone is lighter than parsing
+        } else {
+            throw new IllegalArgumentException("The value cannot be formatted: " + value.getClass() + ", " + optionDef);
+        }
+    }
+
+    protected DateTimeFormatter prepareDateTimeFormatter() {
+        DateTimeFormatter formatter = dateTimeFormatter;
+        if (formatter == null) { // race is no problem, same formatter
+            final String pattern = Srl.unquoteSingle(formatAsContent);
+            formatter = dateTimeFormatterMap.get(pattern);
+            if (formatter == null) {
+                formatter = DateTimeFormatter.ofPattern(pattern); // immutable, thread-safe
+                dateTimeFormatterMap.put(pattern, formatter); // the eldest is evicted if overflow
+            }
+            dateTimeFormatter = formatter;
+        }
+        return formatter;
+    }
+
+    protected static Map<String, DateTimeFormatter> createDateTimeFormatterMap() { // insertion-ordered, evicted one by one
+        return Collections.synchronizedMap(new LinkedHashMap<String, DateTimeFormatter>() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Entry<String, DateTimeFormatter> eldest) {
+                return size() > FORMATTER_CACHE_LIMIT;
+            }
+        });
+    }
+
+    protected DecimalFormat prepareDecimalFormat() {
+        DecimalFormat format = decimalFormat;
+        if (format == null) {
+            format = new DecimalFormat(Srl.unquoteSingle(formatAsContent));
+            decimalFormat = format;
+        }
+        return format;
+    }
+
+    // ===================================================================================
+    //                                                                        Small Helper
+    //                                                                        ============
+    protected void assertQuoted(String content, String begin) {
+        if (content == null || !Srl.isQuotedSingle(content)) { // basically checked by caller
+            throw new IllegalStateException("Not found the quoted " + begin + OPTION_END + " in the option: " + optionDef);
+        }
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        return optionDef;
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public String getOptionDef() {
+        return optionDef;
+    }
+}
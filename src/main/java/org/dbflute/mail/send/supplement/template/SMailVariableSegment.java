@@ -0,0 +1,111 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.template;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.dbflute.mail.send.exception.SMailIllegalStateException;
+import org.dbflute.twowaysql.node.BoundValue;
+
+/**
+ * The segment of embedded variable e.g. /*pmb.memberName*&#47;.
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailVariableSegment implements SMailTemplateSegment {
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final SMailPropertyPath path; // not null
+    protected final SMailValueOption valueOption; // null allowed: no option
+    protected final SMailBoundValueFilter valueFilter; // null allowed: no option
+    protected final String testValue; // null allowed: written after the value as replace-only
+    protected final boolean quotedScalar; // true if the test value is quoted e.g. 'sea'
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    public SMailVariableSegment(SMailPropertyPath path, SMailValueOption valueOption, SMailBoundValueFilter valueFilter,
+            String testValue, boolean quotedScalar) {
+        if (path == null) {
+            throw new IllegalArgumentException("The argument 'path' should not be null.");
+        }
+        this.path = path;
+        this.valueOption = valueOption;
+        this.valueFilter = valueFilter;
+        this.testValue = testValue;
+        this.quotedScalar = quotedScalar;
+    }
+
+    // ===================================================================================
+    //                                                                              Render
+    //                                                                              ======
+    @Override
+    public void render(SMailRenderingContext ctx) {
+        final BoundValue boundValue = path.trace(ctx);
+        if (valueFilter != null && valueOption != null) {
+            valueFilter.filter(boundValue, valueOption);
+        }
+        final Object targetValue = boundValue.getTargetValue();
+        if (targetValue == null) { // not allowed in mail template, the exception is thrown by node evaluation
+            throw new SMailIllegalStateException("The value of embedded variable was null: " + path);
+        }
+        final StringBuilder out = ctx.getOut();
+        if (quotedScalar) {
+            out.append('\'').append(targetValue.toString()).append('\'');
+        } else {
+            out.append(targetValue.toString());
+        }
+        if (testValue != null) {
+            out.append(testValue);
+        }
+    }
+
+    @Override
+    public List<SMailTemplateSegment> specialize(SMailSpecializingContext ctx) {
+        if (!ctx.isSharedPath(path)) {
+            return Collections.singletonList(this);
+        }
+        final SMailRenderingContext sharedCtx = ctx.newSharedRenderingContext();
+        try {
+            render(sharedCtx);
+        } catch (RuntimeException e) { // e.g. null value, the exception is thrown when rendering
+            return Collections.singletonList(this);
+        }
+        return Collections.singletonList(new SMailLiteralSegment(sharedCtx.getOut().toString()));
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        return "variable:{" + path + (valueOption != null ? ":" + valueOption : "") + "}";
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public SMailPropertyPath getPath() {
+        return path;
+    }
+
+    public SMailValueOption getValueOption() {
+        return valueOption;
+    }
+}
@@ -0,0 +1,376 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import javax.mail.Address;
+import javax.mail.AuthenticationFailedException;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.internet.InternetAddress;
+
+import com.sun.mail.smtp.SMTPAddressFailedException;
+import com.sun.mail.smtp.SMTPSendFailedException;
+
+/**
+ * The SMTP conversation for one mail on non-blocking channel, driven by NIO SMTP engine. <br>
+ * It connects per mail (no reuse) and completes the future after the server accepts the data.
+ * All methods are called in event loop thread except constructor.
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailNioConversation {
+
+    // ===================================================================================
+    //                                                                          Definition
+    //                                                                          ==========
+    protected static final int READ_BUFFER_SIZE = 4096;
+
+    protected enum ConversationState {
+        CONNECTING, GREETING, EHLO, HELO, AUTH, MAIL, RCPT, DATA, CONTENT, QUIT, FINISHED
+    }
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final SMailNioEnvelope envelope; // not null
+    protected final CompletableFuture<SMailNioSentResult> future; // not null
+    protected final SMailNioEngineOption option; // not null
+    protected final long startTimeMillis; // may be future for retry interval
+    protected SocketChannel channel; // null allowed: before start
+    protected SelectionKey key; // null allowed: before start
+    protected ConversationState state = ConversationState.CONNECTING;
+    protected long deadlineMillis; // of current state
+    protected final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    protected final StringBuilder lineBuilder = new StringBuilder(); // current line
+    protected final StringBuilder replyBuilder = new StringBuilder(); // current (multi-line) reply
+    protected final Set<String> extensionSet = new HashSet<String>(); // upper case, from EHLO
+    protected ByteBuffer writeBuffer; // null allowed: nothing to write
+    protected int rcptIndex;
+    protected final Map<String, SMailRecipientReply> recipientReplyMap = new LinkedHashMap<String, SMailRecipientReply>();
+    protected int lastReturnCode;
+    protected String lastServerResponse;
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    public SMailNioConversation(SMailNioEnvelope envelope, CompletableFuture<SMailNioSentResult> future, SMailNioEngineOption option,
+            long startTimeMillis) {
+        this.envelope = envelope;
+        this.future = future;
+        this.option = option;
+        this.startTimeMillis = startTimeMillis;
+    }
+
+    // ===================================================================================
+    //                                                                               Start
+    //                                                                               =====
+    public void start(Selector selector, long currentMillis) throws IOException {
+        channel = SocketChannel.open();
+        channel.configureBlocking(false);
+        final boolean connected = channel.connect(envelope.getServerAddress());
+        key = channel.register(selector, connected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT, this);
+        if (connected) {
+            toState(ConversationState.GREETING, currentMillis);
+        } else {
+            state = ConversationState.CONNECTING;
+            deadlineMillis = currentMillis + option.getConnectTimeoutMillis();
+        }
+    }
+
+    // ===================================================================================
+    //                                                                         Ready Event
+    //                                                                         ===========
+    public void handleConnectable(long currentMillis) throws IOException {
+        channel.finishConnect();
+        key.interestOps(SelectionKey.OP_READ);
+        toState(ConversationState.GREETING, currentMillis);
+    }
+
+    public void handleWritable(long currentMillis) throws IOException {
+        channel.write(writeBuffer);
+        deadlineMillis = currentMillis + option.getReplyTimeoutMillis(); // writing is progressing
+        if (!writeBuffer.hasRemaining()) {
+            writeBuffer = null;
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    public void handleReadable(long currentMillis) throws IOException, MessagingException {
+        final int readSize = channel.read(readBuffer);
+        if (readSize < 0) {
+            if (state == ConversationState.QUIT) { // server closed after QUIT
+                finish();
+                return;
+            }
+            throw new IOException("Connection closed by SMTP server: state=" + state + ", " + envelope);
+        }
+        readBuffer.flip();
+        while (readBuffer.hasRemaining() && state != ConversationState.FINISHED) {
+            final char ch = (char) (readBuffer.get() & 0xFF);
+            if (ch == '\n') {
+                handleLine(lineBuilder.toString(), currentMillis);
+                lineBuilder.setLength(0);
+            } else if (ch != '\r') {
+                lineBuilder.append(ch);
+            }
+        }
+        readBuffer.clear(); // pipelining is not used so rest bytes are not expected
+    }
+
+    protected void handleLine(String line, long currentMillis) throws IOException, MessagingException {
+        replyBuilder.append(line).append("\n");
+        if (state == ConversationState.EHLO && line.length() > 4) {
+            extensionSet.add(line.substring(4).trim().toUpperCase()); // e.g. AUTH PLAIN LOGIN, PIPELINING
+        }
+        if (line.length() >= 4 && line.charAt(3) == '-') { // continued
+            return;
+        }
+        final String reply = replyBuilder.toString();
+        replyBuilder.setLength(0);
+        int code;
+        try {
+            code = Integer.parseInt(line.substring(0, 3));
+        } catch (RuntimeException e) { // e.g. NumberFormatException, too short
+            code = -1;
+        }
+        lastReturnCode = code;
+        lastServerResponse = reply;
+        handleReply(code, reply, currentMillis);
+    }
+
+    // ===================================================================================
+    //                                                                        Handle Reply
+    //                                                                        ============
+    protected void handleReply(int code, String reply, long currentMillis) throws IOException, MessagingException {
+        switch (state) {
+        case GREETING:
+            assertReply(220, code, reply);
+            writeCommand("EHLO " + option.getHeloName(), ConversationState.EHLO, currentMillis);
+            break;
+        case EHLO:
+            if (code != 250) { // e.g. old server
+                writeCommand("HELO " + option.getHeloName(), ConversationState.HELO, currentMillis);
+            } else if (envelope.hasAuth()) {
+                assertAuthPlainAdvertised();
+                writeCommand("AUTH PLAIN " + buildAuthPlain(), ConversationState.AUTH, currentMillis);
+            } else {
+                writeMailFrom(currentMillis);
+            }
+            break;
+        case HELO:
+            assertReply(250, code, reply);
+            if (envelope.hasAuth()) { // no extension by HELO
+                assertAuthPlainAdvertised();
+            }
+            writeMailFrom(currentMillis);
+            break;
+        case AUTH:
+            assertReply(235, code, reply);
+            writeMailFrom(currentMillis);
+            break;
+        case MAIL:
+            assertReply(250, code, reply);
+            writeRcptTo(currentMillis);
+            break;
+        case RCPT:
+            final String address = envelope.getRecipientList().get(rcptIndex);
+            recipientReplyMap.put(address, new SMailRecipientReply(address, code, reply));
+            ++rcptIndex;
+            if (rcptIndex < envelope.getRecipientList().size()) {
+                writeRcptTo(currentMillis);
+            } else {
+                assertRecipientAccepted();
+                writeCommand("DATA", ConversationState.DATA, currentMillis);
+            }
+            break;
+        case DATA:
+            assertReply(354, code, reply);
+            writeBytes(envelope.getData(), ConversationState.CONTENT, currentMillis);
+            break;
+        case CONTENT:
+            assertReply(250, code, reply);
+            future.complete(new SMailNioSentResult(code, reply, recipientReplyMap)); // before QUIT
+            writeCommand("QUIT", ConversationState.QUIT, currentMillis);
+            break;
+        case QUIT:
+            finish();
+            break;
+        default:
+            throw new IllegalStateException("Unexpected reply in the state: " + state + ", " + reply);
+        }
+    }
+
+    protected boolean isAuthPlainAdvertised() {
+        return extensionSet.stream().anyMatch(ext -> ext.startsWith("AUTH") && ext.contains("PLAIN"));
+    }
+
+    protected void assertAuthPlainAdvertised() throws MessagingException {
+        if (!isAuthPlainAdvertised()) { // not send without authentication, relay may reject it (as retryable)
+            final String msg = "Not advertised AUTH PLAIN by the SMTP server (only PLAIN in NIO): " + extensionSet + ", " + envelope;
+            throw new AuthenticationFailedException(msg);
+        }
+    }
+
+    protected String buildAuthPlain() {
+        final String plain = "\0" + envelope.getAuthUser() + "\0" + envelope.getAuthPassword();
+        return Base64.getEncoder().encodeToString(plain.getBytes(StandardCharsets.UTF_8));
+    }
+
+    protected void assertReply(int expectedCode, int actualCode, String reply) throws MessagingException {
+        if (actualCode != expectedCode) {
+            final String msg = "Unexpected SMTP reply in " + state + ": " + reply.trim() + ", " + envelope;
+            throw new SMTPSendFailedException(state.name(), actualCode, msg, null, null, null, null); // for return code
+        }
+    }
+
+    protected void assertRecipientAccepted() throws MessagingException { // same exception as JavaMail
+        final List<Address> validList = new ArrayList<Address>();
+        final List<Address> invalidList = new ArrayList<Address>();
+        MessagingException chained = null;
+        for (SMailRecipientReply recipientReply : recipientReplyMap.values()) {
+            final String address = recipientReply.getAddress();
+            if (recipientReply.isAccepted()) {
+                validList.add(toInternetAddress(address));
+            } else {
+                final InternetAddress invalid = toInternetAddress(address);
+                invalidList.add(invalid);
+                final String command = "RCPT TO:<" + address + ">";
+                final int returnCode = recipientReply.getReturnCode();
+                final String response = recipientReply.getServerResponse();
+                final SMTPAddressFailedException failure = new SMTPAddressFailedException(invalid, command, returnCode, response);
+                if (chained == null) {
+                    chained = failure;
+                } else {
+                    chained.setNextException(failure);
+                }
+            }
+        }
+        if (validList.isEmpty() || (!envelope.isSendPartial() && !invalidList.isEmpty())) {
+            final String msg = "Invalid Addresses: " + recipientReplyMap.values() + ", " + envelope;
+            final Address[] validUnsent = validList.toArray(new Address[validList.size()]); // not sent yet
+            throw new SendFailedException(msg, chained, null, validUnsent, invalidList.toArray(new Address[invalidList.size()]));
+        }
+    }
+
+    protected InternetAddress toInternetAddress(String address) { // already plain address
+        final InternetAddress internetAddress = new InternetAddress();
+        internetAddress.setAddress(address);
+        return internetAddress;
+    }
+
+    // ===================================================================================
+    //                                                                               Write
+    //                                                                               =====
+    protected void writeMailFrom(long currentMillis) throws IOException {
+        writeCommand("MAIL FROM:<" + envelope.getReturnPath() + ">", ConversationState.MAIL, currentMillis);
+    }
+
+    protected void writeRcptTo(long currentMillis) throws IOException {
+        final List<String> recipientList = envelope.getRecipientList();
+        writeCommand("RCPT TO:<" + recipientList.get(rcptIndex) + ">", ConversationState.RCPT, currentMillis);
+    }
+
+    protected void writeCommand(String command, ConversationState nextState, long currentMillis) throws IOException {
+        writeBytes((command + "\r\n").getBytes(StandardCharsets.UTF_8), nextState, currentMillis);
+    }
+
+    protected void writeBytes(byte[] bytes, ConversationState nextState, long currentMillis) throws IOException {
+        toState(nextState, currentMillis);
+        writeBuffer = ByteBuffer.wrap(bytes);
+        channel.write(writeBuffer);
+        if (writeBuffer.hasRemaining()) { // e.g. large data, continued when writable
+            key.interestOps(SelectionKey.OP_WRITE);
+        } else {
+            writeBuffer = null;
+        }
+    }
+
+    protected void toState(ConversationState nextState, long currentMillis) {
+        state = nextState;
+        deadlineMillis = currentMillis + option.getReplyTimeoutMillis();
+    }
+
+    // ===================================================================================
+    //                                                                              Finish
+    //                                                                              ======
+    public void fail(Throwable cause) {
+        if (!future.isDone()) {
+            future.completeExceptionally(cause);
+        }
+        finish();
+    }
+
+    protected void finish() {
+        state = ConversationState.FINISHED;
+        if (key != null) {
+            key.cancel();
+        }
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    // ===================================================================================
+    //                                                                          Determiner
+    //                                                                          ==========
+    public boolean isFinished() {
+        return state == ConversationState.FINISHED;
+    }
+
+    public boolean isTimedOut(long currentMillis) {
+        return !isFinished() && channel != null && currentMillis > deadlineMillis;
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        return "conversation:{" + state + ", " + envelope + "}";
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public SMailNioEnvelope getEnvelope() {
+        return envelope;
+    }
+
+    public long getStartTimeMillis() {
+        return startTimeMillis;
+    }
+
+    public long getDeadlineMillis() {
+        return deadlineMillis;
+    }
+}
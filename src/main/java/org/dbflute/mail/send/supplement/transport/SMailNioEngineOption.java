@@ -0,0 +1,93 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.transport;
+
+/**
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailNioEngineOption {
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected long connectTimeoutMillis = 10000L; // positive
+    protected long replyTimeoutMillis = 30000L; // positive, per one reply (and per content writing)
+    protected String heloName = "localhost"; // not null, for EHLO/HELO
+    protected String threadName = "mailflute-nio-engine"; // not null, of event loop thread
+
+    // ===================================================================================
+    //                                                                              Option
+    //                                                                              ======
+    public SMailNioEngineOption connectTimeoutMillis(long connectTimeoutMillis) {
+        if (connectTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("The argument 'connectTimeoutMillis' should be positive: " + connectTimeoutMillis);
+        }
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        return this;
+    }
+
+    public SMailNioEngineOption replyTimeoutMillis(long replyTimeoutMillis) {
+        if (replyTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("The argument 'replyTimeoutMillis' should be positive: " + replyTimeoutMillis);
+        }
+        this.replyTimeoutMillis = replyTimeoutMillis;
+        return this;
+    }
+
+    public SMailNioEngineOption heloName(String heloName) {
+        if (heloName == null || heloName.trim().isEmpty()) {
+            throw new IllegalArgumentException("The argument 'heloName' should not be null or empty: " + heloName);
+        }
+        this.heloName = heloName;
+        return this;
+    }
+
+    public SMailNioEngineOption threadName(String threadName) {
+        if (threadName == null || threadName.trim().isEmpty()) {
+            throw new IllegalArgumentException("The argument 'threadName' should not be null or empty: " + threadName);
+        }
+        this.threadName = threadName;
+        return this;
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        return "nioOption:{connectTimeout=" + connectTimeoutMillis + ", replyTimeout=" + replyTimeoutMillis + ", helo=" + heloName + "}";
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public long getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public long getReplyTimeoutMillis() {
+        return replyTimeoutMillis;
+    }
+
+    public String getHeloName() {
+        return heloName;
+    }
+
+    public String getThreadName() {
+        return threadName;
+    }
+}
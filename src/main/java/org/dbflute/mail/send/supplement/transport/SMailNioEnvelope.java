@@ -0,0 +1,125 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.transport;
+
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The envelope and data of one mail for NIO SMTP engine. <br>
+ * The data is already dot-stuffed and terminated, and the server address is already resolved.
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailNioEnvelope {
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final InetSocketAddress serverAddress; // not null
+    protected final String returnPath; // not null, for MAIL FROM
+    protected final List<String> recipientList; // not null, not empty, plain addresses for RCPT TO
+    protected final byte[] data; // not null, after DATA command, ends with CRLF.CRLF
+    protected String authUser; // null allowed: no AUTH
+    protected String authPassword; // null allowed: no AUTH
+    protected boolean sendPartial; // true: send if some recipients are accepted
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    public SMailNioEnvelope(InetSocketAddress serverAddress, String returnPath, List<String> recipientList, byte[] data) {
+        assertArgumentNotNull("serverAddress", serverAddress);
+        assertArgumentNotNull("returnPath", returnPath);
+        assertArgumentNotNull("recipientList", recipientList);
+        assertArgumentNotNull("data", data);
+        if (recipientList.isEmpty()) {
+            throw new IllegalArgumentException("The argument 'recipientList' should not be empty: " + returnPath);
+        }
+        this.serverAddress = serverAddress;
+        this.returnPath = returnPath;
+        this.recipientList = recipientList;
+        this.data = data;
+    }
+
+    public SMailNioEnvelope authPlain(String user, String password) { // fails if server does not advertise AUTH PLAIN
+        assertArgumentNotNull("user", user);
+        assertArgumentNotNull("password", password);
+        this.authUser = user;
+        this.authPassword = password;
+        return this;
+    }
+
+    public SMailNioEnvelope asSendPartial() {
+        sendPartial = true;
+        return this;
+    }
+
+    // ===================================================================================
+    //                                                                        Small Helper
+    //                                                                        ============
+    protected void assertArgumentNotNull(String variableName, Object value) {
+        if (variableName == null) {
+            throw new IllegalArgumentException("The variableName should not be null.");
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("The argument '" + variableName + "' should not be null.");
+        }
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        return "envelope:{" + serverAddress + ", " + returnPath + " to " + recipientList + ", " + data.length + " bytes}";
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public InetSocketAddress getServerAddress() {
+        return serverAddress;
+    }
+
+    public String getReturnPath() {
+        return returnPath;
+    }
+
+    public List<String> getRecipientList() {
+        return Collections.unmodifiableList(recipientList);
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public boolean hasAuth() {
+        return authUser != null;
+    }
+
+    public String getAuthUser() {
+        return authUser;
+    }
+
+    public String getAuthPassword() {
+        return authPassword;
+    }
+
+    public boolean isSendPartial() {
+        return sendPartial;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.transport;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The result of successful sending by NIO SMTP engine.
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailNioSentResult {
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final int lastReturnCode; // of end of data
+    protected final String lastServerResponse; // not null
+    protected final Map<String, SMailRecipientReply> recipientReplyMap; // not null, keyed by plain address
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    public SMailNioSentResult(int lastReturnCode, String lastServerResponse, Map<String, SMailRecipientReply> recipientReplyMap) {
+        this.lastReturnCode = lastReturnCode;
+        this.lastServerResponse = lastServerResponse != null ? lastServerResponse : "";
+        this.recipientReplyMap = recipientReplyMap != null ? recipientReplyMap : Collections.emptyMap();
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        return "sent:{" + lastReturnCode + ", " + recipientReplyMap.values() + "}";
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public int getLastReturnCode() {
+        return lastReturnCode;
+    }
+
+    public String getLastServerResponse() {
+        return lastServerResponse;
+    }
+
+    public Map<String, SMailRecipientReply> getRecipientReplyMap() {
+        return Collections.unmodifiableMap(recipientReplyMap);
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.transport;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import org.dbflute.mail.send.exception.SMailIllegalStateException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The non-blocking SMTP engine on one event loop thread (java.nio selector). <br>
+ * One thread drives many SMTP conversations, so sending threads are not blocked by network.
+ * <pre>
+ * e.g. application scope
+ *  SMailNioSmtpEngine engine = new SMailNioSmtpEngine(op -&gt; op.heloName("sea.example.com"));
+ *  ... new SMailDogmaticPostalPersonnel().<span style="color: #CC4747">useNioEngine</span>(engine);
+ *  ...
+ *  engine.close(); // when application shutdown
+ * </pre>
+ * It supports plain SMTP (and AUTH PLAIN) only, no SSL/STARTTLS. <br>
+ * The callbacks of returned future are executed in the event loop thread, so they should be light.
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailNioSmtpEngine implements AutoCloseable {
+
+    // ===================================================================================
+    //                                                                          Definition
+    //                                                                          ==========
+    private static final Logger logger = LoggerFactory.getLogger(SMailNioSmtpEngine.class);
+    protected static final long CLOSE_WAIT_MILLIS = 3000L;
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final SMailNioEngineOption option; // not null
+    protected final Selector selector; // not null
+    protected final Thread loopThread; // not null
+    protected final Queue<SMailNioConversation> submittedQueue = new ConcurrentLinkedQueue<SMailNioConversation>();
+    protected final PriorityQueue<SMailNioConversation> waitingQueue; // loop thread only, until start time
+    protected final Set<SMailNioConversation> activeSet = new HashSet<SMailNioConversation>(); // loop thread only
+    protected volatile boolean closed;
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    public SMailNioSmtpEngine(Consumer<SMailNioEngineOption> opLambda) {
+        if (opLambda == null) {
+            throw new IllegalArgumentException("The argument 'opLambda' should not be null.");
+        }
+        option = new SMailNioEngineOption();
+        opLambda.accept(option);
+        try {
+            selector = Selector.open();
+        } catch (IOException e) {
+            throw new SMailIllegalStateException("Failed to open the selector for NIO SMTP engine: " + option, e);
+        }
+        waitingQueue = new PriorityQueue<SMailNioConversation>(Comparator.comparingLong(conv -> conv.getStartTimeMillis()));
+        loopThread = new Thread(() -> loop(), option.getThreadName());
+        loopThread.setDaemon(true);
+        loopThread.start();
+    }
+
+    // ===================================================================================
+    //                                                                              Submit
+    //                                                                              ======
+    /**
+     * Submit the envelope to send it in the event loop.
+     * @param envelope The envelope of mail to be sent. (NotNull)
+     * @param delayMillis The milliseconds to wait before connecting, e.g. retry interval. (NotMinus)
+     * @return The future completed when the server accepts the data. (NotNull)
+     */
+    public CompletableFuture<SMailNioSentResult> submit(SMailNioEnvelope envelope, long delayMillis) {
+        if (envelope == null) {
+            throw new IllegalArgumentException("The argument 'envelope' should not be null.");
+        }
+        if (delayMillis < 0) {
+            throw new IllegalArgumentException("The argument 'delayMillis' should not be minus: " + delayMillis);
+        }
+        final CompletableFuture<SMailNioSentResult> future = new CompletableFuture<SMailNioSentResult>();
+        if (closed) {
+            future.completeExceptionally(new SMailIllegalStateException("Already closed the NIO SMTP engine: " + envelope));
+            return future;
+        }
+        final SMailNioConversation conv = newConversation(envelope, future, currentTimeMillis() + delayMillis);
+        submittedQueue.add(conv);
+        if (closed && submittedQueue.remove(conv)) { // closed after the check, and may be after aborting all
+            conv.fail(new SMailIllegalStateException("Already closed the NIO SMTP engine: " + envelope));
+            return future;
+        }
+        selector.wakeup();
+        return future;
+    }
+
+    protected SMailNioConversation newConversation(SMailNioEnvelope envelope, CompletableFuture<SMailNioSentResult> future,
+            long startTimeMillis) {
+        return new SMailNioConversation(envelope, future, option, startTimeMillis);
+    }
+
+    // ===================================================================================
+    //                                                                          Event Loop
+    //                                                                          ==========
+    protected void loop() {
+        try {
+            while (!closed) {
+                try {
+                    startConversation();
+                    selector.select(determineSelectTimeout());
+                    handleSelected();
+                    expireTimedOut();
+                } catch (IOException | RuntimeException e) { // keep the loop
+                    logger.warn("Unexpected exception in the NIO SMTP engine loop: " + option, e);
+                }
+            }
+        } finally {
+            abortAll();
+        }
+    }
+
+    protected void startConversation() {
+        SMailNioConversation submitted;
+        while ((submitted = submittedQueue.poll()) != null) {
+            waitingQueue.add(submitted);
+        }
+        final long currentMillis = currentTimeMillis();
+        while (!waitingQueue.isEmpty() && waitingQueue.peek().getStartTimeMillis() <= currentMillis) {
+            final SMailNioConversation conv = waitingQueue.poll();
+            activeSet.add(conv);
+            try {
+                conv.start(selector, currentMillis);
+            } catch (IOException | RuntimeException e) {
+                conv.fail(e);
+            }
+        }
+    }
+
+    protected long determineSelectTimeout() { // zero means no timeout in selector
+        final long currentMillis = currentTimeMillis();
+        long nextMillis = Long.MAX_VALUE;
+        if (!waitingQueue.isEmpty()) {
+            nextMillis = waitingQueue.peek().getStartTimeMillis();
+        }
+        for (SMailNioConversation conv : activeSet) {
+            nextMillis = Math.min(nextMillis, conv.getDeadlineMillis());
+        }
+        return nextMillis == Long.MAX_VALUE ? 0L : Math.max(1L, nextMillis - currentMillis);
+    }
+
+    protected void handleSelected() {
+        final long currentMillis = currentTimeMillis();
+        final Iterator<SelectionKey> ite = selector.selectedKeys().iterator();
+        while (ite.hasNext()) {
+            final SelectionKey key = ite.next();
+            ite.remove();
+            final SMailNioConversation conv = (SMailNioConversation) key.attachment();
+            try {
+                if (key.isValid() && key.isConnectable()) {
+                    conv.handleConnectable(currentMillis);
+                }
+                if (key.isValid() && key.isWritable()) {
+                    conv.handleWritable(currentMillis);
+                }
+                if (key.isValid() && key.isReadable()) {
+                    conv.handleReadable(currentMillis);
+                }
+            } catch (Exception e) { // e.g. IOException, MessagingException
+                conv.fail(e);
+            }
+        }
+    }
+
+    protected void expireTimedOut() {
+        final long currentMillis = currentTimeMillis();
+        final Iterator<SMailNioConversation> ite = activeSet.iterator();
+        while (ite.hasNext()) {
+            final SMailNioConversation conv = ite.next();
+            if (conv.isTimedOut(currentMillis)) {
+                conv.fail(new TimeoutException("SMTP conversation timed out: " + conv));
+            }
+            if (conv.isFinished()) {
+                ite.remove();
+            }
+        }
+    }
+
+    protected void abortAll() {
+        final List<SMailNioConversation> abortedList = new ArrayList<SMailNioConversation>(activeSet);
+        abortedList.addAll(waitingQueue);
+        abortedList.addAll(submittedQueue);
+        activeSet.clear();
+        waitingQueue.clear();
+        submittedQueue.clear();
+        for (SMailNioConversation conv : abortedList) {
+            conv.fail(new SMailIllegalStateException("Aborted by closing NIO SMTP engine: " + conv));
+        }
+        try {
+            selector.close();
+        } catch (IOException continued) {
+            logger.debug("Failed to close the selector: {}", continued.getMessage());
+        }
+    }
+
+    // ===================================================================================
+    //                                                                               Close
+    //                                                                               =====
+    /**
+     * Close the engine, the conversations in progress are aborted.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        selector.wakeup();
+        try {
+            loopThread.join(CLOSE_WAIT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ===================================================================================
+    //                                                                        Small Helper
+    //                                                                        ============
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis(); // not business date
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        return "nioEngine:{" + option + (closed ? ", closed" : "") + "}";
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public SMailNioEngineOption getOption() {
+        return option;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.transport;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.mail.Address;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.URLName;
+import javax.mail.internet.InternetAddress;
+
+import com.sun.mail.smtp.SMTPSendFailedException;
+import com.sun.mail.smtp.SMTPTransport;
+
+/**
+ * The SMTP transport that pipelines envelope commands (RFC 2920) if the server advertises PIPELINING. <br>
+ * MAIL FROM and all RCPT TO are written at once and their replies are read together,
+ * so one round trip per message instead of one per recipient.
+ * <pre>
+ * e.g.
+ *  SMailPostalMotorbike motorbike = new SMailPostalMotorbike("sea", "land").useStarttls();
+ *  motorbike.registerConnectionInfo(...);
+ *  motorbike.<span style="color: #CC4747">usePipeliningTransport()</span>;
+ * </pre>
+ * The replies are given to the JavaMail's RCPT handling as they are (replayed),
+ * so partial sending and failure exceptions are same as the plain transport. <br>
+ * The reply per recipient is kept in the recipient reply map until next sending.
+ * (also recorded without PIPELINING extension, one by one)
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailPipeliningTransport extends SMTPTransport {
+
+    // ===================================================================================
+    //                                                                          Definition
+    //                                                                          ==========
+    protected static final String PIPELINING_EXTENSION = "PIPELINING";
+    protected static final String RCPT_COMMAND_PREFIX = "RCPT TO:";
+    protected static final String PIPELINED_DELIMITER = "\r\n"; // last CRLF is added by sendCommand()
+    protected static final int FAKE_RETURN_CODE = 250; // for capturing commands
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    // all are valid only during sendMessage(), guarded by this (sendMessage() is synchronized)
+    protected Address[] sendingAddresses; // null allowed: not sending
+    protected List<String> capturedCommandList; // null allowed: not capturing
+    protected boolean fakeResponsePending; // true if captured command waits for fake reply
+    protected Deque<PipelinedReply> replayDeque; // null allowed: not replaying
+    protected boolean replayPending; // true if swallowed command waits for replayed reply
+    protected boolean rcptResponsePending; // true if plain RCPT command waits for its reply
+    protected int recordedRcptCount;
+    protected Map<String, SMailRecipientReply> recipientReplyMap = Collections.emptyMap(); // not null, keyed by address
+
+    protected static class PipelinedReply {
+
+        protected final int returnCode;
+        protected final String serverResponse;
+
+        public PipelinedReply(int returnCode, String serverResponse) {
+            this.returnCode = returnCode;
+            this.serverResponse = serverResponse;
+        }
+    }
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    public SMailPipeliningTransport(Session session, URLName urlname) { // called by session's provider
+        super(session, urlname);
+    }
+
+    protected SMailPipeliningTransport(Session session, URLName urlname, String name, boolean isSSL) { // for SSL
+        super(session, urlname, name, isSSL);
+    }
+
+    // ===================================================================================
+    //                                                                        Send Message
+    //                                                                        ============
+    @Override
+    public synchronized void sendMessage(Message message, Address[] addresses) throws MessagingException {
+        sendingAddresses = addresses;
+        capturedCommandList = null;
+        fakeResponsePending = false;
+        replayDeque = null;
+        replayPending = false;
+        rcptResponsePending = false;
+        recordedRcptCount = 0;
+        recipientReplyMap = new LinkedHashMap<String, SMailRecipientReply>(addresses != null ? addresses.length : 2);
+        try {
+            super.sendMessage(message, addresses);
+        } finally {
+            sendingAddresses = null;
+            capturedCommandList = null;
+            replayDeque = null;
+        }
+    }
+
+    // ===================================================================================
+    //                                                                   Envelope Commands
+    //                                                                   =================
+    @Override
+    protected void mailFrom() throws MessagingException {
+        if (!isPipeliningAvailable()) {
+            super.mailFrom();
+            return;
+        }
+        capturedCommandList = new ArrayList<String>(sendingAddresses.length + 1);
+        super.mailFrom(); // captured with fake reply, actually written in rcptTo()
+    }
+
+    @Override
+    protected void rcptTo() throws MessagingException {
+        if (capturedCommandList == null) { // not pipelining
+            super.rcptTo();
+            return;
+        }
+        final List<String> commandList;
+        try {
+            super.rcptTo(); // capture RCPT commands with fake replies, the results are overridden by replaying
+        } finally {
+            commandList = capturedCommandList;
+            capturedCommandList = null;
+            fakeResponsePending = false;
+        }
+        final List<PipelinedReply> replyList = writePipelined(commandList);
+        final PipelinedReply mailFromReply = replyList.get(0);
+        if (mailFromReply.returnCode != 250) {
+            handleMailFromFailure(commandList.get(0), mailFromReply);
+        }
+        replayDeque = new ArrayDeque<PipelinedReply>(replyList.subList(1, replyList.size()));
+        try {
+            super.rcptTo(); // same handling as plain transport by replayed replies
+        } finally {
+            replayDeque = null;
+            replayPending = false;
+        }
+    }
+
+    protected List<PipelinedReply> writePipelined(List<String> commandList) throws MessagingException {
+        super.sendCommand(String.join(PIPELINED_DELIMITER, commandList)); // one write and flush
+        final List<PipelinedReply> replyList = new ArrayList<PipelinedReply>(commandList.size());
+        for (int i = 0; i < commandList.size(); i++) { // must read all replies to keep the session in sync
+            final int returnCode = super.readServerResponse();
+            replyList.add(new PipelinedReply(returnCode, getLastServerResponse()));
+        }
+        return replyList;
+    }
+
+    protected void handleMailFromFailure(String mailFromCommand, PipelinedReply mailFromReply) throws MessagingException {
+        // RCPT replies are already read (all are rejected by the server in this case)
+        // so reset the session for next sending as the plain transport does
+        try {
+            simpleCommand("RSET");
+        } catch (MessagingException ignored) { // e.g. already closed by server
+        }
+        throw new SMTPSendFailedException(mailFromCommand, mailFromReply.returnCode, mailFromReply.serverResponse, null, null,
+                sendingAddresses, null);
+    }
+
+    protected boolean isPipeliningAvailable() {
+        return sendingAddresses != null && sendingAddresses.length > 0 && supportsExtension(PIPELINING_EXTENSION);
+    }
+
+    // ===================================================================================
+    //                                                                     Command Control
+    //                                                                     ===============
+    @Override
+    protected void sendCommand(String cmd) throws MessagingException {
+        if (capturedCommandList != null) { // capturing envelope commands
+            capturedCommandList.add(cmd);
+            fakeResponsePending = true;
+            return;
+        }
+        if (replayDeque != null && cmd.startsWith(RCPT_COMMAND_PREFIX)) { // already written
+            replayPending = true;
+            return;
+        }
+        rcptResponsePending = cmd.startsWith(RCPT_COMMAND_PREFIX);
+        super.sendCommand(cmd);
+    }
+
+    @Override
+    protected int readServerResponse() throws MessagingException {
+        if (fakeResponsePending) {
+            fakeResponsePending = false;
+            return FAKE_RETURN_CODE;
+        }
+        if (replayPending) {
+            replayPending = false;
+            final PipelinedReply reply = replayDeque.poll();
+            recordRecipientReply(reply.returnCode, reply.serverResponse);
+            return reply.returnCode;
+        }
+        final int returnCode = super.readServerResponse();
+        if (rcptResponsePending) {
+            rcptResponsePending = false;
+            recordRecipientReply(returnCode, getLastServerResponse());
+        }
+        return returnCode;
+    }
+
+    protected void recordRecipientReply(int returnCode, String serverResponse) {
+        if (sendingAddresses == null || recordedRcptCount >= sendingAddresses.length) { // just in case
+            return;
+        }
+        final Address address = sendingAddresses[recordedRcptCount];
+        ++recordedRcptCount;
+        final String plainAddress = address instanceof InternetAddress ? ((InternetAddress) address).getAddress() : address.toString();
+        recipientReplyMap.put(plainAddress, new SMailRecipientReply(plainAddress, returnCode, serverResponse));
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    /**
+     * Get the map of recipient replies in the last sending.
+     * @return The read-only map of reply keyed by plain address, ordered as recipients. (NotNull, EmptyAllowed)
+     */
+    public synchronized Map<String, SMailRecipientReply> getRecipientReplyMap() {
+        return Collections.unmodifiableMap(recipientReplyMap);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.transport;
+
+import javax.mail.Transport;
+
+/**
+ * The connected transport managed by transport pool. <br>
+ * Borrowed one is used by only one thread until it is returned.
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailPooledTransport {
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final Transport transport; // not null, already connected
+    protected final long createdTimeMillis;
+    protected volatile long lastUsedTimeMillis;
+    protected volatile int sentCount;
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    public SMailPooledTransport(Transport transport, long createdTimeMillis) {
+        if (transport == null) {
+            throw new IllegalArgumentException("The argument 'transport' should not be null.");
+        }
+        this.transport = transport;
+        this.createdTimeMillis = createdTimeMillis;
+        this.lastUsedTimeMillis = createdTimeMillis;
+    }
+
+    // ===================================================================================
+    //                                                                        Pool Control
+    //                                                                        ============
+    public void countSent() { // called by postie after sending
+        ++sentCount;
+    }
+
+    public void markUsed(long currentTimeMillis) { // called by pool when returned
+        lastUsedTimeMillis = currentTimeMillis;
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        return "pooled:{" + transport + ", sent=" + sentCount + "}@" + Integer.toHexString(hashCode());
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public Transport getTransport() {
+        return transport;
+    }
+
+    public long getCreatedTimeMillis() {
+        return createdTimeMillis;
+    }
+
+    public long getLastUsedTimeMillis() {
+        return lastUsedTimeMillis;
+    }
+
+    public int getSentCount() {
+        return sentCount;
+    }
+}
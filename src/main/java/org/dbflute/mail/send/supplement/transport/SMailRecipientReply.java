@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.transport;
+
+/**
+ * The reply of SMTP server for one recipient (RCPT TO command).
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailRecipientReply {
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final String address; // not null, plain address e.g. sea@example.com
+    protected final int returnCode; // e.g. 250, 550, -1 if broken response
+    protected final String serverResponse; // not null, may be empty
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    public SMailRecipientReply(String address, int returnCode, String serverResponse) {
+        if (address == null) {
+            throw new IllegalArgumentException("The argument 'address' should not be null.");
+        }
+        this.address = address;
+        this.returnCode = returnCode;
+        this.serverResponse = serverResponse != null ? serverResponse : "";
+    }
+
+    // ===================================================================================
+    //                                                                          Determiner
+    //                                                                          ==========
+    public boolean isAccepted() { // 251 means forwarded
+        return returnCode == 250 || returnCode == 251;
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        return "reply:{" + address + ", " + returnCode + "}";
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public String getAddress() {
+        return address;
+    }
+
+    public int getReturnCode() {
+        return returnCode;
+    }
+
+    public String getServerResponse() {
+        return serverResponse;
+    }
+}
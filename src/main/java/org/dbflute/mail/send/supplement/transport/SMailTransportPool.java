@@ -0,0 +1,325 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.transport;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+
+import org.dbflute.optional.OptionalThing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The pool of connected SMTP transports, owned by postal motorbike. <br>
+ * It saves TCP connection, EHLO, STARTTLS(SSL) handshake and AUTH per mail.
+ * <pre>
+ * e.g.
+ *  SMailPostalMotorbike motorbike = new SMailPostalMotorbike("sea", "land").useStarttls();
+ *  motorbike.registerConnectionInfo(...);
+ *  motorbike.<span style="color: #CC4747">usePooledTransport</span>(op -&gt; op.maxSize(4).maxMessagesPerConnection(50));
+ * </pre>
+ * If all transports are borrowed, the postie connects per message as before. (after waiting if specified)
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailTransportPool {
+
+    // ===================================================================================
+    //                                                                          Definition
+    //                                                                          ==========
+    private static final Logger logger = LoggerFactory.getLogger(SMailTransportPool.class);
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected final Session session; // not null
+    protected final SMailTransportPoolOption option; // not null
+    protected final Deque<SMailPooledTransport> idleDeque = new ArrayDeque<SMailPooledTransport>(); // first is most recent
+    protected int borrowedCount; // guarded by this
+    protected int connectingCount; // guarded by this, reserved slot for new connection
+    protected boolean closed; // guarded by this
+
+    // ===================================================================================
+    //                                                                         Constructor
+    //                                                                         ===========
+    public SMailTransportPool(Session session, SMailTransportPoolOption option) {
+        assertArgumentNotNull("session", session);
+        assertArgumentNotNull("option", option);
+        this.session = session;
+        this.option = option;
+    }
+
+    // ===================================================================================
+    //                                                                              Borrow
+    //                                                                              ======
+    /**
+     * Borrow the connected transport from the pool. <br>
+     * You should return it by giveBack() or invalidate() in finally clause.
+     * @return The optional pooled transport. (NotNull, EmptyAllowed: when exhausted or closed)
+     * @throws MessagingException When it fails to connect new transport.
+     */
+    public OptionalThing<SMailPooledTransport> borrow() throws MessagingException {
+        final long waitLimitMillis = currentTimeMillis() + option.getBorrowWaitMillis();
+        while (true) {
+            final SMailPooledTransport idle;
+            final List<SMailPooledTransport> expiredList;
+            synchronized (this) {
+                if (closed) {
+                    return emptyPooled();
+                }
+                expiredList = extractExpiredIdle();
+                idle = idleDeque.pollFirst();
+                if (idle != null) {
+                    ++borrowedCount;
+                } else if (countAll() < option.getMaxSize()) {
+                    ++connectingCount; // reserve slot, actually connect outside of lock
+                } else { // exhausted
+                    final long restMillis = waitLimitMillis - currentTimeMillis();
+                    if (restMillis <= 0) {
+                        return emptyPooled(); // connect-per-message by caller
+                    }
+                    try {
+                        wait(restMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return emptyPooled();
+                    }
+                    continue;
+                }
+            }
+            closePhysically(expiredList);
+            if (idle != null) {
+                if (validateIdle(idle)) {
+                    return OptionalThing.of(idle);
+                }
+                invalidate(idle); // retry with other idle or new connection
+                continue;
+            }
+            return OptionalThing.of(connectNewTransport());
+        }
+    }
+
+    protected SMailPooledTransport connectNewTransport() throws MessagingException {
+        boolean success = false;
+        try {
+            final Transport transport = session.getTransport();
+            transport.connect(); // authenticated by session's authenticator
+            final SMailPooledTransport pooled = newPooledTransport(transport, currentTimeMillis());
+            success = true;
+            return pooled;
+        } finally {
+            synchronized (this) {
+                --connectingCount;
+                if (success) {
+                    ++borrowedCount;
+                } else {
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    protected SMailPooledTransport newPooledTransport(Transport transport, long createdTimeMillis) {
+        return new SMailPooledTransport(transport, createdTimeMillis);
+    }
+
+    protected boolean validateIdle(SMailPooledTransport pooled) {
+        if (!option.isValidateOnBorrow()) {
+            return true;
+        }
+        final Transport transport = pooled.getTransport();
+        if (transport instanceof com.sun.mail.smtp.SMTPTransport) {
+            try {
+                return ((com.sun.mail.smtp.SMTPTransport) transport).simpleCommand(option.getValidationCommand()) == 250;
+            } catch (MessagingException | RuntimeException e) { // e.g. closed by server
+                logger.debug("Failed to validate the pooled transport: {}, {}", pooled, e.getMessage());
+                return false;
+            }
+        }
+        return transport.isConnected();
+    }
+
+    // ===================================================================================
+    //                                                                           Give Back
+    //                                                                           =========
+    /**
+     * Return the healthy transport to the pool after sending.
+     * @param pooled The pooled transport borrowed from this pool. (NotNull)
+     */
+    public void giveBack(SMailPooledTransport pooled) {
+        assertArgumentNotNull("pooled", pooled);
+        final boolean retired;
+        final List<SMailPooledTransport> expiredList;
+        synchronized (this) {
+            --borrowedCount;
+            final int maxMessages = option.getMaxMessagesPerConnection();
+            retired = closed || (maxMessages > 0 && pooled.getSentCount() >= maxMessages);
+            if (!retired) {
+                pooled.markUsed(currentTimeMillis());
+                idleDeque.offerFirst(pooled);
+            }
+            expiredList = extractExpiredIdle();
+            notifyAll();
+        }
+        if (retired) {
+            closePhysically(pooled);
+        }
+        closePhysically(expiredList);
+    }
+
+    /**
+     * Close the broken transport and remove it from the pool. (e.g. after sending failure)
+     * @param pooled The pooled transport borrowed from this pool. (NotNull)
+     */
+    public void invalidate(SMailPooledTransport pooled) {
+        assertArgumentNotNull("pooled", pooled);
+        synchronized (this) {
+            --borrowedCount;
+            notifyAll();
+        }
+        closePhysically(pooled);
+    }
+
+    // ===================================================================================
+    //                                                                       Idle Eviction
+    //                                                                       =============
+    /**
+     * Evict the idle transports that are over idle timeout. <br>
+     * Also called in borrowing and returning, but you can call it by your scheduler.
+     */
+    public void evictIdle() {
+        final List<SMailPooledTransport> expiredList;
+        synchronized (this) {
+            expiredList = extractExpiredIdle();
+        }
+        closePhysically(expiredList);
+    }
+
+    protected List<SMailPooledTransport> extractExpiredIdle() { // in lock, close it outside of lock
+        final long idleTimeoutMillis = option.getIdleTimeoutMillis();
+        if (idleTimeoutMillis <= 0 || idleDeque.size() <= option.getMinIdle()) {
+            return Collections.emptyList();
+        }
+        final long currentMillis = currentTimeMillis();
+        List<SMailPooledTransport> expiredList = null;
+        final Iterator<SMailPooledTransport> ite = idleDeque.descendingIterator(); // from oldest
+        while (ite.hasNext() && idleDeque.size() > option.getMinIdle()) {
+            final SMailPooledTransport idle = ite.next();
+            if (currentMillis - idle.getLastUsedTimeMillis() <= idleTimeoutMillis) {
+                break; // rest are newer
+            }
+            ite.remove();
+            if (expiredList == null) {
+                expiredList = new ArrayList<SMailPooledTransport>(2);
+            }
+            expiredList.add(idle);
+        }
+        return expiredList != null ? expiredList : Collections.emptyList();
+    }
+
+    // ===================================================================================
+    //                                                                               Close
+    //                                                                               =====
+    /**
+     * Close all idle transports, and borrowed ones are closed when returned.
+     */
+    public void close() {
+        final List<SMailPooledTransport> idleList;
+        synchronized (this) {
+            closed = true;
+            idleList = new ArrayList<SMailPooledTransport>(idleDeque);
+            idleDeque.clear();
+            notifyAll();
+        }
+        closePhysically(idleList);
+    }
+
+    protected void closePhysically(List<SMailPooledTransport> pooledList) {
+        pooledList.forEach(pooled -> closePhysically(pooled));
+    }
+
+    protected void closePhysically(SMailPooledTransport pooled) {
+        try {
+            pooled.getTransport().close();
+        } catch (MessagingException | RuntimeException continued) {
+            logger.debug("Failed to close the pooled transport: {}, {}", pooled, continued.getMessage());
+        }
+    }
+
+    // ===================================================================================
+    //                                                                        Small Helper
+    //                                                                        ============
+    protected int countAll() { // in lock
+        return idleDeque.size() + borrowedCount + connectingCount;
+    }
+
+    protected OptionalThing<SMailPooledTransport> emptyPooled() {
+        return OptionalThing.ofNullable(null, () -> {
+            throw new IllegalStateException("Not found the pooled transport (exhausted or closed): " + toString());
+        });
+    }
+
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis(); // not business date
+    }
+
+    protected void assertArgumentNotNull(String variableName, Object value) {
+        if (variableName == null) {
+            throw new IllegalArgumentException("The variableName should not be null.");
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("The argument '" + variableName + "' should not be null.");
+        }
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        synchronized (this) {
+            final String closedExp = closed ? ", closed" : "";
+            return "transportPool:{idle=" + idleDeque.size() + ", borrowed=" + borrowedCount + ", " + option + closedExp + "}";
+        }
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public SMailTransportPoolOption getOption() {
+        return option;
+    }
+
+    public synchronized int getIdleCount() {
+        return idleDeque.size();
+    }
+
+    public synchronized int getBorrowedCount() {
+        return borrowedCount;
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+}
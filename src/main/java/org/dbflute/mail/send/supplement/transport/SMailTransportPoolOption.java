@@ -0,0 +1,133 @@
+/*
+ * Copyright 2015-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.dbflute.mail.send.supplement.transport;
+
+/**
+ * @author jflute
+ * @since 0.6.6 (2026/10/17 Saturday)
+ */
+public class SMailTransportPoolOption {
+
+    // ===================================================================================
+    //                                                                           Attribute
+    //                                                                           =========
+    protected int maxSize = 8; // positive, includes borrowed transports
+    protected int minIdle; // not negative, kept when idle eviction
+    protected long idleTimeoutMillis = 60000L; // zero means no eviction (but server may close it)
+    protected int maxMessagesPerConnection = 100; // zero means unlimited
+    protected long borrowWaitMillis; // zero means no wait, connect-per-message when exhausted
+    protected boolean validateOnBorrow = true;
+    protected String validationCommand = "NOOP"; // or RSET
+
+    // ===================================================================================
+    //                                                                              Option
+    //                                                                              ======
+    public SMailTransportPoolOption maxSize(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("The argument 'maxSize' should be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        return this;
+    }
+
+    public SMailTransportPoolOption minIdle(int minIdle) {
+        if (minIdle < 0) {
+            throw new IllegalArgumentException("The argument 'minIdle' should not be minus: " + minIdle);
+        }
+        this.minIdle = minIdle;
+        return this;
+    }
+
+    public SMailTransportPoolOption idleTimeoutMillis(long idleTimeoutMillis) {
+        if (idleTimeoutMillis < 0) {
+            throw new IllegalArgumentException("The argument 'idleTimeoutMillis' should not be minus: " + idleTimeoutMillis);
+        }
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        return this;
+    }
+
+    public SMailTransportPoolOption maxMessagesPerConnection(int maxMessagesPerConnection) {
+        if (maxMessagesPerConnection < 0) {
+            String msg = "The argument 'maxMessagesPerConnection' should not be minus: " + maxMessagesPerConnection;
+            throw new IllegalArgumentException(msg);
+        }
+        this.maxMessagesPerConnection = maxMessagesPerConnection;
+        return this;
+    }
+
+    public SMailTransportPoolOption borrowWaitMillis(long borrowWaitMillis) {
+        if (borrowWaitMillis < 0) {
+            throw new IllegalArgumentException("The argument 'borrowWaitMillis' should not be minus: " + borrowWaitMillis);
+        }
+        this.borrowWaitMillis = borrowWaitMillis;
+        return this;
+    }
+
+    public SMailTransportPoolOption suppressValidation() {
+        validateOnBorrow = false;
+        return this;
+    }
+
+    public SMailTransportPoolOption validateByRset() { // for server that does not like NOOP
+        validationCommand = "RSET";
+        return this;
+    }
+
+    // ===================================================================================
+    //                                                                      Basic Override
+    //                                                                      ==============
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("poolOption:{max=").append(maxSize).append(", minIdle=").append(minIdle);
+        sb.append(", idleTimeout=").append(idleTimeoutMillis).append(", maxMessages=").append(maxMessagesPerConnection);
+        sb.append(", borrowWait=").append(borrowWaitMillis);
+        sb.append(", validation=").append(validateOnBorrow ? validationCommand : "none");
+        sb.append("}");
+        return sb.toString();
+    }
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getMinIdle() {
+        return minIdle;
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    public int getMaxMessagesPerConnection() {
+        return maxMessagesPerConnection;
+    }
+
+    public long getBorrowWaitMillis() {
+        return borrowWaitMillis;
+    }
+
+    public boolean isValidateOnBorrow() {
+        return validateOnBorrow;
+    }
+
+    public String getValidationCommand() {
+        return validationCommand;
+    }
+}
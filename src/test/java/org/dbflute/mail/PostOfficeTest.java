@@ -16,9 +16,12 @@
 package org.dbflute.mail;
 
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 import javax.mail.internet.AddressException;
 
@@ -30,6 +33,7 @@ import org.dbflute.mail.send.SMailPostalParkingLot;
 import org.dbflute.mail.send.SMailPostalPersonnel;
 import org.dbflute.mail.send.embedded.personnel.SMailDogmaticPostalPersonnel;
 import org.dbflute.mail.send.exception.SMailTemplateNotFoundException;
+import org.dbflute.twowaysql.exception.EmbeddedVariableCommentParameterNullValueException;
 import org.dbflute.utflute.core.PlainTestCase;
 import org.dbflute.util.DfResourceUtil;
 import org.dbflute.util.Srl;
@@ -97,6 +101,41 @@ public class PostOfficeTest extends PlainTestCase {
         doAssertParameter(postcard, map, "Welcome to your test code reading, jflute", true);
     }
 
+    public void test_deliver_bodyFile_optionPlusHtml_parallelRendering() throws Exception {
+        // ## Arrange ##
+        Postcard postcard = new Postcard();
+        prepareMockAddress(postcard);
+        Map<String, Object> map = prepareVariableMap();
+        postcard.useBodyFile(OPTION_HTMLEXISTS_ML).useTemplateText(map);
+        Set<String> threadNameSet = new HashSet<String>();
+        PostOffice office = prepareOffice().asParallelRendering(runnable -> {
+            Thread thread = new Thread(() -> {
+                threadNameSet.add(Thread.currentThread().getName());
+                runnable.run();
+            }, "parallel-rendering");
+            thread.start();
+        });
+
+        // ## Act ##
+        office.deliver(postcard);
+
+        // ## Assert ##
+        doAssertParameter(postcard, map, "Welcome to your test code reading, jflute", true);
+        assertEquals(new HashSet<String>(Arrays.asList("parallel-rendering")), threadNameSet);
+    }
+
+    public void test_deliver_bodyFile_optionPlusHtml_parallelRendering_failure() throws Exception {
+        // ## Arrange ##
+        Postcard postcard = new Postcard();
+        prepareMockAddress(postcard);
+        postcard.useBodyFile(OPTION_HTMLEXISTS_ML).useTemplateText(prepareVariableMap(null));
+        PostOffice office = prepareOffice().asParallelRendering();
+
+        // ## Act ##
+        // ## Assert ##
+        assertException(EmbeddedVariableCommentParameterNullValueException.class, () -> office.deliver(postcard));
+    }
+
     public void test_deliver_bodyFile_optionPlusHtml_noFile() throws Exception {
         // ## Arrange ##
         PostOffice office = prepareOffice();
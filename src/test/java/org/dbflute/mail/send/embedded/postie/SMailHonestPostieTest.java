@@ -0,0 +1,208 @@
+package org.dbflute.mail.send.embedded.postie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.dbflute.mail.PostOffice;
+import org.dbflute.mail.CardView;
+import org.dbflute.mail.Postcard;
+import org.dbflute.mail.send.SMailAddress;
+import org.dbflute.mail.send.SMailDeliveryDepartment;
+import org.dbflute.mail.send.SMailPostalMotorbike;
+import org.dbflute.mail.send.SMailPostalParkingLot;
+import org.dbflute.mail.send.SMailPostie;
+import org.dbflute.mail.send.embedded.personnel.SMailDogmaticPostalPersonnel;
+import org.dbflute.mail.send.exception.SMailTransportFailureException;
+import org.dbflute.mail.send.supplement.SMailPostingDiscloser;
+import org.dbflute.mail.send.supplement.header.SMailMailHeaderStrategy;
+import org.dbflute.mail.send.supplement.logging.SMailLoggingStrategy;
+import org.dbflute.mail.send.supplement.transport.SMailFakeSmtpServer;
+import org.dbflute.optional.OptionalThing;
+import org.dbflute.utflute.core.PlainTestCase;
+
+/**
+ * @author jflute
+ */
+public class SMailHonestPostieTest extends PlainTestCase {
+
+    // ===================================================================================
+    //                                                                       Send Together
+    //                                                                       =============
+    public void test_deliverTogether_resetAfterFailure() throws Exception {
+        // ## Arrange ##
+        try (SMailFakeSmtpServer server = new SMailFakeSmtpServer(false)) {
+            List<Object> finallyList = new ArrayList<Object>();
+            PostOffice postOffice = preparePostOffice(server, createRecordingPersonnel(finallyList, new ArrayList<Integer>()));
+            List<Postcard> postcardList = new ArrayList<Postcard>();
+            postcardList.add(createPostcard("sea@example.com", "sea"));
+            postcardList.add(createPostcard("bad@example.com", "bad"));
+            postcardList.add(createPostcard("land@example.com", "land"));
+
+            // ## Act ##
+            // ## Assert ##
+            assertException(SMailTransportFailureException.class, () -> postOffice.deliverTogether(postcardList)).handle(cause -> {
+                assertContains(cause.getMessage(), "bad@example.com"); // thrown after all sent
+            });
+            List<String> receivedList = server.getReceivedList();
+            log(receivedList);
+            assertEquals(1, receivedList.stream().filter(command -> command.startsWith("EHLO")).count()); // one session
+            int badIndex = receivedList.indexOf("RCPT TO:<bad@example.com>");
+            assertTrue(receivedList.subList(badIndex, receivedList.size()).contains("RSET"));
+            assertEquals(2, server.getDataList().size());
+            assertEquals(Arrays.asList(postcardList.get(0), "ok", postcardList.get(1), "failure", postcardList.get(2), "ok"),
+                    finallyList); // per message
+        }
+    }
+
+    public void test_deliverTogether_reconnectIfBroken() throws Exception {
+        // ## Arrange ##
+        try (SMailFakeSmtpServer server = new SMailFakeSmtpServer(false)) {
+            List<Object> finallyList = new ArrayList<Object>();
+            PostOffice postOffice = preparePostOffice(server, createRecordingPersonnel(finallyList, new ArrayList<Integer>()));
+            List<Postcard> postcardList = new ArrayList<Postcard>();
+            postcardList.add(createPostcard("sea@example.com", "sea"));
+            postcardList.add(createPostcard("drop@example.com", "drop").suppressSendFailure());
+            postcardList.add(createPostcard("land@example.com", "land"));
+
+            // ## Act ##
+            postOffice.deliverTogether(postcardList);
+
+            // ## Assert ##
+            List<String> receivedList = server.getReceivedList();
+            log(receivedList);
+            assertEquals(2, receivedList.stream().filter(command -> command.startsWith("EHLO")).count()); // reconnected
+            assertEquals(2, server.getDataList().size());
+            assertContains(server.getDataList().get(1), "land");
+            assertEquals(Arrays.asList(postcardList.get(0), "ok", postcardList.get(1), "failure", postcardList.get(2), "ok"),
+                    finallyList);
+        }
+    }
+
+    public void test_deliverTogether_retry_sameCountAsNormal() throws Exception {
+        // ## Arrange ##
+        try (SMailFakeSmtpServer server = new SMailFakeSmtpServer(false)) {
+            List<Object> finallyList = new ArrayList<Object>();
+            List<Integer> retrySuccessList = new ArrayList<Integer>();
+            PostOffice postOffice = preparePostOffice(server, createRecordingPersonnel(finallyList, retrySuccessList));
+            List<Postcard> postcardList = new ArrayList<Postcard>();
+            postcardList.add(createPostcard("bad@example.com", "bad").retry(1, 1L).suppressSendFailure());
+            postcardList.add(createPostcard("once@example.com", "once").retry(2, 1L));
+
+            // ## Act ##
+            postOffice.deliverTogether(postcardList);
+
+            // ## Assert ##
+            List<String> receivedList = server.getReceivedList();
+            log(receivedList, retrySuccessList);
+            assertEquals(2, receivedList.stream().filter(command -> command.equals("RCPT TO:<bad@example.com>")).count()); // together + 1
+            assertEquals(2, receivedList.stream().filter(command -> command.equals("RCPT TO:<once@example.com>")).count());
+            assertEquals(Arrays.asList(1), retrySuccessList); // once only, the together failure is first challenge
+            assertEquals(Arrays.asList(postcardList.get(0), "failure", postcardList.get(1), "ok"), finallyList);
+        }
+    }
+
+    // ===================================================================================
+    //                                                                   Coalesce Envelope
+    //                                                                   =================
+    public void test_deliverTogether_coalesced() throws Exception {
+        // ## Arrange ##
+        try (SMailFakeSmtpServer server = new SMailFakeSmtpServer(true)) {
+            PostOffice postOffice = preparePostOffice(server, new SMailDogmaticPostalPersonnel().useEnvelopeCoalescing(2));
+            List<Postcard> postcardList = new ArrayList<Postcard>();
+            postcardList.add(createPostcard("sea@example.com", "announcement"));
+            postcardList.add(createPostcard("land@example.com", "announcement"));
+            postcardList.add(createPostcard("piari@example.com", "other text"));
+            postcardList.add(createPostcard("bonvo@example.com", "announcement")); // over max recipients
+
+            // ## Act ##
+            postOffice.deliverTogether(postcardList);
+
+            // ## Assert ##
+            List<String> receivedList = server.getReceivedList();
+            log(receivedList);
+            assertEquals(3, server.getDataList().size());
+            assertEquals(3, receivedList.stream().filter(command -> command.startsWith("MAIL FROM")).count());
+            assertEquals(4, receivedList.stream().filter(command -> command.startsWith("RCPT TO")).count());
+            String coalescedData = server.getDataList().get(0);
+            assertContains(coalescedData, "To: undisclosed-recipients:;");
+            assertContains(coalescedData, "Subject: Dockside News");
+            assertFalse(coalescedData.contains("sea@example.com"));
+        }
+    }
+
+    public void test_deliverTogether_coalesced_differentCharset() throws Exception {
+        // ## Arrange ##
+        SMailDogmaticPostalPersonnel personnel = new SMailDogmaticPostalPersonnel() {
+            @Override
+            protected OptionalThing<SMailMailHeaderStrategy> createMailHeaderStrategy() {
+                return OptionalThing.of(new SMailMailHeaderStrategy() {
+                    public OptionalThing<String> getTextEncoding(CardView view) {
+                        boolean land = view.getToList().get(0).getAddress().startsWith("land");
+                        return land ? OptionalThing.of("ISO-2022-JP") : OptionalThing.empty();
+                    }
+                });
+            }
+        }.useEnvelopeCoalescing(3);
+        try (SMailFakeSmtpServer server = new SMailFakeSmtpServer(true)) {
+            PostOffice postOffice = preparePostOffice(server, personnel);
+            List<Postcard> postcardList = new ArrayList<Postcard>();
+            postcardList.add(createPostcard("sea@example.com", "announcement"));
+            postcardList.add(createPostcard("land@example.com", "announcement")); // other charset
+            postcardList.add(createPostcard("piari@example.com", "announcement"));
+
+            // ## Act ##
+            postOffice.deliverTogether(postcardList);
+
+            // ## Assert ##
+            List<String> dataList = server.getDataList();
+            log(dataList);
+            assertEquals(2, dataList.size()); // not merged into first encoding
+            assertEquals(1, dataList.stream().filter(data -> data.contains("ISO-2022-JP")).count());
+        }
+    }
+
+    // ===================================================================================
+    //                                                                         Test Helper
+    //                                                                         ===========
+    protected PostOffice preparePostOffice(SMailFakeSmtpServer server, SMailDogmaticPostalPersonnel personnel) {
+        SMailPostalMotorbike motorbike = new SMailPostalMotorbike();
+        motorbike.registerConnectionInfo("localhost", server.getPort());
+        SMailPostalParkingLot parkingLot = new SMailPostalParkingLot();
+        parkingLot.registerMotorbikeAsMain(motorbike);
+        return new PostOffice(new SMailDeliveryDepartment(parkingLot, personnel));
+    }
+
+    protected SMailDogmaticPostalPersonnel createRecordingPersonnel(List<Object> finallyList, List<Integer> retrySuccessList) {
+        SMailLoggingStrategy recordingStrategy = new SMailLoggingStrategy() {
+            public void logMailBefore(CardView view, SMailPostingDiscloser discloser) {
+            }
+
+            public void logMailFinally(CardView view, SMailPostingDiscloser discloser, OptionalThing<Exception> cause) {
+                finallyList.add(view);
+                finallyList.add(cause.isPresent() ? "failure" : "ok");
+            }
+
+            public void logRetrySuccess(CardView view, SMailPostingDiscloser discloser, int challengeCount, Exception firstCause) {
+                retrySuccessList.add(challengeCount);
+            }
+
+            public void logSuppressedCause(CardView view, SMailPostingDiscloser discloser, Exception suppressedCause) {
+            }
+        };
+        return new SMailDogmaticPostalPersonnel() {
+            @Override
+            public SMailPostie selectPostie(Postcard postcard, SMailPostalMotorbike motorbike) {
+                return ((SMailHonestPostie) super.selectPostie(postcard, motorbike)).withLoggingStrategy(recordingStrategy);
+            }
+        };
+    }
+
+    protected Postcard createPostcard(String to, String body) {
+        Postcard postcard = new Postcard();
+        postcard.setFrom(new SMailAddress("office@example.com", null));
+        postcard.addTo(new SMailAddress(to, null));
+        postcard.useDirectBody(body).useWholeFixedText().forcedlyDirect("Dockside News");
+        return postcard;
+    }
+}
@@ -0,0 +1,107 @@
+package org.dbflute.mail.send.embedded.postie;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.mail.AuthenticationFailedException;
+import javax.mail.Message.RecipientType;
+import javax.mail.MessagingException;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+import org.dbflute.mail.Postcard;
+import org.dbflute.mail.send.SMailPostalMotorbike;
+import org.dbflute.mail.send.supplement.transport.SMailNioEnvelope;
+import org.dbflute.mail.send.supplement.transport.SMailNioSmtpEngine;
+import org.dbflute.utflute.core.PlainTestCase;
+
+/**
+ * @author jflute
+ */
+public class SMailNioPostieTest extends PlainTestCase {
+
+    // ===================================================================================
+    //                                                                       NIO Available
+    //                                                                       =============
+    public void test_isNioAvailable_securedOrProxy() throws Exception {
+        try (SMailNioSmtpEngine engine = new SMailNioSmtpEngine(op -> {})) {
+            assertTrue(createPostie(prepareMotorbike(), engine).isNioAvailable(new Postcard()));
+
+            SMailPostalMotorbike sslDisabled = prepareMotorbike();
+            sslDisabled.setProperty("mail.smtp.ssl.enable", "false");
+            assertTrue(createPostie(sslDisabled, engine).isNioAvailable(new Postcard()));
+
+            SMailPostalMotorbike sslEnabled = prepareMotorbike();
+            sslEnabled.setProperty("mail.smtp.ssl.enable", "true");
+            assertFalse(createPostie(sslEnabled, engine).isNioAvailable(new Postcard()));
+
+            SMailPostalMotorbike proxy = prepareMotorbike();
+            proxy.registerProxy("proxy.example.com", "1080");
+            assertFalse(createPostie(proxy, engine).isNioAvailable(new Postcard()));
+
+            SMailPostalMotorbike starttls = new SMailPostalMotorbike("sea", "land").useStarttls();
+            starttls.registerConnectionInfo("localhost", 25);
+            assertFalse(createPostie(starttls, engine).isNioAvailable(new Postcard()));
+
+            SMailPostalMotorbike ssl = new SMailPostalMotorbike("sea", "land").useSsl();
+            ssl.registerConnectionInfo("localhost", 465);
+            assertFalse(createPostie(ssl, engine).isNioAvailable(new Postcard()));
+        }
+    }
+
+    // ===================================================================================
+    //                                                                            Envelope
+    //                                                                            ========
+    public void test_createEnvelope_authOnlyIfEnabled() throws Exception {
+        try (SMailNioSmtpEngine engine = new SMailNioSmtpEngine(op -> {})) {
+            // ## Arrange ##
+            SMailPostalMotorbike motorbike = new SMailPostalMotorbike("sea", "land");
+            motorbike.registerConnectionInfo("localhost", 25);
+            SMailNioPostie postie = createPostie(motorbike, engine);
+
+            // ## Act ##
+            SMailNioEnvelope noAuth = postie.createEnvelope(prepareMessage(motorbike));
+            motorbike.setProperty("mail.smtp.auth", "true");
+            SMailNioEnvelope withAuth = postie.createEnvelope(prepareMessage(motorbike));
+
+            // ## Assert ##
+            assertFalse(noAuth.hasAuth()); // authenticator only is not enough, same as JavaMail
+            assertTrue(withAuth.hasAuth());
+            assertEquals("sea", withAuth.getAuthUser());
+        }
+    }
+
+    // ===================================================================================
+    //                                                                               Retry
+    //                                                                               =====
+    public void test_isNoMoreNioRetry_authNotAdvertised() throws Exception {
+        try (SMailNioSmtpEngine engine = new SMailNioSmtpEngine(op -> {})) {
+            SMailNioPostie postie = createPostie(prepareMotorbike(), engine);
+            assertTrue(postie.isNoMoreNioRetry(new AuthenticationFailedException("Not advertised AUTH PLAIN")));
+            assertFalse(postie.isNoMoreNioRetry(new MessagingException("Connection closed")));
+        }
+    }
+
+    // ===================================================================================
+    //                                                                         Test Helper
+    //                                                                         ===========
+    protected SMailPostalMotorbike prepareMotorbike() {
+        SMailPostalMotorbike motorbike = new SMailPostalMotorbike();
+        motorbike.registerConnectionInfo("localhost", 25);
+        return motorbike;
+    }
+
+    protected SMailNioPostie createPostie(SMailPostalMotorbike motorbike, SMailNioSmtpEngine engine) {
+        return new SMailNioPostie(motorbike, engine);
+    }
+
+    protected SMailPostingMessage prepareMessage(SMailPostalMotorbike motorbike) throws Exception {
+        MimeMessage message = new MimeMessage(motorbike.getNativeSession());
+        message.setFrom(new InternetAddress("office@example.com"));
+        message.addRecipient(RecipientType.TO, new InternetAddress("land@example.com"));
+        message.setSubject("nio");
+        message.setText("hello");
+        Map<String, Map<String, Object>> officeManagedLoggingMap = new HashMap<String, Map<String, Object>>();
+        return new SMailPostingMessage(message, motorbike, false, new HashMap<String, Object>(), officeManagedLoggingMap);
+    }
+}
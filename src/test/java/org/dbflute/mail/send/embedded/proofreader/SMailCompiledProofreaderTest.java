@@ -0,0 +1,266 @@
+package org.dbflute.mail.send.embedded.proofreader;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.dbflute.mail.send.SMailMergeProofreading;
+import org.dbflute.mail.send.supplement.body.SMailEncodedTextBuffer;
+import org.dbflute.mail.send.supplement.template.SMailCompiledTemplate;
+import org.dbflute.mail.send.supplement.template.SMailLiteralSegment;
+import org.dbflute.mail.send.supplement.template.SMailSpecializingContext;
+import org.dbflute.optional.OptionalThing;
+import org.dbflute.utflute.core.PlainTestCase;
+
+/**
+ * @author jflute
+ */
+public class SMailCompiledProofreaderTest extends PlainTestCase {
+
+    // ===================================================================================
+    //                                                                         Equivalence
+    //                                                                         ===========
+    public void test_proofread_sameAsPmComment() {
+        // ## Arrange ##
+        SMailPmCommentProofreader expectedReader = new SMailPmCommentProofreader();
+        SMailCompiledProofreader compiledReader = new SMailCompiledProofreader();
+        List<String> templateList = Arrays.asList( //
+                "Hello, /*pmb.sea*/ world", //
+                "no variable\r\nline", //
+                "a /*pmb.sea*/'dummy' b /*pmb.num*/'0' c /*pmb.sea*/dummy", //
+                "x /*pmb.land:orElse('none')*/ y /*pmb.date:formatAs('yyyy/MM/dd')*/ z /*pmb.num:formatAs('000')*/", //
+                "/*IF pmb.land != null*/land: /*pmb.land*/\n/*END*/after", //
+                "  /*IF pmb.num > 3*/\nbig\n  /*END*/\nend", //
+                "/*IF pmb.sea == 'mystic'*/M/*END*/", //
+                "/*FOR pmb.productList*/- /*#current.name*/ (/*#current.price*/)\n/*END*/", //
+                "/*FOR pmb.productList*/\n/*IF #current.price > 100*/\nexpensive /*#current.name*/\n/*END*/\n/*END*/\nbye", //
+                "[/*FOR pmb.stringList*//*FIRST*/{/*END*//*NEXT ', '*//*#current*//*LAST*/}/*END*//*END*/]", //
+                "/*FOR pmb.emptyList*/never/*END*/ /* plain comment */ -- not line comment", //
+                "/*FOR pmb.nestedList*/(/*FOR #current*//*#current*//*END*/)/*END*/", //
+                "/*BEGIN*/unsupported/*END*/ /*pmb.sea*/");
+        Map<String, Object> variableMap = prepareVariableMap();
+
+        for (String templateText : templateList) {
+            // ## Act ##
+            String expected = expectedReader.proofread(templateText, variableMap);
+            String actual = compiledReader.proofread(templateText, variableMap);
+
+            // ## Assert ##
+            log(templateText, actual);
+            assertEquals(expected, actual);
+            assertEquals(!templateText.contains("BEGIN"), compiledReader.compiledCacheMap.get(templateText).isPresent());
+        }
+        assertEquals(templateList.size(), compiledReader.compiledCacheMap.size());
+        assertFalse(compiledReader.compiledCacheMap.get("/*BEGIN*/unsupported/*END*/ /*pmb.sea*/").isPresent());
+    }
+
+    public void test_proofread_sameException() {
+        // ## Arrange ##
+        SMailPmCommentProofreader expectedReader = new SMailPmCommentProofreader();
+        SMailCompiledProofreader compiledReader = new SMailCompiledProofreader();
+        List<String> templateList = Arrays.asList("a /*pmb.land*/ b", "a /*pmb.none*/ b", "/*FOR pmb.sea*/x/*END*/",
+                "/*IF pmb.none*/x/*END*/");
+        Map<String, Object> variableMap = prepareVariableMap();
+
+        for (String templateText : templateList) {
+            // ## Act ##
+            RuntimeException expected = null;
+            try {
+                expectedReader.proofread(templateText, variableMap);
+            } catch (RuntimeException e) {
+                expected = e;
+            }
+            RuntimeException actual = null;
+            try {
+                compiledReader.proofread(templateText, variableMap);
+            } catch (RuntimeException e) {
+                actual = e;
+            }
+
+            // ## Assert ##
+            assertNotNull(expected);
+            assertNotNull(actual);
+            assertEquals(expected.getClass(), actual.getClass());
+        }
+    }
+
+    // ===================================================================================
+    //                                                                     Compiled Shared
+    //                                                                     ===============
+    public void test_proofread_compiledShared() {
+        // ## Arrange ##
+        SMailCompiledProofreader compiledReader = new SMailCompiledProofreader();
+        String templateText = "Hello, /*pmb.sea*/";
+
+        // ## Act ##
+        String first = compiledReader.proofread(templateText, prepareVariableMap());
+        OptionalThing<SMailCompiledTemplate> compiled = compiledReader.compiledCacheMap.get(templateText);
+        Map<String, Object> secondMap = prepareVariableMap();
+        secondMap.put("sea", "bonvo");
+        String second = compiledReader.proofread(templateText, secondMap);
+
+        // ## Assert ##
+        assertEquals("Hello, mystic", first);
+        assertEquals("Hello, bonvo", second);
+        assertSame(compiled, compiledReader.compiledCacheMap.get(templateText));
+        log(compiled.get().getSegmentList());
+        assertEquals(2, compiled.get().getSegmentList().size()); // literal and variable
+    }
+
+    // ===================================================================================
+    //                                                                          Mail Merge
+    //                                                                          ==========
+    public void test_prepareMerge_sameAsWhole() {
+        // ## Arrange ##
+        SMailCompiledProofreader compiledReader = new SMailCompiledProofreader();
+        String templateText = "Hello, /*pmb.memberName*/ from /*pmb.sea*/\n/*IF pmb.num > 3*/big: /*pmb.num*/\n/*END*/" //
+                + "/*IF pmb.memberName != null && pmb.num > 3*/both\n/*END*/" //
+                + "/*FOR pmb.productList*/- /*#current.name*/\n/*END*/bye /*pmb.date:formatAs('yyyy/MM/dd')*/";
+        Map<String, Object> sharedMap = prepareVariableMap();
+
+        // ## Act ##
+        SMailMergeProofreading proofreading = compiledReader.prepareMerge(templateText, sharedMap);
+
+        // ## Assert ##
+        SMailPmCommentProofreader expectedReader = new SMailPmCommentProofreader();
+        for (String memberName : Arrays.asList("dstore", "amba", "miraco")) {
+            Map<String, Object> recipientMap = new HashMap<String, Object>();
+            recipientMap.put("memberName", memberName);
+            String actual = proofreading.proofread(recipientMap);
+            log(actual);
+            assertEquals(expectedReader.proofread(templateText, SMailMergeProofreading.mergeVariableMap(sharedMap, recipientMap)), actual);
+        }
+        SMailCompiledTemplate compiled = compiledReader.compiledCacheMap.get(templateText).get();
+        SMailSpecializingContext ctx = new SMailSpecializingContext(compiledReader.toMapPmb(sharedMap), sharedMap.keySet());
+        SMailCompiledTemplate residual = compiled.specialize(ctx);
+        log(compiled.getSegmentList(), residual.getSegmentList());
+        assertEquals(6, residual.getSegmentList().size()); // literal, member, literal, IF(both), FOR, literal
+        assertTrue(residual.getSegmentList().get(0) instanceof SMailLiteralSegment);
+    }
+
+    public void test_prepareMerge_sharedNameConflict() {
+        // ## Arrange ##
+        SMailMergeProofreading proofreading = new SMailCompiledProofreader().prepareMerge("/*pmb.sea*/", prepareVariableMap());
+        Map<String, Object> recipientMap = new HashMap<String, Object>();
+        recipientMap.put("sea", "bonvo");
+
+        // ## Act ##
+        // ## Assert ##
+        assertException(IllegalArgumentException.class, () -> proofreading.proofread(recipientMap));
+    }
+
+    public void test_prepareMerge_default() {
+        // ## Arrange ##
+        SMailPmCommentProofreader proofreader = new SMailPmCommentProofreader();
+        SMailMergeProofreading proofreading = proofreader.prepareMerge("/*pmb.sea*/ /*pmb.land*/", prepareVariableMap());
+        Map<String, Object> recipientMap = new HashMap<String, Object>();
+        recipientMap.put("memberName", "dstore"); // not used
+
+        // ## Act ##
+        // ## Assert ##
+        assertException(RuntimeException.class, () -> proofreading.proofread(recipientMap)); // land is null
+        Map<String, Object> sharedMap = prepareVariableMap();
+        sharedMap.remove("land");
+        recipientMap.put("land", "oneman");
+        assertEquals("mystic oneman", proofreader.prepareMerge("/*pmb.sea*/ /*pmb.land*/", sharedMap).proofread(recipientMap));
+    }
+
+    // ===================================================================================
+    //                                                                           Streaming
+    //                                                                           =========
+    public void test_proofread_writer_streaming() throws Exception {
+        // ## Arrange ##
+        SMailCompiledProofreader compiledReader = new SMailCompiledProofreader();
+        String templateText = "Statement of /*pmb.sea*/\n/*FOR pmb.productList*/- /*#current.name*/ (/*#current.price*/)\n/*END*/bye";
+        Map<String, Object> variableMap = prepareVariableMap();
+        List<MockProduct> productList = new ArrayList<MockProduct>();
+        for (int i = 0; i < 5000; i++) {
+            productList.add(new MockProduct("product" + i, i));
+        }
+        variableMap.put("productList", productList);
+        List<Integer> writtenList = new ArrayList<Integer>();
+        StringWriter writer = new StringWriter() {
+            @Override
+            public void write(char[] cbuf, int off, int len) {
+                writtenList.add(len);
+                super.write(cbuf, off, len);
+            }
+        };
+
+        // ## Act ##
+        compiledReader.proofread(templateText, variableMap, writer);
+
+        // ## Assert ##
+        String expected = new SMailPmCommentProofreader().proofread(templateText, variableMap);
+        assertEquals(expected, writer.toString());
+        log(writtenList.size(), expected.length());
+        assertTrue(writtenList.size() > 1); // by chunks
+        for (Integer written : writtenList) {
+            assertTrue(written < SMailCompiledTemplate.DEFAULT_FLUSH_THRESHOLD * 2);
+        }
+    }
+
+    public void test_proofread_writer_failure_nothingWritten() throws Exception {
+        // ## Arrange ##
+        SMailCompiledProofreader compiledReader = new SMailCompiledProofreader();
+        String templateText = "Hello, /*pmb.sea*/\n/*FOR pmb.productList*/- /*#current.name*/\n/*END*/by /*pmb.land*/";
+        Map<String, Object> variableMap = prepareVariableMap();
+        List<MockProduct> productList = new ArrayList<MockProduct>();
+        for (int i = 0; i < 5000; i++) { // over flush threshold before failure
+            productList.add(new MockProduct("product" + i, i));
+        }
+        variableMap.put("productList", productList);
+        SMailEncodedTextBuffer buffer = new SMailEncodedTextBuffer(StandardCharsets.UTF_8, 64);
+
+        // ## Act ##
+        try {
+            compiledReader.proofread(templateText, variableMap, buffer); // land is null
+            fail();
+        } catch (RuntimeException e) {
+            log(e.getMessage());
+        }
+
+        // ## Assert ##
+        assertEquals(0L, buffer.size()); // no partial text
+    }
+
+    // ===================================================================================
+    //                                                                         Test Helper
+    //                                                                         ===========
+    protected Map<String, Object> prepareVariableMap() {
+        Map<String, Object> variableMap = new HashMap<String, Object>();
+        variableMap.put("sea", "mystic");
+        variableMap.put("land", null);
+        variableMap.put("num", 7);
+        variableMap.put("date", LocalDate.of(2026, 10, 17));
+        variableMap.put("productList", Arrays.asList(new MockProduct("piari", 80), new MockProduct("bonvo", 300)));
+        variableMap.put("stringList", Arrays.asList("dstore", "amba", "miraco"));
+        variableMap.put("emptyList", new ArrayList<String>());
+        variableMap.put("nestedList", Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("c")));
+        return variableMap;
+    }
+
+    public static class MockProduct {
+
+        protected final String name;
+        protected final int price;
+
+        public MockProduct(String name, int price) {
+            this.name = name;
+            this.price = price;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getPrice() {
+            return price;
+        }
+    }
+}
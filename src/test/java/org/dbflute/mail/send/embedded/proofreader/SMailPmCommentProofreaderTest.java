@@ -0,0 +1,267 @@
+package org.dbflute.mail.send.embedded.proofreader;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.dbflute.mail.send.supplement.template.SMailValueOption;
+import org.dbflute.twowaysql.node.BoundValue;
+import org.dbflute.twowaysql.node.Node;
+import org.dbflute.utflute.core.PlainTestCase;
+import org.dbflute.util.Srl;
+
+/**
+ * @author jflute
+ */
+public class SMailPmCommentProofreaderTest extends PlainTestCase {
+
+    // ===================================================================================
+    //                                                                          Node Cache
+    //                                                                          ==========
+    public void test_proofread_nodeCache_reused() {
+        // ## Arrange ##
+        SMailPmCommentProofreader proofreader = new SMailPmCommentProofreader();
+        String templateText = "Hello, /*pmb.sea*/\n/*IF pmb.land != null*/land: /*pmb.land*/\n/*END*/bye";
+
+        // ## Act ##
+        String first = proofreader.proofread(templateText, prepareVariableMap("mystic", "oneman"));
+        Node cached = proofreader.nodeCacheMap.get(templateText);
+        String second = proofreader.proofread(new String(templateText), prepareVariableMap("bonvo", null));
+
+        // ## Assert ##
+        log(first, second, proofreader);
+        assertEquals("Hello, mystic\nland: oneman\nbye", first);
+        assertEquals("Hello, bonvo\nbye", second);
+        assertNotNull(cached);
+        assertSame(cached, proofreader.nodeCacheMap.get(templateText)); // by content
+        assertEquals(1, proofreader.nodeCacheMap.size());
+    }
+
+    public void test_proofread_nodeCache_limit() {
+        // ## Arrange ##
+        SMailPmCommentProofreader proofreader = new SMailPmCommentProofreader().asNodeCacheLimit(2);
+
+        // ## Act ##
+        proofreader.proofread("sea: /*pmb.sea*/", prepareVariableMap("mystic", null));
+        proofreader.proofread("land: /*pmb.sea*/", prepareVariableMap("mystic", null));
+        proofreader.proofread("sea: /*pmb.sea*/", prepareVariableMap("mystic", null)); // recently used
+        proofreader.proofread("piari: /*pmb.sea*/", prepareVariableMap("mystic", null));
+
+        // ## Assert ##
+        assertEquals(2, proofreader.nodeCacheMap.size()); // only the eldest is evicted by overflow
+        assertTrue(proofreader.nodeCacheMap.containsKey("sea: /*pmb.sea*/"));
+        assertFalse(proofreader.nodeCacheMap.containsKey("land: /*pmb.sea*/"));
+        assertTrue(proofreader.nodeCacheMap.containsKey("piari: /*pmb.sea*/"));
+    }
+
+    public void test_proofread_nodeCache_noCache() {
+        // ## Arrange ##
+        SMailPmCommentProofreader proofreader = new SMailPmCommentProofreader().asNodeCacheLimit(0);
+
+        // ## Act ##
+        String text = proofreader.proofread("sea: /*pmb.sea*/", prepareVariableMap("mystic", null));
+
+        // ## Assert ##
+        assertEquals("sea: mystic", text);
+        assertTrue(proofreader.nodeCacheMap.isEmpty());
+    }
+
+    public void test_workingDispose_clearCache() {
+        // ## Arrange ##
+        SMailPmCommentProofreader proofreader = new SMailPmCommentProofreader();
+        proofreader.proofread("sea: /*pmb.sea*/", prepareVariableMap("mystic", null));
+        assertFalse(proofreader.nodeCacheMap.isEmpty());
+
+        // ## Act ##
+        proofreader.workingDispose();
+
+        // ## Assert ##
+        assertTrue(proofreader.nodeCacheMap.isEmpty());
+    }
+
+    // ===================================================================================
+    //                                                                     Line Adjustment
+    //                                                                     ===============
+    public void test_filterTemplateText_sameAsLineSplitting_basic() {
+        // ## Arrange ##
+        SMailPmCommentProofreader proofreader = new SMailPmCommentProofreader();
+        List<String> textList = Arrays.asList("", "\n", "\r\n", "\r", "\r\r\n\n", "a", "a\n", "\na", //
+                "/*IF pmb.sea*/\nsea\n/*END*/\nland", "  /*IF pmb.sea*/  \r\n  sea\r\n  /*END*/  \r\nland", //
+                "/*IF pmb.sea*/sea/*END*/\nland", "/*FOR pmb.list*/- /*#current*//*END*/\nbye", //
+                "/*FOR pmb.list*/\n/*IF #current*/\nx\n/*END*/\n/*END*/", " /*IF pmb.sea*/sea/*END*/\nland", //
+                "/*IF */\n/*END*/", "/*IF /*END*/", "\t/*END*/\t\n\u3000/*END*/", "/*IF a*/ */\nb");
+
+        for (String text : textList) {
+            // ## Act ##
+            String actual = proofreader.filterTemplateText(text, null);
+
+            // ## Assert ##
+            assertEquals(text, filterByLineSplitting(text), actual);
+        }
+    }
+
+    public void test_filterTemplateText_sameAsLineSplitting_fuzz() {
+        // ## Arrange ##
+        SMailPmCommentProofreader proofreader = new SMailPmCommentProofreader();
+        String[] pieces = { "/*IF pmb.sea*/", "/*FOR pmb.list*/", "/*END*/", "/*IF ", "/*FOR ", "/*", "*/", "*", "/", " ", "\t", "\u3000",
+                "\u0001", "\n", "\r\n", "\r", "sea", "IF", "END", "/*pmb.land*/" };
+        Random random = new Random(20261017L); // fixed for reproducible failure
+
+        for (int i = 0; i < 30000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int count = random.nextInt(24);
+            for (int j = 0; j < count; j++) {
+                sb.append(pieces[random.nextInt(pieces.length)]);
+            }
+            String text = sb.toString();
+
+            // ## Act ##
+            String actual = proofreader.filterTemplateText(text, null);
+
+            // ## Assert ##
+            String expected = filterByLineSplitting(text);
+            if (!expected.equals(actual)) {
+                fail("different at " + i + ": text=[" + text + "], expected=[" + expected + "], actual=[" + actual + "]");
+            }
+        }
+    }
+
+    // ===================================================================================
+    //                                                                        Value Option
+    //                                                                        ============
+    public void test_proofread_valueOption_formatAs() {
+        // ## Arrange ##
+        SMailPmCommentProofreader proofreader = new SMailPmCommentProofreader();
+        Map<String, Object> variableMap = prepareVariableMap("mystic", null);
+        variableMap.put("date", LocalDate.of(2026, 10, 17));
+        variableMap.put("timestamp", Timestamp.valueOf(LocalDateTime.of(2026, 10, 17, 12, 34, 56)));
+        variableMap.put("price", 1234567);
+        variableMap.put("amount", new BigDecimal("1234.5"));
+
+        // ## Act ##
+        String text = proofreader.proofread("/*pmb.date:formatAs('yyyy/MM/dd')*/ /*pmb.timestamp:formatAs('yyyy/MM/dd HH:mm:ss')*/"
+                + " /*pmb.price:formatAs('#,##0')*/ /*pmb.amount:formatAs('#,##0.00')*/ /*pmb.sea:formatAs('yyyy')*/", variableMap);
+
+        // ## Assert ##
+        assertEquals("2026/10/17 2026/10/17 12:34:56 1,234,567 1,234.50 mystic", text);
+    }
+
+    public void test_proofread_valueOption_orElse() {
+        // ## Arrange ##
+        SMailPmCommentProofreader proofreader = new SMailPmCommentProofreader();
+        String templateText = "/*pmb.land:orElse('none')*/ /*pmb.land:orElse('none') | formatAs('yyyy')*/";
+
+        // ## Act ##
+        String first = proofreader.proofread(templateText, prepareVariableMap("mystic", null));
+        String second = proofreader.proofread(templateText, prepareVariableMap("mystic", "oneman"));
+
+        // ## Assert ##
+        assertEquals("none none", first);
+        assertEquals("oneman oneman", second);
+    }
+
+    public void test_proofread_valueOption_notQuoted() {
+        // ## Arrange ##
+        SMailPmCommentProofreader proofreader = new SMailPmCommentProofreader();
+
+        // ## Act ##
+        // ## Assert ##
+        assertEquals("mystic", proofreader.proofread("/*pmb.sea:orElse(none)*/", prepareVariableMap("mystic", null))); // not used
+        assertException(IllegalStateException.class, () -> {
+            proofreader.proofread("/*pmb.land:orElse(none)*/", prepareVariableMap("mystic", null));
+        });
+    }
+
+    public void test_setupValueIfNeeds_byOptionDef() {
+        // ## Arrange ##
+        SMailPmCommentProofreader proofreader = new SMailPmCommentProofreader();
+        BoundValue nullValue = new BoundValue();
+        BoundValue dateValue = new BoundValue();
+        dateValue.setTargetValue(LocalDate.of(2026, 10, 17));
+
+        // ## Act ##
+        proofreader.setupOrElseValueIfNeeds(nullValue, "orElse('none')"); // old signature for sub-class
+        proofreader.setupFormatAsValueIfNeeds(dateValue, "formatAs('yyyy/MM/dd')");
+        proofreader.setupOrElseValueIfNeeds(new BoundValue(), (String) null);
+
+        // ## Assert ##
+        assertEquals("none", nullValue.getTargetValue());
+        assertEquals("2026/10/17", dateValue.getTargetValue());
+    }
+
+    public void test_valueOption_formatterCache_evictedOneByOne() {
+        // ## Arrange ##
+        LocalDate date = LocalDate.of(2026, 10, 17);
+
+        // ## Act ##
+        String formatted = null;
+        for (int i = 0; i < 1001; i++) { // overflow by the limit (1000)
+            formatted = SMailValueOption.parse("formatAs('yyyy/MM/dd '" + i + "'')").format(date);
+        }
+
+        // ## Assert ##
+        assertEquals("2026/10/17 1000", formatted);
+        int cachedSize = new SMailValueOption("dummy", null, null) {
+            public int countCachedFormatter() {
+                return dateTimeFormatterMap.size();
+            }
+        }.countCachedFormatter();
+        log("cachedSize: {}", cachedSize);
+        assertEquals(1000, cachedSize); // not cleared
+    }
+
+    // ===================================================================================
+    //                                                                         Test Helper
+    //                                                                         ===========
+    /**
+     * The previous line adjustment by line list, as the expected result of single pass.
+     * @param templateText The text of template. (NotNull)
+     * @return The filtered text. (NotNull)
+     */
+    protected String filterByLineSplitting(String templateText) {
+        final String replaced = Srl.replace(templateText, "\r\n", "\n");
+        final List<String> lineList = Srl.splitList(replaced, "\n");
+        final StringBuilder sb = new StringBuilder(templateText.length());
+        boolean nextNoLine = false;
+        int lineNumber = 0;
+        for (String line : lineList) {
+            ++lineNumber;
+            if (nextNoLine) {
+                sb.append(line);
+                nextNoLine = false;
+                continue;
+            }
+            if ((line.startsWith("/*IF ") || line.startsWith("/*FOR ")) && line.endsWith("/*END*/") && Srl.count(line, "*/") > 1) {
+                sb.append(lineNumber > 1 ? "\n" : "").append(Srl.substringLastFront(line, "/*END*/"));
+                sb.append("\n").append("/*END*/");
+                nextNoLine = true;
+                continue;
+            }
+            final String trimmed = line.trim();
+            final boolean onlyBegin = (trimmed.startsWith("/*IF ") || trimmed.startsWith("/*FOR ")) && trimmed.endsWith("*/")
+                    && Srl.count(line, "*/") == 1;
+            final String realLine;
+            if (onlyBegin || trimmed.equals("/*END*/")) {
+                nextNoLine = true;
+                realLine = Srl.ltrim(line);
+            } else {
+                realLine = line;
+            }
+            sb.append(lineNumber > 1 ? "\n" : "").append(realLine);
+        }
+        return sb.toString();
+    }
+
+    protected Map<String, Object> prepareVariableMap(String sea, String land) {
+        Map<String, Object> variableMap = new HashMap<String, Object>();
+        variableMap.put("sea", sea);
+        variableMap.put("land", land);
+        return variableMap;
+    }
+}
@@ -0,0 +1,196 @@
+package org.dbflute.mail.send.embedded.receptionist;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.dbflute.mail.CardView;
+import org.dbflute.mail.Postcard;
+import org.dbflute.optional.OptionalThing;
+import org.dbflute.utflute.core.PlainTestCase;
+
+/**
+ * @author jflute
+ */
+public class SMailCachingDynamicTextAssistTest extends PlainTestCase {
+
+    public void test_prepareDynamicData_ttl_refreshAhead() throws Exception {
+        // ## Arrange ##
+        AtomicInteger prepareCount = new AtomicInteger();
+        AtomicLong currentMillis = new AtomicLong(1000L);
+        SMailCachingDynamicTextAssist assist = createAssist(prepareCount, currentMillis).refreshExecutor(Runnable::run);
+
+        // ## Act ##
+        String first = assistText(assist);
+        String second = assistText(assist);
+        currentMillis.set(1850L); // over refresh-ahead (80%), refreshed in background
+        String refreshing = assistText(assist);
+        String refreshed = assistText(assist);
+        currentMillis.set(3000L); // expired
+        String expired = assistText(assist);
+
+        // ## Assert ##
+        log(first, refreshing, refreshed, expired, assist);
+        assertEquals("sea:1", first);
+        assertSame(first, second); // same instance while cached
+        assertEquals("sea:1", refreshing); // cached one is returned
+        assertEquals("sea:2", refreshed);
+        assertEquals("sea:3", expired);
+        assertEquals(3, prepareCount.get());
+    }
+
+    public void test_prepareDynamicData_versionedBy() throws Exception {
+        // ## Arrange ##
+        AtomicInteger prepareCount = new AtomicInteger();
+        AtomicLong currentMillis = new AtomicLong(1000L);
+        AtomicReference<Object> version = new AtomicReference<Object>("v1");
+        SMailCachingDynamicTextAssist assist = createAssist(prepareCount, currentMillis).refreshAhead(1.0).versionedBy(resource -> {
+            return version.get();
+        });
+        String first = assistText(assist);
+
+        // ## Act ##
+        currentMillis.set(2500L); // expired but same version
+        String notChanged = assistText(assist);
+        version.set("v2");
+        currentMillis.set(4000L); // expired and changed
+        String changed = assistText(assist);
+
+        // ## Assert ##
+        assertSame(first, notChanged); // not re-fetched
+        assertEquals("sea:2", changed);
+        assertEquals(2, prepareCount.get());
+    }
+
+    public void test_prepareDynamicData_empty() throws Exception {
+        // ## Arrange ##
+        AtomicInteger prepareCount = new AtomicInteger();
+        SMailCachingDynamicTextAssist assist = new SMailCachingDynamicTextAssist(new SMailDynamicTextAssist() {
+            public OptionalThing<? extends Object> prepareDynamicData(SMailDynamicDataResource resource) {
+                prepareCount.incrementAndGet();
+                return OptionalThing.empty();
+            }
+
+            public OptionalThing<String> assist(SMailDynamicTextResource resource) {
+                throw new IllegalStateException("no way");
+            }
+        }, 60000L);
+
+        // ## Act ##
+        assist.prepareDynamicData(createDataResource());
+        OptionalThing<? extends Object> data = assist.prepareDynamicData(createDataResource());
+
+        // ## Assert ##
+        assertFalse(data.isPresent());
+        assertEquals(1, prepareCount.get()); // also empty is cached
+    }
+
+    public void test_prepareDynamicData_refreshAhead_byKeyResource() throws Exception {
+        // ## Arrange ##
+        List<CardView> cardViewList = new ArrayList<CardView>();
+        AtomicLong currentMillis = new AtomicLong(1000L);
+        List<Runnable> refreshList = new ArrayList<Runnable>();
+        SMailCachingDynamicTextAssist assist = new SMailCachingDynamicTextAssist(new SMailDynamicTextAssist() {
+            public OptionalThing<? extends Object> prepareDynamicData(SMailDynamicDataResource resource) {
+                cardViewList.add(resource.getCardView());
+                return OptionalThing.of("sea:" + resource.getTemplatePath());
+            }
+
+            public OptionalThing<String> assist(SMailDynamicTextResource resource) {
+                return OptionalThing.empty();
+            }
+        }, 1000L) {
+            @Override
+            protected long currentTimeMillis() {
+                return currentMillis.get();
+            }
+        };
+        SMailDynamicDataResource resource = new SMailDynamicDataResource(new Postcard(), "mail/sea.dfmail", false, OptionalThing.empty());
+        assist.prepareDynamicData(resource);
+        currentMillis.set(1850L); // over refresh-ahead (80%)
+
+        // ## Act ##
+        assist.prepareDynamicData(resource); // no executor, no refresh
+        assist.refreshExecutor(refreshList::add);
+        assist.prepareDynamicData(resource);
+        refreshList.forEach(Runnable::run);
+
+        // ## Assert ##
+        log(cardViewList);
+        assertEquals(1, refreshList.size());
+        assertEquals(2, cardViewList.size());
+        assertNotNull(cardViewList.get(0));
+        assertNull(cardViewList.get(1)); // old postcard is not kept
+    }
+
+    public void test_prepareDynamicData_maxEntries() throws Exception {
+        // ## Arrange ##
+        AtomicInteger prepareCount = new AtomicInteger();
+        SMailCachingDynamicTextAssist assist = createAssist(prepareCount, new AtomicLong(1000L)).maxEntries(2);
+        assist.prepareDynamicData(createDataResource("mail/sea.dfmail"));
+        assist.prepareDynamicData(createDataResource("mail/land.dfmail"));
+        assist.prepareDynamicData(createDataResource("mail/sea.dfmail")); // land is least recently used
+
+        // ## Act ##
+        assist.prepareDynamicData(createDataResource("mail/piari.dfmail"));
+
+        // ## Assert ##
+        assertEquals(2, assist.cachedMap.size());
+        assertEquals(3, prepareCount.get());
+        assist.prepareDynamicData(createDataResource("mail/sea.dfmail"));
+        assertEquals(3, prepareCount.get()); // still cached
+        assist.prepareDynamicData(createDataResource("mail/land.dfmail"));
+        assertEquals(4, prepareCount.get()); // evicted
+    }
+
+    public void test_workingDispose_byReceptionist() throws Exception {
+        // ## Arrange ##
+        AtomicInteger prepareCount = new AtomicInteger();
+        SMailCachingDynamicTextAssist assist = createAssist(prepareCount, new AtomicLong(1000L));
+        SMailConventionReceptionist receptionist = new SMailConventionReceptionist().asDynamicText(assist);
+        assistText(assist);
+
+        // ## Act ##
+        receptionist.workingDispose();
+
+        // ## Assert ##
+        assertTrue(assist.cachedMap.isEmpty());
+        assistText(assist);
+        assertEquals(2, prepareCount.get()); // loaded again
+    }
+
+    // ===================================================================================
+    //                                                                         Test Helper
+    //                                                                         ===========
+    protected SMailCachingDynamicTextAssist createAssist(AtomicInteger prepareCount, AtomicLong currentMillis) {
+        return new SMailCachingDynamicTextAssist(new SMailDynamicTextAssist() {
+            public OptionalThing<? extends Object> prepareDynamicData(SMailDynamicDataResource resource) {
+                return OptionalThing.of("sea:" + prepareCount.incrementAndGet());
+            }
+
+            public OptionalThing<String> assist(SMailDynamicTextResource resource) {
+                return OptionalThing.of(new String((String) resource.getDynamicData())); // new instance per call
+            }
+        }, 1000L) {
+            @Override
+            protected long currentTimeMillis() {
+                return currentMillis.get();
+            }
+        };
+    }
+
+    protected String assistText(SMailCachingDynamicTextAssist assist) {
+        Object data = assist.prepareDynamicData(createDataResource()).get();
+        return assist.assist(new SMailDynamicTextResource(null, "mail/sea.dfmail", false, false, OptionalThing.empty(), data)).get();
+    }
+
+    protected SMailDynamicDataResource createDataResource() {
+        return createDataResource("mail/sea.dfmail");
+    }
+
+    protected SMailDynamicDataResource createDataResource(String templatePath) {
+        return new SMailDynamicDataResource(null, templatePath, false, OptionalThing.empty());
+    }
+}
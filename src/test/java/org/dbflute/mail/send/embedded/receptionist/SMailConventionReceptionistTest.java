@@ -15,7 +15,23 @@
  */
 package org.dbflute.mail.send.embedded.receptionist;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.dbflute.mail.Postcard;
+import org.dbflute.mail.send.SMailAddress;
+import org.dbflute.mail.send.embedded.proofreader.SMailBodyMetaProofreader;
 import org.dbflute.mail.send.exception.SMailBodyMetaParseFailureException;
+import org.dbflute.optional.OptionalThing;
 import org.dbflute.utflute.core.PlainTestCase;
 
 /**
@@ -65,4 +81,230 @@ public class SMailConventionReceptionistTest extends PlainTestCase {
             receptionist.verifyFormat("sea.dfmail", sb.toString(), ">>>");
         });
     }
+
+    public void test_accept_bodyMeta_splitAtRead() throws Exception {
+        // ## Arrange ##
+        SMailConventionReceptionist receptionist = new SMailConventionReceptionist().asClasspathBase("mail");
+        Postcard postcard = new Postcard();
+        postcard.setFrom(new SMailAddress("sea@example.com", "Sea"));
+        postcard.useBodyFile("office/option_htmlexists.dfmail").useTemplateText(new HashMap<String, Object>());
+
+        // ## Act ##
+        receptionist.accept(postcard);
+
+        // ## Assert ##
+        String plainBody = postcard.getPlainBody().get();
+        log(plainBody);
+        assertTrue(plainBody.startsWith("Hello, /*pmb.memberName*/"));
+        assertEquals("Welcome to your test code reading, /*pmb.memberName*/", postcard.toCompleteSubjectTemplate().get());
+        assertTrue(postcard.isAlsoHtmlFile());
+        String cacheKey = receptionist.generateCacheKey("office/option_htmlexists.dfmail", false, OptionalThing.empty());
+        SMailBodyMeta cached = receptionist.getTextCache().find(cacheKey);
+        assertSame(plainBody, cached.getBodyText()); // no copy per mail
+    }
+
+    public void test_parse_bodyMeta_sameAsProofreader() throws Exception {
+        // ## Arrange ##
+        List<String> textList = new ArrayList<String>();
+        textList.add("/*\n [Sea]\n sea\n*/\nsubject:  sea /*pmb.sea*/ \noption: +html\n>>>\nHello\n");
+        textList.add("/*\r\n [Sea]\r\n sea\r\n*/\r\nsubject: sea\r\n>>>\r\nHello\r\nLand\r\n");
+        textList.add("/*\n [Sea]\n sea\n*/\nsubject: sea\n>>>\n");
+        textList.add("Hello, no meta\n");
+
+        for (String text : textList) {
+            // ## Act ##
+            SMailBodyMeta bodyMeta = SMailBodyMeta.parse(text);
+
+            // ## Assert ##
+            Postcard postcard = new Postcard();
+            String realText = new SMailBodyMetaProofreader(postcard).proofread(text, new HashMap<String, Object>());
+            log(bodyMeta, realText);
+            assertEquals(realText, bodyMeta.getBodyText());
+            assertEquals(postcard.getSubject().orElse(null), bodyMeta.getSubjectTemplate());
+        }
+        assertTrue(SMailBodyMeta.parse(textList.get(0)).isPlusHtml());
+        assertFalse(SMailBodyMeta.parse(textList.get(1)).isPlusHtml());
+    }
+
+    public void test_accept_bodyMeta_verifiedOnce() throws Exception {
+        // ## Arrange ##
+        AtomicInteger verifyCount = new AtomicInteger();
+        SMailConventionReceptionist receptionist = new SMailConventionReceptionist() {
+            @Override
+            protected void verifyFormat(String bodyFile, String plainText, String delimiter) {
+                verifyCount.incrementAndGet();
+                super.verifyFormat(bodyFile, plainText, delimiter);
+            }
+        }.asClasspathBase("mail");
+
+        // ## Act ##
+        for (int i = 0; i < 3; i++) {
+            receptionist.accept(prepareTemplatePostcard("office/option_htmlexists.dfmail"));
+        }
+
+        // ## Assert ##
+        assertEquals(1, verifyCount.get()); // cached meta is verified
+        String cacheKey = receptionist.generateCacheKey("office/option_htmlexists.dfmail", false, OptionalThing.empty());
+        assertTrue(receptionist.getTextCache().find(cacheKey).isVerified());
+    }
+
+    public void test_accept_dynamicText_verifiedWhenChanged() throws Exception {
+        // ## Arrange ##
+        AtomicInteger verifyCount = new AtomicInteger();
+        AtomicReference<String> dynamicText = new AtomicReference<String>("/*\n [Sea]\n sea\n*/\nsubject: sea\n>>>\nHello\n");
+        SMailConventionReceptionist receptionist = new SMailConventionReceptionist() {
+            @Override
+            protected void verifyFormat(String bodyFile, String plainText, String delimiter) {
+                verifyCount.incrementAndGet();
+                super.verifyFormat(bodyFile, plainText, delimiter);
+            }
+        }.asDynamicText(new SMailDynamicTextAssist() {
+            public OptionalThing<? extends Object> prepareDynamicData(SMailDynamicDataResource resource) {
+                return OptionalThing.of(dynamicText.get());
+            }
+
+            public OptionalThing<String> assist(SMailDynamicTextResource resource) {
+                return OptionalThing.of((String) resource.getDynamicData());
+            }
+        });
+
+        // ## Act ##
+        receptionist.accept(prepareTemplatePostcard("sea.dfmail"));
+        receptionist.accept(prepareTemplatePostcard("sea.dfmail"));
+        int notChangedCount = verifyCount.get();
+        dynamicText.set("/*\n [Sea]\n sea\n*/\nsubject: land\n>>>\nHello\n");
+        Postcard changed = prepareTemplatePostcard("sea.dfmail");
+        receptionist.accept(changed);
+
+        // ## Assert ##
+        assertEquals(1, notChangedCount);
+        assertEquals(2, verifyCount.get()); // changed text is verified again
+        assertEquals("land", changed.toCompleteSubjectTemplate().get());
+    }
+
+    protected Postcard prepareTemplatePostcard(String bodyFile) {
+        Postcard postcard = new Postcard();
+        postcard.setFrom(new SMailAddress("sea@example.com", "Sea"));
+        postcard.useBodyFile(bodyFile).useTemplateText(new HashMap<String, Object>());
+        return postcard;
+    }
+
+    // ===================================================================================
+    //                                                                       Single Flight
+    //                                                                       =============
+    public void test_readText_singleFlight_sameKey() throws Exception {
+        // ## Arrange ##
+        CountDownLatch loadingLatch = new CountDownLatch(1);
+        AtomicInteger readCount = new AtomicInteger();
+        SMailConventionReceptionist receptionist = new SMailConventionReceptionist() {
+            @Override
+            protected String doReadText(Postcard postcard, String path, boolean filesystem, OptionalThing<Locale> receiverLocale) {
+                readCount.incrementAndGet();
+                await(loadingLatch);
+                return "Hello, " + path;
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            // ## Act ##
+            List<Future<String>> futureList = new ArrayList<Future<String>>();
+            for (int i = 0; i < 4; i++) {
+                futureList.add(executor.submit(() -> readText(receptionist, "sea.dfmail")));
+            }
+            Thread.sleep(100L); // for all threads to miss
+            loadingLatch.countDown();
+
+            // ## Assert ##
+            String first = futureList.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<String> future : futureList) {
+                assertSame(first, future.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, readCount.get());
+            assertTrue(receptionist.loadingFutureMap.isEmpty());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public void test_readText_singleFlight_otherKeyNotBlocked() throws Exception {
+        // ## Arrange ##
+        CountDownLatch loadingLatch = new CountDownLatch(1);
+        SMailConventionReceptionist receptionist = new SMailConventionReceptionist() {
+            @Override
+            protected String doReadText(Postcard postcard, String path, boolean filesystem, OptionalThing<Locale> receiverLocale) {
+                if (path.startsWith("slow")) {
+                    await(loadingLatch);
+                }
+                return "Hello, " + path;
+            }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> slowFuture = executor.submit(() -> readText(receptionist, "slow.dfmail"));
+            Thread.sleep(100L); // for the slow thread to start loading
+
+            // ## Act ##
+            String fast = readText(receptionist, "fast.dfmail"); // no wait for slow one
+
+            // ## Assert ##
+            assertEquals("Hello, fast.dfmail", fast);
+            assertFalse(slowFuture.isDone());
+            loadingLatch.countDown();
+            assertEquals("Hello, slow.dfmail", slowFuture.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public void test_readText_singleFlight_reloadNotJoined() throws Exception {
+        // ## Arrange ##
+        CountDownLatch startedLatch = new CountDownLatch(1);
+        CountDownLatch loadingLatch = new CountDownLatch(1);
+        AtomicInteger readCount = new AtomicInteger();
+        AtomicReference<String> fileText = new AtomicReference<String>("Hello, sea");
+        SMailConventionReceptionist receptionist = new SMailConventionReceptionist() {
+            @Override
+            protected String doReadText(Postcard postcard, String path, boolean filesystem, OptionalThing<Locale> receiverLocale) {
+                String read = fileText.get();
+                if (readCount.incrementAndGet() == 1) { // old text is already read
+                    startedLatch.countDown();
+                    await(loadingLatch);
+                }
+                return read;
+            }
+        };
+        String cacheKey = receptionist.generateCacheKey("sea.dfmail", true, OptionalThing.empty());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> oldFuture = executor.submit(() -> readText(receptionist, "sea.dfmail"));
+            await(startedLatch);
+
+            // ## Act ##
+            fileText.set("Hello, piari"); // changed while loading
+            receptionist.evictText(cacheKey);
+            receptionist.reloadFilesystemText(cacheKey, "sea.dfmail", OptionalThing.empty()); // no wait for old one
+            loadingLatch.countDown();
+
+            // ## Assert ##
+            assertEquals("Hello, sea", oldFuture.get(5, TimeUnit.SECONDS));
+            assertEquals("Hello, piari", readText(receptionist, "sea.dfmail")); // old one is not cached
+            assertEquals(2, readCount.get());
+            assertTrue(receptionist.loadingFutureMap.isEmpty());
+        } finally {
+            loadingLatch.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    protected String readText(SMailConventionReceptionist receptionist, String path) {
+        return receptionist.readText(null, path, false, true, OptionalThing.empty(), OptionalThing.empty());
+    }
+
+    protected void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
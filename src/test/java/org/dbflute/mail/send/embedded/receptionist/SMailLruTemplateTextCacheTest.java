@@ -0,0 +1,79 @@
+package org.dbflute.mail.send.embedded.receptionist;
+
+import org.dbflute.utflute.core.PlainTestCase;
+
+/**
+ * @author jflute
+ */
+public class SMailLruTemplateTextCacheTest extends PlainTestCase {
+
+    public void test_cache_maxEntries_leastRecentlyUsed() throws Exception {
+        // ## Arrange ##
+        SMailLruTemplateTextCache cache = new SMailLruTemplateTextCache().maxEntries(2);
+        cache.cache("sea", SMailBodyMeta.parse("sea"), 1000L);
+        cache.cache("land", SMailBodyMeta.parse("land"), 3000L);
+        assertNotNull(cache.find("sea")); // land is least recently used
+
+        // ## Act ##
+        cache.cache("piari", SMailBodyMeta.parse("piari"), 2000L);
+
+        // ## Assert ##
+        assertNotNull(cache.find("sea"));
+        assertNull(cache.find("land"));
+        assertNotNull(cache.find("piari"));
+        SMailTemplateTextCacheStats stats = cache.stats();
+        log(stats);
+        assertEquals(3L, stats.getHitCount());
+        assertEquals(1L, stats.getMissCount());
+        assertEquals(3L, stats.getLoadCount());
+        assertEquals(1L, stats.getEvictionCount());
+        assertEquals(2, stats.getEntryCount());
+        assertEquals("seapiari".length(), stats.getTotalChars());
+        assertEquals(0.002, stats.getAverageLoadMillis());
+    }
+
+    public void test_cache_maxChars() throws Exception {
+        // ## Arrange ##
+        SMailLruTemplateTextCache cache = new SMailLruTemplateTextCache().maxChars(10L);
+        cache.cache("sea", SMailBodyMeta.parse("sea"), 0L);
+        cache.cache("land", SMailBodyMeta.parse("land"), 0L);
+
+        // ## Act ##
+        cache.cache("bonvo", SMailBodyMeta.parse("bonvo"), 0L); // sea is evicted
+        cache.cache("dockside", SMailBodyMeta.parse("dockside-over-max"), 0L); // not cached
+
+        // ## Assert ##
+        assertNull(cache.find("sea"));
+        assertNotNull(cache.find("land"));
+        assertNotNull(cache.find("bonvo"));
+        assertNull(cache.find("dockside"));
+        assertEquals(9L, cache.stats().getTotalChars());
+        cache.evict("land");
+        assertEquals(5L, cache.stats().getTotalChars());
+        cache.clear();
+        assertEquals(0, cache.stats().getEntryCount());
+    }
+
+    public void test_cache_maxChars_evictedUntilWithin() throws Exception {
+        // ## Arrange ##
+        SMailLruTemplateTextCache cache = new SMailLruTemplateTextCache().maxEntries(3).maxChars(13L);
+        cache.cache("sea", SMailBodyMeta.parse("sea"), 0L);
+        cache.cache("land", SMailBodyMeta.parse("land"), 0L);
+        cache.cache("piari", SMailBodyMeta.parse("piari"), 0L);
+        assertNotNull(cache.find("sea")); // land is least recently used
+
+        // ## Act ##
+        cache.cache("bonvo", SMailBodyMeta.parse("bonvobonvo"), 0L); // land and piari are evicted
+
+        // ## Assert ##
+        assertNull(cache.find("land"));
+        assertNull(cache.find("piari"));
+        assertNotNull(cache.find("bonvo"));
+        assertNotNull(cache.find("sea"));
+        SMailTemplateTextCacheStats stats = cache.stats();
+        log(stats);
+        assertEquals(2L, stats.getEvictionCount());
+        assertEquals(2, stats.getEntryCount());
+        assertEquals("seabonvobonvo".length(), stats.getTotalChars());
+    }
+}
@@ -0,0 +1,75 @@
+package org.dbflute.mail.send.embedded.receptionist;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.function.BooleanSupplier;
+
+import org.dbflute.optional.OptionalThing;
+import org.dbflute.utflute.core.PlainTestCase;
+
+/**
+ * @author jflute
+ */
+public class SMailTemplateFileWatcherTest extends PlainTestCase {
+
+    public void test_watch_refreshFamilyOnly() throws Exception {
+        // ## Arrange ##
+        File templateDir = Files.createTempDirectory("watching").toFile();
+        String welcomePath = writeTemplate(templateDir, "welcome.dfmail", "Hello, sea");
+        String welcomeHtmlPath = writeTemplate(templateDir, "welcome_html.dfmail", "<p>Hello, sea</p>");
+        String otherPath = writeTemplate(templateDir, "other.dfmail", "Hello, land");
+        SMailConventionReceptionist receptionist = new SMailConventionReceptionist().asFileWatching();
+        try {
+            String welcome = readText(receptionist, welcomePath);
+            readText(receptionist, welcomeHtmlPath);
+            String other = readText(receptionist, otherPath);
+            assertEquals("<p>Hello, sea</p>", readText(receptionist, welcomeHtmlPath));
+
+            // ## Act ##
+            writeTemplate(templateDir, "welcome_html.dfmail", "<p>Hello, piari</p>");
+
+            // ## Assert ##
+            waitFor(() -> readText(receptionist, welcomeHtmlPath).contains("piari"));
+            waitFor(() -> readText(receptionist, welcomePath) != welcome); // for the family reloading
+            log(receptionist.fileWatcher, receptionist.getTextCache());
+            assertEquals("<p>Hello, piari</p>", readText(receptionist, welcomeHtmlPath));
+            assertEquals(welcome, readText(receptionist, welcomePath));
+            assertNotSame(welcome, readText(receptionist, welcomePath)); // reloaded as family
+            assertSame(other, readText(receptionist, otherPath)); // not evicted
+        } finally {
+            receptionist.closeFileWatching();
+            deleteDirectory(templateDir);
+        }
+    }
+
+    // ===================================================================================
+    //                                                                         Test Helper
+    //                                                                         ===========
+    protected void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long limit = System.currentTimeMillis() + 10000L;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < limit) {
+            Thread.sleep(50L);
+        }
+    }
+
+    protected void deleteDirectory(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    protected String writeTemplate(File templateDir, String fileName, String text) throws Exception {
+        File file = new File(templateDir, fileName);
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        return file.getPath();
+    }
+
+    protected String readText(SMailConventionReceptionist receptionist, String path) {
+        return receptionist.readText(null, path, false, true, OptionalThing.empty(), OptionalThing.empty());
+    }
+}
@@ -0,0 +1,150 @@
+package org.dbflute.mail.send.embedded.receptionist;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.dbflute.mail.send.embedded.proofreader.SMailCompiledProofreader;
+import org.dbflute.mail.send.exception.SMailIllegalStateException;
+import org.dbflute.optional.OptionalThing;
+import org.dbflute.utflute.core.PlainTestCase;
+
+/**
+ * @author jflute
+ */
+public class SMailTemplatePrecompilerTest extends PlainTestCase {
+
+    // ===================================================================================
+    //                                                                           Directory
+    //                                                                           =========
+    public void test_precompileDirectory_basic() throws Exception {
+        // ## Arrange ##
+        SMailConventionReceptionist receptionist = new SMailConventionReceptionist().asClasspathBase("mail");
+        SMailCompiledProofreader proofreader = new SMailCompiledProofreader();
+        SMailTemplatePrecompiler precompiler = new SMailTemplatePrecompiler(receptionist, proofreader);
+        File templateDir = new File(getClass().getResource("/mail").toURI());
+
+        // ## Act ##
+        List<String> templatePathList = precompiler.precompileDirectory(templateDir);
+
+        // ## Assert ##
+        log(templatePathList, proofreader);
+        assertTrue(templatePathList.contains("office/option_htmlexists.dfmail"));
+        assertTrue(templatePathList.contains("office/option_htmlexists_html.dfmail"));
+        assertTrue(templatePathList.contains("office/receiver_locale.ja.dfmail"));
+        assertEquals(templatePathList.size(), receptionist.precompiledTextMap.size());
+        String precompiled = receptionist.precompiledTextMap.get("office/option_htmlexists.dfmail");
+        assertSame(precompiled, receptionist.doReadText(null, "office/option_htmlexists.dfmail", false, OptionalThing.empty()));
+        long distinctCount = receptionist.precompiledTextMap.values().stream().flatMap(text -> { // compiled by split text
+            SMailBodyMeta bodyMeta = SMailBodyMeta.parse(text);
+            return bodyMeta.hasSubjectTemplate() ? Stream.of(bodyMeta.getSubjectTemplate(), bodyMeta.getBodyText())
+                    : Stream.of(bodyMeta.getBodyText());
+        }).distinct().count();
+        assertContains(proofreader.toString(), "cached=" + distinctCount);
+    }
+
+    public void test_precompileDirectory_failure() throws Exception {
+        // ## Arrange ##
+        File templateDir = createFailureTemplateDir();
+        SMailConventionReceptionist receptionist = new SMailConventionReceptionist();
+        SMailTemplatePrecompiler precompiler = new SMailTemplatePrecompiler(receptionist, new SMailCompiledProofreader());
+        try {
+            // ## Act ##
+            // ## Assert ##
+            assertException(SMailIllegalStateException.class, () -> precompiler.precompileDirectory(templateDir)).handle(cause -> {
+                String msg = cause.getMessage();
+                log(msg);
+                assertContains(msg, "sea.dfmail");
+                assertContains(msg, "land.dfmail");
+                assertFalse(msg.contains("piari.dfmail"));
+            });
+            assertEquals(Arrays.asList("piari.dfmail"), Arrays.asList(receptionist.precompiledTextMap.keySet().toArray()));
+        } finally {
+            deleteDirectory(templateDir);
+        }
+    }
+
+    // ===================================================================================
+    //                                                                           Classpath
+    //                                                                           =========
+    public void test_precompileClasspath_withHtml() throws Exception {
+        // ## Arrange ##
+        SMailConventionReceptionist receptionist = new SMailConventionReceptionist().asClasspathBase("mail");
+        SMailTemplatePrecompiler precompiler = new SMailTemplatePrecompiler(receptionist, new SMailCompiledProofreader());
+
+        // ## Act ##
+        List<String> templatePathList =
+                precompiler.precompileClasspath(Arrays.asList("office/option_htmlexists.dfmail", "office/option_htmlnofile.dfmail"));
+
+        // ## Assert ##
+        log(templatePathList);
+        assertEquals(Arrays.asList("office/option_htmlexists.dfmail", "office/option_htmlexists_html.dfmail",
+                "office/option_htmlnofile.dfmail"), templatePathList);
+        assertException(SMailIllegalStateException.class, () -> {
+            precompiler.precompileClasspath(Arrays.asList("office/nothing.dfmail"));
+        });
+    }
+
+    // ===================================================================================
+    //                                                                          Build Main
+    //                                                                          ==========
+    public void test_main_basic() throws Exception {
+        // ## Arrange ##
+        File templateDir = new File(getClass().getResource("/mail").toURI());
+
+        // ## Act ##
+        SMailTemplatePrecompiler.main(new String[] { templateDir.getPath() }); // expects no exception
+
+        // ## Assert ##
+        assertException(SMailIllegalStateException.class, () -> {
+            SMailTemplatePrecompiler.main(new String[] { new File(templateDir, "nothing").getPath() });
+        });
+    }
+
+    public void test_main_failure() throws Exception {
+        // ## Arrange ##
+        File templateDir = createFailureTemplateDir();
+        try {
+            // ## Act ##
+            // ## Assert ##
+            assertException(SMailIllegalStateException.class, () -> {
+                SMailTemplatePrecompiler.main(new String[] { templateDir.getPath() }); // fails the build
+            }).handle(cause -> {
+                String msg = cause.getMessage();
+                log(msg);
+                assertContains(msg, "sea.dfmail");
+                assertContains(msg, "land.dfmail");
+            });
+        } finally {
+            deleteDirectory(templateDir);
+        }
+    }
+
+    // ===================================================================================
+    //                                                                         Test Helper
+    //                                                                         ===========
+    protected File createFailureTemplateDir() throws Exception {
+        File templateDir = Files.createTempDirectory("precompile").toFile();
+        writeTemplate(templateDir, "sea.dfmail", "/*\n [Sea]\n sea\n*/\nsubject: sea\n>>>\n/*IF pmb.sea*/\nno end\n");
+        writeTemplate(templateDir, "land.dfmail", "/*\n [Land]\n land\n*/\nmystic: land\n>>>\nland\n");
+        writeTemplate(templateDir, "piari.dfmail", "/*\n [Piari]\n piari\n*/\nsubject: piari\n>>>\n/*pmb.piari*/\n");
+        return templateDir;
+    }
+
+    protected void deleteDirectory(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    protected void writeTemplate(File templateDir, String fileName, String text) throws Exception {
+        Files.write(new File(templateDir, fileName).toPath(), text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,168 @@
+package org.dbflute.mail.send.supplement.async;
+
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.dbflute.mail.Postcard;
+import org.dbflute.mail.send.exception.SMailIllegalStateException;
+import org.dbflute.optional.OptionalThing;
+import org.dbflute.utflute.core.PlainTestCase;
+
+/**
+ * @author jflute
+ */
+public class SMailAsyncStrategyThreadedTest extends PlainTestCase {
+
+    // ===================================================================================
+    //                                                                               Async
+    //                                                                               =====
+    public void test_async_otherThread() throws Exception {
+        // ## Arrange ##
+        SMailAsyncStrategyThreaded strategy = new SMailAsyncStrategyThreaded(op -> op.threadNamePrefix("sea-"));
+        AtomicReference<String> threadName = new AtomicReference<String>();
+        CountDownLatch latch = new CountDownLatch(1);
+
+        // ## Act ##
+        try {
+            strategy.async(new Postcard(), () -> {
+                threadName.set(Thread.currentThread().getName());
+                latch.countDown();
+            });
+            assertTrue(latch.await(3, TimeUnit.SECONDS));
+        } finally {
+            strategy.close();
+        }
+
+        // ## Assert ##
+        log(strategy, threadName.get());
+        assertEquals(SMailVirtualThreadSupport.isVirtualThreadAvailable(), strategy.isVirtual());
+        assertTrue(threadName.get().startsWith("sea-"));
+        assertFalse(Thread.currentThread().getName().equals(threadName.get()));
+        assertTrue(strategy.isClosed());
+    }
+
+    public void test_async_platform_callerRunsIfFull() throws Exception {
+        // ## Arrange ##
+        SMailAsyncStrategyThreaded strategy = new SMailAsyncStrategyThreaded(op -> {
+            op.platformOnly().maxPlatformThreads(1).queueCapacity(1);
+        });
+        assertFalse(strategy.isVirtual());
+        CountDownLatch blocker = new CountDownLatch(1);
+        AtomicReference<Thread> thirdThread = new AtomicReference<Thread>();
+
+        // ## Act ##
+        try {
+            strategy.async(new Postcard(), () -> awaitQuietly(blocker)); // running
+            strategy.async(new Postcard(), () -> awaitQuietly(blocker)); // queued
+            strategy.async(new Postcard(), () -> thirdThread.set(Thread.currentThread())); // full
+        } finally {
+            blocker.countDown();
+            strategy.close();
+        }
+
+        // ## Assert ##
+        assertEquals(Thread.currentThread(), thirdThread.get());
+    }
+
+    public void test_async_error_toUncaughtHandler() throws Exception {
+        // ## Arrange ##
+        AtomicReference<Throwable> uncaught = new AtomicReference<Throwable>();
+        CountDownLatch latch = new CountDownLatch(1);
+        SMailAsyncStrategyThreaded strategy = new SMailAsyncStrategyThreaded(op -> op.platformOnly()) {
+            @Override
+            protected ThreadFactory createPlatformThreadFactory() {
+                ThreadFactory factory = super.createPlatformThreadFactory();
+                return runnable -> {
+                    Thread thread = factory.newThread(runnable);
+                    thread.setUncaughtExceptionHandler((th, e) -> {
+                        uncaught.set(e);
+                        latch.countDown();
+                    });
+                    return thread;
+                };
+            }
+        };
+
+        // ## Act ##
+        try {
+            strategy.async(new Postcard(), () -> {
+                throw new NoClassDefFoundError("javax/activation/DataHandler");
+            });
+            assertTrue(latch.await(3, TimeUnit.SECONDS));
+        } finally {
+            strategy.close();
+        }
+
+        // ## Assert ##
+        assertTrue(uncaught.get() instanceof NoClassDefFoundError); // not vanished
+    }
+
+    public void test_async_closed() {
+        // ## Arrange ##
+        SMailAsyncStrategyThreaded strategy = new SMailAsyncStrategyThreaded();
+        strategy.close();
+
+        // ## Act ##
+        // ## Assert ##
+        assertException(SMailIllegalStateException.class, () -> strategy.async(new Postcard(), () -> {}));
+    }
+
+    // ===================================================================================
+    //                                                                      Virtual Thread
+    //                                                                      ==============
+    public void test_virtualThreadSupport_java21() throws Exception {
+        // ## Arrange ##
+        if (!isJava21OrLater()) { // compiled by java21 profile only
+            log("...Skipping the test of Java21 class: {}", System.getProperty("java.specification.version"));
+            return;
+        }
+        String className = SMailVirtualThreadSupport.class.getName();
+        URL versionsUrl = getClass().getResource("/META-INF/versions/21/");
+        assertNotNull(versionsUrl); // the class for multi-release jar
+
+        // ## Act ##
+        try (URLClassLoader loader = new URLClassLoader(new URL[] { versionsUrl }, getClass().getClassLoader()) {
+            @Override
+            protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+                return className.equals(name) ? findClass(name) : super.loadClass(name, resolve); // child first
+            }
+        }) {
+            Class<?> supportType = loader.loadClass(className);
+            Object available = supportType.getMethod("isVirtualThreadAvailable").invoke(null);
+            OptionalThing<?> optExecutor = (OptionalThing<?>) supportType.getMethod("newVirtualThreadExecutor", String.class)
+                    .invoke(null, "sea-");
+
+            // ## Assert ##
+            assertEquals(Boolean.TRUE, available);
+            ExecutorService executor = (ExecutorService) optExecutor.get();
+            try {
+                Method isVirtual = Thread.class.getMethod("isVirtual");
+                assertEquals(Boolean.TRUE, executor.submit(() -> isVirtual.invoke(Thread.currentThread())).get(3, TimeUnit.SECONDS));
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
+    // ===================================================================================
+    //                                                                         Test Helper
+    //                                                                         ===========
+    protected void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(3, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    protected boolean isJava21OrLater() {
+        String specVersion = System.getProperty("java.specification.version"); // e.g. 1.8, 21
+        return !specVersion.startsWith("1.") && Integer.parseInt(specVersion) >= 21;
+    }
+}
@@ -0,0 +1,84 @@
+package org.dbflute.mail.send.supplement.body;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.dbflute.utflute.core.PlainTestCase;
+
+/**
+ * @author jflute
+ */
+public class SMailEncodedTextBufferTest extends PlainTestCase {
+
+    // ===================================================================================
+    //                                                                              Encode
+    //                                                                              ======
+    public void test_encode_sameAsGetBytes() throws Exception {
+        // ## Arrange ##
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            sb.append("sea海𠮷land").append(i).append("\r\n"); // with surrogate pair
+        }
+        String text = sb.toString();
+
+        for (Charset charset : new Charset[] { StandardCharsets.UTF_8, Charset.forName("ISO-2022-JP"), StandardCharsets.US_ASCII }) {
+            // ## Act ##
+            SMailEncodedTextBuffer buffer = SMailEncodedTextBuffer.encode(text, charset);
+
+            // ## Assert ##
+            log(buffer);
+            byte[] expected = text.getBytes(charset); // replaced if unmappable
+            assertEquals(expected.length, buffer.size());
+            assertTrue(buffer.toString().contains("chunks="));
+            assertArrayEquals(expected, buffer.toByteArray());
+            assertArrayEquals(expected, readAll(buffer.toDataSource("text/plain").getInputStream()));
+            assertArrayEquals(expected, readAll(buffer.newInputStream())); // repeatable
+        }
+    }
+
+    public void test_write_splitSurrogate() throws Exception {
+        // ## Arrange ##
+        String text = "a𠮷b";
+        SMailEncodedTextBuffer buffer = new SMailEncodedTextBuffer(StandardCharsets.UTF_8, 0);
+
+        // ## Act ##
+        buffer.write(text, 0, 2); // high surrogate at the end
+        buffer.write(text, 2, 2);
+        buffer.close();
+
+        // ## Assert ##
+        assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), buffer.toByteArray());
+    }
+
+    public void test_read_notClosed() throws Exception {
+        // ## Arrange ##
+        SMailEncodedTextBuffer buffer = new SMailEncodedTextBuffer(StandardCharsets.UTF_8, 16);
+        buffer.write("sea");
+
+        // ## Act ##
+        // ## Assert ##
+        assertException(IllegalStateException.class, () -> buffer.newInputStream());
+        buffer.close();
+        assertEquals("sea", new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    // ===================================================================================
+    //                                                                         Test Helper
+    //                                                                         ===========
+    protected byte[] readAll(InputStream ins) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[1000];
+        int len;
+        while ((len = ins.read(buf)) >= 0) {
+            out.write(buf, 0, len);
+        }
+        return out.toByteArray();
+    }
+
+    protected void assertArrayEquals(byte[] expected, byte[] actual) {
+        assertTrue(Arrays.equals(expected, actual));
+    }
+}
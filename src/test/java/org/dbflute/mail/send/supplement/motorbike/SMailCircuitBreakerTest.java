@@ -0,0 +1,139 @@
+package org.dbflute.mail.send.supplement.motorbike;
+
+import java.util.function.Consumer;
+
+import org.dbflute.mail.send.SMailPostalMotorbike;
+import org.dbflute.mail.send.exception.SMailCircuitBreakerOpenException;
+import org.dbflute.mail.send.supplement.motorbike.SMailCircuitBreaker.CircuitState;
+import org.dbflute.mail.send.supplement.motorbike.SMailMotorbikeGroup.GroupBalancing;
+import org.dbflute.utflute.core.PlainTestCase;
+
+/**
+ * @author jflute
+ */
+public class SMailCircuitBreakerTest extends PlainTestCase {
+
+    protected long currentMillis = 1000L;
+
+    // ===================================================================================
+    //                                                                       State Machine
+    //                                                                       =============
+    public void test_open_by_transientFailure() {
+        // ## Arrange ##
+        SMailCircuitBreaker breaker = createBreaker(op -> op.failureThreshold(3).openMillis(100L));
+
+        // ## Act ##
+        // ## Assert ##
+        assertFalse(breaker.recordFailure(breaker.acquire(), true).isPresent());
+        assertFalse(breaker.recordFailure(breaker.acquire(), false).isPresent()); // e.g. 550, relay is working
+        assertEquals(0, breaker.getConsecutiveFailureCount());
+        for (int i = 0; i < 2; i++) {
+            assertFalse(breaker.recordFailure(breaker.acquire(), true).isPresent());
+        }
+        SMailCircuitTransition transition = breaker.recordFailure(breaker.acquire(), true).get();
+        log(transition);
+        assertEquals(CircuitState.CLOSED, transition.getFromState());
+        assertEquals(CircuitState.OPEN, transition.getToState());
+        assertEquals(3, transition.getConsecutiveFailureCount());
+        assertFalse(breaker.isAvailable());
+        assertException(SMailCircuitBreakerOpenException.class, () -> breaker.acquire());
+    }
+
+    public void test_halfOpen_probe() {
+        // ## Arrange ##
+        SMailCircuitBreaker breaker = createBreaker(op -> op.failureThreshold(1).openMillis(100L));
+        breaker.recordFailure(breaker.acquire(), true);
+
+        // ## Act ##
+        currentMillis += 100L;
+
+        // ## Assert ##
+        assertTrue(breaker.isAvailable());
+        SMailCircuitTicket firstProbe = breaker.acquire();
+        assertTrue(firstProbe.isProbe());
+        assertEquals(CircuitState.HALF_OPEN, firstProbe.getTransition().get().getToState());
+        assertFalse(breaker.isAvailable()); // only one probe
+        assertException(SMailCircuitBreakerOpenException.class, () -> breaker.acquire());
+        assertEquals(CircuitState.OPEN, breaker.recordFailure(firstProbe, true).get().getToState()); // probe failed
+
+        currentMillis += 99L;
+        assertFalse(breaker.isAvailable());
+        currentMillis += 1L;
+        SMailCircuitTicket secondProbe = breaker.acquire();
+        assertEquals(CircuitState.HALF_OPEN, secondProbe.getTransition().get().getToState());
+        assertEquals(CircuitState.CLOSED, breaker.recordSuccess(secondProbe).get().getToState()); // probe succeeded
+        assertTrue(breaker.isAvailable());
+        SMailCircuitTicket closedTicket = breaker.acquire();
+        assertFalse(closedTicket.isProbe());
+        assertFalse(closedTicket.getTransition().isPresent());
+    }
+
+    public void test_halfOpen_nonProbeResultIgnored() {
+        // ## Arrange ##
+        SMailCircuitBreaker breaker = createBreaker(op -> op.failureThreshold(1).openMillis(100L));
+        SMailCircuitTicket slowSuccess = breaker.acquire(); // acquired while closed
+        SMailCircuitTicket slowFailure = breaker.acquire();
+        breaker.recordFailure(breaker.acquire(), true);
+        currentMillis += 100L;
+        SMailCircuitTicket probe = breaker.acquire();
+
+        // ## Act ##
+        // ## Assert ##
+        assertFalse(breaker.recordSuccess(slowSuccess).isPresent()); // not close by it
+        assertFalse(breaker.recordFailure(slowFailure, true).isPresent()); // not re-open by it
+        assertEquals(CircuitState.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.isAvailable()); // still probing
+        assertEquals(CircuitState.CLOSED, breaker.recordSuccess(probe).get().getToState()); // the probe decides
+    }
+
+    // ===================================================================================
+    //                                                                            Failover
+    //                                                                            ========
+    public void test_select_failover() {
+        // ## Arrange ##
+        SMailPostalMotorbike primary = new SMailPostalMotorbike().useCircuitBreaker(op -> op.failureThreshold(1));
+        SMailPostalMotorbike secondary = new SMailPostalMotorbike();
+        SMailMotorbikeGroup group = new SMailMotorbikeGroup(GroupBalancing.FAILOVER).join(primary).join(secondary);
+        assertSame(primary, group.select());
+        assertSame(primary, group.select());
+
+        // ## Act ##
+        SMailCircuitBreaker breaker = primary.getCircuitBreaker().get();
+        breaker.recordFailure(breaker.acquire(), true);
+
+        // ## Assert ##
+        assertSame(secondary, group.select());
+        assertSame(secondary, group.select());
+    }
+
+    public void test_select_allOpen() {
+        // ## Arrange ##
+        SMailPostalMotorbike sea = new SMailPostalMotorbike().useCircuitBreaker(op -> op.failureThreshold(1));
+        SMailPostalMotorbike land = new SMailPostalMotorbike().useCircuitBreaker(op -> op.failureThreshold(1));
+        SMailMotorbikeGroup group = new SMailMotorbikeGroup(GroupBalancing.ROUND_ROBIN).join(sea).join(land);
+        SMailCircuitBreaker seaBreaker = sea.getCircuitBreaker().get();
+        seaBreaker.recordFailure(seaBreaker.acquire(), true);
+
+        // ## Act ##
+        // ## Assert ##
+        assertSame(land, group.select());
+        assertSame(land, group.select());
+        SMailCircuitBreaker landBreaker = land.getCircuitBreaker().get();
+        landBreaker.recordFailure(landBreaker.acquire(), true);
+        assertNotNull(group.select()); // selected from all, rejected by the breaker when sending
+    }
+
+    // ===================================================================================
+    //                                                                         Test Helper
+    //                                                                         ===========
+    protected SMailCircuitBreaker createBreaker(Consumer<SMailCircuitBreakerOption> opLambda) {
+        SMailCircuitBreakerOption option = new SMailCircuitBreakerOption();
+        opLambda.accept(option);
+        return new SMailCircuitBreaker(option) {
+            @Override
+            protected long currentMillis() {
+                return currentMillis;
+            }
+        };
+    }
+}
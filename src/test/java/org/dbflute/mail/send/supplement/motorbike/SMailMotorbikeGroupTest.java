@@ -0,0 +1,88 @@
+package org.dbflute.mail.send.supplement.motorbike;
+
+import org.dbflute.mail.DeliveryCategory;
+import org.dbflute.mail.Postcard;
+import org.dbflute.mail.send.SMailPostalMotorbike;
+import org.dbflute.mail.send.SMailPostalParkingLot;
+import org.dbflute.mail.send.supplement.motorbike.SMailMotorbikeGroup.GroupBalancing;
+import org.dbflute.utflute.core.PlainTestCase;
+
+/**
+ * @author jflute
+ */
+public class SMailMotorbikeGroupTest extends PlainTestCase {
+
+    // ===================================================================================
+    //                                                                           Balancing
+    //                                                                           =========
+    public void test_select_roundRobin() {
+        // ## Arrange ##
+        SMailPostalMotorbike sea = new SMailPostalMotorbike();
+        SMailPostalMotorbike land = new SMailPostalMotorbike();
+        SMailMotorbikeGroup group = new SMailMotorbikeGroup(GroupBalancing.ROUND_ROBIN).join(sea).join(land);
+
+        // ## Act ##
+        // ## Assert ##
+        assertSame(sea, group.select());
+        assertSame(land, group.select());
+        assertSame(sea, group.select());
+    }
+
+    public void test_select_leastInFlight() {
+        // ## Arrange ##
+        SMailPostalMotorbike sea = new SMailPostalMotorbike();
+        SMailPostalMotorbike land = new SMailPostalMotorbike();
+        SMailPostalMotorbike piari = new SMailPostalMotorbike();
+        SMailMotorbikeGroup group = new SMailMotorbikeGroup(GroupBalancing.LEAST_IN_FLIGHT).join(sea).join(land).join(piari);
+        sea.getTraffic().beginSending();
+        sea.getTraffic().beginSending();
+        piari.getTraffic().beginSending();
+
+        // ## Act ##
+        // ## Assert ##
+        for (int i = 0; i < 3; i++) {
+            assertSame(land, group.select());
+        }
+        land.getTraffic().beginSending();
+        land.getTraffic().beginSending();
+        assertSame(piari, group.select());
+    }
+
+    public void test_select_latencyWeighted() {
+        // ## Arrange ##
+        SMailPostalMotorbike sea = new SMailPostalMotorbike();
+        SMailPostalMotorbike land = new SMailPostalMotorbike();
+        SMailMotorbikeGroup group = new SMailMotorbikeGroup(GroupBalancing.LATENCY_WEIGHTED).join(sea).join(land);
+        sea.getTraffic().beginSending();
+        sea.getTraffic().finishSending(System.currentTimeMillis() - 500L, true); // as slow relay
+
+        // ## Act ##
+        // ## Assert ##
+        assertSame(land, group.select()); // not measured yet
+        land.getTraffic().beginSending();
+        land.getTraffic().finishSending(System.currentTimeMillis() - 50L, true);
+        log(group);
+        assertSame(land, group.select());
+        assertSame(land, group.select());
+    }
+
+    // ===================================================================================
+    //                                                                         Parking Lot
+    //                                                                         ===========
+    public void test_findMotorbike_group() {
+        // ## Arrange ##
+        SMailPostalMotorbike sea = new SMailPostalMotorbike();
+        SMailPostalMotorbike land = new SMailPostalMotorbike();
+        SMailPostalParkingLot parkingLot = new SMailPostalParkingLot();
+        parkingLot.registerMotorbikeAsMain(new SMailPostalMotorbike());
+        parkingLot.registerMotorbikeGroupAsMain(new SMailMotorbikeGroup(GroupBalancing.ROUND_ROBIN).join(sea).join(land));
+
+        // ## Act ##
+        // ## Assert ##
+        assertSame(sea, parkingLot.findMotorbike(new Postcard()));
+        assertSame(land, parkingLot.findMotorbike(new Postcard()));
+        assertException(IllegalArgumentException.class, () -> {
+            parkingLot.registerMotorbikeGroup(new DeliveryCategory("sea"), new SMailMotorbikeGroup(GroupBalancing.ROUND_ROBIN));
+        });
+    }
+}
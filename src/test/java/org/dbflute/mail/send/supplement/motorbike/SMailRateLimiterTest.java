@@ -0,0 +1,74 @@
+package org.dbflute.mail.send.supplement.motorbike;
+
+import java.util.function.Consumer;
+
+import org.dbflute.utflute.core.PlainTestCase;
+
+/**
+ * @author jflute
+ */
+public class SMailRateLimiterTest extends PlainTestCase {
+
+    protected long currentMillis = 1000L;
+
+    // ===================================================================================
+    //                                                                        Token Bucket
+    //                                                                        ============
+    public void test_reserve_burstAndRate() {
+        // ## Arrange ##
+        SMailRateLimiter limiter = createLimiter(op -> op.sustainedRate(2.0).burstSize(3)); // 500ms per message
+
+        // ## Act ##
+        // ## Assert ##
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0L, limiter.reserve(0L).get().longValue()); // burst
+        }
+        assertFalse(limiter.reserve(0L).isPresent()); // fast rejection
+        assertEquals(500L, limiter.reserve(1000L).get().longValue());
+        assertEquals(1000L, limiter.reserve(1000L).get().longValue()); // after the reserved one
+        assertFalse(limiter.reserve(1000L).isPresent()); // over the bounded wait
+
+        currentMillis += 1000L; // reserved ones are consumed
+        assertEquals(500L, limiter.reserve(1000L).get().longValue());
+        currentMillis += 60000L; // refilled up to burst
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0L, limiter.reserve(0L).get().longValue());
+        }
+        assertFalse(limiter.reserve(0L).isPresent());
+    }
+
+    // ===================================================================================
+    //                                                                        Hourly Quota
+    //                                                                        ============
+    public void test_reserve_hourlyQuota() {
+        // ## Arrange ##
+        SMailRateLimiter limiter = createLimiter(op -> op.sustainedRate(100.0).burstSize(10).hourlyQuota(3));
+
+        // ## Act ##
+        // ## Assert ##
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0L, limiter.reserve(0L).get().longValue());
+            currentMillis += 1000L;
+        }
+        assertFalse(limiter.reserve(60000L).isPresent()); // until the first one expires
+        long waitMillis = limiter.reserve(3600000L).get();
+        assertEquals(3600000L - 3000L, waitMillis);
+
+        currentMillis += 3600000L;
+        assertEquals(0L, limiter.reserve(0L).get().longValue()); // second one expired
+    }
+
+    // ===================================================================================
+    //                                                                         Test Helper
+    //                                                                         ===========
+    protected SMailRateLimiter createLimiter(Consumer<SMailRateLimiterOption> opLambda) {
+        SMailRateLimiterOption option = new SMailRateLimiterOption();
+        opLambda.accept(option);
+        return new SMailRateLimiter(option) {
+            @Override
+            protected long currentMillis() {
+                return currentMillis;
+            }
+        };
+    }
+}
@@ -0,0 +1,166 @@
+package org.dbflute.mail.send.supplement.scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.dbflute.mail.Postcard;
+import org.dbflute.mail.send.SMailAddress;
+import org.dbflute.mail.send.exception.SMailDomainPermitTimeoutException;
+import org.dbflute.utflute.core.PlainTestCase;
+
+/**
+ * @author jflute
+ */
+public class SMailDomainSchedulerTest extends PlainTestCase {
+
+    // ===================================================================================
+    //                                                                         Concurrency
+    //                                                                         ===========
+    public void test_dispatch_interleaved() {
+        // ## Arrange ##
+        SMailDomainScheduler scheduler = new SMailDomainScheduler(op -> op.maxConcurrentPerDomain(1));
+        List<SMailDomainPermit> startedList = new ArrayList<SMailDomainPermit>();
+        for (int i = 0; i < 3; i++) { // large batch to one domain
+            scheduler.dispatch(createPostcard("sea" + i + "@gmail.com"), permit -> startedList.add(permit));
+        }
+        scheduler.dispatch(createPostcard("land@example.com"), permit -> startedList.add(permit));
+        scheduler.dispatch(createPostcard("piari@Example.com"), permit -> startedList.add(permit));
+
+        // ## Act ##
+        // ## Assert ##
+        assertEquals(2, startedList.size()); // one per domain
+        assertEquals("gmail.com", startedList.get(0).getDomain());
+        assertEquals("example.com", startedList.get(1).getDomain()); // not stalled by gmail
+        assertEquals(2, scheduler.getWaitingCount("gmail.com"));
+        assertEquals(1, scheduler.getWaitingCount("example.com"));
+
+        startedList.get(0).release();
+        startedList.get(0).release(); // twice is no problem
+        assertEquals(3, startedList.size());
+        assertEquals("gmail.com", startedList.get(2).getDomain());
+        assertEquals(1, scheduler.getInFlightCount("gmail.com"));
+        assertEquals(1, scheduler.getWaitingCount("gmail.com"));
+    }
+
+    public void test_dispatch_domainLimit() {
+        // ## Arrange ##
+        SMailDomainScheduler scheduler = new SMailDomainScheduler(op -> op.maxConcurrentPerDomain(1).domainLimit("gmail.com", 2, 0.0));
+        List<SMailDomainPermit> startedList = new ArrayList<SMailDomainPermit>();
+
+        // ## Act ##
+        for (int i = 0; i < 3; i++) {
+            scheduler.dispatch(createPostcard("sea" + i + "@gmail.com"), permit -> startedList.add(permit));
+            scheduler.dispatch(createPostcard("land" + i + "@example.com"), permit -> startedList.add(permit));
+        }
+
+        // ## Assert ##
+        assertEquals(3, startedList.size());
+        assertEquals(2, scheduler.getInFlightCount("gmail.com"));
+        assertEquals(1, scheduler.getInFlightCount("example.com"));
+    }
+
+    public void test_acquire_inlineRelease() {
+        // ## Arrange ##
+        SMailDomainScheduler scheduler = new SMailDomainScheduler(op -> op.maxConcurrentPerDomain(1));
+
+        // ## Act ##
+        for (int i = 0; i < 3; i++) {
+            SMailDomainPermit permit = scheduler.acquire(createPostcard("sea@gmail.com"));
+            try {
+                assertEquals(1, scheduler.getInFlightCount("gmail.com"));
+            } finally {
+                permit.release();
+            }
+        }
+
+        // ## Assert ##
+        assertEquals(0, scheduler.getInFlightCount("gmail.com"));
+    }
+
+    // ===================================================================================
+    //                                                                                Rate
+    //                                                                                ====
+    public void test_dispatch_rateDelayed() throws Exception {
+        // ## Arrange ##
+        SMailDomainScheduler scheduler = new SMailDomainScheduler(op -> op.maxConcurrentPerDomain(2).ratePerDomain(20.0)); // 50ms
+        List<Long> startedList = new CopyOnWriteArrayList<Long>();
+        long beginMillis = System.currentTimeMillis();
+
+        // ## Act ##
+        for (int i = 0; i < 2; i++) {
+            scheduler.dispatch(createPostcard("sea@gmail.com"), permit -> {
+                startedList.add(System.currentTimeMillis() - beginMillis);
+                permit.release();
+            });
+        }
+        Thread.sleep(300L);
+
+        // ## Assert ##
+        log(startedList);
+        assertEquals(2, startedList.size());
+        assertTrue(startedList.get(1) >= 40L); // delayed by timer
+        scheduler.close();
+    }
+
+    public void test_acquire_timeout() {
+        // ## Arrange ##
+        SMailDomainScheduler scheduler = new SMailDomainScheduler(op -> op.maxConcurrentPerDomain(1).acquireTimeoutMillis(50L));
+        SMailDomainPermit holding = scheduler.acquire(createPostcard("sea@gmail.com"));
+
+        // ## Act ##
+        // ## Assert ##
+        assertException(SMailDomainPermitTimeoutException.class, () -> scheduler.acquire(createPostcard("land@gmail.com")));
+        holding.release(); // the timed-out one is admitted and released at once
+        assertEquals(0, scheduler.getInFlightCount("gmail.com"));
+        assertEquals(0, scheduler.getWaitingCount("gmail.com"));
+    }
+
+    // ===================================================================================
+    //                                                                       Start Failure
+    //                                                                       =============
+    public void test_dispatch_startFailure_inline() {
+        // ## Arrange ##
+        SMailDomainScheduler scheduler = new SMailDomainScheduler(op -> op.maxConcurrentPerDomain(1));
+        List<RuntimeException> handledList = new ArrayList<RuntimeException>();
+
+        // ## Act ##
+        // ## Assert ##
+        assertException(RejectedExecutionException.class, () -> {
+            scheduler.dispatch(createPostcard("sea@gmail.com"), permit -> {
+                throw new RejectedExecutionException("saturated");
+            }, cause -> handledList.add(cause));
+        });
+        assertTrue(handledList.isEmpty()); // thrown to the caller instead
+        assertEquals(0, scheduler.getInFlightCount("gmail.com"));
+    }
+
+    public void test_dispatch_startFailure_byOtherRelease() {
+        // ## Arrange ##
+        SMailDomainScheduler scheduler = new SMailDomainScheduler(op -> op.maxConcurrentPerDomain(1));
+        List<SMailDomainPermit> startedList = new ArrayList<SMailDomainPermit>();
+        List<RuntimeException> handledList = new ArrayList<RuntimeException>();
+        scheduler.dispatch(createPostcard("sea@gmail.com"), permit -> startedList.add(permit));
+        scheduler.dispatch(createPostcard("land@gmail.com"), permit -> { // waiting
+            throw new RejectedExecutionException("saturated");
+        }, cause -> handledList.add(cause));
+
+        // ## Act ##
+        startedList.get(0).release(); // starts the waiting one
+
+        // ## Assert ##
+        assertEquals(1, handledList.size()); // not lost
+        assertEquals("saturated", handledList.get(0).getMessage());
+        assertEquals(0, scheduler.getInFlightCount("gmail.com"));
+    }
+
+    // ===================================================================================
+    //                                                                         Test Helper
+    //                                                                         ===========
+    protected Postcard createPostcard(String to) {
+        Postcard postcard = new Postcard();
+        postcard.addTo(new SMailAddress(to, null));
+        return postcard;
+    }
+}
@@ -0,0 +1,152 @@
+package org.dbflute.mail.send.supplement.template;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.dbflute.mail.send.supplement.template.SMailPropertyAccessor.AccessorType;
+import org.dbflute.twowaysql.node.BoundValue;
+import org.dbflute.twowaysql.node.BoundValueTracer;
+import org.dbflute.twowaysql.node.ParameterCommentType;
+import org.dbflute.utflute.core.PlainTestCase;
+
+/**
+ * @author jflute
+ */
+public class SMailPropertyPathTest extends PlainTestCase {
+
+    // ===================================================================================
+    //                                                                            Accessor
+    //                                                                            ========
+    public void test_trace_byAccessor_nested() {
+        // ## Arrange ##
+        SMailPropertyPath path = preparePath("pmb.member.memberName");
+        MockPmb pmb = new MockPmb(new MockMember("mystic", null));
+
+        // ## Act ##
+        BoundValue first = path.trace(new SMailRenderingContext(pmb, new StringBuilder()));
+        SMailPropertyAccessor cached = path.accessorCache.get(2);
+        BoundValue second = path.trace(new SMailRenderingContext(new MockPmb(new MockMember("bonvo", null)), new StringBuilder()));
+
+        // ## Assert ##
+        assertEquals("mystic", first.getTargetValue());
+        assertEquals(String.class, first.getTargetType());
+        assertEquals("bonvo", second.getTargetValue());
+        assertEquals(AccessorType.GETTER, cached.getAccessorType());
+        assertSame(cached, path.accessorCache.get(2)); // reused
+        assertEquals(MockMember.class, cached.getBeanType());
+    }
+
+    public void test_trace_byAccessor_sameAsTracer() {
+        // ## Arrange ##
+        Map<String, Object> memberMap = new HashMap<String, Object>();
+        memberMap.put("memberName", "dstore");
+        memberMap.put("empty", "map key"); // property of map is prior
+        List<String> exprList = Arrays.asList("pmb.member.memberName", "pmb.member.memberAccount", "pmb.member.memberAccount.length",
+                "pmb.memberMap.memberName", "pmb.memberMap.empty", "pmb.memberMap.none", "pmb.memberList.get(0).memberName");
+        MockPmb pmb = new MockPmb(new MockMember("mystic", null));
+        pmb.memberMap = memberMap;
+        pmb.memberList = Arrays.asList(new MockMember("amba", "miraco"));
+
+        for (String expr : exprList) {
+            // ## Act ##
+            BoundValue actual = preparePath(expr).trace(new SMailRenderingContext(pmb, new StringBuilder()));
+
+            // ## Assert ##
+            BoundValue expected = new BoundValue();
+            expected.setFirstValue(pmb);
+            expected.setFirstType(pmb.getClass());
+            new BoundValueTracer(Arrays.asList(expr.split("\\.")), expr, expr, ParameterCommentType.EMBEDDED).trace(expected);
+            log(expr, actual.getTargetValue(), actual.getTargetType());
+            assertEquals(expected.getTargetValue(), actual.getTargetValue());
+            assertEquals(expected.getTargetType(), actual.getTargetType());
+        }
+    }
+
+    public void test_trace_byTracer_listIndex() {
+        // ## Arrange ##
+        SMailPropertyPath path = preparePath("pmb.memberList.get(0).memberName");
+        MockPmb pmb = new MockPmb(null);
+        pmb.memberList = Arrays.asList(new MockMember("amba", null));
+
+        // ## Act ##
+        BoundValue boundValue = path.trace(new SMailRenderingContext(pmb, new StringBuilder()));
+
+        // ## Assert ##
+        assertEquals("amba", boundValue.getTargetValue());
+        assertNotNull(path.accessorCache.get(1)); // memberList
+        assertNull(path.accessorCache.get(2)); // get(0) is not cached
+    }
+
+    public void test_trace_byAccessor_getterFailure() {
+        // ## Arrange ##
+        SMailPropertyPath path = preparePath("pmb.member.memberName");
+        MockPmb pmb = new MockPmb(new MockMember(null, null) {
+            @Override
+            public String getMemberName() {
+                ++readCount;
+                throw new IllegalStateException("broken member");
+            }
+        });
+
+        // ## Act ##
+        // ## Assert ##
+        assertException(IllegalStateException.class, () -> {
+            path.trace(new SMailRenderingContext(pmb, new StringBuilder()));
+        }).handle(cause -> {
+            assertEquals("broken member", cause.getMessage());
+        });
+        assertEquals(1, pmb.getMember().readCount); // not called again by tracer
+    }
+
+    // ===================================================================================
+    //                                                                         Test Helper
+    //                                                                         ===========
+    protected SMailPropertyPath preparePath(String expression) {
+        return new SMailPropertyPath(expression, Arrays.asList(expression.split("\\.")), expression, ParameterCommentType.EMBEDDED);
+    }
+
+    public static class MockPmb {
+
+        protected final MockMember member;
+        protected Map<String, Object> memberMap;
+        protected List<MockMember> memberList;
+
+        public MockPmb(MockMember member) {
+            this.member = member;
+        }
+
+        public MockMember getMember() {
+            return member;
+        }
+
+        public Map<String, Object> getMemberMap() {
+            return memberMap;
+        }
+
+        public List<MockMember> getMemberList() {
+            return memberList;
+        }
+    }
+
+    public static class MockMember {
+
+        protected final String memberName;
+        protected final String memberAccount;
+        protected int readCount;
+
+        public MockMember(String memberName, String memberAccount) {
+            this.memberName = memberName;
+            this.memberAccount = memberAccount;
+        }
+
+        public String getMemberName() {
+            return memberName;
+        }
+
+        public String getMemberAccount() {
+            return memberAccount;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package org.dbflute.mail.send.supplement.transport;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The fake SMTP server for transport tests, handles each connection in its own thread.
+ * <pre>
+ * o recipient that contains "bad" is rejected by 550
+ * o recipient that contains "once" is rejected by 450 only at first time
+ * o recipient that contains "drop" breaks the connection without reply
+ * o received data (without dot line) is kept per mail
+ * </pre>
+ * @author jflute
+ */
+public class SMailFakeSmtpServer implements AutoCloseable {
+
+    protected final boolean pipeliningAdvertised;
+    protected final ServerSocket serverSocket;
+    protected final Thread thread;
+    protected final List<String> receivedList = new CopyOnWriteArrayList<String>();
+    protected final List<String> dataList = new CopyOnWriteArrayList<String>();
+    protected final Set<String> onceRejectedSet = ConcurrentHashMap.newKeySet();
+    protected volatile boolean envelopePipelined;
+
+    public SMailFakeSmtpServer(boolean pipeliningAdvertised) throws IOException {
+        this.pipeliningAdvertised = pipeliningAdvertised;
+        this.serverSocket = new ServerSocket(0);
+        this.thread = new Thread(() -> serve());
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    protected void serve() {
+        while (!serverSocket.isClosed()) {
+            try {
+                final Socket socket = serverSocket.accept();
+                final Thread conversation = new Thread(() -> { // e.g. retry by other session while together session
+                    try (Socket closed = socket) {
+                        converse(socket);
+                    } catch (IOException | InterruptedException ignored) {}
+                });
+                conversation.setDaemon(true);
+                conversation.start();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    protected void converse(Socket socket) throws IOException, InterruptedException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+        OutputStream out = socket.getOutputStream();
+        reply(out, "220 fake ESMTP");
+        String line;
+        while ((line = reader.readLine()) != null) {
+            receivedList.add(line);
+            if (line.startsWith("EHLO")) {
+                reply(out, pipeliningAdvertised ? "250-fake\r\n250 PIPELINING" : "250 fake");
+            } else if (line.startsWith("MAIL FROM:")) {
+                Thread.sleep(50L); // wait for following commands if pipelined
+                envelopePipelined = reader.ready();
+                reply(out, "250 ok");
+            } else if (line.startsWith("RCPT TO:")) {
+                if (line.contains("drop")) {
+                    break; // closed by caller
+                }
+                if (line.contains("once") && onceRejectedSet.add(line)) {
+                    reply(out, "450 try again later");
+                } else {
+                    reply(out, line.contains("bad") ? "550 no such user" : "250 ok");
+                }
+            } else if (line.startsWith("DATA")) {
+                reply(out, "354 go ahead");
+                StringBuilder sb = new StringBuilder();
+                while ((line = reader.readLine()) != null && !line.equals(".")) {
+                    sb.append(line).append("\n");
+                }
+                dataList.add(sb.toString());
+                reply(out, "250 queued");
+            } else if (line.startsWith("QUIT")) {
+                reply(out, "221 bye");
+                break;
+            } else {
+                reply(out, "250 ok"); // e.g. RSET, NOOP
+            }
+        }
+    }
+
+    protected void reply(OutputStream out, String response) throws IOException {
+        out.write((response + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public List<String> getReceivedList() {
+        return receivedList;
+    }
+
+    public List<String> getDataList() {
+        return dataList;
+    }
+
+    public boolean isEnvelopePipelined() {
+        return envelopePipelined;
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+}
@@ -0,0 +1,139 @@
+package org.dbflute.mail.send.supplement.transport;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.mail.AuthenticationFailedException;
+import javax.mail.SendFailedException;
+import javax.mail.internet.InternetAddress;
+
+import org.dbflute.utflute.core.PlainTestCase;
+
+import com.sun.mail.smtp.SMTPAddressFailedException;
+
+/**
+ * @author jflute
+ */
+public class SMailNioSmtpEngineTest extends PlainTestCase {
+
+    // ===================================================================================
+    //                                                                              Submit
+    //                                                                              ======
+    public void test_submit_basic() throws Exception {
+        // ## Arrange ##
+        try (SMailFakeSmtpServer server = new SMailFakeSmtpServer(false);
+                SMailNioSmtpEngine engine = new SMailNioSmtpEngine(op -> op.heloName("sea.example.com"))) {
+            SMailNioEnvelope first = prepareEnvelope(server, "sea@example.com", "land@example.com");
+            SMailNioEnvelope second = prepareEnvelope(server, "piari@example.com");
+
+            // ## Act ##
+            CompletableFuture<SMailNioSentResult> firstFuture = engine.submit(first, 0L);
+            CompletableFuture<SMailNioSentResult> secondFuture = engine.submit(second, 0L);
+            SMailNioSentResult firstResult = firstFuture.get(10, TimeUnit.SECONDS);
+            SMailNioSentResult secondResult = secondFuture.get(10, TimeUnit.SECONDS);
+
+            // ## Assert ##
+            log(firstResult, secondResult);
+            assertEquals(250, firstResult.getLastReturnCode());
+            assertEquals(2, firstResult.getRecipientReplyMap().size());
+            assertTrue(firstResult.getRecipientReplyMap().get("land@example.com").isAccepted());
+            assertEquals(250, secondResult.getLastReturnCode());
+            assertTrue(server.getReceivedList().contains("EHLO sea.example.com"));
+            assertEquals(2, server.getDataList().size());
+        }
+    }
+
+    public void test_submit_rejected() throws Exception {
+        // ## Arrange ##
+        try (SMailFakeSmtpServer server = new SMailFakeSmtpServer(false);
+                SMailNioSmtpEngine engine = new SMailNioSmtpEngine(op -> {})) {
+            SMailNioEnvelope envelope = prepareEnvelope(server, "sea@example.com", "bad@example.com");
+
+            // ## Act ##
+            CompletableFuture<SMailNioSentResult> future = engine.submit(envelope, 0L);
+
+            // ## Assert ##
+            try {
+                future.get(10, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                log(e.getCause().getMessage());
+                assertTrue(e.getCause() instanceof SendFailedException); // same as JavaMail
+                assertContains(e.getCause().getMessage(), "bad@example.com");
+                SendFailedException failure = (SendFailedException) e.getCause();
+                assertEquals("bad@example.com", ((InternetAddress) failure.getInvalidAddresses()[0]).getAddress());
+                assertEquals("sea@example.com", ((InternetAddress) failure.getValidUnsentAddresses()[0]).getAddress());
+                assertNull(failure.getValidSentAddresses());
+                assertTrue(failure.getNextException() instanceof SMTPAddressFailedException);
+            }
+            assertTrue(server.getDataList().isEmpty());
+        }
+    }
+
+    public void test_submit_authPlainNotAdvertised() throws Exception {
+        // ## Arrange ##
+        try (SMailFakeSmtpServer server = new SMailFakeSmtpServer(false);
+                SMailNioSmtpEngine engine = new SMailNioSmtpEngine(op -> {})) {
+            SMailNioEnvelope envelope = prepareEnvelope(server, "sea@example.com").authPlain("office", "secret");
+
+            // ## Act ##
+            CompletableFuture<SMailNioSentResult> future = engine.submit(envelope, 0L);
+
+            // ## Assert ##
+            try {
+                future.get(10, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                log(e.getCause().getMessage());
+                assertTrue(e.getCause() instanceof AuthenticationFailedException);
+            }
+            assertFalse(server.getReceivedList().stream().anyMatch(received -> received.startsWith("MAIL FROM")));
+        }
+    }
+
+    public void test_submit_closed() throws Exception {
+        // ## Arrange ##
+        SMailNioSmtpEngine engine = new SMailNioSmtpEngine(op -> {});
+        engine.close();
+        SMailNioEnvelope envelope = new SMailNioEnvelope(new InetSocketAddress("localhost", 25), "office@example.com",
+                Arrays.asList("sea@example.com"), ".\r\n".getBytes(StandardCharsets.US_ASCII));
+
+        // ## Act ##
+        // ## Assert ##
+        assertTrue(engine.submit(envelope, 0L).isCompletedExceptionally());
+    }
+
+    public void test_submit_closedWhileSubmitting() throws Exception {
+        // ## Arrange ##
+        SMailNioSmtpEngine engine = new SMailNioSmtpEngine(op -> {}) {
+            @Override
+            protected SMailNioConversation newConversation(SMailNioEnvelope envelope, CompletableFuture<SMailNioSentResult> future,
+                    long startTimeMillis) {
+                close(); // after closed check, and the loop aborts all before enqueued
+                return super.newConversation(envelope, future, startTimeMillis);
+            }
+        };
+        SMailNioEnvelope envelope = new SMailNioEnvelope(new InetSocketAddress("localhost", 25), "office@example.com",
+                Arrays.asList("sea@example.com"), ".\r\n".getBytes(StandardCharsets.US_ASCII));
+
+        // ## Act ##
+        CompletableFuture<SMailNioSentResult> future = engine.submit(envelope, 0L);
+
+        // ## Assert ##
+        assertTrue(future.isCompletedExceptionally()); // not left forever
+        assertTrue(engine.submittedQueue.isEmpty());
+    }
+
+    // ===================================================================================
+    //                                                                         Test Helper
+    //                                                                         ===========
+    protected SMailNioEnvelope prepareEnvelope(SMailFakeSmtpServer server, String... recipients) {
+        InetSocketAddress serverAddress = new InetSocketAddress("localhost", server.getPort());
+        byte[] data = "Subject: nio\r\n\r\nhello\r\n.\r\n".getBytes(StandardCharsets.US_ASCII);
+        return new SMailNioEnvelope(serverAddress, "office@example.com", Arrays.asList(recipients), data);
+    }
+}
@@ -0,0 +1,98 @@
+package org.dbflute.mail.send.supplement.transport;
+
+import java.util.Map;
+
+import javax.mail.Message.RecipientType;
+import javax.mail.SendFailedException;
+import javax.mail.Transport;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+import org.dbflute.mail.send.SMailPostalMotorbike;
+import org.dbflute.utflute.core.PlainTestCase;
+
+/**
+ * @author jflute
+ */
+public class SMailPipeliningTransportTest extends PlainTestCase {
+
+    // ===================================================================================
+    //                                                                          Pipelining
+    //                                                                          ==========
+    public void test_sendMessage_pipelined() throws Exception {
+        // ## Arrange ##
+        try (SMailFakeSmtpServer server = new SMailFakeSmtpServer(true)) {
+            SMailPostalMotorbike motorbike = prepareMotorbike(server);
+            Transport transport = motorbike.getNativeSession().getTransport();
+            assertTrue(transport instanceof SMailPipeliningTransport);
+
+            // ## Act ##
+            transport.connect();
+            try {
+                MimeMessage message = prepareMessage(motorbike, "sea@example.com", "bad@example.com", "land@example.com");
+                transport.sendMessage(message, message.getAllRecipients());
+                fail();
+            } catch (SendFailedException e) { // partially sent
+                log(e.getMessage());
+                assertEquals(1, e.getInvalidAddresses().length);
+            } finally {
+                transport.close();
+            }
+
+            // ## Assert ##
+            Map<String, SMailRecipientReply> replyMap = ((SMailPipeliningTransport) transport).getRecipientReplyMap();
+            log(replyMap, server.getReceivedList());
+            assertEquals(3, replyMap.size());
+            assertTrue(replyMap.get("sea@example.com").isAccepted());
+            assertEquals(550, replyMap.get("bad@example.com").getReturnCode());
+            assertTrue(replyMap.get("bad@example.com").getServerResponse().contains("no such user"));
+            assertTrue(replyMap.get("land@example.com").isAccepted());
+            assertTrue(server.isEnvelopePipelined());
+        }
+    }
+
+    public void test_sendMessage_notAdvertised() throws Exception {
+        // ## Arrange ##
+        try (SMailFakeSmtpServer server = new SMailFakeSmtpServer(false)) {
+            SMailPostalMotorbike motorbike = prepareMotorbike(server);
+            Transport transport = motorbike.getNativeSession().getTransport();
+
+            // ## Act ##
+            transport.connect();
+            try {
+                MimeMessage message = prepareMessage(motorbike, "sea@example.com", "land@example.com");
+                transport.sendMessage(message, message.getAllRecipients());
+            } finally {
+                transport.close();
+            }
+
+            // ## Assert ##
+            Map<String, SMailRecipientReply> replyMap = ((SMailPipeliningTransport) transport).getRecipientReplyMap();
+            log(replyMap);
+            assertEquals(2, replyMap.size()); // recorded one by one
+            assertTrue(replyMap.get("land@example.com").isAccepted());
+            assertFalse(server.isEnvelopePipelined());
+        }
+    }
+
+    // ===================================================================================
+    //                                                                         Test Helper
+    //                                                                         ===========
+    protected SMailPostalMotorbike prepareMotorbike(SMailFakeSmtpServer server) {
+        SMailPostalMotorbike motorbike = new SMailPostalMotorbike().usePipeliningTransport();
+        motorbike.registerConnectionInfo("localhost", server.getPort());
+        motorbike.setProperty("mail.smtp.sendpartial", "true");
+        return motorbike;
+    }
+
+    protected MimeMessage prepareMessage(SMailPostalMotorbike motorbike, String... toAddresses) throws Exception {
+        MimeMessage message = new MimeMessage(motorbike.getNativeSession());
+        message.setFrom(new InternetAddress("office@example.com"));
+        for (String to : toAddresses) {
+            message.addRecipient(RecipientType.TO, new InternetAddress(to));
+        }
+        message.setSubject("pipelining");
+        message.setText("hello");
+        return message;
+    }
+}
@@ -0,0 +1,151 @@
+package org.dbflute.mail.send.supplement.transport;
+
+import java.util.function.Consumer;
+
+import javax.mail.Address;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Provider;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.URLName;
+
+import org.dbflute.mail.send.SMailPostalMotorbike;
+import org.dbflute.utflute.core.PlainTestCase;
+
+/**
+ * @author jflute
+ */
+public class SMailTransportPoolTest extends PlainTestCase {
+
+    // ===================================================================================
+    //                                                                              Borrow
+    //                                                                              ======
+    public void test_borrow_reuse() throws Exception {
+        // ## Arrange ##
+        SMailTransportPool pool = preparePool(op -> op.maxSize(2));
+
+        // ## Act ##
+        SMailPooledTransport first = pool.borrow().get();
+        pool.giveBack(first);
+        SMailPooledTransport second = pool.borrow().get();
+
+        // ## Assert ##
+        log(pool);
+        assertSame(first, second);
+        assertTrue(second.getTransport().isConnected());
+        assertEquals(1, pool.getBorrowedCount());
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    public void test_borrow_exhausted() throws Exception {
+        // ## Arrange ##
+        SMailTransportPool pool = preparePool(op -> op.maxSize(1));
+        SMailPooledTransport first = pool.borrow().get();
+
+        // ## Act ##
+        // ## Assert ##
+        assertFalse(pool.borrow().isPresent()); // connect-per-message by postie
+        pool.giveBack(first);
+        assertTrue(pool.borrow().isPresent());
+    }
+
+    // ===================================================================================
+    //                                                                           Give Back
+    //                                                                           =========
+    public void test_giveBack_maxMessages() throws Exception {
+        // ## Arrange ##
+        SMailTransportPool pool = preparePool(op -> op.maxSize(2).maxMessagesPerConnection(2));
+        SMailPooledTransport first = pool.borrow().get();
+        first.countSent();
+        pool.giveBack(first);
+        assertSame(first, pool.borrow().get());
+        first.countSent();
+
+        // ## Act ##
+        pool.giveBack(first);
+
+        // ## Assert ##
+        assertEquals(0, pool.getIdleCount());
+        assertFalse(first.getTransport().isConnected());
+        assertNotSame(first, pool.borrow().get());
+    }
+
+    public void test_invalidate() throws Exception {
+        // ## Arrange ##
+        SMailTransportPool pool = preparePool(op -> op.maxSize(1));
+        SMailPooledTransport first = pool.borrow().get();
+
+        // ## Act ##
+        pool.invalidate(first);
+
+        // ## Assert ##
+        assertFalse(first.getTransport().isConnected());
+        assertEquals(0, pool.getBorrowedCount());
+        assertNotSame(first, pool.borrow().get());
+    }
+
+    // ===================================================================================
+    //                                                                       Idle Eviction
+    //                                                                       =============
+    public void test_evictIdle_keepMinIdle() throws Exception {
+        // ## Arrange ##
+        SMailTransportPool pool = preparePool(op -> op.maxSize(3).minIdle(1).idleTimeoutMillis(1));
+        SMailPooledTransport first = pool.borrow().get();
+        SMailPooledTransport second = pool.borrow().get();
+        pool.giveBack(first);
+        pool.giveBack(second);
+        Thread.sleep(20L);
+
+        // ## Act ##
+        pool.evictIdle();
+
+        // ## Assert ##
+        assertEquals(1, pool.getIdleCount());
+        assertFalse(first.getTransport().isConnected()); // oldest is evicted
+        assertTrue(second.getTransport().isConnected());
+    }
+
+    public void test_close() throws Exception {
+        // ## Arrange ##
+        SMailTransportPool pool = preparePool(op -> op.maxSize(2));
+        SMailPooledTransport first = pool.borrow().get();
+        SMailPooledTransport second = pool.borrow().get();
+        pool.giveBack(first);
+
+        // ## Act ##
+        pool.close();
+        pool.giveBack(second);
+
+        // ## Assert ##
+        assertFalse(first.getTransport().isConnected());
+        assertFalse(second.getTransport().isConnected());
+        assertFalse(pool.borrow().isPresent());
+    }
+
+    // ===================================================================================
+    //                                                                         Test Helper
+    //                                                                         ===========
+    protected SMailTransportPool preparePool(Consumer<SMailTransportPoolOption> opLambda) throws MessagingException {
+        SMailPostalMotorbike motorbike = new SMailPostalMotorbike().usePooledTransport(opLambda);
+        Session session = motorbike.getNativeSession();
+        session.setProvider(new Provider(Provider.Type.TRANSPORT, "smtp", MockTransport.class.getName(), "test", "1.0"));
+        return motorbike.getTransportPool().get();
+    }
+
+    public static class MockTransport extends Transport {
+
+        public MockTransport(Session session, URLName urlname) {
+            super(session, urlname);
+        }
+
+        @Override
+        protected boolean protocolConnect(String host, int port, String user, String password) throws MessagingException {
+            return true;
+        }
+
+        @Override
+        public void sendMessage(Message msg, Address[] addresses) throws MessagingException {
+        }
+    }
+}